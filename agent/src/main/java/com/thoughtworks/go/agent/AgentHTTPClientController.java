@@ -141,7 +141,11 @@ public class AgentHTTPClientController extends AgentController {
                 new AgentWorkContext(agentIdentifier, client, manipulator, getAgentRuntimeInfo(), scmExtension, taskExtension, artifactExtension, pluginRequestProcessorRegistry)
             );
             LOG.debug("[Agent Loop] Successfully executed work.");
-            return WorkAttempt.fromWork(work);
+            WorkAttempt attempt = WorkAttempt.fromWork(work);
+            if (attempt == WorkAttempt.NOTHING_TO_DO && client.serverWaitedForWork()) {
+                return WorkAttempt.NOTHING_TO_DO_AFTER_WAITING;
+            }
+            return attempt;
         } catch (UnregisteredAgentException e) {
             LOG.warn("[Agent Loop] Agent is not registered. [{}] Registering with server on next iteration.", e.getMessage());
             sslInfrastructureService.createSslInfrastructure();
@@ -62,6 +62,10 @@ public class AgentWorkRetrievalScheduler implements Runnable {
                     // On successful work; reset any backoff accumulation; and try immediately to get more work
                     backOffExecution = backoffStrategy.start();
                     LOG.debug("[Agent Loop] Immediately retrieving next work.");
+                } else if (WorkAttempt.NOTHING_TO_DO_AFTER_WAITING.equals(result)) {
+                    // The server already held on to the request for as long as it was willing to, so there is no point waiting any longer
+                    backOffExecution = backoffStrategy.start();
+                    LOG.debug("[Agent Loop] Server waited for work on our behalf. Immediately retrieving next work.");
                 } else {
                     long nextBackOffMillis = backOffExecution.nextBackOff();
                     LOG.debug("[Agent Loop] Waiting {} ms before retrieving next work.", nextBackOffMillis);
@@ -40,15 +40,16 @@ import org.apache.http.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static com.thoughtworks.go.agent.ResponseHelpers.readBodyAsString;
 import static com.thoughtworks.go.agent.ResponseHelpers.readBodyAsStringOrElse;
-import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_AUTH;
-import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_UUID;
+import static com.thoughtworks.go.remote.StandardHeaders.*;
 import static java.lang.String.format;
 
 @Component
@@ -58,12 +59,15 @@ public class RemotingClient implements BuildRepositoryRemote {
     private final GoAgentServerHttpClient client;
     private final DefaultAgentRegistry agent;
     private final URLService urls;
+    private final long workWaitMillis;
+    private volatile boolean serverWaitedForWork;
 
     @Autowired
-    public RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls) {
+    public RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls, @Value("${agent.get.work.wait}") long workWaitMillis) {
         this.client = client;
         this.agent = agent;
         this.urls = urls;
+        this.workWaitMillis = workWaitMillis;
     }
 
     @Override
@@ -73,7 +77,21 @@ public class RemotingClient implements BuildRepositoryRemote {
 
     @Override
     public Work getWork(AgentRuntimeInfo info) {
-        return Serialization.fromJson(post("get_work", new GetWorkRequest(info)), Work.class);
+        HttpRequestBase request = postRequestFor("get_work", new GetWorkRequest(info));
+        if (workWaitMillis > 0) {
+            // Servers that understand this hold on to the request until there is work for this agent, or the wait is over
+            request.setHeader(REQUEST_WORK_WAIT_MILLIS, String.valueOf(workWaitMillis));
+        }
+        String body = execute("get_work", request, response -> serverWaitedForWork = response.containsHeader(RESPONSE_WAITED_FOR_WORK));
+        return Serialization.fromJson(body, Work.class);
+    }
+
+    /**
+     * @return true if the server held on to the last request for work until there was some or the wait was over, in
+     * which case there is no need to back off before asking again
+     */
+    public boolean serverWaitedForWork() {
+        return serverWaitedForWork;
     }
 
     @Override
@@ -103,12 +121,15 @@ public class RemotingClient implements BuildRepositoryRemote {
     }
 
     private String post(final String action, final AgentRequest payload) {
+        return execute(action, postRequestFor(action, payload), response -> {
+        });
+    }
+
+    private String execute(final String action, final HttpRequestBase request, final Consumer<HttpResponse> onSuccess) {
         try {
-            try (CloseableHttpResponse response = client.execute(
-                    injectCredentials(
-                            postRequestFor(action, payload)
-                    ))) {
+            try (CloseableHttpResponse response = client.execute(injectCredentials(request))) {
                 validateResponse(response, action);
+                onSuccess.accept(response);
                 return readBodyAsString(response);
             }
         } catch (IOException e) {
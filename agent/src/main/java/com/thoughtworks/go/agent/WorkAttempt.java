@@ -21,7 +21,7 @@ import com.thoughtworks.go.remote.work.*;
 import java.util.Map;
 
 enum WorkAttempt {
-    OK, NOTHING_TO_DO, FAILED;
+    OK, NOTHING_TO_DO, NOTHING_TO_DO_AFTER_WAITING, FAILED;
 
     private static final Map<Class<? extends Work>, WorkAttempt> WORK_TO_RESULT = Map.of(
         BuildWork.class, OK,
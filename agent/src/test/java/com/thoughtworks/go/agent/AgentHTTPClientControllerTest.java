@@ -140,6 +140,14 @@ public class AgentHTTPClientControllerTest {
         assertThat(agentController.tryDoWork()).isEqualTo(WorkAttempt.NOTHING_TO_DO);
     }
 
+    @Test
+    void workStatusShouldTellWhenTheServerAlreadyWaitedForWork() throws Exception {
+        work = mock(NoWork.class);
+        prepareForWork();
+        when(loopServer.serverWaitedForWork()).thenReturn(true);
+        assertThat(agentController.tryDoWork()).isEqualTo(WorkAttempt.NOTHING_TO_DO_AFTER_WAITING);
+    }
+
     @Test
     void workStatusShouldDeriveFromWorkTypeForDeniedWork() throws Exception {
         work = mock(DeniedAgentWork.class);
@@ -116,6 +116,35 @@ class AgentWorkRetrievalSchedulerTest {
         }
     }
 
+    @Test
+    void shouldNotBackOffOnceTheServerHasWaitedForWork() throws InterruptedException {
+        when(controller.performWork())
+            .thenReturn(WorkAttempt.NOTHING_TO_DO)
+            .thenReturn(WorkAttempt.NOTHING_TO_DO_AFTER_WAITING)
+            .thenReturn(WorkAttempt.NOTHING_TO_DO); // after this for as many iterations as needed
+
+        int numWaits = 3;
+        int expectedWork = numWaits + 1; // +1 for the attempt the server waited for
+        AgentWorkRetrievalScheduler scheduler = createSchedulerForIterations(exponentialBackOffTwoToTen(), numWaits);
+
+        try (LogFixture logging = LogFixture.logFixtureFor(AgentWorkRetrievalScheduler.class, Level.DEBUG)) {
+            Thread runner = new Thread(scheduler);
+
+            runner.start();
+            runner.join();
+
+            verify(controller, times(expectedWork)).performWork();
+
+            assertThat(logging.getRawMessages().stream().filter(x -> x.endsWith("retrieving next work.")))
+                .containsExactly(
+                    "[Agent Loop] Waiting 2 ms before retrieving next work.",  // Nothing to do
+                    "[Agent Loop] Server waited for work on our behalf. Immediately retrieving next work.",
+                    "[Agent Loop] Waiting 2 ms before retrieving next work.",  // Nothing to do (reset)
+                    "[Agent Loop] Waiting 4 ms before retrieving next work."   // Nothing to do
+                );
+        }
+    }
+
     private AgentWorkRetrievalScheduler createSchedulerForIterations(final ExponentialBackOff backoffStrategy, final int numWaits) {
         return new AgentWorkRetrievalScheduler(controller, backoffStrategy, taskScheduler) {
             int iterations;
@@ -0,0 +1,62 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.apiv4.dashboard;
+
+import com.thoughtworks.go.api.base.JsonOutputWriter;
+import com.thoughtworks.go.api.base.OutputWriter;
+import com.thoughtworks.go.apiv4.dashboard.representers.DashboardFor;
+import com.thoughtworks.go.apiv4.dashboard.representers.DashboardRepresenter;
+import com.thoughtworks.go.apiv4.dashboard.representers.PipelineRepresenter;
+import com.thoughtworks.go.server.dashboard.GoDashboardEnvironment;
+import com.thoughtworks.go.server.dashboard.GoDashboardFrameRenderer;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelineGroup;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.spark.RequestContext;
+import org.springframework.stereotype.Component;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.List;
+import java.util.function.Consumer;
+
+/* Understands rendering the frames of the dashboard websocket the same way as the v4 dashboard API. */
+@Component
+public class DashboardFrameRendererV4 implements GoDashboardFrameRenderer {
+
+    @Override
+    public String snapshot(List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments, Username user,
+                           String personalizationEtag, URI serverUri, String contextPath) {
+        return render(serverUri, contextPath, writer -> writer
+            .add("type", "snapshot")
+            .addChild("dashboard", dashboardWriter -> DashboardRepresenter.toJSON(dashboardWriter,
+                new DashboardFor(pipelineGroups, environments, user, personalizationEtag))));
+    }
+
+    @Override
+    public String pipeline(GoDashboardPipeline pipeline, Username user, URI serverUri, String contextPath) {
+        return render(serverUri, contextPath, writer -> writer
+            .add("type", "pipeline")
+            .addChild("pipeline", pipelineWriter -> PipelineRepresenter.toJSON(pipelineWriter, pipeline, user)));
+    }
+
+    private String render(URI serverUri, String contextPath, Consumer<OutputWriter> consumer) {
+        StringWriter writer = new StringWriter();
+        new JsonOutputWriter(writer, new RequestContext(serverUri.getScheme(), serverUri.getHost(), serverUri.getPort(), contextPath))
+            .forTopLevelObject(consumer);
+        return writer.toString();
+    }
+}
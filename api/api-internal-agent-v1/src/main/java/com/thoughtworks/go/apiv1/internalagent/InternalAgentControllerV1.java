@@ -33,6 +33,8 @@ import org.springframework.stereotype.Component;
 import spark.Request;
 import spark.Response;
 
+import java.util.Optional;
+
 import static com.thoughtworks.go.api.util.HaltApiResponses.haltBecauseForbidden;
 import static java.lang.String.valueOf;
 import static spark.Spark.*;
@@ -130,11 +132,32 @@ public class InternalAgentControllerV1 extends ApiController implements SparkSpr
         GetWorkRequest workRequest = GetWorkRequestRepresenter.fromJSON(request.body());
         ensureAgentIsMakingARequestForItself(workRequest, request);
 
+        long maxWaitMillis = workWaitMillis(request);
+        if (maxWaitMillis > 0) {
+            Optional<Work> work = buildRepositoryMessageProducer.waitForWork(workRequest.getAgentRuntimeInfo(), maxWaitMillis);
+            if (work.isPresent()) {
+                response.header(StandardHeaders.RESPONSE_WAITED_FOR_WORK, "true");
+                return WorkRepresenter.toJSON(work.get());
+            }
+        }
+
         Work work = buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo());
 
         return WorkRepresenter.toJSON(work);
     }
 
+    private long workWaitMillis(Request request) {
+        String header = request.headers(StandardHeaders.REQUEST_WORK_WAIT_MILLIS);
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     public void ensureAgentIsMakingARequestForItself(AgentRequest agentRequest, Request request) {
         String uuidInRuntimeInfo = agentRequest.getAgentRuntimeInfo().getUUId();
         String uuidInRequest = request.headers(StandardHeaders.REQUEST_UUID);
@@ -36,6 +36,7 @@ import org.mockito.junit.jupiter.MockitoSettings
 import org.mockito.quality.Strictness
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory
+import static org.mockito.Mockito.never
 import static org.mockito.Mockito.verify
 import static org.mockito.Mockito.when
 
@@ -335,6 +336,54 @@ class InternalAgentControllerV1Test implements ControllerTrait<InternalAgentCont
               .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
     }
 
+    @Test
+    void 'should wait for work when the agent asks the server to'() {
+      def agent = new Agent("uuid", "localhost", "176.19.4.1")
+      def runtimeInfo = AgentRuntimeInfo.fromAgent(agent.getAgentIdentifier(), AgentRuntimeStatus.Idle, currentWorkingDirectory(),
+              "20.1.0", "20.9.0", () -> "Mac OS X")
+
+      when(buildRepositoryMessageProducer.waitForWork(runtimeInfo, 30000L)).thenReturn(Optional.of(new NoWork()))
+
+      def headers = [
+              'accept'                 : controller.mimeType,
+              'content-type'           : 'application/json',
+              'X-Agent-GUID'           : 'uuid',
+              'X-GoCD-Work-Wait-Millis': '30000'
+      ]
+      postWithApiHeader(controller.controllerPath("/get_work"), headers, GetWorkRequestRepresenter.toJSON(
+              new GetWorkRequest(runtimeInfo)))
+
+      assertThatResponse()
+              .isOk()
+              .hasHeader('X-GoCD-Waited-For-Work', 'true')
+              .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
+      verify(buildRepositoryMessageProducer, never()).getWork(runtimeInfo)
+    }
+
+    @Test
+    void 'should answer straight away when the server cannot wait for work'() {
+      def agent = new Agent("uuid", "localhost", "176.19.4.1")
+      def runtimeInfo = AgentRuntimeInfo.fromAgent(agent.getAgentIdentifier(), AgentRuntimeStatus.Idle, currentWorkingDirectory(),
+              "20.1.0", "20.9.0", () -> "Mac OS X")
+
+      when(buildRepositoryMessageProducer.waitForWork(runtimeInfo, 30000L)).thenReturn(Optional.empty())
+      when(buildRepositoryMessageProducer.getWork(runtimeInfo)).thenReturn(new NoWork())
+
+      def headers = [
+              'accept'                 : controller.mimeType,
+              'content-type'           : 'application/json',
+              'X-Agent-GUID'           : 'uuid',
+              'X-GoCD-Work-Wait-Millis': '30000'
+      ]
+      postWithApiHeader(controller.controllerPath("/get_work"), headers, GetWorkRequestRepresenter.toJSON(
+              new GetWorkRequest(runtimeInfo)))
+
+      assertThatResponse()
+              .isOk()
+              .doesNotContainHeader('X-GoCD-Waited-For-Work')
+              .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
+    }
+
     @Test
     void 'ensure agent is making a request for itself'() {
       def agent = new Agent("different_agent_uuid", "localhost", "176.19.4.1")
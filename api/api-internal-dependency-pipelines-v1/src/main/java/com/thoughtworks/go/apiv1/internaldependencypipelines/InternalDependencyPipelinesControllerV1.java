@@ -24,6 +24,7 @@ import com.thoughtworks.go.api.spring.ApiAuthenticationHelper;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.server.presentation.FetchArtifactViewHelper;
+import com.thoughtworks.go.server.service.ConfigDependencyGraphService;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.spark.GlobalExceptionMapper;
 import com.thoughtworks.go.spark.Routes;
@@ -44,15 +45,18 @@ public class InternalDependencyPipelinesControllerV1 extends ApiController imple
     private final ApiAuthenticationHelper apiAuthenticationHelper;
     private final SystemEnvironment systemEnvironment;
     private final GoConfigService goConfigService;
+    private final ConfigDependencyGraphService configDependencyGraphService;
 
     @Autowired
     public InternalDependencyPipelinesControllerV1(ApiAuthenticationHelper apiAuthenticationHelper,
                                                    SystemEnvironment systemEnvironment,
-                                                   GoConfigService goConfigService) {
+                                                   GoConfigService goConfigService,
+                                                   ConfigDependencyGraphService configDependencyGraphService) {
         super(ApiVersion.v1);
         this.apiAuthenticationHelper = apiAuthenticationHelper;
         this.systemEnvironment = systemEnvironment;
         this.goConfigService = goConfigService;
+        this.configDependencyGraphService = configDependencyGraphService;
     }
 
     @Override
@@ -79,11 +83,15 @@ public class InternalDependencyPipelinesControllerV1 extends ApiController imple
         String pipelineName = request.params("pipeline_name");
         String stageName = request.params("stage_name");
 
+        long start = System.currentTimeMillis();
         CruiseConfig config = goConfigService.getMergedConfigForEditing();
-        FetchArtifactViewHelper helper = new FetchArtifactViewHelper(systemEnvironment, config, new CaseInsensitiveString(pipelineName), new CaseInsensitiveString(stageName), isNotBlank(request.queryParams("template")));
+        FetchArtifactViewHelper helper = new FetchArtifactViewHelper(systemEnvironment, config, configDependencyGraphService.graphForEditing(config),
+            new CaseInsensitiveString(pipelineName), new CaseInsensitiveString(stageName), isNotBlank(request.queryParams("template")));
+        FetchArtifactViewHelper.FetchSuggestionHierarchy suggestions = helper.autosuggestMap();
+        configDependencyGraphService.recordUse(ConfigDependencyGraphService.DEPENDENCY_PIPELINES_API, System.currentTimeMillis() - start);
 
         response.type("application/json");
-        return GSON.toJson(helper.autosuggestMap());
+        return GSON.toJson(suggestions);
     }
 
 }
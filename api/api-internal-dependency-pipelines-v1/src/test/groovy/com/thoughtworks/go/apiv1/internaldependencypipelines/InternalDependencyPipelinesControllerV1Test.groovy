@@ -20,6 +20,7 @@ import com.thoughtworks.go.api.SecurityTestTrait
 import com.thoughtworks.go.api.spring.ApiAuthenticationHelper
 import com.thoughtworks.go.config.*
 import com.thoughtworks.go.helper.PipelineConfigMother
+import com.thoughtworks.go.server.service.ConfigDependencyGraphService
 import com.thoughtworks.go.server.service.GoConfigService
 import com.thoughtworks.go.spark.ControllerTrait
 import com.thoughtworks.go.spark.NormalUserSecurity
@@ -41,7 +42,7 @@ class InternalDependencyPipelinesControllerV1Test implements SecurityServiceTrai
 
   @Override
   InternalDependencyPipelinesControllerV1 createControllerInstance() {
-    new InternalDependencyPipelinesControllerV1(new ApiAuthenticationHelper(securityService, goConfigService), new SystemEnvironment(), goConfigService)
+    new InternalDependencyPipelinesControllerV1(new ApiAuthenticationHelper(securityService, goConfigService), new SystemEnvironment(), goConfigService, new ConfigDependencyGraphService(goConfigService))
   }
 
   @Nested
@@ -23,8 +23,11 @@ public interface StandardHeaders {
 
     String REQUEST_UUID = "X-Agent-GUID";
     String REQUEST_AUTH = "Authorization";
+    String REQUEST_WORK_WAIT_MILLIS = "X-GoCD-Work-Wait-Millis";
+    String REQUEST_CONSOLE_SEQUENCE_NUMBER = "X-GoCD-Console-Sequence-Number";
 
     String RESPONSE_CONTENT_MD5 = "Content-MD5";
+    String RESPONSE_WAITED_FOR_WORK = "X-GoCD-Waited-For-Work";
 
     String RESPONSE_AGENT_CONTENT_MD5 = "Agent-Content-MD5";
     String RESPONSE_AGENT_LAUNCHER_CONTENT_MD5 = "Agent-Launcher-Content-MD5";
@@ -175,6 +175,24 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     private static final GoSystemProperty<Integer> GO_SPA_TIMEOUT_IN_MILLIS = new GoIntSystemProperty("go.spa.timeout", (int) SECONDS.toMillis(60));
     private static final GoSystemProperty<Integer> GO_SPA_REFRESH_INTERVAL_IN_MILLIS = new GoIntSystemProperty("go.spa.refresh.interval", (int) SECONDS.toMillis(5));
     private static final GoSystemProperty<Long> GO_PAC_CLONE_TIMEOUT_IN_MILLIS = new GoLongSystemProperty("go.pac.clone.timeout", SECONDS.toMillis(30));
+    private static final GoSystemProperty<Long> BUILD_ASSIGNMENT_CONSISTENCY_CHECK_INTERVAL_IN_MILLIS = new GoLongSystemProperty("go.build.assignment.consistency.check.interval", MINUTES.toMillis(1));
+    private static final GoSystemProperty<Long> AGENT_WORK_MAX_WAIT_IN_MILLIS = new GoLongSystemProperty("go.agent.work.max.wait", SECONDS.toMillis(30));
+    private static final GoSystemProperty<Integer> AGENT_WORK_MAX_WAITING_AGENTS = new GoIntSystemProperty("go.agent.work.max.waiting.agents", 0);
+    private static final GoSystemProperty<Boolean> JETTY_USE_VIRTUAL_THREADS = new GoBooleanSystemProperty("go.server.jetty.virtual.threads", false);
+    private static final GoSystemProperty<Integer> ARTIFACT_ZIP_CACHE_WORKERS = new GoIntSystemProperty("go.artifact.zip.cache.workers", 4);
+    private static final GoSystemProperty<Long> ARTIFACT_ZIP_CACHE_MAX_SIZE_IN_MB = new GoLongSystemProperty("go.artifact.zip.cache.max.size.mb", 10 * 1024L);
+    private static final GoSystemProperty<Boolean> ARTIFACT_ZIP_CACHE_ENABLED = new GoBooleanSystemProperty("go.artifact.zip.cache.enabled", true);
+    private static final GoSystemProperty<Boolean> AGENT_ARTIFACT_UPLOAD_STREAMING = new GoBooleanSystemProperty("go.agent.artifact.upload.streaming", false);
+    private static final GoSystemProperty<Long> AGENT_ARTIFACT_UPLOAD_BATCH_SIZE_IN_MB = new GoLongSystemProperty("go.agent.artifact.upload.batch.size.mb", 256L);
+    private static final GoSystemProperty<Integer> AGENT_ARTIFACT_FETCH_PARALLEL_DOWNLOADS = new GoIntSystemProperty("go.agent.artifact.fetch.parallel.downloads", 0);
+    private static final GoSystemProperty<Boolean> ARTIFACT_DEDUPLICATION_ENABLED = new GoBooleanSystemProperty("go.artifact.deduplication.enabled", false);
+    private static final GoSystemProperty<Integer> ACCESS_TOKEN_CACHE_TTL_IN_SECONDS = new GoIntSystemProperty("go.access.token.cache.ttl.seconds", 60);
+    private static final GoSystemProperty<Integer> ACCESS_TOKEN_CACHE_MAX_SIZE = new GoIntSystemProperty("go.access.token.cache.max.size", 1000);
+    private static final GoSystemProperty<Boolean> PIPELINE_TIMELINE_SNAPSHOT_ENABLED = new GoBooleanSystemProperty("go.pipeline.timeline.snapshot.enabled", false);
+    private static final GoSystemProperty<String> PIPELINE_TIMELINE_SNAPSHOT_FILE = new GoStringSystemProperty("go.pipeline.timeline.snapshot.file", DB_BASE_DIR + "pipeline-timeline.snapshot");
+    private static final GoSystemProperty<Integer> MODIFICATIONS_BATCH_INSERT_SIZE = new GoIntSystemProperty("go.modifications.batch.insert.size", 1000);
+    private static final GoSystemProperty<Boolean> IN_PROCESS_MESSAGING_ENABLED = new GoBooleanSystemProperty("go.messaging.in.process.enabled", false);
+    private static final GoSystemProperty<Integer> NOTIFICATION_PLUGIN_BATCH_SIZE = new GoIntSystemProperty("plugins.notification.batch.size", 100);
 
     private static final GoSystemProperty<Boolean> ENABLE_ANALYTICS_ONLY_FOR_ADMINS = new GoBooleanSystemProperty("go.enable.analytics.only.for.admins", false);
     public static final GoSystemProperty<Long> NOTIFICATION_PLUGIN_MESSAGES_TTL_IN_MILLIS = new GoLongSystemProperty("plugins.notification.message.ttl.millis", MINUTES.toMillis(2));
@@ -593,6 +611,78 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return GO_PAC_CLONE_TIMEOUT_IN_MILLIS.getValue();
     }
 
+    public long getBuildAssignmentConsistencyCheckInterval() {
+        return BUILD_ASSIGNMENT_CONSISTENCY_CHECK_INTERVAL_IN_MILLIS.getValue();
+    }
+
+    public long getAgentWorkMaxWait() {
+        return AGENT_WORK_MAX_WAIT_IN_MILLIS.getValue();
+    }
+
+    public int getAgentWorkMaxWaitingAgents() {
+        return AGENT_WORK_MAX_WAITING_AGENTS.getValue();
+    }
+
+    public boolean useVirtualThreadsForJetty() {
+        return JETTY_USE_VIRTUAL_THREADS.getValue();
+    }
+
+    public int getArtifactZipCacheWorkers() {
+        return ARTIFACT_ZIP_CACHE_WORKERS.getValue();
+    }
+
+    public long getArtifactZipCacheMaxSizeInBytes() {
+        return ARTIFACT_ZIP_CACHE_MAX_SIZE_IN_MB.getValue() * 1024 * 1024;
+    }
+
+    public boolean isArtifactZipCacheEnabled() {
+        return ARTIFACT_ZIP_CACHE_ENABLED.getValue();
+    }
+
+    public boolean isArtifactUploadStreamingEnabled() {
+        return AGENT_ARTIFACT_UPLOAD_STREAMING.getValue();
+    }
+
+    public long getArtifactUploadBatchSizeInBytes() {
+        return AGENT_ARTIFACT_UPLOAD_BATCH_SIZE_IN_MB.getValue() * 1024 * 1024;
+    }
+
+    public int getArtifactFetchParallelDownloads() {
+        return AGENT_ARTIFACT_FETCH_PARALLEL_DOWNLOADS.getValue();
+    }
+
+    public boolean isArtifactDeduplicationEnabled() {
+        return ARTIFACT_DEDUPLICATION_ENABLED.getValue();
+    }
+
+    public int getAccessTokenCacheTtlInSeconds() {
+        return ACCESS_TOKEN_CACHE_TTL_IN_SECONDS.getValue();
+    }
+
+    public int getAccessTokenCacheMaxSize() {
+        return ACCESS_TOKEN_CACHE_MAX_SIZE.getValue();
+    }
+
+    public boolean isPipelineTimelineSnapshotEnabled() {
+        return PIPELINE_TIMELINE_SNAPSHOT_ENABLED.getValue();
+    }
+
+    public File getPipelineTimelineSnapshotFile() {
+        return new File(PIPELINE_TIMELINE_SNAPSHOT_FILE.getValue());
+    }
+
+    public int getModificationsBatchInsertSize() {
+        return MODIFICATIONS_BATCH_INSERT_SIZE.getValue();
+    }
+
+    public boolean isInProcessMessagingEnabled() {
+        return IN_PROCESS_MESSAGING_ENABLED.getValue();
+    }
+
+    public int getNotificationPluginBatchSize() {
+        return NOTIFICATION_PLUGIN_BATCH_SIZE.getValue();
+    }
+
     public String getAgentStatusHostname() {
         return AGENT_STATUS_API_BIND_HOST.getValue();
     }
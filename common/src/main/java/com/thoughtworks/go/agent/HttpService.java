@@ -25,7 +25,10 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.slf4j.Logger;
@@ -81,10 +84,34 @@ public class HttpService {
         return filePost;
     }
 
+    public int upload(String url, long size, StreamedUpload artifact) throws IOException {
+        LOGGER.info("Streaming artifact to url [{}]", url);
+
+        try (CloseableHttpResponse response = execute(createHttpPostForUpload(url, size, artifact))) {
+            return response.getStatusLine().getStatusCode();
+        } catch (IOException e) {
+            LOGGER.error("Error while streaming artifact to url [{}]", url, e);
+            throw e;
+        }
+    }
+
+    private HttpPost createHttpPostForUpload(String url, long size, StreamedUpload artifact) {
+        HttpPost filePost = httpClientFactory.createPost(url);
+        setSizeHeader(filePost, size);
+        filePost.setHeader(REQUEST_CONFIRM_MODIFICATION, "true");
+        filePost.setEntity(httpClientFactory.createMultipartRequestEntity(artifact));
+        return filePost;
+    }
+
     public int download(String url, FetchHandler handler) throws IOException {
         try {
             PerfTimer timer = PerfTimer.start(LOGGER, String.format("Downloading from url [%s]", url));
-            try (CloseableHttpResponse response = execute(httpClientFactory.createGet(url))) {
+            HttpGet get = httpClientFactory.createGet(url);
+            long resumeFrom = handler.resumeFrom();
+            if (resumeFrom > 0) {
+                get.setHeader("Range", "bytes=" + resumeFrom + "-");
+            }
+            try (CloseableHttpResponse response = execute(get)) {
                 timer.stop();
                 int statusCode = response.getStatusLine().getStatusCode();
 
@@ -94,6 +121,12 @@ public class HttpService {
                             handler.handle(is);
                         }
                     }
+                } else if (statusCode == HttpURLConnection.HTTP_PARTIAL && resumeFrom > 0) {
+                    if (response.getEntity() != null) {
+                        try (InputStream is = response.getEntity().getContent()) {
+                            handler.handlePartialContent(is);
+                        }
+                    }
                 }
                 return statusCode;
             }
@@ -151,5 +184,83 @@ public class HttpService {
             }
             return entityBuilder.build();
         }
+
+        /**
+         * The zip is written while the request is being sent, so neither part has a length up front and the request
+         * goes out chunked. The checksums only exist once the zip has been written, which is why they come after it.
+         */
+        public HttpEntity createMultipartRequestEntity(StreamedUpload artifact) {
+            StreamedZipBody zip = new StreamedZipBody(artifact);
+            return MultipartEntityBuilder.create()
+                .addPart(GoConstants.ZIP_MULTIPART_FILENAME, zip)
+                .addPart(GoConstants.CHECKSUM_MULTIPART_FILENAME, new ChecksumsOfStreamedZipBody(zip))
+                .build();
+        }
+    }
+
+    static class StreamedZipBody extends AbstractContentBody {
+        private final StreamedUpload artifact;
+        private Properties checksums;
+
+        StreamedZipBody(StreamedUpload artifact) {
+            super(ContentType.create("application/zip"));
+            this.artifact = artifact;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            checksums = artifact.writeTo(out);
+        }
+
+        Properties checksums() {
+            if (checksums == null) {
+                throw new IllegalStateException("The checksums are only known once the zip has been written");
+            }
+            return checksums;
+        }
+
+        @Override
+        public String getFilename() {
+            return "artifact.zip";
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+    }
+
+    static class ChecksumsOfStreamedZipBody extends AbstractContentBody {
+        private final StreamedZipBody zip;
+
+        ChecksumsOfStreamedZipBody(StreamedZipBody zip) {
+            super(ContentType.DEFAULT_BINARY);
+            this.zip = zip;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            zip.checksums().store(out, "");
+        }
+
+        @Override
+        public String getFilename() {
+            return "checksum_file";
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return MIME.ENC_BINARY;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
     }
 }
@@ -13,21 +13,19 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package com.thoughtworks.go.server.view.artifacts;
+package com.thoughtworks.go.agent;
 
-import org.springframework.web.servlet.view.AbstractView;
-
-import javax.servlet.http.HttpServletRequest;
-import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Map;
-
-import static java.net.HttpURLConnection.HTTP_ACCEPTED;
+import java.io.OutputStream;
+import java.util.Properties;
 
-public class PreparingArtifactFile extends AbstractView {
-    @Override
-    protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request, HttpServletResponse response) throws IOException {
-        response.setStatus(HTTP_ACCEPTED);
-        response.getWriter().close();
-    }
+/**
+ * Understands writing an artifact zip straight onto the request body, working out its checksums as it goes.
+ */
+@FunctionalInterface
+public interface StreamedUpload {
+    /**
+     * @return the checksums of the files written, ready to be sent after the zip
+     */
+    Properties writeTo(OutputStream zip) throws IOException;
 }
@@ -20,6 +20,7 @@ import org.jetbrains.annotations.TestOnly;
 import java.io.*;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 
 public class ArtifactMd5Checksums implements Serializable {
 
@@ -55,4 +56,8 @@ public class ArtifactMd5Checksums implements Serializable {
     public String md5For(String artifactPath) {
         return checksumProperties.getProperty(artifactPath);
     }
+
+    public Set<String> artifactPaths() {
+        return checksumProperties.stringPropertyNames();
+    }
 }
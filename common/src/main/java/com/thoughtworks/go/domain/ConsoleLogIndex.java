@@ -0,0 +1,261 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Understands a sparse index of where lines start in a console log, kept in a file next to the log so that readers
+ * can seek to close to a line instead of reading the log from the start.
+ * <p>
+ * An entry is recorded after every {@link #LINES_PER_ENTRY} line feeds. It holds the position just after the line
+ * feed, and how many lines a {@link java.io.BufferedReader} would have read by then, as readers also end lines at lone
+ * carriage returns. The entries follow a header holding how far the log has been scanned and the line counts there, so
+ * that an update only scans what has been appended since, even when it holds no line feed at all, as with progress
+ * output that only ever ends lines with carriage returns. Updates of the same log must not overlap.
+ */
+public class ConsoleLogIndex {
+    public static final int LINES_PER_ENTRY = 1000;
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int HEADER_SIZE = 4 * Long.BYTES;
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * A position in a console log at the start of a line, along with the number of lines before it.
+     */
+    public record Position(long offset, long lineFeeds, long readerLines) {
+        public static final Position START = new Position(0, 0, 0);
+    }
+
+    /**
+     * How far a log has been scanned, and what had been counted by then.
+     */
+    private record Scanned(long offset, long lineFeeds, long readerLines, boolean afterCarriageReturn) {
+        static Scanned from(Position position) {
+            return new Scanned(position.offset(), position.lineFeeds(), position.readerLines(), false);
+        }
+    }
+
+    private ConsoleLogIndex() {
+    }
+
+    public static Path indexFor(Path log) {
+        return log.resolveSibling(log.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Adds entries for whatever has been appended to the log since the index was last updated.
+     */
+    public static void update(Path log) throws IOException {
+        try (FileChannel logChannel = FileChannel.open(log, READ);
+             FileChannel indexChannel = FileChannel.open(indexFor(log), CREATE, READ, WRITE)) {
+            long entries = entriesIn(indexChannel);
+            Position last = entries == 0 ? Position.START : readEntry(indexChannel, entries - 1);
+            if (!isStartOfLine(logChannel, last)) {
+                indexChannel.truncate(0);
+                entries = 0;
+                last = Position.START;
+            }
+            Scanned scanned = readScanned(indexChannel, logChannel, entries, last);
+            if (scanned.offset() == logChannel.size() && indexChannel.size() >= HEADER_SIZE) {
+                return;
+            }
+
+            ByteBuffer newEntries = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long indexPosition = HEADER_SIZE + entries * ENTRY_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long lineFeeds = scanned.lineFeeds();
+            long readerLines = scanned.readerLines();
+            boolean afterCarriageReturn = scanned.afterCarriageReturn();
+            long position = scanned.offset();
+            while (true) {
+                buffer.clear();
+                int read = logChannel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] == '\r') {
+                        readerLines++;
+                        afterCarriageReturn = true;
+                    } else if (bytes[i] == '\n') {
+                        if (!afterCarriageReturn) {
+                            readerLines++;
+                        }
+                        afterCarriageReturn = false;
+                        if (++lineFeeds % LINES_PER_ENTRY == 0) {
+                            newEntries.putLong(position + i + 1).putLong(readerLines);
+                            if (!newEntries.hasRemaining()) {
+                                indexPosition = writeEntries(indexChannel, newEntries, indexPosition);
+                            }
+                        }
+                    } else {
+                        afterCarriageReturn = false;
+                    }
+                }
+                position += read;
+            }
+            writeEntries(indexChannel, newEntries, indexPosition);
+            // Written after the entries, so that an update which breaks off part way leaves a header that does not
+            // match them, and the next update goes back to the last entry
+            writeScanned(indexChannel, new Scanned(position, lineFeeds, readerLines, afterCarriageReturn));
+        }
+    }
+
+    /**
+     * @return the closest indexed position at or before the start of the given line, counting lines as ended by line
+     * feeds alone
+     */
+    public static Position beforeLineFeedLine(Path log, long line) {
+        long entry = line / LINES_PER_ENTRY - 1;
+        if (entry < 0) {
+            return Position.START;
+        }
+        return withIndex(log, (logChannel, indexChannel, entries) -> readEntry(indexChannel, Math.min(entry, entries - 1)));
+    }
+
+    /**
+     * @return the closest indexed position at or before the start of the given line, counting lines the way a
+     * {@link java.io.BufferedReader} does
+     */
+    public static Position beforeReaderLine(Path log, long line) {
+        if (line < LINES_PER_ENTRY) {
+            return Position.START;
+        }
+        return withIndex(log, (logChannel, indexChannel, entries) -> {
+            Position found = Position.START;
+            long low = 0;
+            long high = entries - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                Position candidate = readEntry(indexChannel, middle);
+                if (candidate.readerLines() <= line) {
+                    found = candidate;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        });
+    }
+
+    private interface IndexLookup {
+        Position find(FileChannel logChannel, FileChannel indexChannel, long entries) throws IOException;
+    }
+
+    private static Position withIndex(Path log, IndexLookup lookup) {
+        Path index = indexFor(log);
+        if (!Files.exists(index)) {
+            return Position.START;
+        }
+        try (FileChannel logChannel = FileChannel.open(log, READ);
+             FileChannel indexChannel = FileChannel.open(index, READ)) {
+            long entries = entriesIn(indexChannel);
+            if (entries == 0) {
+                return Position.START;
+            }
+            Position position = lookup.find(logChannel, indexChannel, entries);
+            // An index that does not match its log is of no use; reading from the start is always correct
+            return isStartOfLine(logChannel, position) ? position : Position.START;
+        } catch (IOException e) {
+            return Position.START;
+        }
+    }
+
+    private static long entriesIn(FileChannel indexChannel) throws IOException {
+        return Math.max(0, indexChannel.size() - HEADER_SIZE) / ENTRY_SIZE;
+    }
+
+    private static Position readEntry(FileChannel indexChannel, long entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE);
+        if (!readFully(indexChannel, buffer, HEADER_SIZE + entry * ENTRY_SIZE)) {
+            return Position.START;
+        }
+        return new Position(buffer.getLong(), (entry + 1) * LINES_PER_ENTRY, buffer.getLong());
+    }
+
+    /**
+     * @return where the last update stopped scanning, or the last entry when the header is missing or does not match
+     * the entries and the log
+     */
+    private static Scanned readScanned(FileChannel indexChannel, FileChannel logChannel, long entries, Position last) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        if (!readFully(indexChannel, buffer, 0)) {
+            return Scanned.from(last);
+        }
+        Scanned scanned = new Scanned(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong() != 0);
+        boolean matches = scanned.offset() >= last.offset()
+                && scanned.offset() <= logChannel.size()
+                && scanned.lineFeeds() / LINES_PER_ENTRY == entries
+                && scanned.readerLines() >= last.readerLines()
+                && scanned.afterCarriageReturn() == endsWithCarriageReturn(logChannel, scanned.offset());
+        return matches ? scanned : Scanned.from(last);
+    }
+
+    private static void writeScanned(FileChannel indexChannel, Scanned scanned) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putLong(scanned.offset())
+                .putLong(scanned.lineFeeds())
+                .putLong(scanned.readerLines())
+                .putLong(scanned.afterCarriageReturn() ? 1 : 0);
+        writeEntries(indexChannel, header, 0);
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private static long writeEntries(FileChannel indexChannel, ByteBuffer entries, long indexPosition) throws IOException {
+        entries.flip();
+        while (entries.hasRemaining()) {
+            indexPosition += indexChannel.write(entries, indexPosition);
+        }
+        entries.clear();
+        return indexPosition;
+    }
+
+    private static boolean endsWithCarriageReturn(FileChannel logChannel, long offset) throws IOException {
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        return offset > 0 && logChannel.read(previous, offset - 1) == 1 && previous.get(0) == '\r';
+    }
+
+    private static boolean isStartOfLine(FileChannel logChannel, Position position) throws IOException {
+        if (position.offset() == 0) {
+            return true;
+        }
+        if (position.offset() > logChannel.size()) {
+            return false;
+        }
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        return logChannel.read(previous, position.offset() - 1) == 1 && previous.get(0) == '\n';
+    }
+}
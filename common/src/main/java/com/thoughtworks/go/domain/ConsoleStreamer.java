@@ -17,16 +17,22 @@ package com.thoughtworks.go.domain;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
  * Encapsulates a stream of lines from a console log file while keeping track of the number of lines processed
- * as well as the starting line to read.
+ * as well as the starting line to read. The log's {@link ConsoleLogIndex}, if it has one, is used to seek to close to
+ * the starting line.
  */
 public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
     private final Path path;
@@ -55,7 +61,7 @@ public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
         long linesStreamed = 0L;
 
         if (null == stream) {
-            stream = Files.lines(path, new SystemEnvironment().consoleLogCharset()).skip(start);
+            stream = linesFrom(start);
         }
         if (null == iterator) {
             iterator = stream.iterator();
@@ -70,6 +76,24 @@ public class ConsoleStreamer implements ConsoleConsumer, AutoCloseable {
         return linesStreamed;
     }
 
+    private Stream<String> linesFrom(long line) throws IOException {
+        ConsoleLogIndex.Position position = ConsoleLogIndex.beforeReaderLine(path, line);
+        if (position.offset() == 0) {
+            return Files.lines(path, new SystemEnvironment().consoleLogCharset()).skip(line);
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(position.offset());
+        BufferedReader reader = new BufferedReader(Channels.newReader(channel, new SystemEnvironment().consoleLogCharset()));
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).skip(line - position.readerLines());
+    }
+
     @Override
     public void close() {
         if (stream != null) {
@@ -15,11 +15,13 @@
  */
 package com.thoughtworks.go.domain;
 
+import com.thoughtworks.go.util.ArtifactUtil;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,7 +29,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -65,6 +70,52 @@ public class DirHandler implements FetchHandler {
         }
     }
 
+    /**
+     * Works out the files in the directory from the checksums recorded when they were published, so that they can be
+     * fetched one at a time. Comes back empty when that can't be done reliably, and the directory should be fetched as a
+     * zip instead: system managed folders hold files that never get checksums, like the console log. Other files can
+     * be missing from the checksums too, so check the result against {@link #filesWithoutChecksums}.
+     */
+    public Map<String, ResumableFileHandler> filesToFetch(ArtifactMd5Checksums artifactMd5Checksums) {
+        String src = normalizedSrc();
+        if (artifactMd5Checksums == null || src.isEmpty() || src.equals(".") || ArtifactUtil.artifactDirectoryIsSystemManaged(src.split("/")[0])) {
+            return Map.of();
+        }
+        String srcParent = src.substring(0, src.lastIndexOf('/') + 1);
+        Map<String, ResumableFileHandler> files = new TreeMap<>();
+        for (String artifactPath : artifactMd5Checksums.artifactPaths()) {
+            if (!artifactPath.startsWith(src + "/")) {
+                continue;
+            }
+            String relativePath = artifactPath.substring(srcParent.length());
+            if (relativePath.contains("..")) {
+                return Map.of();
+            }
+            files.put(artifactPath, new ResumableFileHandler(new File(destOnAgent, relativePath), artifactPath, artifactMd5Checksums.md5For(artifactPath)));
+        }
+        return files;
+    }
+
+    /**
+     * @param listedFiles the files the server has in the directory, relative to it
+     * @return the artifact paths of those files that {@link #filesToFetch} left out, as they have no checksum
+     */
+    public List<String> filesWithoutChecksums(Map<String, ResumableFileHandler> filesToFetch, List<String> listedFiles) {
+        String src = normalizedSrc();
+        return listedFiles.stream()
+            .map(file -> src + "/" + file)
+            .filter(artifactPath -> !filesToFetch.containsKey(artifactPath))
+            .toList();
+    }
+
+    private String normalizedSrc() {
+        return Strings.CS.removeEnd(Strings.CS.removeStart(FilenameUtils.separatorsToUnix(srcFile), "/"), "/");
+    }
+
+    public File getDestOnAgent() {
+        return destOnAgent;
+    }
+
     private String getSrcFilePath(ZipEntry entry) {
         String parent = new File(srcFile).getParent();
         return FilenameUtils.separatorsToUnix(new File(parent, entry.getName()).getPath());
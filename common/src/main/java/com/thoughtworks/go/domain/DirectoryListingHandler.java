@@ -0,0 +1,94 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.thoughtworks.go.work.GoPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Understands which files the server has in an artifact directory, from the listing it gives out for the directory
+ */
+public class DirectoryListingHandler implements FetchHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(DirectoryListingHandler.class);
+    private List<String> files;
+
+    @Override
+    public String url(String remoteHost, String workingUrl) {
+        return format("%s/remoting/files/%s.json", remoteHost, workingUrl);
+    }
+
+    @Override
+    public void handle(InputStream stream) throws IOException {
+        List<String> listed = new ArrayList<>();
+        try {
+            collectFiles(JsonParser.parseReader(new InputStreamReader(stream, UTF_8)).getAsJsonArray(), "", listed);
+            files = listed;
+        } catch (RuntimeException e) {
+            LOG.warn("[Agent Fetch Artifact] Could not make sense of the listing of a directory on the server", e);
+            files = null;
+        }
+    }
+
+    private static void collectFiles(JsonArray entries, String parent, List<String> listed) {
+        for (JsonElement element : entries) {
+            JsonObject entry = element.getAsJsonObject();
+            String path = parent + entry.get("name").getAsString();
+            if ("folder".equals(entry.get("type").getAsString())) {
+                collectFiles(entry.getAsJsonArray("files"), path + "/", listed);
+            } else {
+                listed.add(path);
+            }
+        }
+    }
+
+    /**
+     * A directory that can't be listed is not worth retrying for; the caller fetches it some other way instead.
+     */
+    @Override
+    public boolean handleResult(int returncode, GoPublisher goPublisher) {
+        if (returncode != HttpURLConnection.HTTP_OK) {
+            files = null;
+        }
+        return true;
+    }
+
+    @Override
+    public void useArtifactMd5Checksums(ArtifactMd5Checksums artifactMd5Checksums) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the path of every file in the directory, relative to it, or null if the server did not list them
+     */
+    public List<String> files() {
+        return files;
+    }
+}
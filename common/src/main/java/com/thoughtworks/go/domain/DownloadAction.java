@@ -22,6 +22,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DownloadAction {
 
@@ -63,6 +71,36 @@ public class DownloadAction {
         }
     }
 
+    /**
+     * Downloads several resources at once, each one retried on its own the way {@link #perform} does. Gives up on the
+     * rest as soon as one of them fails for good.
+     */
+    public void performInParallel(Map<String, ? extends FetchHandler> urlsToHandlers, int parallelDownloads) throws InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService downloads = Executors.newFixedThreadPool(parallelDownloads, runnable -> {
+            Thread thread = new Thread(runnable, "artifact-fetch-thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            urlsToHandlers.forEach((url, handler) -> results.add(downloads.submit(() -> {
+                perform(url, handler);
+                return null;
+            })));
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            downloads.shutdownNow();
+        }
+    }
+
     private void publishDownloadError(String url, String cause, long backout) {
         String message = String.format("Could not fetch artifact %s. Pausing %s seconds to retry. Error was : %s", url, backout, cause);
         goPublisher.taggedConsumeLineWithPrefix(GoPublisher.ERR, message);
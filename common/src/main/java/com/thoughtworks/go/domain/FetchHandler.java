@@ -30,4 +30,14 @@ public interface FetchHandler extends Serializable {
 
     void useArtifactMd5Checksums(ArtifactMd5Checksums artifactMd5Checksums);
 
+    /**
+     * @return the offset to ask the server to start sending from, when part of the content has already been downloaded
+     */
+    default long resumeFrom() {
+        return 0;
+    }
+
+    default void handlePartialContent(InputStream stream) throws IOException {
+        throw new UnsupportedOperationException("Resuming downloads is not supported by " + getClass().getSimpleName());
+    }
 }
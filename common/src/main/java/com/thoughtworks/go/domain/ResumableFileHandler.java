@@ -0,0 +1,139 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import com.thoughtworks.go.work.GoPublisher;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Objects;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Understands downloading one file of a fetched directory so that an interrupted download carries on from where it
+ * stopped. The file is written next to its destination with a {@value #PARTIAL_SUFFIX} suffix, and only moved into
+ * place once it matches the MD5 the server recorded when it was published.
+ */
+public class ResumableFileHandler implements FetchHandler {
+    static final String PARTIAL_SUFFIX = ".part";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    private final File artifact;
+    private final String srcFile;
+    private final String expectedMd5;
+
+    public ResumableFileHandler(File artifact, String srcFile, String expectedMd5) {
+        this.artifact = artifact;
+        this.srcFile = srcFile;
+        this.expectedMd5 = expectedMd5;
+    }
+
+    @Override
+    public String url(String remoteHost, String workingUrl) {
+        return format("%s/remoting/files/%s", remoteHost, workingUrl);
+    }
+
+    public boolean isUpToDate() throws IOException {
+        if (!artifact.isFile()) {
+            return false;
+        }
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(artifact))) {
+            return expectedMd5.equals(DigestUtils.md5Hex(stream));
+        }
+    }
+
+    @Override
+    public long resumeFrom() {
+        File partial = partial();
+        return partial.isFile() ? partial.length() : 0;
+    }
+
+    @Override
+    public void handle(InputStream stream) throws IOException {
+        save(stream, false);
+    }
+
+    @Override
+    public void handlePartialContent(InputStream stream) throws IOException {
+        save(stream, true);
+    }
+
+    private void save(InputStream stream, boolean append) throws IOException {
+        File partial = partial();
+        MessageDigest md5 = DigestUtils.getMd5Digest();
+        if (append) {
+            try (InputStream alreadyDownloaded = new BufferedInputStream(new FileInputStream(partial))) {
+                DigestUtils.updateDigest(md5, alreadyDownloaded);
+            }
+        }
+        try (OutputStream out = FileUtils.openOutputStream(partial, append);
+             DigestInputStream in = new DigestInputStream(stream, md5)) {
+            in.transferTo(out);
+        }
+
+        if (!expectedMd5.equals(Hex.encodeHexString(md5.digest()))) {
+            FileUtils.deleteQuietly(partial);
+            throw new IOException(format("Verification of the integrity of the artifact [%s] failed. The artifact file on the server may have changed since its original upload.", srcFile));
+        }
+        Files.move(partial.toPath(), artifact.toPath(), REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean handleResult(int httpCode, GoPublisher goPublisher) {
+        if (httpCode == HTTP_RANGE_NOT_SATISFIABLE) {
+            FileUtils.deleteQuietly(partial());
+            return false;
+        }
+        return httpCode < HttpURLConnection.HTTP_BAD_REQUEST;
+    }
+
+    @Override
+    public void useArtifactMd5Checksums(ArtifactMd5Checksums artifactMd5Checksums) {
+        throw new UnsupportedOperationException();
+    }
+
+    private File partial() {
+        return new File(artifact.getPath() + PARTIAL_SUFFIX);
+    }
+
+    public File getArtifact() {
+        return artifact;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof ResumableFileHandler that &&
+            Objects.equals(artifact, that.artifact) &&
+            Objects.equals(srcFile, that.srcFile) &&
+            Objects.equals(expectedMd5, that.expectedMd5);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(artifact, srcFile, expectedMd5);
+    }
+}
@@ -22,8 +22,12 @@ import com.thoughtworks.go.plugin.access.pluggabletask.TaskExtension;
 import com.thoughtworks.go.plugin.infra.PluginRequestProcessorRegistry;
 import com.thoughtworks.go.util.command.EnvironmentVariableContext;
 import com.thoughtworks.go.work.DefaultGoPublisher;
+import com.thoughtworks.go.work.GoPublisher;
 
 import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class FetchArtifactBuilder extends Builder {
     private final JobIdentifier jobIdentifier;
@@ -49,15 +53,70 @@ public class FetchArtifactBuilder extends Builder {
     }
 
     public void fetch(DownloadAction downloadAction, URLService urlService) throws Exception {
+        fetch(downloadAction, urlService, null, 0);
+    }
+
+    /**
+     * With {@code parallelDownloads} above 0, directories are fetched file by file instead of as one zip: files that are
+     * already in place are skipped, several files come down at once, and interrupted files are resumed.
+     */
+    public void fetch(DownloadAction downloadAction, URLService urlService, GoPublisher goPublisher, int parallelDownloads) throws Exception {
         downloadChecksumFile(downloadAction, urlService.baseRemoteURL());
-        downloadArtifact(downloadAction, urlService.baseRemoteURL());
+        downloadArtifact(downloadAction, urlService.baseRemoteURL(), goPublisher, parallelDownloads);
     }
 
-    private void downloadArtifact(DownloadAction downloadAction, String baseRemoteUrl) throws Exception {
-        handler.useArtifactMd5Checksums(checksumFileHandler.getArtifactMd5Checksums());
+    private void downloadArtifact(DownloadAction downloadAction, String baseRemoteUrl, GoPublisher goPublisher, int parallelDownloads) throws Exception {
+        ArtifactMd5Checksums artifactMd5Checksums = checksumFileHandler.getArtifactMd5Checksums();
+        if (parallelDownloads > 0 && handler instanceof DirHandler dirHandler) {
+            Map<String, ResumableFileHandler> files = dirHandler.filesToFetch(artifactMd5Checksums);
+            if (!files.isEmpty() && checksumsCoverEveryFile(downloadAction, baseRemoteUrl, goPublisher, dirHandler, files)) {
+                downloadFileByFile(downloadAction, baseRemoteUrl, goPublisher, parallelDownloads, dirHandler, files);
+                return;
+            }
+        }
+        handler.useArtifactMd5Checksums(artifactMd5Checksums);
         pullArtifact(downloadAction, handler.url(baseRemoteUrl, artifactLocator()), handler);
     }
 
+    private boolean checksumsCoverEveryFile(DownloadAction downloadAction, String baseRemoteUrl, GoPublisher goPublisher,
+                                            DirHandler dirHandler, Map<String, ResumableFileHandler> files) throws Exception {
+        DirectoryListingHandler listing = new DirectoryListingHandler();
+        pullArtifact(downloadAction, listing.url(baseRemoteUrl, artifactLocator()), listing);
+        if (listing.files() == null) {
+            publishWarning(goPublisher, String.format("[WARN] Could not list the files of [%s] on the server. Fetching it as a zip instead.", srcdir));
+            return false;
+        }
+        List<String> withoutChecksums = dirHandler.filesWithoutChecksums(files, listing.files());
+        if (!withoutChecksums.isEmpty()) {
+            publishWarning(goPublisher, String.format("[WARN] %d files of [%s] have no md5checksum recorded on the server, for example [%s]. Fetching it as a zip instead.",
+                withoutChecksums.size(), srcdir, withoutChecksums.getFirst()));
+            return false;
+        }
+        return true;
+    }
+
+    private void publishWarning(GoPublisher goPublisher, String message) {
+        if (goPublisher != null) {
+            goPublisher.taggedConsumeLineWithPrefix(GoPublisher.ERR, message);
+        }
+    }
+
+    private void downloadFileByFile(DownloadAction downloadAction, String baseRemoteUrl, GoPublisher goPublisher, int parallelDownloads,
+                                    DirHandler dirHandler, Map<String, ResumableFileHandler> files) throws Exception {
+        Map<String, ResumableFileHandler> toDownload = new LinkedHashMap<>();
+        for (Map.Entry<String, ResumableFileHandler> file : files.entrySet()) {
+            ResumableFileHandler fileHandler = file.getValue();
+            if (!fileHandler.isUpToDate()) {
+                toDownload.put(fileHandler.url(baseRemoteUrl, jobIdentifier.artifactLocator(file.getKey())), fileHandler);
+            }
+        }
+        downloadAction.performInParallel(toDownload, parallelDownloads);
+        if (goPublisher != null) {
+            goPublisher.taggedConsumeLineWithPrefix(GoPublisher.OUT, String.format("Saved artifact to [%s] after verifying the integrity of its contents. Downloaded %d of %d files, the rest were already up to date.",
+                dirHandler.getDestOnAgent(), toDownload.size(), files.size()));
+        }
+    }
+
     private void downloadChecksumFile(DownloadAction downloadAction, String baseRemoteUrl) throws Exception {
         final String checksumUrl = checksumFileHandler.url(baseRemoteUrl, jobIdentifier.buildLocator());
         pullArtifact(downloadAction, checksumUrl, checksumFileHandler);
@@ -25,6 +25,7 @@ import com.thoughtworks.go.remote.work.ConsoleOutputTransmitter;
 import com.thoughtworks.go.remote.work.RemoteConsoleAppender;
 import com.thoughtworks.go.util.ArtifactUtil;
 import com.thoughtworks.go.util.FileUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.SystemTimeClock;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
@@ -57,13 +58,19 @@ public class GoArtifactsManipulator {
     private final HttpService httpService;
     private final URLService urlService;
     private final ZipUtil zipUtil;
+    private final SystemEnvironment systemEnvironment;
     private static final Logger LOGGER = LoggerFactory.getLogger(GoArtifactsManipulator.class);
 
-    @Autowired
     public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil) {
+        this(httpService, urlService, zipUtil, new SystemEnvironment());
+    }
+
+    @Autowired
+    public GoArtifactsManipulator(HttpService httpService, URLService urlService, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         this.httpService = httpService;
         this.urlService = urlService;
         this.zipUtil = zipUtil;
+        this.systemEnvironment = systemEnvironment;
     }
 
     public void publish(DefaultGoPublisher goPublisher, String destPath, File source, JobIdentifier jobIdentifier) {
@@ -72,6 +79,10 @@ public class GoArtifactsManipulator {
             goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
             bomb(message);
         }
+        if (systemEnvironment.isArtifactUploadStreamingEnabled()) {
+            publishStreaming(goPublisher, destPath, source, jobIdentifier);
+            return;
+        }
 
         int publishingAttempts = 0;
         Throwable lastException = null;
@@ -122,6 +133,55 @@ public class GoArtifactsManipulator {
         throw new RuntimeException(lastException);
     }
 
+    /**
+     * Zips, hashes and sends the artifact in one pass without going through a temp file. Large artifacts go up in
+     * batches, each one its own request that the server unpacks on top of the previous ones, so a failed upload is
+     * retried from the batch it failed in rather than from the start.
+     */
+    private void publishStreaming(DefaultGoPublisher goPublisher, String destPath, File source, JobIdentifier jobIdentifier) {
+        String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
+        StreamingArtifactZip zip = new StreamingArtifactZip(source, normalizedDestPath, systemEnvironment.getArtifactUploadBatchSizeInBytes());
+        goPublisher.taggedConsumeLineWithPrefix(PUBLISH, "Uploading artifacts from " + source.getAbsolutePath() + " to " + getDestPath(destPath));
+
+        int publishingAttempts = 0;
+        int batch = 0;
+        Throwable lastException = null;
+        while (publishingAttempts < PUBLISH_MAX_RETRIES) {
+            try {
+                publishingAttempts++;
+                if (batch > 0) {
+                    goPublisher.taggedConsumeLineWithPrefix(PUBLISH, String.format("Resuming upload of %s from batch %d of %d", source.getAbsolutePath(), batch + 1, zip.numberOfBatches()));
+                }
+                for (; batch < zip.numberOfBatches(); batch++) {
+                    int batchToSend = batch;
+                    long size = zip.sizeOf(batch);
+                    String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
+
+                    int statusCode = httpService.upload(url, size, out -> zip.writeTo(batchToSend, out));
+
+                    if (statusCode == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
+                        String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
+                                source.getAbsolutePath(), size);
+                        goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
+                        LOGGER.error("[Artifact Upload] Artifact upload was denied by the server. This usually happens when server runs out of disk space.");
+                        publishingAttempts = PUBLISH_MAX_RETRIES;
+                        bomb(message + ".  HTTP return code is " + statusCode);
+                    }
+                    if (statusCode < HttpURLConnection.HTTP_OK || statusCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                        bomb("Failed to upload " + source.getAbsolutePath() + ".  HTTP return code is " + statusCode);
+                    }
+                }
+                return;
+            } catch (Throwable e) {
+                String message = "Failed to upload " + source.getAbsolutePath();
+                LOGGER.error(message, e);
+                goPublisher.taggedConsumeLineWithPrefix(PUBLISH_ERR, message);
+                lastException = e;
+            }
+        }
+        throw new RuntimeException(lastException);
+    }
+
     private Properties artifactChecksums(File source, String destPath) throws IOException {
         if (source.isDirectory()) {
             return computeChecksumForContentsOfDirectory(source, destPath);
@@ -168,7 +228,7 @@ public class GoArtifactsManipulator {
             String fetchMsg = String.format("Fetching artifact [%s] from [%s]", fetchArtifactBuilder.getSrc(),
                     fetchArtifactBuilder.jobLocatorForDisplay());
             goPublisher.taggedConsumeLineWithPrefix(DefaultGoPublisher.OUT, fetchMsg);
-            fetchArtifactBuilder.fetch(new DownloadAction(httpService, goPublisher, new SystemTimeClock()), urlService);
+            fetchArtifactBuilder.fetch(new DownloadAction(httpService, goPublisher, new SystemTimeClock()), urlService, goPublisher, systemEnvironment.getArtifactFetchParallelDownloads());
         } catch (Exception e) {
             String fetchMsg = String.format("Failed to save artifact [%s] to [%s]",
                     fetchArtifactBuilder.getSrc(), fetchArtifactBuilder.getDest());
@@ -0,0 +1,149 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.publishers;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.Strings;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.apache.commons.codec.digest.DigestUtils.getMd5Digest;
+
+/**
+ * Understands zipping an artifact straight onto an upload, one batch of files at a time. Every file is read once:
+ * it is hashed on its way into the zip, and files that are compressed already are stored instead of being deflated
+ * again. Entries are named the same way {@link com.thoughtworks.go.util.ZipUtil} names them, so the server unpacks
+ * them to the same place.
+ */
+public class StreamingArtifactZip {
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+        "zip", "jar", "war", "ear", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar",
+        "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mov", "woff", "woff2",
+        "nupkg", "whl", "apk", "deb", "rpm");
+
+    private final String destPath;
+    private final List<List<Entry>> batches = new ArrayList<>();
+    private final List<Long> batchSizes = new ArrayList<>();
+
+    public StreamingArtifactZip(File source, String destPath, long batchSizeInBytes) {
+        this.destPath = destPath;
+        List<Entry> entries = new ArrayList<>();
+        collect("", source, entries);
+        splitIntoBatches(entries, batchSizeInBytes);
+    }
+
+    public int numberOfBatches() {
+        return batches.size();
+    }
+
+    /**
+     * @return how many bytes the files in the batch take up before they are zipped
+     */
+    public long sizeOf(int batch) {
+        return batchSizes.get(batch);
+    }
+
+    public Properties writeTo(int batch, OutputStream out) throws IOException {
+        Properties checksums = new Properties();
+        byte[] buffer = new byte[64 * 1024];
+        MessageDigest md5 = getMd5Digest();
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(CloseShieldOutputStream.wrap(out)));
+        for (Entry entry : batches.get(batch)) {
+            if (entry.isDirectory()) {
+                zip.putNextEntry(new ZipEntry(entry.name() + "/"));
+                continue;
+            }
+            zip.setLevel(isAlreadyCompressed(entry.name()) ? Deflater.NO_COMPRESSION : Deflater.BEST_SPEED);
+            ZipEntry zipEntry = new ZipEntry(entry.name());
+            zipEntry.setTime(entry.file().lastModified());
+            zip.putNextEntry(zipEntry);
+            md5.reset();
+            try (InputStream in = new DigestInputStream(new FileInputStream(entry.file()), md5)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    zip.write(buffer, 0, read);
+                }
+            }
+            checksums.setProperty(effectiveFileName(entry.name()), HexFormat.of().formatHex(md5.digest()));
+        }
+        zip.finish();
+        zip.flush();
+        return checksums;
+    }
+
+    static boolean isAlreadyCompressed(String fileName) {
+        return COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(fileName).toLowerCase());
+    }
+
+    private void collect(String parent, File file, List<Entry> entries) {
+        String name = parent.isEmpty() ? file.getName() : parent + "/" + file.getName();
+        entries.add(new Entry(name, file));
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    collect(name, child, entries);
+                }
+            }
+        }
+    }
+
+    private void splitIntoBatches(List<Entry> entries, long batchSizeInBytes) {
+        List<Entry> batch = new ArrayList<>();
+        long batchSize = 0;
+        for (Entry entry : entries) {
+            if (!batch.isEmpty() && batchSize > 0 && batchSize + entry.size() > batchSizeInBytes) {
+                addBatch(batch, batchSize);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+            batch.add(entry);
+            batchSize += entry.size();
+        }
+        addBatch(batch, batchSize);
+    }
+
+    private void addBatch(List<Entry> batch, long batchSize) {
+        batches.add(batch);
+        batchSizes.add(batchSize);
+    }
+
+    private String effectiveFileName(String entryName) {
+        File artifactDest = destPath.isEmpty() ? new File(entryName) : new File(destPath, entryName);
+        return Strings.CS.removeStart(FilenameUtils.separatorsToUnix(artifactDest.getPath()), "/");
+    }
+
+    private record Entry(String name, File file) {
+        boolean isDirectory() {
+            return file.isDirectory();
+        }
+
+        long size() {
+            return isDirectory() ? 0 : file.length();
+        }
+    }
+}
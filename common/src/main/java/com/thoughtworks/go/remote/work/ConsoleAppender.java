@@ -19,4 +19,13 @@ import java.io.IOException;
 
 public interface ConsoleAppender {
     void append(String content) throws IOException;
+
+    /**
+     * Appends one of a series of chunks of console output, numbered from 1 in the order they were written. A chunk is
+     * appended again when it is not known whether an earlier attempt got through, so the receiving end should ignore a
+     * chunk numbered no higher than the last one it appended.
+     */
+    default void append(long sequenceNumber, String content) throws IOException {
+        append(content);
+    }
 }
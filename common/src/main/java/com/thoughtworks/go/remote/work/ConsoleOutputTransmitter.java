@@ -17,28 +17,41 @@ package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.TaggedStreamConsumer;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static java.lang.String.format;
 
+/**
+ * Understands sending the console output of a build to the server in numbered chunks. Output is never dropped: a chunk
+ * that could not be sent is sent again, with the same number, and once too many chunks are waiting to be sent whoever
+ * is writing output is held up until the server catches up.
+ */
 public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitter.class);
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
 
-    private final CircularFifoQueue<String> buffer = new CircularFifoQueue<>(10 * 1024); // maximum 10k lines
+    static final int MAX_CHUNK_LENGTH = 64 * 1024; // characters
+    static final int MAX_PENDING_CHUNKS = 32;
+
+    private final Deque<Chunk> pending = new ArrayDeque<>();
+    private final StringBuilder current = new StringBuilder();
+    private final Object sending = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
     private final ConsoleAppender consoleAppender;
     private final ScheduledThreadPoolExecutor executor;
+    private long lastSequenceNumber;
+    private boolean closed;
 
     public ConsoleOutputTransmitter(ConsoleAppender consoleAppender) {
         this(consoleAppender, new SystemEnvironment().getConsolePublishIntervalSeconds(), TimeUnit.SECONDS, new ScheduledThreadPoolExecutor(1));
@@ -62,8 +75,21 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
         }
         String taggedDate = format("%s|%s", tag, FORMATTER.format(LocalTime.now()));
         String logLine = format("%s %s", taggedDate, line).replace("\n", "\n" + taggedDate + " ");
-        synchronized (buffer) {
-            buffer.add(logLine);
+        synchronized (pending) {
+            while (pending.size() >= MAX_PENDING_CHUNKS && !closed) {
+                requestFlush();
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            current.append(logLine).append('\n');
+            if (current.length() >= MAX_CHUNK_LENGTH) {
+                sealCurrentChunk();
+                requestFlush();
+            }
         }
     }
 
@@ -77,30 +103,69 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
     }
 
     public void flushToServer() {
-        if (buffer.isEmpty()) {
-            return;
+        synchronized (sending) {
+            synchronized (pending) {
+                sealCurrentChunk();
+            }
+            Chunk chunk;
+            while ((chunk = nextChunk()) != null) {
+                try {
+                    consoleAppender.append(chunk.sequenceNumber(), chunk.content());
+                } catch (IOException e) {
+                    LOGGER.warn("Could not send console output to server, will try again", e);
+                    return;
+                }
+                synchronized (pending) {
+                    pending.removeFirst();
+                    pending.notifyAll();
+                }
+            }
         }
+    }
 
-        List<String> toFlush;
-        synchronized (buffer) {
-            toFlush = new ArrayList<>(buffer);
-            buffer.clear();
+    int numberOfPendingChunks() {
+        synchronized (pending) {
+            return pending.size();
         }
-        try {
-            consoleAppender.append(toFlush.stream().collect(Collectors.joining("\n", "", "\n")));
-        } catch (IOException e) {
-            LOGGER.warn("Could not send console output to server", e);
-            synchronized (buffer) {
-                toFlush.addAll(buffer);
-                buffer.clear();
-                buffer.addAll(toFlush);
+    }
+
+    private Chunk nextChunk() {
+        synchronized (pending) {
+            return pending.peekFirst();
+        }
+    }
+
+    private void sealCurrentChunk() {
+        if (!current.isEmpty()) {
+            pending.addLast(new Chunk(++lastSequenceNumber, current.toString()));
+            current.setLength(0);
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    flushRequested.set(false);
+                    run();
+                });
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
             }
         }
     }
 
     @Override
     public void close() {
+        synchronized (pending) {
+            // Nothing will be sent after this, so nobody should be kept waiting for it
+            closed = true;
+            pending.notifyAll();
+        }
         flushToServer();
         executor.shutdown();
     }
+
+    private record Chunk(long sequenceNumber, String content) {
+    }
 }
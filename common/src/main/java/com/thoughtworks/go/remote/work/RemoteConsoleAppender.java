@@ -16,18 +16,25 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.agent.HttpService;
+import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_CONSOLE_SEQUENCE_NUMBER;
 
 public class RemoteConsoleAppender implements ConsoleAppender {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteConsoleAppender.class);
+    static final int MIN_COMPRESSIBLE_SIZE = 1024;
 
     private final String consoleUri;
     private final HttpService httpService;
@@ -41,15 +48,47 @@ public class RemoteConsoleAppender implements ConsoleAppender {
 
     @Override
     public void append(String content) throws IOException {
-        LOGGER.debug("Appending console to URL -> {}", consoleUri);
+        send(createPut(content));
+    }
+
+    @Override
+    public void append(long sequenceNumber, String content) throws IOException {
+        HttpPut putMethod = createPut(content);
+        putMethod.setHeader(REQUEST_CONSOLE_SEQUENCE_NUMBER, String.valueOf(sequenceNumber));
+        send(putMethod);
+    }
+
+    HttpPut createPut(String content) throws IOException {
         HttpPut putMethod = new HttpPut(consoleUri);
-        StringEntity entity = new StringEntity(content, charset);
-        putMethod.setEntity(entity);
-        HttpService.setSizeHeader(putMethod, entity.getContentLength());
+        byte[] bytes = content.getBytes(charset);
+        ContentType contentType = ContentType.create("text/plain", charset);
+        if (bytes.length >= MIN_COMPRESSIBLE_SIZE) {
+            putMethod.setEntity(new ByteArrayEntity(gzip(bytes), contentType));
+            putMethod.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else {
+            putMethod.setEntity(new ByteArrayEntity(bytes, contentType));
+        }
+        HttpService.setSizeHeader(putMethod, bytes.length);
+        return putMethod;
+    }
+
+    private void send(HttpPut putMethod) throws IOException {
+        LOGGER.debug("Appending console to URL -> {}", consoleUri);
         try (CloseableHttpResponse response = httpService.execute(putMethod)) {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Got {}", response.getStatusLine().getStatusCode());
+            int statusCode = response.getStatusLine().getStatusCode();
+            LOGGER.debug("Got {}", statusCode);
+            // Anything other than a server error will not go away by sending the same output again
+            if (statusCode >= 500) {
+                throw new IOException("Server responded with status " + statusCode + " when appending console output");
             }
         }
     }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
 }
@@ -95,6 +95,10 @@ public class HealthStateScope implements Comparable<HealthStateScope> {
         return new HealthStateScope(ScopeType.GLOBAL, "PipelineLabelCorrector");
     }
 
+    public static HealthStateScope forConfigConsistencyCheck() {
+        return new HealthStateScope(ScopeType.GLOBAL, "ConfigConsistencyChecker");
+    }
+
     public static HealthStateScope aboutPlugin(String symbolicName) {
         return new HealthStateScope(ScopeType.PLUGIN, symbolicName);
     }
@@ -18,6 +18,7 @@ package com.thoughtworks.go.agent;
 import com.thoughtworks.go.agent.common.ssl.GoAgentServerHttpClient;
 import com.thoughtworks.go.config.AgentRegistry;
 import com.thoughtworks.go.domain.FetchHandler;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpVersion;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -29,13 +30,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Properties;
 
 import static com.thoughtworks.go.remote.StandardHeaders.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.*;
 
@@ -107,6 +112,31 @@ public class HttpServiceTest {
         verify(fetchHandler).handle(instream);
     }
 
+    @Test
+    public void shouldAskForTheRestOfADownloadThatWasInterrupted() throws IOException, URISyntaxException {
+        String url = "http://blah";
+        FetchHandler fetchHandler = mock(FetchHandler.class);
+        when(fetchHandler.resumeFrom()).thenReturn(7L);
+
+        HttpGet mockGetMethod = mock(HttpGet.class);
+        CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+        BasicHttpEntity basicHttpEntity = new BasicHttpEntity();
+        ByteArrayInputStream instream = new ByteArrayInputStream(new byte[]{});
+        basicHttpEntity.setContent(instream);
+        when(response.getEntity()).thenReturn(basicHttpEntity);
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, 206, "Partial Content"));
+        when(httpClient.execute(mockGetMethod)).thenReturn(response);
+        when(httpClientFactory.createGet(url)).thenReturn(mockGetMethod);
+        when(mockGetMethod.getURI()).thenReturn(new URI(url));
+
+        int statusCode = service.download(url, fetchHandler);
+
+        assertThat(statusCode).isEqualTo(206);
+        verify(mockGetMethod).setHeader("Range", "bytes=7-");
+        verify(fetchHandler).handlePartialContent(instream);
+        verify(fetchHandler, never()).handle(any());
+    }
+
     @Test
     public void shouldNotFailIfChecksumFileIsNotPresent() throws IOException {
         HttpService.HttpClientFactory factory = new HttpService.HttpClientFactory(null);
@@ -135,4 +165,24 @@ public class HttpServiceTest {
         }
 
     }
+
+    @Test
+    public void shouldSendAStreamedArtifactChunkedWithItsChecksumsAfterTheZip() throws IOException {
+        HttpService.HttpClientFactory factory = new HttpService.HttpClientFactory(null);
+
+        HttpEntity entity = factory.createMultipartRequestEntity(zip -> {
+            zip.write("zipped-bytes".getBytes(UTF_8));
+            Properties checksums = new Properties();
+            checksums.setProperty("foo.txt", "323233333");
+            return checksums;
+        });
+
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+        assertThat(entity.isChunked()).isTrue();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+        String sent = body.toString(UTF_8);
+        assertThat(sent).contains("name=\"zipfile\"", "name=\"file_checksum\"", "foo.txt=323233333");
+        assertThat(sent.indexOf("zipped-bytes")).isLessThan(sent.indexOf("foo.txt=323233333"));
+    }
 }
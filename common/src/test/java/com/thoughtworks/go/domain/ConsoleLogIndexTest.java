@@ -0,0 +1,164 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.thoughtworks.go.domain.ConsoleLogIndex.LINES_PER_ENTRY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsoleLogIndexTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void shouldFindIndexedPositionsBeforeALine() throws Exception {
+        Path log = writeLog(lines(0, 2500));
+        ConsoleLogIndex.update(log);
+
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 999)).isEqualTo(ConsoleLogIndex.Position.START);
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 1000)).isEqualTo(positionOf(log, 1000));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 2499)).isEqualTo(positionOf(log, 2000));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 5000)).isEqualTo(positionOf(log, 2000));
+        assertThat(ConsoleLogIndex.beforeReaderLine(log, 1999)).isEqualTo(positionOf(log, 1000));
+        assertThat(ConsoleLogIndex.beforeReaderLine(log, 2000)).isEqualTo(positionOf(log, 2000));
+    }
+
+    @Test
+    public void shouldOnlyIndexWhatHasBeenAppendedSinceTheLastUpdate() throws Exception {
+        Path log = writeLog(lines(0, 1500));
+        ConsoleLogIndex.update(log);
+        Files.writeString(log, lines(1500, 3100), UTF_8, StandardOpenOption.APPEND);
+        ConsoleLogIndex.update(log);
+
+        Path reindexed = writeLog("another.log", lines(0, 3100));
+        ConsoleLogIndex.update(reindexed);
+
+        assertThat(Files.readAllBytes(ConsoleLogIndex.indexFor(log))).isEqualTo(Files.readAllBytes(ConsoleLogIndex.indexFor(reindexed)));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 3000)).isEqualTo(positionOf(log, 3000));
+    }
+
+    @Test
+    public void shouldCountLinesEndedByCarriageReturnsTheWayReadersDo() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < LINES_PER_ENTRY; i++) {
+            content.append("progress\rdone\r\n");
+        }
+        Path log = writeLog(content.toString());
+        ConsoleLogIndex.update(log);
+
+        ConsoleLogIndex.Position position = ConsoleLogIndex.beforeLineFeedLine(log, LINES_PER_ENTRY);
+        assertThat(position.offset()).isEqualTo(Files.size(log));
+        assertThat(position.lineFeeds()).isEqualTo(LINES_PER_ENTRY);
+        assertThat(position.readerLines()).isEqualTo(2 * LINES_PER_ENTRY);
+        assertThat(ConsoleLogIndex.beforeReaderLine(log, 2 * LINES_PER_ENTRY)).isEqualTo(position);
+        assertThat(ConsoleLogIndex.beforeReaderLine(log, 2 * LINES_PER_ENTRY - 1)).isEqualTo(ConsoleLogIndex.Position.START);
+    }
+
+    @Test
+    public void shouldIndexProgressOutputAppendedInChunksEndedByCarriageReturnsAlone() throws Exception {
+        Path log = writeLog("");
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2 * LINES_PER_ENTRY; i++) {
+            String chunk = "progress " + i + "%\r" + (i % 2 == 0 ? "" : "\n");
+            content.append(chunk);
+            Files.writeString(log, chunk, UTF_8, StandardOpenOption.APPEND);
+            ConsoleLogIndex.update(log);
+        }
+
+        Path reindexed = writeLog("another.log", content.toString());
+        ConsoleLogIndex.update(reindexed);
+
+        assertThat(Files.readAllBytes(ConsoleLogIndex.indexFor(log))).isEqualTo(Files.readAllBytes(ConsoleLogIndex.indexFor(reindexed)));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, LINES_PER_ENTRY).readerLines()).isEqualTo(2 * LINES_PER_ENTRY);
+    }
+
+    @Test
+    public void shouldNotScanAgainWhatWasScannedByAnEarlierUpdate() throws Exception {
+        Path log = writeLog("");
+        for (int i = 0; i < 2 * LINES_PER_ENTRY; i++) {
+            Files.writeString(log, "progress " + i + "%\r", UTF_8, StandardOpenOption.APPEND);
+            ConsoleLogIndex.update(log);
+        }
+        // Blank out all but the last carriage return, which a scan from the start would no longer count as lines
+        byte[] scanned = Files.readAllBytes(log);
+        for (int i = 0; i < scanned.length - 1; i++) {
+            if (scanned[i] == '\r') {
+                scanned[i] = ' ';
+            }
+        }
+        Files.write(log, scanned);
+        Files.writeString(log, "\n".repeat(LINES_PER_ENTRY), UTF_8, StandardOpenOption.APPEND);
+        ConsoleLogIndex.update(log);
+
+        ConsoleLogIndex.Position position = ConsoleLogIndex.beforeLineFeedLine(log, LINES_PER_ENTRY);
+        assertThat(position.offset()).isEqualTo(Files.size(log));
+        assertThat(position.readerLines()).isEqualTo(2 * LINES_PER_ENTRY + LINES_PER_ENTRY - 1);
+    }
+
+    @Test
+    public void shouldIgnoreAnIndexThatDoesNotMatchItsLog() throws Exception {
+        Path log = writeLog(lines(0, 1500));
+        ConsoleLogIndex.update(log);
+        Files.writeString(log, "rewritten\n");
+
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 1200)).isEqualTo(ConsoleLogIndex.Position.START);
+
+        Files.writeString(log, lines(0, 1200), UTF_8, StandardOpenOption.APPEND);
+        ConsoleLogIndex.update(log);
+
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 1200)).isEqualTo(positionOf(log, 1000));
+    }
+
+    @Test
+    public void shouldStartFromTheBeginningOfLogsWithoutAnIndex() throws Exception {
+        Path log = writeLog(lines(0, 1500));
+
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(log, 1200)).isEqualTo(ConsoleLogIndex.Position.START);
+        assertThat(ConsoleLogIndex.beforeReaderLine(log, 1200)).isEqualTo(ConsoleLogIndex.Position.START);
+    }
+
+    private Path writeLog(String content) throws Exception {
+        return writeLog("console.log", content);
+    }
+
+    private Path writeLog(String name, String content) throws Exception {
+        return Files.writeString(tempDir.resolve(name), content, UTF_8);
+    }
+
+    private static String lines(int from, int to) {
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        return content.toString();
+    }
+
+    private static ConsoleLogIndex.Position positionOf(Path log, int line) throws Exception {
+        String content = Files.readString(log, UTF_8);
+        int offset = 0;
+        for (int i = 0; i < line; i++) {
+            offset = content.indexOf('\n', offset) + 1;
+        }
+        return new ConsoleLogIndex.Position(offset, line, line);
+    }
+}
@@ -81,6 +81,23 @@ public class ConsoleStreamerTest {
         }
     }
 
+    @Test
+    public void streamSeeksToStartLineUsingLineIndex() throws Exception {
+        String[] lines = new String[2500];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "line " + i;
+        }
+        File console = makeConsoleFile(lines);
+        ConsoleLogIndex.update(console.toPath());
+        final List<String> actual = new ArrayList<>();
+
+        try (ConsoleStreamer streamer = new ConsoleStreamer(console.toPath(), 2100L)) {
+            streamer.stream(actual::add);
+            assertEquals("line 2100", actual.getFirst());
+            assertEquals(400L, streamer.totalLinesConsumed());
+        }
+    }
+
     private File makeConsoleFile(String... message) throws IOException {
         File console = File.createTempFile("console", ".log");
         console.deleteOnExit();
@@ -27,6 +27,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -170,6 +173,43 @@ public class DirHandlerTest {
         assertArtifactWasSaved("fetch_dest");
     }
 
+    @Test
+    public void shouldWorkOutWhereEachFileOfTheDirectoryGoesFromTheChecksums() {
+        Properties properties = new Properties();
+        properties.setProperty("build/fetch_dest/first", DigestUtils.md5Hex("First File"));
+        properties.setProperty("build/fetch_dest/under_dir/second", DigestUtils.md5Hex("Second File"));
+        properties.setProperty("build/fetch_destination/other", DigestUtils.md5Hex("Other File"));
+        properties.setProperty("elsewhere/first", DigestUtils.md5Hex("First File"));
+
+        Map<String, ResumableFileHandler> files = new DirHandler("build/fetch_dest/", agentDest).filesToFetch(new ArtifactMd5Checksums(properties));
+
+        assertThat(files).containsOnly(
+            Map.entry("build/fetch_dest/first", new ResumableFileHandler(new File(agentDest, "fetch_dest/first"), "build/fetch_dest/first", DigestUtils.md5Hex("First File"))),
+            Map.entry("build/fetch_dest/under_dir/second", new ResumableFileHandler(new File(agentDest, "fetch_dest/under_dir/second"), "build/fetch_dest/under_dir/second", DigestUtils.md5Hex("Second File"))));
+    }
+
+    @Test
+    public void shouldFindTheFilesListedOnTheServerThatHaveNoChecksum() {
+        Properties properties = new Properties();
+        properties.setProperty("build/fetch_dest/first", DigestUtils.md5Hex("First File"));
+        DirHandler handler = new DirHandler("/build/fetch_dest/", agentDest);
+
+        Map<String, ResumableFileHandler> files = handler.filesToFetch(new ArtifactMd5Checksums(properties));
+
+        assertThat(handler.filesWithoutChecksums(files, List.of("first", "under_dir/second"))).containsExactly("build/fetch_dest/under_dir/second");
+        assertThat(handler.filesWithoutChecksums(files, List.of("first"))).isEmpty();
+    }
+
+    @Test
+    public void shouldLeaveDirectoriesThatCannotBeFetchedFileByFileToTheZip() {
+        Properties properties = new Properties();
+        properties.setProperty("cruise-output/md5.checksum", "whatever");
+
+        assertThat(new DirHandler("cruise-output", agentDest).filesToFetch(new ArtifactMd5Checksums(properties))).isEmpty();
+        assertThat(new DirHandler("fetch_dest", agentDest).filesToFetch(null)).isEmpty();
+        assertThat(new DirHandler("fetch_dest", agentDest).filesToFetch(new ArtifactMd5Checksums(properties))).isEmpty();
+    }
+
     private File createZip(String subDirectoryName) throws IOException {
         Path first = artifactDest.resolve("first");
         Files.createDirectories(first.getParent());
@@ -0,0 +1,102 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResumableFileHandlerTest {
+    @TempDir
+    File tempDir;
+    private File artifact;
+    private File partial;
+    private ResumableFileHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        artifact = new File(tempDir, "dist/app.jar");
+        partial = new File(tempDir, "dist/app.jar.part");
+        handler = new ResumableFileHandler(artifact, "build/dist/app.jar", DigestUtils.md5Hex("the whole file"));
+    }
+
+    @Test
+    void shouldMoveTheFileIntoPlaceOnceItsChecksumMatches() throws IOException {
+        assertThat(handler.resumeFrom()).isZero();
+
+        handler.handle(stream("the whole file"));
+
+        assertThat(artifact).hasContent("the whole file");
+        assertThat(partial).doesNotExist();
+        assertThat(handler.isUpToDate()).isTrue();
+    }
+
+    @Test
+    void shouldCarryOnFromWhereAnInterruptedDownloadStopped() throws IOException {
+        Files.createDirectories(partial.getParentFile().toPath());
+        Files.writeString(partial.toPath(), "the who", UTF_8);
+
+        assertThat(handler.resumeFrom()).isEqualTo(7);
+        handler.handlePartialContent(stream("le file"));
+
+        assertThat(artifact).hasContent("the whole file");
+        assertThat(partial).doesNotExist();
+    }
+
+    @Test
+    void shouldThrowAwayADownloadThatDoesNotMatchItsChecksum() {
+        assertThatThrownBy(() -> handler.handle(stream("something else")))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("[build/dist/app.jar]");
+
+        assertThat(artifact).doesNotExist();
+        assertThat(partial).doesNotExist();
+        assertThat(handler.resumeFrom()).isZero();
+    }
+
+    @Test
+    void shouldStartAgainWhenTheServerCannotResumeFromWhereTheDownloadStopped() throws IOException {
+        Files.createDirectories(partial.getParentFile().toPath());
+        Files.writeString(partial.toPath(), "more than the whole file", UTF_8);
+
+        assertThat(handler.handleResult(416, new StubGoPublisher())).isFalse();
+
+        assertThat(partial).doesNotExist();
+        assertThat(handler.handleResult(206, new StubGoPublisher())).isTrue();
+    }
+
+    @Test
+    void shouldNotBeUpToDateWhenTheFileOnTheAgentIsDifferent() throws IOException {
+        Files.createDirectories(artifact.getParentFile().toPath());
+        Files.writeString(artifact.toPath(), "an older build", UTF_8);
+
+        assertThat(handler.isUpToDate()).isFalse();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
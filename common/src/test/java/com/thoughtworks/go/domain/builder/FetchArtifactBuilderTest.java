@@ -21,22 +21,27 @@ import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.util.TempDirUtils;
 import com.thoughtworks.go.util.TestingClock;
 import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.zip.Deflater;
 
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -216,6 +221,46 @@ public class FetchArtifactBuilderTest {
         verify(fetchHandler).useArtifactMd5Checksums(artifactMd5Checksums);
     }
 
+    @Test
+    public void shouldFetchAFolderFileByFileSkippingFilesThatAreAlreadyUpToDate(@TempDir Path tempDir) throws Exception {
+        java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("log/first", DigestUtils.md5Hex("first"));
+        properties.setProperty("log/sub/second", DigestUtils.md5Hex("second"));
+        when(checksumFileHandler.handleResult(HTTP_OK, publisher)).thenReturn(true);
+        when(checksumFileHandler.getArtifactMd5Checksums()).thenReturn(new ArtifactMd5Checksums(properties));
+
+        File destOnAgent = tempDir.resolve("agent").toFile();
+        FileUtils.writeStringToFile(new File(destOnAgent, "log/first"), "first", UTF_8);
+        StubFetchFilesHttpService httpService = new StubFetchFilesHttpService(Map.of("log/first", "first", "log/sub/second", "second"),
+            "[{\"name\": \"sub\", \"type\": \"folder\", \"files\": [{\"name\": \"second\", \"type\": \"file\"}]}, {\"name\": \"first\", \"type\": \"file\"}]");
+        FetchArtifactBuilder builder = getBuilder(new JobIdentifier("cruise", 10, "1", "dev", "1", "windows", 1L), "log", dest.getPath(), new DirHandler("log", destOnAgent), checksumFileHandler);
+
+        builder.fetch(new DownloadAction(httpService, publisher, clock), new StubURLService(), publisher, 4);
+
+        assertThat(httpService.requested).containsExactly("/remoting/files/cruise/10/dev/1/windows/log/sub/second");
+        assertThat(new File(destOnAgent, "log/sub/second")).hasContent("second");
+        assertThat(new File(destOnAgent, "log/first")).hasContent("first");
+        assertThat(publisher.getMessage()).contains("Downloaded 1 of 2 files");
+    }
+
+    @Test
+    public void shouldFetchAFolderAsAZipWhenSomeOfItsFilesHaveNoChecksum(@TempDir Path tempDir) throws Exception {
+        java.util.Properties properties = new java.util.Properties();
+        properties.setProperty("log/first", DigestUtils.md5Hex("first"));
+        when(checksumFileHandler.handleResult(HTTP_OK, publisher)).thenReturn(true);
+        when(checksumFileHandler.getArtifactMd5Checksums()).thenReturn(new ArtifactMd5Checksums(properties));
+
+        File destOnAgent = tempDir.resolve("agent").toFile();
+        StubFetchFilesHttpService httpService = new StubFetchFilesHttpService(Map.of("log/first", "first"),
+            "[{\"name\": \"first\", \"type\": \"file\"}, {\"name\": \"unchecked\", \"type\": \"file\"}]");
+        FetchArtifactBuilder builder = getBuilder(new JobIdentifier("cruise", 10, "1", "dev", "1", "windows", 1L), "log", dest.getPath(), new DirHandler("log", destOnAgent), checksumFileHandler);
+
+        builder.fetch(new DownloadAction(httpService, publisher, clock), new StubURLService(), publisher, 4);
+
+        assertThat(httpService.requested).containsExactly("/remoting/files/cruise/10/dev/1/windows/log.zip");
+        assertThat(publisher.getMessage()).contains("[WARN] 1 files of [log] have no md5checksum recorded on the server, for example [log/unchecked]. Fetching it as a zip instead.");
+    }
+
     private FetchArtifactBuilder getBuilder(JobIdentifier jobLocator, String srcdir, String dest, FetchHandler handler, final ChecksumFileHandler checksumFileHandler) {
         return new FetchArtifactBuilder(new RunIfConfigs(), new NullBuilder(), "", jobLocator, srcdir, dest, handler, checksumFileHandler);
     }
@@ -233,6 +278,32 @@ public class FetchArtifactBuilderTest {
         }
     }
 
+    private static class StubFetchFilesHttpService extends HttpService {
+        private final Map<String, String> contents;
+        private final String listing;
+        private final List<String> requested = new CopyOnWriteArrayList<>();
+
+        StubFetchFilesHttpService(Map<String, String> contents, String listing) {
+            super(null, null);
+            this.contents = contents;
+            this.listing = listing;
+        }
+
+        @Override
+        public int download(String url, FetchHandler handler) throws IOException {
+            if (handler instanceof DirectoryListingHandler) {
+                handler.handle(new ByteArrayInputStream(listing.getBytes(UTF_8)));
+            } else if (handler instanceof DirHandler) {
+                requested.add(url);
+            } else if (handler instanceof ResumableFileHandler) {
+                requested.add(url);
+                String path = url.substring(url.indexOf("/windows/") + "/windows/".length());
+                handler.handle(new ByteArrayInputStream(contents.get(path).getBytes(UTF_8)));
+            }
+            return HTTP_OK;
+        }
+    }
+
     private static class StubURLService extends URLService {
         @Override
         public String baseRemoteURL() {
@@ -16,6 +16,8 @@
 package com.thoughtworks.go.publishers;
 
 import com.thoughtworks.go.agent.HttpService;
+import com.thoughtworks.go.agent.StreamedUpload;
+import com.thoughtworks.go.agent.URLService;
 import com.thoughtworks.go.domain.AgentRuntimeStatus;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.remote.AgentIdentifier;
@@ -23,7 +25,9 @@ import com.thoughtworks.go.remote.work.BuildRepositoryRemoteStub;
 import com.thoughtworks.go.remote.work.GoArtifactsManipulatorStub;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import com.thoughtworks.go.util.ReflectionUtil;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TempDirUtils;
+import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections4.queue.CircularFifoQueue;
@@ -33,10 +37,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
@@ -137,6 +144,34 @@ public class GoArtifactsManipulatorTest {
         goArtifactsManipulatorStub.publish(goPublisher, "dest", artifactFolder.toFile(), jobIdentifier);
     }
 
+    @Test
+    public void shouldStreamTheArtifactAndResumeFromTheBatchThatFailed() throws IOException {
+        Files.writeString(tempFile, "Some text whose checksum can be asserted", UTF_8);
+        Path anotherFile = artifactFolder.resolve("bond/james_bond/another_file");
+        Files.createDirectories(anotherFile.getParent());
+        Files.writeString(anotherFile, "some more", UTF_8);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isArtifactUploadStreamingEnabled()).thenReturn(true);
+        when(systemEnvironment.getArtifactUploadBatchSizeInBytes()).thenReturn(1L);
+        GoArtifactsManipulator manipulator = new GoArtifactsManipulator(httpService, new URLService(), new ZipUtil(), systemEnvironment);
+
+        List<Properties> sent = new ArrayList<>();
+        when(httpService.upload(any(), anyLong(), any(StreamedUpload.class))).thenAnswer(invocation -> {
+            Properties checksums = invocation.getArgument(2, StreamedUpload.class).writeTo(OutputStream.nullOutputStream());
+            sent.add(checksums);
+            return sent.size() == 2 ? HttpURLConnection.HTTP_INTERNAL_ERROR : HttpURLConnection.HTTP_CREATED;
+        });
+
+        manipulator.publish(goPublisher, "dest", artifactFolder.toFile(), jobIdentifier);
+
+        verify(httpService, never()).upload(any(), anyLong(), any(), any());
+        assertThat(sent).hasSize(3);
+        assertThat(sent.get(2)).isEqualTo(sent.get(1));
+        Properties allSent = new Properties();
+        sent.forEach(allSent::putAll);
+        assertThat(allSent).isEqualTo(expectedProperties("Some text whose checksum can be asserted", "some more"));
+    }
+
     private Properties expectedProperties(String data, String secondData) {
         Properties properties = new Properties();
         properties.setProperty("dest/artifact_folder/file.txt", DigestUtils.md5Hex(data));
@@ -0,0 +1,114 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.publishers;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingArtifactZipTest {
+    @TempDir
+    Path tempDir;
+    private Path artifactFolder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        artifactFolder = Files.createDirectories(tempDir.resolve("artifact_folder"));
+        Files.writeString(artifactFolder.resolve("file.txt"), "some text ".repeat(100), UTF_8);
+        Files.createDirectories(artifactFolder.resolve("bond/james_bond"));
+        Files.writeString(artifactFolder.resolve("bond/james_bond/another_file"), "some more", UTF_8);
+    }
+
+    @Test
+    void shouldZipADirectoryTheWayZipUtilDoesAndHashEachFileOnTheWay() throws IOException {
+        StreamingArtifactZip zip = new StreamingArtifactZip(artifactFolder.toFile(), "dest", Long.MAX_VALUE);
+
+        Path zipFile = tempDir.resolve("out.zip");
+        Properties checksums;
+        try (OutputStream out = Files.newOutputStream(zipFile)) {
+            checksums = zip.writeTo(0, out);
+        }
+
+        assertThat(zip.numberOfBatches()).isEqualTo(1);
+        assertThat(zip.sizeOf(0)).isEqualTo(1000 + 9);
+        assertThat(checksums).containsOnly(
+            Map.entry("dest/artifact_folder/file.txt", DigestUtils.md5Hex("some text ".repeat(100))),
+            Map.entry("dest/artifact_folder/bond/james_bond/another_file", DigestUtils.md5Hex("some more")));
+        try (ZipFile zipped = new ZipFile(zipFile.toFile())) {
+            assertThat(zipped.stream().map(ZipEntry::getName)).containsExactlyInAnyOrder(
+                "artifact_folder/", "artifact_folder/file.txt", "artifact_folder/bond/", "artifact_folder/bond/james_bond/", "artifact_folder/bond/james_bond/another_file");
+            assertThat(new String(zipped.getInputStream(zipped.getEntry("artifact_folder/bond/james_bond/another_file")).readAllBytes(), UTF_8)).isEqualTo("some more");
+        }
+    }
+
+    @Test
+    void shouldNameASingleFileByItsNameWhenThereIsNoDestination() throws IOException {
+        StreamingArtifactZip zip = new StreamingArtifactZip(artifactFolder.resolve("file.txt").toFile(), "", Long.MAX_VALUE);
+
+        Properties checksums = zip.writeTo(0, OutputStream.nullOutputStream());
+
+        assertThat(checksums).containsOnly(Map.entry("file.txt", DigestUtils.md5Hex("some text ".repeat(100))));
+    }
+
+    @Test
+    void shouldStoreFilesThatAreAlreadyCompressedInsteadOfDeflatingThemAgain() throws IOException {
+        Files.writeString(artifactFolder.resolve("archive.tar.gz"), "some text ".repeat(100), UTF_8);
+        StreamingArtifactZip zip = new StreamingArtifactZip(artifactFolder.toFile(), "", Long.MAX_VALUE);
+
+        Path zipFile = tempDir.resolve("out.zip");
+        try (OutputStream out = Files.newOutputStream(zipFile)) {
+            zip.writeTo(0, out);
+        }
+
+        try (ZipFile zipped = new ZipFile(zipFile.toFile())) {
+            assertThat(zipped.getEntry("artifact_folder/archive.tar.gz").getCompressedSize()).isGreaterThanOrEqualTo(1000);
+            assertThat(zipped.getEntry("artifact_folder/file.txt").getCompressedSize()).isLessThan(100);
+        }
+        assertThat(StreamingArtifactZip.isAlreadyCompressed("lib/Thing.JAR")).isTrue();
+        assertThat(StreamingArtifactZip.isAlreadyCompressed("report.html")).isFalse();
+        assertThat(StreamingArtifactZip.isAlreadyCompressed("README")).isFalse();
+    }
+
+    @Test
+    void shouldSplitTheFilesIntoBatchesThatBetweenThemCoverTheWholeArtifact() throws IOException {
+        StreamingArtifactZip zip = new StreamingArtifactZip(artifactFolder.toFile(), "dest", 500);
+
+        Set<String> uploaded = new HashSet<>();
+        long totalSize = 0;
+        for (int batch = 0; batch < zip.numberOfBatches(); batch++) {
+            Properties checksums = zip.writeTo(batch, OutputStream.nullOutputStream());
+            assertThat(uploaded).doesNotContainAnyElementsOf(checksums.stringPropertyNames());
+            uploaded.addAll(checksums.stringPropertyNames());
+            totalSize += zip.sizeOf(batch);
+        }
+
+        assertThat(zip.numberOfBatches()).isEqualTo(2);
+        assertThat(totalSize).isEqualTo(1000 + 9);
+        assertThat(uploaded).containsExactlyInAnyOrder("dest/artifact_folder/file.txt", "dest/artifact_folder/bond/james_bond/another_file");
+    }
+}
@@ -20,9 +20,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -49,14 +52,14 @@ public class ConsoleOutputTransmitterTest {
     public void shouldFlushContentsInBufferToServerInOneGo() throws Exception {
 
         ArgumentCaptor<String> requestArgumentCaptor = ArgumentCaptor.forClass(String.class);
-        doNothing().when(consoleAppender).append(requestArgumentCaptor.capture());
+        doNothing().when(consoleAppender).append(anyLong(), requestArgumentCaptor.capture());
 
         transmitter.consumeLine("first line");
         transmitter.consumeLine("second line");
 
         transmitter.flushToServer();
 
-        verify(consoleAppender).append(any());
+        verify(consoleAppender).append(eq(1L), any());
         assertThat(requestArgumentCaptor.getValue()).contains("first line\n");
         assertThat(requestArgumentCaptor.getValue()).contains("second line\n");
     }
@@ -65,6 +68,93 @@ public class ConsoleOutputTransmitterTest {
     public void shouldNotFlushToServerWhenBufferIsEmpty() throws Exception {
         transmitter.flushToServer();
 
-        verify(consoleAppender, never()).append(any());
+        verify(consoleAppender, never()).append(anyLong(), any());
+    }
+
+    @Test
+    public void shouldNumberChunksInTheOrderTheyWereWritten() throws Exception {
+        transmitter.consumeLine("first line");
+        transmitter.flushToServer();
+        transmitter.consumeLine("second line");
+        transmitter.flushToServer();
+
+        InOrder inOrder = inOrder(consoleAppender);
+        inOrder.verify(consoleAppender).append(eq(1L), contains("first line\n"));
+        inOrder.verify(consoleAppender).append(eq(2L), contains("second line\n"));
+    }
+
+    @Test
+    public void shouldSendChunkAgainWithTheSameNumberWhenItCouldNotBeSent() throws Exception {
+        doThrow(new IOException("server went away")).doNothing().when(consoleAppender).append(eq(1L), any());
+
+        transmitter.consumeLine("first line");
+        transmitter.flushToServer();
+        transmitter.consumeLine("second line");
+        transmitter.flushToServer();
+
+        InOrder inOrder = inOrder(consoleAppender);
+        inOrder.verify(consoleAppender, times(2)).append(eq(1L), contains("first line\n"));
+        inOrder.verify(consoleAppender).append(eq(2L), contains("second line\n"));
+        assertThat(transmitter.numberOfPendingChunks()).isZero();
+    }
+
+    @Test
+    public void shouldSplitOutputIntoChunksOfLimitedLength() throws Exception {
+        String line = "x".repeat(1024);
+        for (int i = 0; i < 2 * ConsoleOutputTransmitter.MAX_CHUNK_LENGTH / line.length(); i++) {
+            transmitter.consumeLine(line);
+        }
+
+        assertThat(transmitter.numberOfPendingChunks()).isGreaterThanOrEqualTo(1);
+        transmitter.flushToServer();
+
+        ArgumentCaptor<String> chunks = ArgumentCaptor.forClass(String.class);
+        verify(consoleAppender, atLeast(2)).append(anyLong(), chunks.capture());
+        assertThat(chunks.getAllValues()).allSatisfy(chunk -> assertThat(chunk.length()).isLessThan(ConsoleOutputTransmitter.MAX_CHUNK_LENGTH + 2 * line.length()));
+    }
+
+    @Test
+    public void shouldHoldUpOutputWhileTooManyChunksAreWaitingToBeSent() throws Exception {
+        String chunkSizedLine = "x".repeat(ConsoleOutputTransmitter.MAX_CHUNK_LENGTH);
+        for (int i = 0; i < ConsoleOutputTransmitter.MAX_PENDING_CHUNKS; i++) {
+            transmitter.consumeLine(chunkSizedLine);
+        }
+
+        CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            transmitter.consumeLine("one line too many");
+            written.countDown();
+        });
+        writer.start();
+        assertThat(written.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        transmitter.flushToServer();
+
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.join();
+        transmitter.flushToServer();
+        verify(consoleAppender).append(eq(ConsoleOutputTransmitter.MAX_PENDING_CHUNKS + 1L), contains("one line too many\n"));
+    }
+
+    @Test
+    public void shouldStopHoldingUpOutputOnceClosed() throws Exception {
+        doThrow(new IOException("server went away")).when(consoleAppender).append(anyLong(), any());
+        String chunkSizedLine = "x".repeat(ConsoleOutputTransmitter.MAX_CHUNK_LENGTH);
+        for (int i = 0; i < ConsoleOutputTransmitter.MAX_PENDING_CHUNKS; i++) {
+            transmitter.consumeLine(chunkSizedLine);
+        }
+
+        CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            transmitter.consumeLine("one line too many");
+            written.countDown();
+        });
+        writer.start();
+        assertThat(written.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        transmitter.close();
+
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.join();
     }
 }
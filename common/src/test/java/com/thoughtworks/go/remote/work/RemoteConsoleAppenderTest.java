@@ -0,0 +1,111 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.remote.work;
+
+import com.thoughtworks.go.agent.HttpService;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_ARTIFACT_PAYLOAD_SIZE;
+import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_CONSOLE_SEQUENCE_NUMBER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class RemoteConsoleAppenderTest {
+    private HttpService httpService;
+    private CloseableHttpResponse response;
+    private RemoteConsoleAppender appender;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        httpService = mock(HttpService.class);
+        response = mock(CloseableHttpResponse.class);
+        when(httpService.execute(any())).thenReturn(response);
+        respondWith(200);
+        appender = new RemoteConsoleAppender("https://server/console.log", httpService, UTF_8);
+    }
+
+    @Test
+    public void shouldSendSequenceNumberWithChunk() throws IOException {
+        appender.append(42, "some output\n");
+
+        HttpPut put = sentPut();
+        assertThat(put.getFirstHeader(REQUEST_CONSOLE_SEQUENCE_NUMBER).getValue()).isEqualTo("42");
+        assertThat(put.getFirstHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(new String(put.getEntity().getContent().readAllBytes(), UTF_8)).isEqualTo("some output\n");
+    }
+
+    @Test
+    public void shouldNotSendSequenceNumberWhenAppendingWithoutOne() throws IOException {
+        appender.append("some output\n");
+
+        assertThat(sentPut().getFirstHeader(REQUEST_CONSOLE_SEQUENCE_NUMBER)).isNull();
+    }
+
+    @Test
+    public void shouldCompressLargeChunks() throws IOException {
+        String content = "a line of output that repeats\n".repeat(100);
+
+        appender.append(1, content);
+
+        HttpPut put = sentPut();
+        assertThat(put.getFirstHeader(HttpHeaders.CONTENT_ENCODING).getValue()).isEqualTo("gzip");
+        assertThat(put.getFirstHeader(REQUEST_ARTIFACT_PAYLOAD_SIZE).getValue()).isEqualTo(String.valueOf(content.length()));
+        assertThat(put.getEntity().getContentLength()).isLessThan(content.length());
+        try (GZIPInputStream in = new GZIPInputStream(put.getEntity().getContent())) {
+            assertThat(new String(in.readAllBytes(), UTF_8)).isEqualTo(content);
+        }
+    }
+
+    @Test
+    public void shouldFailWhenServerCouldNotAppendSoThatChunkIsSentAgain() {
+        respondWith(500);
+
+        assertThatThrownBy(() -> appender.append(1, "some output\n"))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("500");
+    }
+
+    @Test
+    public void shouldNotFailWhenServerRejectsChunkAsSendingItAgainWillNotHelp() throws IOException {
+        respondWith(404);
+
+        appender.append(1, "some output\n");
+
+        verify(httpService).execute(any());
+    }
+
+    private void respondWith(int statusCode) {
+        when(response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, null));
+    }
+
+    private HttpPut sentPut() throws IOException {
+        ArgumentCaptor<HttpPut> captor = ArgumentCaptor.forClass(HttpPut.class);
+        verify(httpService).execute(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -47,6 +47,7 @@ import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 import static com.thoughtworks.go.config.exceptions.EntityType.Pipeline;
 import static com.thoughtworks.go.config.exceptions.EntityType.Template;
@@ -157,6 +158,40 @@ public class BasicCruiseConfig implements CruiseConfig {
         resetAllPipelineConfigsCache();
     }
 
+    @Override
+    public CruiseConfig mergedCopy(List<PartialConfig> partList, boolean forEdit, UnaryOperator<PipelineConfig> copyOfLocalPipeline) {
+        // Merging replaces the groups, environments and SCMs with new lists, so only the top level and the local
+        // pipelines, which are the part of the config that gets edited, need copying
+        BasicCruiseConfig copy = new BasicCruiseConfig();
+        copy.serverConfig = serverConfig;
+        copy.elasticConfig = elasticConfig;
+        copy.packageRepositories = packageRepositories;
+        copy.scms = scms;
+        copy.configRepos = configRepos;
+        copy.artifactStores = artifactStores;
+        copy.secretConfigs = secretConfigs;
+        copy.groups = groupsWithCopiesOfPipelines(copyOfLocalPipeline);
+        copy.templatesConfig = templatesConfig;
+        copy.environments = environments;
+        copy.md5 = md5;
+        copy.partials = new ArrayList<>(partials);
+        copy.merge(partList, forEdit);
+        return copy;
+    }
+
+    private PipelineGroups groupsWithCopiesOfPipelines(UnaryOperator<PipelineConfig> copyOfPipeline) {
+        PipelineGroups copies = new PipelineGroups();
+        for (PipelineConfigs group : groups) {
+            BasicPipelineConfigs groupCopy = new BasicPipelineConfigs(group.getGroup(), group.getAuthorization());
+            groupCopy.setOrigin(group.getOrigin());
+            for (PipelineConfig pipeline : group) {
+                groupCopy.addWithoutValidation(copyOfPipeline.apply(pipeline));
+            }
+            copies.add(groupCopy);
+        }
+        return copies;
+    }
+
     private List<PartialConfig> removePartialsThatDoNotCorrespondToTheCurrentConfigReposList(List<PartialConfig> partList) {
         List<Object> notToBeMerged = new ArrayList<>();
         for (PartialConfig partialConfig : partList) {
@@ -0,0 +1,182 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.util.Node;
+
+import java.util.*;
+
+/**
+ * Understands which pipelines depend on which, which materials each pipeline uses and which pipelines use each
+ * template, so that a save can work out the part of the config it could have affected, and the value stream map and
+ * fan-in can follow dependencies, without walking all of it. It is not changed once built; {@link #withPipeline} and
+ * {@link #withoutPipeline} give a new graph with a single pipeline replaced or removed.
+ */
+public class ConfigDependencyGraph {
+    private final Map<CaseInsensitiveString, Node> dependencies;
+    private final Map<CaseInsensitiveString, MaterialConfigs> materials;
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> directDownstreams;
+    private final Map<String, Set<CaseInsensitiveString>> pipelinesByMaterial;
+    private final Map<CaseInsensitiveString, Set<CaseInsensitiveString>> pipelinesByTemplate;
+    private final int templates;
+
+    public ConfigDependencyGraph(CruiseConfig cruiseConfig) {
+        this.dependencies = new LinkedHashMap<>();
+        this.materials = new HashMap<>();
+        this.directDownstreams = new HashMap<>();
+        this.pipelinesByMaterial = new HashMap<>();
+        this.pipelinesByTemplate = new HashMap<>();
+        for (PipelineConfig pipeline : cruiseConfig.getAllPipelineConfigs()) {
+            add(pipeline);
+        }
+        this.templates = cruiseConfig.getTemplates().size();
+    }
+
+    private ConfigDependencyGraph(ConfigDependencyGraph other) {
+        this.dependencies = new LinkedHashMap<>(other.dependencies);
+        this.materials = new HashMap<>(other.materials);
+        this.directDownstreams = copyOf(other.directDownstreams);
+        this.pipelinesByMaterial = copyOf(other.pipelinesByMaterial);
+        this.pipelinesByTemplate = copyOf(other.pipelinesByTemplate);
+        this.templates = other.templates;
+    }
+
+    public Set<CaseInsensitiveString> pipelines() {
+        return Collections.unmodifiableSet(dependencies.keySet());
+    }
+
+    public Node dependenciesOf(CaseInsensitiveString pipelineName) {
+        return Optional.ofNullable(dependencies.get(pipelineName)).orElseGet(() -> new Node(new ArrayList<>()));
+    }
+
+    public MaterialConfigs materialsOf(CaseInsensitiveString pipelineName) {
+        return materials.getOrDefault(pipelineName, new MaterialConfigs());
+    }
+
+    public Set<CaseInsensitiveString> directDownstreamsOf(CaseInsensitiveString pipelineName) {
+        return Collections.unmodifiableSet(directDownstreams.getOrDefault(pipelineName, Set.of()));
+    }
+
+    public Set<CaseInsensitiveString> pipelinesUsingMaterial(String fingerprint) {
+        return Collections.unmodifiableSet(pipelinesByMaterial.getOrDefault(fingerprint, Set.of()));
+    }
+
+    /**
+     * @return every pipeline that depends on the given one, directly or through other pipelines, but not the pipeline
+     * itself even when the dependencies are cyclic
+     */
+    public Set<CaseInsensitiveString> downstreamsOf(CaseInsensitiveString pipelineName) {
+        Set<CaseInsensitiveString> downstreams = new LinkedHashSet<>();
+        Deque<CaseInsensitiveString> toVisit = new ArrayDeque<>(directDownstreams.getOrDefault(pipelineName, Set.of()));
+        while (!toVisit.isEmpty()) {
+            CaseInsensitiveString downstream = toVisit.pop();
+            if (!downstream.equals(pipelineName) && downstreams.add(downstream)) {
+                toVisit.addAll(directDownstreams.getOrDefault(downstream, Set.of()));
+            }
+        }
+        return downstreams;
+    }
+
+    public Set<CaseInsensitiveString> pipelinesUsingTemplate(CaseInsensitiveString templateName) {
+        return Collections.unmodifiableSet(pipelinesByTemplate.getOrDefault(templateName, Set.of()));
+    }
+
+    /**
+     * @return the number of pipelines and templates in the config
+     */
+    public int size() {
+        return dependencies.size() + templates;
+    }
+
+    /**
+     * @return how many pipelines and templates have to be revalidated when the given entity is saved: a pipeline along
+     * with everything downstream of it, a template along with the pipelines using it and everything downstream of
+     * those, or just the entity itself otherwise
+     */
+    public int revalidationScopeOf(Object entity) {
+        Set<CaseInsensitiveString> affected = new HashSet<>();
+        if (entity instanceof PipelineConfig pipeline) {
+            affected.addAll(downstreamsOf(pipeline.name()));
+        } else if (entity instanceof PipelineTemplateConfig template) {
+            for (CaseInsensitiveString pipelineName : pipelinesUsingTemplate(template.name())) {
+                affected.add(pipelineName);
+                affected.addAll(downstreamsOf(pipelineName));
+            }
+        }
+        return 1 + affected.size();
+    }
+
+    public ConfigDependencyGraph withPipeline(PipelineConfig pipeline) {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(this);
+        graph.remove(pipeline.name());
+        graph.add(pipeline);
+        return graph;
+    }
+
+    public ConfigDependencyGraph withoutPipeline(CaseInsensitiveString pipelineName) {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(this);
+        graph.remove(pipelineName);
+        return graph;
+    }
+
+    private void add(PipelineConfig pipeline) {
+        Node node = pipeline.getDependenciesAsNode();
+        dependencies.put(pipeline.name(), node);
+        materials.put(pipeline.name(), pipeline.materialConfigs());
+        for (Node.DependencyNode upstream : node.getDependencies()) {
+            directDownstreams.computeIfAbsent(upstream.getPipelineName(), name -> new LinkedHashSet<>()).add(pipeline.name());
+        }
+        for (MaterialConfig material : pipeline.materialConfigs()) {
+            pipelinesByMaterial.computeIfAbsent(material.getFingerprint(), fingerprint -> new LinkedHashSet<>()).add(pipeline.name());
+        }
+        if (pipeline.getTemplateName() != null) {
+            pipelinesByTemplate.computeIfAbsent(pipeline.getTemplateName(), name -> new LinkedHashSet<>()).add(pipeline.name());
+        }
+    }
+
+    private void remove(CaseInsensitiveString pipelineName) {
+        Node node = dependencies.remove(pipelineName);
+        MaterialConfigs removedMaterials = materials.remove(pipelineName);
+        if (node == null) {
+            return;
+        }
+        for (Node.DependencyNode upstream : node.getDependencies()) {
+            removeFrom(directDownstreams, upstream.getPipelineName(), pipelineName);
+        }
+        for (MaterialConfig material : removedMaterials) {
+            removeFrom(pipelinesByMaterial, material.getFingerprint(), pipelineName);
+        }
+        pipelinesByTemplate.values().forEach(pipelines -> pipelines.remove(pipelineName));
+    }
+
+    private static <K> void removeFrom(Map<K, Set<CaseInsensitiveString>> map, K key, CaseInsensitiveString pipelineName) {
+        Set<CaseInsensitiveString> pipelines = map.get(key);
+        if (pipelines != null) {
+            pipelines.remove(pipelineName);
+            if (pipelines.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static <K> Map<K, Set<CaseInsensitiveString>> copyOf(Map<K, Set<CaseInsensitiveString>> map) {
+        Map<K, Set<CaseInsensitiveString>> copy = new HashMap<>();
+        map.forEach((key, pipelines) -> copy.put(key, new LinkedHashSet<>(pipelines)));
+        return copy;
+    }
+}
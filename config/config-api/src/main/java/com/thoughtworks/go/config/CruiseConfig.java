@@ -35,6 +35,7 @@ import javax.annotation.PostConstruct;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
  * Understands the configuration for cruise
@@ -44,6 +45,13 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     void merge(List<PartialConfig> partList, boolean forEdit);
 
+    /**
+     * Like {@link #merge(List, boolean)}, but leaves this config as it is. Each pipeline of this config is put in the
+     * copy as the given function returns it, so that editing a pipeline of one does not change the other. Everything
+     * else that merging does not replace is shared with this config, so neither should be changed afterwards.
+     */
+    CruiseConfig mergedCopy(List<PartialConfig> partList, boolean forEdit, UnaryOperator<PipelineConfig> copyOfLocalPipeline);
+
     @PostConstruct
     void initializeServer();
 
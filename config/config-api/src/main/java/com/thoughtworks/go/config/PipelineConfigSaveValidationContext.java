@@ -40,7 +40,7 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     private StageConfig stage;
     private JobConfig job;
     private MaterialConfigFingerprintMap materialConfigsFingerprintMap;
-    private Map<CaseInsensitiveString, Node> dependencies;
+    private ConfigDependencyGraph dependencyGraph;
 
     private PipelineConfigSaveValidationContext(Boolean isPipelineBeingCreated, String groupName, Validatable immediateParent) {
         this.isPipelineBeingCreated = isPipelineBeingCreated;
@@ -88,6 +88,19 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
         return tail;
     }
 
+    /**
+     * Like {@link #forChain(Boolean, String, Validatable...)}, but for validating several pipelines of one config
+     * without working out how its pipelines depend on each other every time.
+     */
+    public static PipelineConfigSaveValidationContext forChain(ConfigDependencyGraph dependencyGraph, Boolean isPipelineBeingCreated, String groupName, Validatable... validatables) {
+        PipelineConfigSaveValidationContext tail = new PipelineConfigSaveValidationContext(isPipelineBeingCreated, groupName, null);
+        tail.dependencyGraph = dependencyGraph;
+        for (Validatable validatable : validatables) {
+            tail = tail.withParent(validatable);
+        }
+        return tail;
+    }
+
     @Override
     public PipelineConfigSaveValidationContext withParent(Validatable current) {
         return new PipelineConfigSaveValidationContext(current, this);
@@ -149,7 +162,11 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     }
 
     public Node getDependencyMaterialsFor(CaseInsensitiveString pipelineName) {
-        return Optional.ofNullable(getDependencies().get(pipelineName)).orElseGet(() -> new Node(new ArrayList<>()));
+        return getDependencyGraph().dependenciesOf(pipelineName);
+    }
+
+    public Set<CaseInsensitiveString> getDownstreamPipelinesOf(CaseInsensitiveString pipelineName) {
+        return getDependencyGraph().downstreamsOf(pipelineName);
     }
 
     @Override
@@ -196,17 +213,19 @@ public class PipelineConfigSaveValidationContext implements ValidationContext {
     }
 
     public Set<CaseInsensitiveString> getPipelinesWithDependencyMaterials() {
-        return getDependencies().keySet();
+        return getDependencyGraph().pipelines();
     }
 
-    private Map<CaseInsensitiveString, Node> getDependencies() {
-        if (dependencies == null) {
-            dependencies = new HashMap<>();
-            for (PipelineConfig pipeline : cruiseConfig.getAllPipelineConfigs()) {
-                dependencies.put(pipeline.name(), pipeline.getDependenciesAsNode());
+    private ConfigDependencyGraph getDependencyGraph() {
+        if (dependencyGraph == null) {
+            // Every context for the same config shares one graph, rather than each working it out again
+            if (parentContext != null && (parentContext.cruiseConfig == cruiseConfig || parentContext.dependencyGraph != null)) {
+                dependencyGraph = parentContext.getDependencyGraph();
+            } else {
+                dependencyGraph = new ConfigDependencyGraph(cruiseConfig);
             }
         }
-        return dependencies;
+        return dependencyGraph;
     }
 
     public PipelineGroups getGroups() {
@@ -86,10 +86,8 @@ public class PipelineConfigTreeValidator {
         if (validationContext.isPipelineBeingCreated()) {
             return;
         }
-        for (CaseInsensitiveString selected : validationContext.getPipelinesWithDependencyMaterials()) {
-            if (selected.equals(pipelineConfig.name())) {
-                continue;
-            }
+        // Only pipelines downstream of this one can depend on it or fetch from it
+        for (CaseInsensitiveString selected : validationContext.getDownstreamPipelinesOf(pipelineConfig.name())) {
             PipelineConfig selectedPipeline = validationContext.getPipelineConfigByName(selected);
             validateDependencyMaterialsForDownstreams(validationContext, selected, selectedPipeline);
             validateFetchTasksForOtherPipelines(validationContext, selectedPipeline);
@@ -115,10 +115,11 @@ public class PipelineTemplateConfig extends BaseCollection<StageConfig> implemen
     private void validateDependencies(CruiseConfig preprocessedConfig) {
         List<CaseInsensitiveString> pipelineNames = preprocessedConfig.pipelinesAssociatedWithTemplate(this.name());
         ParamsConfig paramsConfig = this.referredParams();
+        ConfigDependencyGraph dependencyGraph = new ConfigDependencyGraph(preprocessedConfig);
         for (CaseInsensitiveString pipelineName : pipelineNames) {
             PipelineConfig pipelineConfig = preprocessedConfig.getPipelineConfigByName(pipelineName);
             PipelineConfigs pipelineGroup = preprocessedConfig.findGroupOfPipeline(pipelineConfig);
-            PipelineConfigSaveValidationContext contextForStages = PipelineConfigSaveValidationContext.forChain(false, pipelineGroup.getGroup(), preprocessedConfig, pipelineConfig);
+            PipelineConfigSaveValidationContext contextForStages = PipelineConfigSaveValidationContext.forChain(dependencyGraph, false, pipelineGroup.getGroup(), preprocessedConfig, pipelineConfig);
             validateParams(pipelineConfig, paramsConfig);
             validatePartsOfPipelineConfig(pipelineConfig, contextForStages);
             validateDependenciesOfDownstreams(pipelineConfig, contextForStages);
@@ -22,6 +22,7 @@ import com.thoughtworks.go.config.materials.MaterialConfigs;
 import com.thoughtworks.go.config.materials.PackageMaterialConfig;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
 import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.config.merge.MergeConfigOrigin;
 import com.thoughtworks.go.config.preprocessor.ConfigParamPreprocessor;
 import com.thoughtworks.go.config.remote.*;
 import com.thoughtworks.go.domain.PipelineGroups;
@@ -47,6 +48,7 @@ import com.thoughtworks.go.plugin.domain.elastic.ElasticAgentPluginInfo;
 import com.thoughtworks.go.security.CryptoException;
 import com.thoughtworks.go.security.GoCipher;
 import com.thoughtworks.go.security.ResetCipher;
+import com.thoughtworks.go.util.ClonerFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -182,6 +184,39 @@ public class BasicCruiseConfigTest extends CruiseConfigTestBase {
         assertThat(cruiseConfig.getAllPipelineNames().contains(new CaseInsensitiveString("pipeline_in_repo2"))).isTrue();
     }
 
+    @Test
+    public void shouldMergeRemotePipelinesIntoACopyLeavingTheOriginalAsItWas() {
+        BasicCruiseConfig cruiseConfig = GoConfigMother.configWithPipelines("p1", "p2");
+        ConfigRepoConfig repoConfig = ConfigRepoConfig.createConfigRepoConfig(gitMaterialConfig("url1"), "plugin", "id-1");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(repoConfig));
+        PartialConfig partialConfigInRepo = PartialConfigMother.withPipeline("pipeline_in_repo", new RepoConfigOrigin(repoConfig, "repo1_r1"));
+
+        CruiseConfig merged = cruiseConfig.mergedCopy(List.of(partialConfigInRepo), true, ClonerFactory.instance()::deepClone);
+
+        assertThat(merged.getAllPipelineNames()).contains(new CaseInsensitiveString("p1"), new CaseInsensitiveString("pipeline_in_repo"));
+        assertThat(cruiseConfig.getAllPipelineNames()).doesNotContain(new CaseInsensitiveString("pipeline_in_repo"));
+        assertThat(cruiseConfig.getOrigin()).isInstanceOf(FileConfigOrigin.class);
+        assertThat(merged.getOrigin()).isInstanceOf(MergeConfigOrigin.class);
+        assertThat(merged.server()).isSameAs(cruiseConfig.server());
+        assertThat(merged.getTemplates()).isSameAs(cruiseConfig.getTemplates());
+    }
+
+    @Test
+    public void shouldNotLetAnEditToAPipelineOfTheConfigChangeItsMergedCopy() {
+        BasicCruiseConfig cruiseConfig = GoConfigMother.configWithPipelines("p1", "p2");
+        ConfigRepoConfig repoConfig = ConfigRepoConfig.createConfigRepoConfig(gitMaterialConfig("url1"), "plugin", "id-1");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(repoConfig));
+        PartialConfig partialConfigInRepo = PartialConfigMother.withPipeline("pipeline_in_repo", new RepoConfigOrigin(repoConfig, "repo1_r1"));
+
+        CruiseConfig merged = cruiseConfig.mergedCopy(List.of(partialConfigInRepo), true, ClonerFactory.instance()::deepClone);
+        PipelineConfig local = cruiseConfig.pipelineConfigByName(new CaseInsensitiveString("p1"));
+        PipelineConfig copy = merged.pipelineConfigByName(new CaseInsensitiveString("p1"));
+        local.setLabelTemplate("edited-${COUNT}");
+
+        assertThat(copy).isNotSameAs(local);
+        assertThat(copy.getLabelTemplate()).isNotEqualTo("edited-${COUNT}");
+    }
+
     @Test
     public void shouldReturnAListOfPipelineNamesAssociatedWithOneTemplate() {
         List<CaseInsensitiveString> pipelinesAssociatedWithATemplate = new ArrayList<>();
@@ -0,0 +1,122 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigDependencyGraphTest {
+    private BasicCruiseConfig cruiseConfig;
+
+    @BeforeEach
+    void setUp() {
+        cruiseConfig = GoConfigMother.configWithPipelines("p1", "p2", "p3", "p4", "unrelated");
+        dependsOn("p2", "p1");
+        dependsOn("p3", "p2");
+        dependsOn("p4", "p1");
+    }
+
+    @Test
+    void shouldFindEverythingDownstreamOfAPipeline() {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+
+        assertThat(graph.downstreamsOf(name("p1"))).containsExactlyInAnyOrder(name("p2"), name("p3"), name("p4"));
+        assertThat(graph.downstreamsOf(name("p2"))).containsExactly(name("p3"));
+        assertThat(graph.downstreamsOf(name("p3"))).isEmpty();
+        assertThat(graph.downstreamsOf(name("unknown"))).isEmpty();
+    }
+
+    @Test
+    void shouldNotCountAPipelineAsItsOwnDownstreamWhenTheDependenciesAreCyclic() {
+        dependsOn("p1", "p3");
+
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+
+        assertThat(graph.downstreamsOf(name("p1"))).containsExactlyInAnyOrder(name("p2"), name("p3"), name("p4"));
+    }
+
+    @Test
+    void shouldWorkOutHowManyNodesASaveHasToRevalidate() {
+        cruiseConfig.addTemplate(new PipelineTemplateConfig(name("template")));
+        pipeline("p2").setTemplateName(name("template"));
+        pipeline("unrelated").setTemplateName(name("template"));
+
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+
+        assertThat(graph.size()).isEqualTo(6);
+        assertThat(graph.pipelinesUsingTemplate(name("template"))).containsExactly(name("p2"), name("unrelated"));
+        assertThat(graph.revalidationScopeOf(pipeline("p1"))).isEqualTo(4);
+        assertThat(graph.revalidationScopeOf(pipeline("p3"))).isEqualTo(1);
+        assertThat(graph.revalidationScopeOf(cruiseConfig.findTemplate(name("template")))).isEqualTo(4);
+        assertThat(graph.revalidationScopeOf(new EnvironmentsConfig())).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIndexDirectDownstreamsAndMaterials() {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+        String fingerprint = pipeline("p1").materialConfigs().getFirst().getFingerprint();
+
+        assertThat(graph.directDownstreamsOf(name("p1"))).containsExactly(name("p2"), name("p4"));
+        assertThat(graph.directDownstreamsOf(name("unknown"))).isEmpty();
+        assertThat(graph.materialsOf(name("p2"))).isEqualTo(pipeline("p2").materialConfigs());
+        assertThat(graph.materialsOf(name("unknown"))).isEmpty();
+        assertThat(graph.pipelinesUsingMaterial(fingerprint)).contains(name("p1"));
+    }
+
+    @Test
+    void shouldReplaceASinglePipelineWithoutChangingTheOriginalGraph() {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+        dependsOn("unrelated", "p3");
+
+        ConfigDependencyGraph updated = graph.withPipeline(pipeline("unrelated"));
+
+        assertThat(updated.downstreamsOf(name("p1"))).containsExactlyInAnyOrder(name("p2"), name("p3"), name("p4"), name("unrelated"));
+        assertThat(updated.directDownstreamsOf(name("p3"))).containsExactly(name("unrelated"));
+        assertThat(updated.pipelines()).isEqualTo(new ConfigDependencyGraph(cruiseConfig).pipelines());
+        assertThat(graph.downstreamsOf(name("p1"))).containsExactlyInAnyOrder(name("p2"), name("p3"), name("p4"));
+        assertThat(graph.directDownstreamsOf(name("p3"))).isEmpty();
+    }
+
+    @Test
+    void shouldRemoveASinglePipelineAndItsEdges() {
+        ConfigDependencyGraph graph = new ConfigDependencyGraph(cruiseConfig);
+        String fingerprint = pipeline("p2").materialConfigs().getFirst().getFingerprint();
+
+        ConfigDependencyGraph updated = graph.withoutPipeline(name("p2"));
+
+        assertThat(updated.pipelines()).doesNotContain(name("p2"));
+        assertThat(updated.directDownstreamsOf(name("p1"))).containsExactly(name("p4"));
+        assertThat(updated.pipelinesUsingMaterial(fingerprint)).doesNotContain(name("p2"));
+        assertThat(updated.materialsOf(name("p2"))).isEmpty();
+        assertThat(graph.directDownstreamsOf(name("p1"))).containsExactly(name("p2"), name("p4"));
+    }
+
+    private void dependsOn(String downstream, String upstream) {
+        pipeline(downstream).addMaterialConfig(new DependencyMaterialConfig(name(upstream), pipeline(upstream).getFirst().name()));
+    }
+
+    private PipelineConfig pipeline(String name) {
+        return cruiseConfig.getPipelineConfigByName(name(name));
+    }
+
+    private static CaseInsensitiveString name(String name) {
+        return new CaseInsensitiveString(name);
+    }
+}
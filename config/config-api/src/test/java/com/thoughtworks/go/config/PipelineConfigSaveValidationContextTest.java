@@ -113,6 +113,22 @@ class PipelineConfigSaveValidationContextTest {
         assertThat(context.getDependencyMaterialsFor(new CaseInsensitiveString("junk")).getDependencies().isEmpty()).isTrue();
     }
 
+    @Test
+    void shouldShareTheDependenciesItHasWorkedOutWithContextsForTheSameConfig() {
+        BasicCruiseConfig cruiseConfig = GoConfigMother.configWithPipelines("p1", "p2", "p3");
+        PipelineConfig p2 = cruiseConfig.getPipelineConfigByName(new CaseInsensitiveString("p2"));
+        p2.addMaterialConfig(new DependencyMaterialConfig(new CaseInsensitiveString("p1"), new CaseInsensitiveString("stage")));
+        PipelineConfigSaveValidationContext context = PipelineConfigSaveValidationContext.forChain(false, "group", cruiseConfig, p2);
+        assertThat(context.getDownstreamPipelinesOf(new CaseInsensitiveString("p1"))).containsExactly(new CaseInsensitiveString("p2"));
+
+        PipelineConfig p3 = cruiseConfig.getPipelineConfigByName(new CaseInsensitiveString("p3"));
+        p3.addMaterialConfig(new DependencyMaterialConfig(new CaseInsensitiveString("p2"), new CaseInsensitiveString("stage")));
+
+        assertThat(context.withParent(p2.getFirst()).getDownstreamPipelinesOf(new CaseInsensitiveString("p1"))).containsExactly(new CaseInsensitiveString("p2"));
+        assertThat(PipelineConfigSaveValidationContext.forChain(false, "group", cruiseConfig, p2).getDownstreamPipelinesOf(new CaseInsensitiveString("p1")))
+            .containsExactly(new CaseInsensitiveString("p2"), new CaseInsensitiveString("p3"));
+    }
+
     @Test
     void shouldGetParentDisplayName() {
         assertThat(PipelineConfigSaveValidationContext.forChain(true, "group", new PipelineConfig()).getParentDisplayName()).isEqualTo("pipeline");
@@ -15,10 +15,29 @@
  */
 package com.thoughtworks.go.config;
 
+import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.domain.config.Configuration;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 
+import java.util.Optional;
+import java.util.Set;
+
 public interface PartialConfigLoadContext {
     Configuration configuration();
     MaterialConfig configMaterial();
+
+    /**
+     * @return paths, relative to the checkout, of the files changed since {@link #previousPartialConfig()} was loaded;
+     * empty when that is not known, in which case every file has to be treated as changed.
+     */
+    default Optional<Set<String>> changedFiles() {
+        return Optional.empty();
+    }
+
+    /**
+     * @return the partial config last loaded successfully from this material, or null if there is none.
+     */
+    default PartialConfig previousPartialConfig() {
+        return null;
+    }
 }
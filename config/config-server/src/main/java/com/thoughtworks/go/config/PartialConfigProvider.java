@@ -30,12 +30,18 @@ import java.io.File;
  */
 public interface PartialConfigProvider {
 
-    // TODO consider: could have Parse() whose result is
-    // stored by Go in memory so that single checkout is parsed only once.
-
     PartialConfig load(File configRepoCheckoutDirectory, PartialConfigLoadContext context);
 
     String displayName();
 
+    /**
+     * @return true if loading the same revision with the same configuration always gives the same partial, so that
+     * a revision which has already been loaded successfully does not have to be loaded again. Plugins cannot promise
+     * this, as they may scan branches and refs which change without the revision changing.
+     */
+    default boolean isDeterminedByRevision() {
+        return false;
+    }
+
     // any further elements that could be obtained from config repo
 }
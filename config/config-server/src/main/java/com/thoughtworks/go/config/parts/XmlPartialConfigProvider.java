@@ -16,15 +16,23 @@
 package com.thoughtworks.go.config.parts;
 
 import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.remote.ConfigReposConfig;
 import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.domain.WildcardScanner;
 import com.thoughtworks.go.domain.config.Configuration;
 import com.thoughtworks.go.domain.config.ConfigurationProperty;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.util.ClonerFactory;
 import org.jdom2.JDOMException;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class XmlPartialConfigProvider implements PartialConfigProvider {
     public static final String providerName = "gocd-xml";
@@ -32,6 +40,7 @@ public class XmlPartialConfigProvider implements PartialConfigProvider {
     private static final String defaultPattern = "**/*.gocd.xml";
 
     private final MagicalGoConfigXmlLoader loader;
+    private final Map<String, Map<String, ParsedFile>> parsedFilesByMaterial = new ConcurrentHashMap<>();
 
     public XmlPartialConfigProvider(MagicalGoConfigXmlLoader loader) {
         this.loader = loader;
@@ -41,14 +50,30 @@ public class XmlPartialConfigProvider implements PartialConfigProvider {
     public PartialConfig load(File configRepoCheckoutDirectory, PartialConfigLoadContext context) {
         File[] allFiles = getFiles(configRepoCheckoutDirectory, context);
 
-        // if context had changed files list then we could parse only new content
+        String fingerprint = fingerprintOf(context.configMaterial());
+        Map<String, ParsedFile> reusable = reusableParsedFiles(fingerprint, context);
+        Map<String, ParsedFile> parsedFiles = new HashMap<>();
 
-        PartialConfig[] allFragments = parseFiles(allFiles);
+        PartialConfig[] allFragments = new PartialConfig[allFiles.length];
+        for (int i = 0; i < allFiles.length; i++) {
+            File file = allFiles[i];
+            String path = relativePath(configRepoCheckoutDirectory, file);
+            ParsedFile parsedFile = reusable.get(path);
+            if (parsedFile == null || !parsedFile.isUpToDate(file)) {
+                parsedFile = new ParsedFile(file.lastModified(), file.length(), parseFile(file));
+            }
+            parsedFiles.put(path, parsedFile);
+            // the partial gets origins set and is merged into the main config, so keep the cached fragment untouched
+            allFragments[i] = ClonerFactory.instance().deepClone(parsedFile.fragment());
+        }
 
         PartialConfig partialConfig = new PartialConfig();
 
         collectFragments(allFragments, partialConfig);
 
+        if (fingerprint != null) {
+            parsedFilesByMaterial.put(fingerprint, parsedFiles);
+        }
         return partialConfig;
     }
 
@@ -57,6 +82,45 @@ public class XmlPartialConfigProvider implements PartialConfigProvider {
         return "GoCD XML";
     }
 
+    @Override
+    public boolean isDeterminedByRevision() {
+        return true;
+    }
+
+    /**
+     * Forgets the files parsed for config repositories which are no longer configured.
+     */
+    public void retainParsedFilesOf(ConfigReposConfig configRepos) {
+        parsedFilesByMaterial.keySet().removeIf(fingerprint -> !configRepos.hasMaterialWithFingerprint(fingerprint));
+    }
+
+    private Map<String, ParsedFile> reusableParsedFiles(String fingerprint, PartialConfigLoadContext context) {
+        if (fingerprint == null) {
+            return Map.of();
+        }
+        Optional<Set<String>> changedFiles = context.changedFiles();
+        if (changedFiles.isEmpty()) {
+            // every file is parsed again, so do not hold on to the previous ones while that happens, or after it fails
+            parsedFilesByMaterial.remove(fingerprint);
+            return Map.of();
+        }
+        Map<String, ParsedFile> previous = parsedFilesByMaterial.get(fingerprint);
+        if (previous == null) {
+            return Map.of();
+        }
+        Map<String, ParsedFile> reusable = new HashMap<>(previous);
+        reusable.keySet().removeAll(changedFiles.get());
+        return reusable;
+    }
+
+    private static String fingerprintOf(MaterialConfig material) {
+        return material == null ? null : material.getFingerprint();
+    }
+
+    private static String relativePath(File directory, File file) {
+        return directory.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
     public File[] getFiles(File configRepoCheckoutDirectory, PartialConfigLoadContext context) {
         String pattern = defaultPattern;
 
@@ -109,4 +173,14 @@ public class XmlPartialConfigProvider implements PartialConfigProvider {
             throw new RuntimeException("Failed to parse xml file: " + file.getName(), e);
         }
     }
+
+    /**
+     * A parsed file, along with what it looked like on disk when it was parsed. A file which is not listed as changed
+     * is only reused if it still looks the same, in case the list of changes was incomplete.
+     */
+    private record ParsedFile(long lastModified, long length, PartialConfig fragment) {
+        boolean isUpToDate(File file) {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
 }
@@ -16,11 +16,15 @@
 package com.thoughtworks.go.config.parts;
 
 import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.remote.ConfigRepoConfig;
+import com.thoughtworks.go.config.remote.ConfigReposConfig;
 import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.domain.PipelineGroups;
 import com.thoughtworks.go.domain.config.Configuration;
 import com.thoughtworks.go.helper.EnvironmentConfigMother;
 import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.helper.MaterialConfigsMother;
+import com.thoughtworks.go.helper.PipelineConfigMother;
 import com.thoughtworks.go.util.ConfigElementImplementationRegistryMother;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,12 +32,13 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 public class XmlPartialConfigProviderTest {
 
@@ -176,6 +181,80 @@ public class XmlPartialConfigProviderTest {
         assertArrayEquals(expected, matchingFiles);
     }
 
+    @Test
+    public void shouldOnlyParseFilesWhichChangedSinceThePreviousLoad() throws Exception {
+        File file1 = helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("pipe1"));
+        File file2 = helper.addFileWithPipeline("sub/pipe2.gocd.xml", PipelineConfigMother.pipelineConfig("pipe2"));
+        XmlPartialConfigProvider provider = spy(xmlPartialProvider);
+
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+        PartialConfig part = provider.load(tmpFolder, contextWithChangedFiles(Set.of("sub/pipe2.gocd.xml")));
+
+        verify(provider, times(1)).parseFile(file1);
+        verify(provider, times(2)).parseFile(file2);
+        assertThat(part.getGroups().getFirst().size()).isEqualTo(2);
+
+        PartialConfig reloaded = provider.load(tmpFolder, contextWithChangedFiles(Set.of()));
+        assertThat(reloaded.getGroups().getFirst().getFirst()).isEqualTo(part.getGroups().getFirst().getFirst());
+        assertThat(reloaded.getGroups().getFirst().getFirst()).isNotSameAs(part.getGroups().getFirst().getFirst());
+    }
+
+    @Test
+    public void shouldParseFileAgainWhenItHasChangedOnDiskEvenIfNotListedAsChanged() throws Exception {
+        File file = helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("pipe1"));
+        XmlPartialConfigProvider provider = spy(xmlPartialProvider);
+
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+        helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("renamed"));
+        file.setLastModified(file.lastModified() + 10_000);
+        PartialConfig part = provider.load(tmpFolder, contextWithChangedFiles(Set.of()));
+
+        verify(provider, times(2)).parseFile(file);
+        assertThat(part.getGroups().getFirst().getFirst().name()).isEqualTo(new CaseInsensitiveString("renamed"));
+    }
+
+    @Test
+    public void shouldParseEveryFileWhenChangedFilesAreNotKnown() throws Exception {
+        File file = helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("pipe1"));
+        XmlPartialConfigProvider provider = spy(xmlPartialProvider);
+
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+
+        verify(provider, times(2)).parseFile(file);
+    }
+
+    @Test
+    public void shouldForgetTheFilesParsedForAConfigRepoWhichIsNoLongerConfigured() throws Exception {
+        File file = helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("pipe1"));
+        XmlPartialConfigProvider provider = spy(xmlPartialProvider);
+
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+        provider.retainParsedFilesOf(new ConfigReposConfig());
+        provider.load(tmpFolder, contextWithChangedFiles(Set.of()));
+
+        verify(provider, times(2)).parseFile(file);
+    }
+
+    @Test
+    public void shouldKeepTheFilesParsedForAConfigRepoWhichIsStillConfigured() throws Exception {
+        File file = helper.addFileWithPipeline("pipe1.gocd.xml", PipelineConfigMother.pipelineConfig("pipe1"));
+        XmlPartialConfigProvider provider = spy(xmlPartialProvider);
+
+        provider.load(tmpFolder, contextWithChangedFiles(null));
+        provider.retainParsedFilesOf(new ConfigReposConfig(ConfigRepoConfig.createConfigRepoConfig(MaterialConfigsMother.git("http://my.git"), XmlPartialConfigProvider.providerName, "id")));
+        provider.load(tmpFolder, contextWithChangedFiles(Set.of()));
+
+        verify(provider, times(1)).parseFile(file);
+    }
+
+    private PartialConfigLoadContext contextWithChangedFiles(Set<String> changedFiles) {
+        PartialConfigLoadContext context = mock(PartialConfigLoadContext.class);
+        when(context.configMaterial()).thenReturn(MaterialConfigsMother.git("http://my.git"));
+        when(context.changedFiles()).thenReturn(Optional.ofNullable(changedFiles));
+        return context;
+    }
+
     @Test
     public void shouldFailToLoadDirectoryWithDuplicatedPipeline() throws Exception {
         GoConfigMother mother = new GoConfigMother();
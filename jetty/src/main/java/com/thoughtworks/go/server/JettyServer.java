@@ -29,6 +29,7 @@ import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.eclipse.jetty.server.session.SessionHandler;
+import org.eclipse.jetty.util.VirtualThreads;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.webapp.*;
 import org.eclipse.jetty.websocket.server.config.JettyWebSocketConfiguration;
@@ -90,6 +91,7 @@ public class JettyServer extends AppServer {
         server.setHandler(serverLevelHandlers);
 
         performCustomConfiguration();
+        useVirtualThreadsIfEnabled();
         server.setStopAtShutdown(true);
     }
 
@@ -187,6 +189,14 @@ public class JettyServer extends AppServer {
         return new GoPlainSocketConnector(this, systemEnvironment).getConnector();
     }
 
+    private void useVirtualThreadsIfEnabled() {
+        // Lets requests that park, such as agents waiting for work, do so without holding on to a platform thread
+        if (systemEnvironment.useVirtualThreadsForJetty() && server.getThreadPool() instanceof VirtualThreads.Configurable threadPool) {
+            LOG.info("Running requests on virtual threads");
+            threadPool.setUseVirtualThreads(true);
+        }
+    }
+
     private void performCustomConfiguration() throws Exception {
         File jettyConfig = systemEnvironment.getJettyConfigFile();
         if (jettyConfig.exists()) {
@@ -28,12 +28,15 @@ import com.thoughtworks.go.plugin.access.notification.v3.JsonMessageHandler3_0;
 import com.thoughtworks.go.plugin.access.notification.v4.JsonMessageHandler4_0;
 import com.thoughtworks.go.plugin.api.response.Result;
 import com.thoughtworks.go.plugin.infra.PluginManager;
+import com.thoughtworks.go.util.json.JsonHelper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Function;
 
 import static com.thoughtworks.go.plugin.domain.common.PluginConstants.NOTIFICATION_EXTENSION;
 
@@ -44,8 +47,9 @@ public class NotificationExtension extends AbstractExtension {
     static final String REQUEST_NOTIFICATIONS_INTERESTED_IN = "notifications-interested-in";
     public static final String STAGE_STATUS_CHANGE_NOTIFICATION = "stage-status";
     public static final String AGENT_STATUS_CHANGE_NOTIFICATION = "agent-status";
+    public static final String BATCH_NOTIFICATION = "notification-batch";
 
-    static final List<String> VALID_NOTIFICATION_TYPES = List.of(STAGE_STATUS_CHANGE_NOTIFICATION, AGENT_STATUS_CHANGE_NOTIFICATION);
+    static final List<String> VALID_NOTIFICATION_TYPES = List.of(STAGE_STATUS_CHANGE_NOTIFICATION, AGENT_STATUS_CHANGE_NOTIFICATION, BATCH_NOTIFICATION);
 
     private Map<String, JsonMessageHandler> messageHandlerMap = new HashMap<>();
 
@@ -79,10 +83,33 @@ public class NotificationExtension extends AbstractExtension {
     }
 
     public <T> Result notify(String pluginId, final String requestName, final T data) {
+        return submitNotification(pluginId, requestName, version -> messageHandlerMap.get(version).requestMessageForNotify(data));
+    }
+
+    public Result notify(String pluginId, NotificationRequest notification) {
+        return submitNotification(pluginId, notification.name(), version -> notification.requestBody(version, messageHandlerMap.get(version)));
+    }
+
+    /**
+     * Sends several notifications in one request, to a plugin that is interested in {@link #BATCH_NOTIFICATION}. The
+     * request body is <code>{"notifications": [{"type": "stage-status", "data": {...}}, ...]}</code>, where each
+     * <code>data</code> is what the plugin would have been sent for that notification on its own.
+     */
+    public Result notifyBatch(String pluginId, List<NotificationRequest> notifications) {
+        return submitNotification(pluginId, BATCH_NOTIFICATION, version -> {
+            StringJoiner body = new StringJoiner(",", "{\"notifications\":[", "]}");
+            for (NotificationRequest notification : notifications) {
+                body.add("{\"type\":" + JsonHelper.toJson(notification.name()) + ",\"data\":" + notification.requestBody(version, messageHandlerMap.get(version)) + "}");
+            }
+            return body.toString();
+        });
+    }
+
+    private Result submitNotification(String pluginId, String requestName, Function<String, String> requestBodyForVersion) {
         return pluginRequestHelper.submitRequest(pluginId, requestName, new DefaultPluginInteractionCallback<>() {
             @Override
             public String requestBody(String resolvedExtensionVersion) {
-                return messageHandlerMap.get(resolvedExtensionVersion).requestMessageForNotify(data);
+                return requestBodyForVersion.apply(resolvedExtensionVersion);
             }
 
             @Override
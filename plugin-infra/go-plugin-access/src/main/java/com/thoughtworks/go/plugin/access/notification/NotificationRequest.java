@@ -0,0 +1,55 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.plugin.access.notification;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Understands one notification on its way to plugins. Its request body is worked out once for each extension version
+ * and then shared by every plugin it is sent to.
+ */
+public class NotificationRequest implements Serializable {
+    private final String name;
+    private final Serializable data;
+    private final ConcurrentMap<String, String> requestBodies = new ConcurrentHashMap<>();
+
+    public NotificationRequest(String name, Serializable data) {
+        this.name = name;
+        this.data = data;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Serializable data() {
+        return data;
+    }
+
+    String requestBody(String extensionVersion, JsonMessageHandler messageHandler) {
+        return requestBodies.computeIfAbsent(extensionVersion, version -> messageHandler.requestMessageForNotify(data));
+    }
+
+    @Override
+    public String toString() {
+        return "NotificationRequest{" +
+                "name='" + name + '\'' +
+                ", data=" + data +
+                '}';
+    }
+}
@@ -41,6 +41,7 @@ import static com.thoughtworks.go.plugin.domain.common.PluginConstants.NOTIFICAT
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -149,6 +150,36 @@ public abstract class NotificationExtensionTestBase {
         assertSame(deserializedResponse, response);
     }
 
+    @Test
+    public void shouldWorkOutTheRequestBodyOfANotificationSentToSeveralPluginsOnlyOnce() {
+        StageNotificationData stageNotificationData = new StageNotificationData(new Stage(), BuildCause.createWithEmptyModifications(), "group");
+        when(jsonMessageHandler().requestMessageForNotify(stageNotificationData)).thenReturn("{\"stage\":{}}");
+        when(jsonMessageHandler().responseMessageForNotify(RESPONSE_BODY)).thenReturn(new Result());
+        NotificationRequest notification = new NotificationRequest(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, stageNotificationData);
+
+        notificationExtension.notify(PLUGIN_ID, notification);
+        notificationExtension.notify(PLUGIN_ID, notification);
+
+        assertRequest(requestArgumentCaptor.getValue(), apiVersion(), NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, "{\"stage\":{}}");
+        verify(jsonMessageHandler(), times(1)).requestMessageForNotify(stageNotificationData);
+    }
+
+    @Test
+    public void shouldTalkToPluginToNotifySeveralNotificationsInOneRequest() {
+        Result response = new Result();
+        when(jsonMessageHandler().requestMessageForNotify("first")).thenReturn("{\"stage\":{}}");
+        when(jsonMessageHandler().requestMessageForNotify("second")).thenReturn("{\"agent_uuid\":\"uuid\"}");
+        when(jsonMessageHandler().responseMessageForNotify(RESPONSE_BODY)).thenReturn(response);
+
+        Result deserializedResponse = notificationExtension.notifyBatch(PLUGIN_ID, List.of(
+            new NotificationRequest(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, "first"),
+            new NotificationRequest(NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, "second")));
+
+        assertRequest(requestArgumentCaptor.getValue(), apiVersion(), NotificationExtension.BATCH_NOTIFICATION,
+            "{\"notifications\":[{\"type\":\"stage-status\",\"data\":{\"stage\":{}}},{\"type\":\"agent-status\",\"data\":{\"agent_uuid\":\"uuid\"}}]}");
+        assertSame(deserializedResponse, response);
+    }
+
     private void assertRequest(GoPluginApiRequest goPluginApiRequest, String version, String requestName, String requestBody) {
         assertThat(goPluginApiRequest.extension()).isEqualTo(com.thoughtworks.go.plugin.domain.common.PluginConstants.NOTIFICATION_EXTENSION);
         assertThat(goPluginApiRequest.extensionVersion()).isEqualTo(version);
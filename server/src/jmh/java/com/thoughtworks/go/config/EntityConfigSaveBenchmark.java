@@ -0,0 +1,176 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.commands.EntityConfigUpdateCommand;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistrar;
+import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
+import com.thoughtworks.go.config.remote.ConfigRepoConfig;
+import com.thoughtworks.go.config.remote.ConfigReposConfig;
+import com.thoughtworks.go.config.remote.PartialConfig;
+import com.thoughtworks.go.config.remote.RepoConfigOrigin;
+import com.thoughtworks.go.domain.PipelineGroups;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.service.EntityHashes;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.service.ConfigRepository;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.TimeProvider;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving a single pipeline through {@link GoFileConfigDataSource#writeEntityWithLock}, against the number of
+ * pipelines in the config. Each save edits the same pipeline and builds on the config the previous save left behind,
+ * so it covers everything an entity save does: cloning the config for editing, preprocessing, validating, writing and
+ * checking in the XML, and merging the config repo pipelines into the config for editing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityConfigSaveBenchmark {
+    private static final int PIPELINES_PER_GROUP = 50;
+    private static final int REMOTE_PIPELINES = 200;
+    private static final CaseInsensitiveString EDITED_PIPELINE = new CaseInsensitiveString("pipeline-0");
+
+    @Param({"500", "1000", "4000"})
+    public int pipelines;
+
+    private final GoConfigCloner cloner = new GoConfigCloner();
+    private final Username admin = new Username("admin");
+    private Path configDir;
+    private GoFileConfigDataSource dataSource;
+    private GoConfigHolder configHolder;
+    private int saves;
+
+    @Setup(Level.Trial)
+    public void createConfig() throws IOException {
+        configDir = Files.createTempDirectory("entity-config-save");
+        System.setProperty(SystemEnvironment.CONFIG_DIR_PROPERTY, configDir.toString());
+        System.setProperty(SystemEnvironment.CRUISE_CONFIG_REPO_DIR, configDir.resolve("config.git").toString());
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        ConfigRepository configRepository = new ConfigRepository(systemEnvironment);
+        configRepository.initialize();
+
+        ConfigElementImplementationRegistry registry = new ConfigElementImplementationRegistry();
+        new ConfigElementImplementationRegistrar(registry).initialize();
+
+        BasicCruiseConfig configForEdit = new BasicCruiseConfig();
+        for (int i = 0; i < pipelines; i++) {
+            configForEdit.addPipeline("group-" + (i / PIPELINES_PER_GROUP), pipeline("pipeline-" + i));
+        }
+        GitMaterialConfig repo = git("https://example.com/config-repo.git");
+        ConfigRepoConfig configRepo = ConfigRepoConfig.createConfigRepoConfig(repo, "yaml.config.plugin", "config-repo");
+        configForEdit.setConfigRepos(new ConfigReposConfig(configRepo));
+
+        BasicPipelineConfigs remoteGroup = new BasicPipelineConfigs();
+        remoteGroup.setGroup("remote");
+        for (int i = 0; i < REMOTE_PIPELINES; i++) {
+            remoteGroup.add(pipeline("remote-pipeline-" + i));
+        }
+        PartialConfig partial = new PartialConfig(new PipelineGroups(remoteGroup));
+        partial.setOrigins(new RepoConfigOrigin(configRepo, "r1"));
+        CachedGoPartials cachedGoPartials = new CachedGoPartials(new ServerHealthService());
+        cachedGoPartials.cacheAsLastKnown(repo.getFingerprint(), partial);
+        cachedGoPartials.markAllKnownAsValid();
+
+        dataSource = new GoFileConfigDataSource(null, configRepository, systemEnvironment, new TimeProvider(), registry,
+            cachedGoPartials, null, null, new PartialConfigHelper(new EntityHashes(registry)));
+
+        configForEdit.setPartials(cachedGoPartials.lastValidPartials());
+        CruiseConfig config = cloner.deepClone(configForEdit);
+        MagicalGoConfigXmlLoader.preprocess(config);
+        configHolder = new GoConfigHolder(config, configForEdit, configForEdit.mergedCopy(cachedGoPartials.lastValidPartials(), true, cloner::deepClone));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteConfig() throws IOException {
+        FileUtils.deleteDirectory(configDir.toFile());
+    }
+
+    @Benchmark
+    public GoConfigHolder savePipeline() {
+        configHolder = dataSource.writeEntityWithLock(new EditPipelineLabel("label-" + saves++ + "-${COUNT}"), configHolder, admin).getConfigHolder();
+        return configHolder;
+    }
+
+    private static PipelineConfig pipeline(String name) {
+        PipelineConfig pipeline = new PipelineConfig(new CaseInsensitiveString(name), new MaterialConfigs(git("https://example.com/" + name + ".git")),
+            stage("build"), stage("test"), stage("deploy"));
+        for (int i = 0; i < 5; i++) {
+            pipeline.addEnvironmentVariable("VARIABLE_" + i, "value-" + i);
+        }
+        return pipeline;
+    }
+
+    private static StageConfig stage(String name) {
+        return new StageConfig(new CaseInsensitiveString(name), new JobConfigs(new JobConfig(name + "-linux"), new JobConfig(name + "-windows")));
+    }
+
+    private static GitMaterialConfig git(String url) {
+        GitMaterialConfig git = new GitMaterialConfig();
+        git.setUrl(url);
+        return git;
+    }
+
+    /**
+     * Changes the label template of one pipeline and validates it the way a pipeline save through the API does.
+     */
+    private static class EditPipelineLabel implements EntityConfigUpdateCommand<PipelineConfig> {
+        private final String labelTemplate;
+        private PipelineConfig preprocessedPipeline;
+
+        EditPipelineLabel(String labelTemplate) {
+            this.labelTemplate = labelTemplate;
+        }
+
+        @Override
+        public void update(CruiseConfig preprocessedConfig) {
+            preprocessedConfig.pipelineConfigByName(EDITED_PIPELINE).setLabelTemplate(labelTemplate);
+        }
+
+        @Override
+        public boolean isValid(CruiseConfig preprocessedConfig) {
+            preprocessedPipeline = preprocessedConfig.getPipelineConfigByName(EDITED_PIPELINE);
+            String group = preprocessedConfig.findGroupOfPipeline(preprocessedPipeline).getGroup();
+            return preprocessedPipeline.validateTree(PipelineConfigSaveValidationContext.forChain(false, group, preprocessedConfig, preprocessedPipeline));
+        }
+
+        @Override
+        public void clearErrors() {
+        }
+
+        @Override
+        public PipelineConfig getPreprocessedEntityConfig() {
+            return preprocessedPipeline;
+        }
+
+        @Override
+        public boolean canContinue(CruiseConfig cruiseConfig) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up instances by id and by counter in a timeline of 5,000,000 instances, spread over 1,000 pipelines
+ * with 5,000 instances each. Compares the binary searches in {@link PipelineInstanceIndex} against walking through a list of
+ * the instances of the pipeline, which is what {@link PipelineTimeline} used to do for every lookup. How these lookups
+ * add up when fan-in resolution walks back through the timeline is measured by
+ * {@link com.thoughtworks.go.server.service.dd.FanInGraphBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PipelineTimelineBenchmark {
+    private static final int PIPELINES = 1_000;
+    private static final int INSTANCES_PER_PIPELINE = 5_000;
+    private static final int MODIFICATIONS = 50_000;
+
+    private final List<PipelineInstanceIndex> indexed = new ArrayList<>();
+    private final List<List<PipelineTimelineEntry>> scheduleOrder = new ArrayList<>();
+    private final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void createTimeline() {
+        Date start = new Date(0);
+        PipelineTimelineEntry.Revision[] revisions = new PipelineTimelineEntry.Revision[MODIFICATIONS];
+        for (int i = 0; i < MODIFICATIONS; i++) {
+            revisions[i] = new PipelineTimelineEntry.Revision(new Date(start.getTime() + i * 1000L), "revision-" + i, i);
+        }
+
+        long id = 1;
+        for (int pipeline = 0; pipeline < PIPELINES; pipeline++) {
+            String name = "pipeline-" + pipeline;
+            String fingerprint = "fingerprint-" + pipeline;
+            PipelineInstanceIndex instances = new PipelineInstanceIndex();
+            List<PipelineTimelineEntry> list = new ArrayList<>(INSTANCES_PER_PIPELINE);
+            for (int counter = 1; counter <= INSTANCES_PER_PIPELINE; counter++) {
+                Map<String, List<PipelineTimelineEntry.Revision>> revisionsByFingerprint = new HashMap<>();
+                revisionsByFingerprint.put(fingerprint, List.of(revisions[random.nextInt(MODIFICATIONS)]));
+                PipelineTimelineEntry entry = new PipelineTimelineEntry(name, id++, counter, revisionsByFingerprint);
+                instances.add(entry);
+                list.add(entry);
+            }
+            indexed.add(instances);
+            scheduleOrder.add(list);
+        }
+    }
+
+    @Benchmark
+    public PipelineTimelineEntry indexedLookupById() {
+        PipelineInstanceIndex instances = indexed.get(random.nextInt(PIPELINES));
+        return instances.withId(instances.get(random.nextInt(INSTANCES_PER_PIPELINE)).getId());
+    }
+
+    @Benchmark
+    public PipelineTimelineEntry linearLookupById() {
+        List<PipelineTimelineEntry> instances = scheduleOrder.get(random.nextInt(PIPELINES));
+        long id = instances.get(random.nextInt(INSTANCES_PER_PIPELINE)).getId();
+        for (PipelineTimelineEntry instance : instances) {
+            if (instance.getId() == id) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public PipelineTimelineEntry indexedLookupByCounter() {
+        return indexed.get(random.nextInt(PIPELINES)).lastWithCounter(random.nextInt(INSTANCES_PER_PIPELINE) + 1);
+    }
+
+    @Benchmark
+    public PipelineTimelineEntry linearLookupByCounter() {
+        List<PipelineTimelineEntry> instances = scheduleOrder.get(random.nextInt(PIPELINES));
+        int counter = random.nextInt(INSTANCES_PER_PIPELINE) + 1;
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            if (instances.get(i).getCounter() == counter) {
+                return instances.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inprocess.InProcessMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many messages a second can be posted to a queue and handed to its listener, comparing the embedded
+ * ActiveMQ broker against {@link InProcessMessagingService}. Pass <code>-PjmhArgs="-prof gc"</code> to also see the
+ * bytes allocated per message, in <code>gc.alloc.rate.norm</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessagingServiceBenchmark {
+    private static final int MESSAGES = 1000;
+
+    @Param({"activemq", "in-process"})
+    public String transport;
+
+    private MessagingService<GoMessage> messaging;
+    private GoMessageQueue<GoTextMessage> queue;
+    private GoTextMessage message;
+    private volatile CountDownLatch received;
+
+    @Setup(Level.Trial)
+    public void startMessaging() throws Exception {
+        SystemEnvironment systemEnvironment = new SystemEnvironment();
+        messaging = transport.equals("activemq")
+            ? new ActiveMqMessagingService(new DaemonThreadStatsCollector(), systemEnvironment, new ServerHealthService())
+            : new InProcessMessagingService(new DaemonThreadStatsCollector(), systemEnvironment, new ServerHealthService(), new SystemTimeClock());
+        queue = new GoMessageQueue<>(messaging, "benchmark");
+        queue.addListener(posted -> received.countDown());
+        message = new GoTextMessage("a material update, schedule check or job status change");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopMessaging() throws Exception {
+        queue.stop();
+        messaging.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void postAndReceive() throws InterruptedException {
+        received = new CountDownLatch(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            queue.post(message);
+        }
+        received.await();
+    }
+}
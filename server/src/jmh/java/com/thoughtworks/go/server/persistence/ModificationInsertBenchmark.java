@@ -0,0 +1,131 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedAction;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving the modifications found by the first poll of a repository with 10,000 commits touching 5 files each,
+ * and by a single commit touching 50,000 files. Compares {@link ModificationBatchInserter} against inserting one row at a
+ * time and reading back its id, which is what Hibernate does for these tables. Runs against an in-memory H2 database
+ * by default; pass <code>-PjmhArgs="-p jdbcUrl=jdbc:postgresql://localhost/scratch?user=...&amp;password=..."</code> to
+ * run it against an empty PostgreSQL database instead. Every insert is rolled back. Only the two ways of inserting are
+ * measured here; which of them {@link MaterialRepository#saveModifications} picks for a given set of modifications is
+ * covered by MaterialRepositoryIntegrationTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ModificationInsertBenchmark {
+    private static final long MATERIAL_ID = 1;
+
+    @Param({"jdbc:h2:mem:modifications;DB_CLOSE_DELAY=-1"})
+    public String jdbcUrl;
+
+    @Param({"10000x5", "1x50000"})
+    public String commitsByFiles;
+
+    private Connection connection;
+    private List<Modification> modifications;
+
+    @Setup(Level.Trial)
+    public void createTablesAndModifications() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS modifications (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "revision VARCHAR(1024), comment VARCHAR(65536), emailAddress VARCHAR(255), modifiedTime TIMESTAMP, userName VARCHAR(255), " +
+                "pipelineLabel VARCHAR(255), pipelineId BIGINT, additionalData VARCHAR(65536), materialId BIGINT)");
+            statement.execute("CREATE TABLE IF NOT EXISTS modifiedFiles (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "fileName VARCHAR(1024), revision VARCHAR(50), folderName VARCHAR(512), action VARCHAR(50), modificationId BIGINT NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+
+        String[] shape = commitsByFiles.split("x");
+        int commits = Integer.parseInt(shape[0]);
+        int filesPerCommit = Integer.parseInt(shape[1]);
+        modifications = new ArrayList<>(commits);
+        for (int i = 0; i < commits; i++) {
+            Modification modification = new Modification("user", "a commit message long enough to be realistic, #" + i, "user@example.com", new Date(), "revision-" + i);
+            for (int j = 0; j < filesPerCommit; j++) {
+                modification.createModifiedFile("src/main/java/File" + j + ".java", null, ModifiedAction.modified);
+            }
+            modifications.add(modification);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void batchedInsert() throws SQLException {
+        new ModificationBatchInserter(1000).insert(connection, MATERIAL_ID, modifications);
+    }
+
+    @Benchmark
+    public void rowByRowInsert() throws SQLException {
+        try (PreparedStatement insertModification = connection.prepareStatement(ModificationBatchInserter.INSERT_MODIFICATION, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement insertFile = connection.prepareStatement(ModificationBatchInserter.INSERT_MODIFIED_FILE, Statement.RETURN_GENERATED_KEYS)) {
+            for (Modification modification : modifications) {
+                insertModification.setString(1, modification.getRevision());
+                insertModification.setString(2, modification.getComment());
+                insertModification.setString(3, modification.getEmailAddress());
+                insertModification.setTimestamp(4, new Timestamp(modification.getModifiedTime().getTime()));
+                insertModification.setString(5, modification.getUserName());
+                insertModification.setString(6, modification.getPipelineLabel());
+                insertModification.setNull(7, Types.BIGINT);
+                insertModification.setString(8, modification.getAdditionalData());
+                insertModification.setLong(9, MATERIAL_ID);
+                insertModification.executeUpdate();
+                modification.setId(generatedId(insertModification));
+
+                for (ModifiedFile file : modification.getModifiedFiles()) {
+                    insertFile.setString(1, file.getAction().name());
+                    insertFile.setString(2, file.getFileName());
+                    insertFile.setString(3, file.getFolderName());
+                    insertFile.setLong(4, modification.getId());
+                    insertFile.executeUpdate();
+                    file.setId(generatedId(insertFile));
+                }
+            }
+        }
+    }
+
+    private static long generatedId(Statement statement) throws SQLException {
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            generatedKeys.next();
+            return generatedKeys.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.Agent;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.EnvironmentPipelineConfig;
+import com.thoughtworks.go.config.EnvironmentPipelinesConfig;
+import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes 5,000 agents to each ask for work against a queue of 10,000 scheduled jobs, spread over a
+ * handful of environments and resource combinations. Compares the indexed lookup against the linear scan that
+ * {@link BuildAssignmentService} used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = JobAssignmentIndexBenchmark.AGENTS)
+@Measurement(iterations = 10, batchSize = JobAssignmentIndexBenchmark.AGENTS)
+@Fork(1)
+public class JobAssignmentIndexBenchmark {
+    static final int AGENTS = 5_000;
+    private static final int JOBS = 10_000;
+    private static final int ENVIRONMENTS = 10;
+    private static final int PIPELINES = 1_000;
+    private static final List<String> RESOURCES = List.of("linux", "windows", "docker", "java", "node", "gpu");
+
+    private final List<AgentInstance> agents = new ArrayList<>();
+    private final Map<String, Set<String>> agentEnvironments = new HashMap<>();
+    private final Map<String, String> pipelineEnvironments = new HashMap<>();
+    private final List<JobPlan> scheduledJobs = new ArrayList<>();
+    private EnvironmentPipelineMatchers matchers;
+
+    private JobAssignmentIndex index;
+    private List<JobPlan> queue;
+    private int nextAgent;
+
+    @Setup(Level.Trial)
+    public void createQueueAndAgents() {
+        Random random = new Random(42);
+
+        Map<String, List<String>> agentsByEnvironment = new HashMap<>();
+        for (int i = 0; i < AGENTS; i++) {
+            String uuid = "agent-" + i;
+            String environment = "env-" + (i % ENVIRONMENTS);
+            Agent agent = new Agent(uuid, "host-" + i, "10.0.0." + (i % 255), randomResources(random, 3));
+            agents.add(AgentInstance.createFromAgent(agent, new SystemEnvironment(), null));
+            agentEnvironments.put(uuid, Set.of(environment));
+            agentsByEnvironment.computeIfAbsent(environment, name -> new ArrayList<>()).add(uuid);
+        }
+
+        Map<String, EnvironmentPipelinesConfig> pipelinesByEnvironment = new HashMap<>();
+        for (int i = 0; i < PIPELINES; i++) {
+            String pipeline = "pipeline-" + i;
+            String environment = "env-" + (i % ENVIRONMENTS);
+            pipelineEnvironments.put(pipeline, environment);
+            pipelinesByEnvironment.computeIfAbsent(environment, name -> new EnvironmentPipelinesConfig()).add(new EnvironmentPipelineConfig(new CaseInsensitiveString(pipeline)));
+        }
+
+        List<EnvironmentPipelineMatcher> environmentMatchers = new ArrayList<>();
+        pipelinesByEnvironment.forEach((environment, pipelines) -> environmentMatchers.add(new EnvironmentPipelineMatcher(new CaseInsensitiveString(environment), agentsByEnvironment.get(environment), pipelines)));
+        matchers = new EnvironmentPipelineMatchers(environmentMatchers);
+
+        for (int i = 0; i < JOBS; i++) {
+            String pipeline = "pipeline-" + random.nextInt(PIPELINES);
+            JobIdentifier identifier = new JobIdentifier(pipeline, 1, "1", "stage", "1", "job-" + i, i);
+            Resources resources = new Resources(String.join(",", randomResources(random, 2)));
+            scheduledJobs.add(new DefaultJobPlan(resources, new ArrayList<>(), i, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void refillQueue() {
+        index = new JobAssignmentIndex(scheduledJobs, pipelineEnvironments::get);
+        queue = new ArrayList<>(scheduledJobs);
+        nextAgent = 0;
+    }
+
+    @Benchmark
+    public JobPlan indexedAssignment() {
+        AgentInstance agent = nextAgent();
+        while (true) {
+            List<JobPlan> candidates = index.candidatesFor(agentEnvironments.get(agent.getUuid()), agent.getUuid());
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            JobPlan match = agent.firstMatching(filterJobsByAgent(candidates, agent.getUuid()));
+            if (match == null || index.claim(match)) {
+                return match;
+            }
+        }
+    }
+
+    @Benchmark
+    public JobPlan linearScanAssignment() {
+        AgentInstance agent = nextAgent();
+        JobPlan match = agent.firstMatching(filterJobsByAgent(queue, agent.getUuid()));
+        if (match != null) {
+            queue.remove(match);
+        }
+        return match;
+    }
+
+    private AgentInstance nextAgent() {
+        return agents.get(nextAgent++ % AGENTS);
+    }
+
+    private List<JobPlan> filterJobsByAgent(List<JobPlan> jobPlans, String uuid) {
+        return jobPlans.stream().filter(jobPlan -> matchers.match(jobPlan.getPipelineName(), uuid)).toList();
+    }
+
+    private static List<String> randomResources(Random random, int max) {
+        List<String> resources = new ArrayList<>(RESOURCES);
+        Collections.shuffle(resources, random);
+        return new ArrayList<>(resources.subList(0, random.nextInt(max + 1)));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.config.materials.git.GitMaterialConfig;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.MaterialRevisions;
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.domain.StageIdentifier;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.dao.PipelineDao;
+import com.thoughtworks.go.server.database.Database;
+import com.thoughtworks.go.server.database.QueryExtensions;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.persistence.MaterialRepository;
+import com.thoughtworks.go.server.service.MaterialConfigConverter;
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FanInGraph#computeRevisions} for a pipeline that fans in from two upstream pipelines built from the
+ * same git repository, each with 5,000 instances in the {@link PipelineTimeline}. The latest instance of one upstream
+ * is {@code backtrack} commits ahead of the other, so the graph has to walk back that many instances of it, looking
+ * each one up in the timeline, to find the instance built from the same commit. The database is stubbed out: the
+ * latest passed stage of an instance and the modifications of a stage are answered from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FanInGraphBenchmark {
+    private static final int INSTANCES_PER_PIPELINE = 5_000;
+    private static final CaseInsensitiveString DOWNSTREAM = new CaseInsensitiveString("downstream");
+    private static final CaseInsensitiveString STAGE = new CaseInsensitiveString("build");
+
+    @Param({"0", "100", "1000"})
+    public int backtrack;
+
+    private final MaterialConfigConverter materialConfigConverter = new MaterialConfigConverter();
+    private final Map<Long, PipelineTimelineEntry> entriesById = new HashMap<>();
+    private CruiseConfig cruiseConfig;
+    private ConfigDependencyGraph dependencyGraph;
+    private PipelineTimeline pipelineTimeline;
+    private MaterialRevisions actualRevisions;
+    private PipelineDao pipelineDao;
+    private MaterialRepository materialRepository;
+
+    @Setup(Level.Trial)
+    public void createTimeline() {
+        GitMaterialConfig git = new GitMaterialConfig();
+        git.setUrl("https://example.com/repo.git");
+        DependencyMaterialConfig ahead = new DependencyMaterialConfig(new CaseInsensitiveString("ahead"), STAGE);
+        DependencyMaterialConfig behind = new DependencyMaterialConfig(new CaseInsensitiveString("behind"), STAGE);
+        cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(
+            pipeline(ahead.getPipelineName(), git),
+            pipeline(behind.getPipelineName(), git),
+            pipeline(DOWNSTREAM, ahead, behind)));
+        dependencyGraph = new ConfigDependencyGraph(cruiseConfig);
+
+        PipelineTimelineEntry.Revision[] commits = new PipelineTimelineEntry.Revision[INSTANCES_PER_PIPELINE + 1];
+        for (int i = 1; i <= INSTANCES_PER_PIPELINE; i++) {
+            commits[i] = new PipelineTimelineEntry.Revision(new Date(i * 60_000L), "commit-" + i, i);
+        }
+        pipelineTimeline = new PipelineTimeline(null, null, null);
+        long id = 1;
+        for (int counter = 1; counter <= INSTANCES_PER_PIPELINE; counter++) {
+            add(new PipelineTimelineEntry(ahead.getPipelineName().toString(), id++, counter, Map.of(git.getFingerprint(), List.of(commits[counter]))));
+            add(new PipelineTimelineEntry(behind.getPipelineName().toString(), id++, counter, Map.of(git.getFingerprint(), List.of(commits[Math.max(1, counter - backtrack)]))));
+        }
+
+        actualRevisions = new MaterialRevisions(
+            new MaterialRevision(materialConfigConverter.toMaterial(ahead), new Modification()),
+            new MaterialRevision(materialConfigConverter.toMaterial(behind), new Modification()));
+        pipelineDao = (PipelineDao) Proxy.newProxyInstance(PipelineDao.class.getClassLoader(), new Class<?>[]{PipelineDao.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("latestPassedStageIdentifier")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            PipelineTimelineEntry entry = entriesById.get((Long) args[0]);
+            return new StageIdentifier(entry.getPipelineName(), entry.getCounter(), (String) args[1], "1");
+        });
+        materialRepository = new InMemoryMaterialRepository(materialConfigConverter);
+    }
+
+    @Benchmark
+    public MaterialRevisions computeRevisions() {
+        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, dependencyGraph, DOWNSTREAM, materialRepository, pipelineDao, materialConfigConverter, () -> Integer.MAX_VALUE);
+        return fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
+    }
+
+    private void add(PipelineTimelineEntry entry) {
+        pipelineTimeline.add(entry);
+        entriesById.put(entry.getId(), entry);
+    }
+
+    private static PipelineConfig pipeline(CaseInsensitiveString name, MaterialConfig... materials) {
+        return new PipelineConfig(name, new MaterialConfigs(materials), new StageConfig(STAGE, new JobConfigs(new JobConfig("compile"))));
+    }
+
+    /**
+     * Answers the modification of every upstream stage without a database.
+     */
+    private static class InMemoryMaterialRepository extends MaterialRepository {
+        private final List<Modification> stageModifications = List.of(new Modification());
+
+        InMemoryMaterialRepository(MaterialConfigConverter materialConfigConverter) {
+            super(unsupported(SessionFactory.class), new GoCache(new Cache(new CacheConfiguration("fan-in-benchmark", 100)), new TransactionSynchronizationManager()),
+                0, null, materialConfigConverter, null, new Database(null, null, null) {
+                    @Override
+                    public QueryExtensions getQueryExtensions() {
+                        return null;
+                    }
+                });
+        }
+
+        @Override
+        public List<Modification> modificationFor(StageIdentifier stageIdentifier) {
+            return stageModifications;
+        }
+    }
+
+    private static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
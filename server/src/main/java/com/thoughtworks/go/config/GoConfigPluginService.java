@@ -18,6 +18,7 @@ package com.thoughtworks.go.config;
 import com.thoughtworks.go.config.parts.XmlPartialConfigProvider;
 import com.thoughtworks.go.config.registry.ConfigElementImplementationRegistry;
 import com.thoughtworks.go.config.remote.ConfigRepoConfig;
+import com.thoughtworks.go.config.remote.ConfigReposConfig;
 import com.thoughtworks.go.plugin.access.configrepo.ConfigRepoExtension;
 import com.thoughtworks.go.plugin.access.configrepo.ConfigRepoMetadataStore;
 import com.thoughtworks.go.security.GoCipher;
@@ -58,6 +59,13 @@ public class GoConfigPluginService {
         return new ConfigRepoPlugin(configConverter, crExtension, pluginId);
     }
 
+    /**
+     * Lets the providers forget what they kept for config repositories which are no longer configured.
+     */
+    public void forgetConfigReposOtherThan(ConfigReposConfig configRepos) {
+        embeddedXmlPlugin.retainParsedFilesOf(configRepos);
+    }
+
     public boolean isConfigRepoPlugin(String pluginId) {
         return crExtension.isConfigRepoPlugin(pluginId);
     }
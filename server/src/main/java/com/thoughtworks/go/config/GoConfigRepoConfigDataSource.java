@@ -38,6 +38,8 @@ import org.springframework.stereotype.Component;
 import java.io.File;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -121,9 +123,17 @@ public class GoConfigRepoConfigDataSource implements ChangedRepoConfigWatchListL
                 this.configReposMaterialParseResultManager.remove(fingerprint);
             }
         }
+        configPluginService.forgetConfigReposOtherThan(newConfigRepos);
     }
 
     public void onCheckoutComplete(MaterialConfig material, File folder, Modification modification) {
+        onCheckoutComplete(material, folder, modification, null);
+    }
+
+    /**
+     * @param changedFiles the files changed since the revision of the last good partial config, or null if not known
+     */
+    public void onCheckoutComplete(MaterialConfig material, File folder, Modification modification, Set<String> changedFiles) {
         // called when pipelines/flyweight/[flyweight] has a clean checkout of latest material
 
         // Having modifications in signature might seem like an overkill
@@ -155,11 +165,14 @@ public class GoConfigRepoConfigDataSource implements ChangedRepoConfigWatchListL
                 notifyFailureListeners(repoConfig, ex);
                 return;
             }
+            if (plugin.isDeterminedByRevision() && isAlreadyLoaded(material, repoConfig, modification)) {
+                LOGGER.debug("Configuration material {} has already been parsed by {} at revision {}", material.getDisplayName(), plugin.displayName(), modification.getRevision());
+                return;
+            }
             try {
                 this.modifiedConfigRepoConfigsAwaitingParse.remove(repoConfig);
-                //TODO put modifications and previous partial config in context
                 // the context is just a helper for plugin.
-                PartialConfigLoadContext context = new LoadContext(repoConfig);
+                PartialConfigLoadContext context = new LoadContext(repoConfig, changedFiles, previousPartialConfig(material));
                 PartialConfig newPart = plugin.load(folder, context);
                 if (newPart == null) {
                     LOGGER.warn("Parsed configuration material {} by {} is null", material.getDisplayName(), plugin.displayName());
@@ -184,6 +197,26 @@ public class GoConfigRepoConfigDataSource implements ChangedRepoConfigWatchListL
         }
     }
 
+    /**
+     * A revision needs no parsing if it is what the last good partial was parsed from, nothing has been marked for a
+     * reparse since, and the partial was merged without errors.
+     */
+    private boolean isAlreadyLoaded(MaterialConfig material, ConfigRepoConfig repoConfig, Modification modification) {
+        if (modifiedConfigRepoConfigsAwaitingParse.contains(repoConfig)) {
+            return false;
+        }
+        PartialConfigParseResult result = getLastParseResult(material);
+        return result != null && result.isSuccessful()
+                && result.getLatestParsedModification() != null
+                && result.getGoodModification() != null
+                && Objects.equals(result.getGoodModification().getRevision(), modification.getRevision());
+    }
+
+    private PartialConfig previousPartialConfig(MaterialConfig material) {
+        PartialConfigParseResult result = getLastParseResult(material);
+        return result == null ? null : result.lastGoodPartialConfig();
+    }
+
     protected void onConfigRepoConfigChange(ConfigRepoConfig configRepoConfig) {
         modifiedConfigRepoConfigsAwaitingParse.add(configRepoConfig);
     }
@@ -225,9 +258,13 @@ public class GoConfigRepoConfigDataSource implements ChangedRepoConfigWatchListL
 
     private static class LoadContext implements PartialConfigLoadContext {
         private final ConfigRepoConfig repoConfig;
+        private final Set<String> changedFiles;
+        private final PartialConfig previousPartialConfig;
 
-        public LoadContext(ConfigRepoConfig repoConfig) {
+        public LoadContext(ConfigRepoConfig repoConfig, Set<String> changedFiles, PartialConfig previousPartialConfig) {
             this.repoConfig = repoConfig;
+            this.changedFiles = changedFiles;
+            this.previousPartialConfig = previousPartialConfig;
         }
 
         @Override
@@ -239,5 +276,15 @@ public class GoConfigRepoConfigDataSource implements ChangedRepoConfigWatchListL
         public MaterialConfig configMaterial() {
             return this.repoConfig.getRepo();
         }
+
+        @Override
+        public Optional<Set<String>> changedFiles() {
+            return Optional.ofNullable(changedFiles);
+        }
+
+        @Override
+        public PartialConfig previousPartialConfig() {
+            return previousPartialConfig;
+        }
     }
 }
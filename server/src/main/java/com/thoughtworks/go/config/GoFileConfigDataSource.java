@@ -304,10 +304,10 @@ public class GoFileConfigDataSource {
         List<PartialConfig> lastValidPartials = cachedGoPartials.lastValidPartials();
         List<PartialConfig> lastKnownPartials = cachedGoPartials.lastKnownPartials();
         if (lastKnownPartials.isEmpty() || partials.isEquivalent(lastKnownPartials, lastValidPartials)) {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, configHolder, currentUser, modifiedConfig, lastValidPartials);
         }
         try {
-            return trySavingEntity(updatingCommand, currentUser, modifiedConfig, lastValidPartials);
+            return trySavingEntity(updatingCommand, configHolder, currentUser, modifiedConfig, lastValidPartials);
         } catch (GoConfigInvalidException e) {
             StringBuilder errorMessageBuilder = new StringBuilder();
             try {
@@ -346,7 +346,7 @@ public class GoFileConfigDataSource {
             List<PartialConfig> lastValidPartials = cachedGoPartials.lastValidPartials();
             try {
                 validatedConfigHolder = trySavingConfig(updatingCommand, configHolder, lastKnownPartials);
-                updateMergedConfigForEdit(validatedConfigHolder, lastKnownPartials);
+                updateMergedConfigForEdit(validatedConfigHolder, configHolder, lastKnownPartials);
             } catch (Exception e) {
                 if (lastKnownPartials.isEmpty() || partials.isEquivalent(lastKnownPartials, lastValidPartials)) {
                     throw e;
@@ -354,7 +354,7 @@ public class GoFileConfigDataSource {
                     LOGGER.warn("Merged config update operation failed on LATEST {} partials. Falling back to using LAST VALID {} partials. Exception message was: {}", lastKnownPartials.size(), lastValidPartials.size(), e.getMessage(), e);
                     try {
                         validatedConfigHolder = trySavingConfig(updatingCommand, configHolder, lastValidPartials);
-                        updateMergedConfigForEdit(validatedConfigHolder, lastValidPartials);
+                        updateMergedConfigForEdit(validatedConfigHolder, configHolder, lastValidPartials);
                         LOGGER.info("Update operation on merged configuration succeeded with old {} LAST VALID partials.", lastValidPartials.size());
                     } catch (GoConfigInvalidException fallbackFailed) {
                         LOGGER.warn("Merged config update operation failed using fallback LAST VALID {} partials. Exception message was: {}", lastValidPartials.size(), fallbackFailed.getMessage(), fallbackFailed);
@@ -484,7 +484,7 @@ public class GoFileConfigDataSource {
         this.goConfigFileWriter.writeToConfigXmlFile(content);
     }
 
-    private <T> EntityConfigSaveResult<T> trySavingEntity(EntityConfigUpdateCommand<T> updatingCommand, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
+    private <T> EntityConfigSaveResult<T> trySavingEntity(EntityConfigUpdateCommand<T> updatingCommand, GoConfigHolder previousConfigHolder, Username currentUser, CruiseConfig modifiedConfig, List<PartialConfig> partials) {
         modifiedConfig.setPartials(partials);
         CruiseConfig preprocessedConfig = cloner.deepClone(modifiedConfig);
         MagicalGoConfigXmlLoader.preprocess(preprocessedConfig);
@@ -502,8 +502,7 @@ public class GoFileConfigDataSource {
                 CruiseConfig mergedCruiseConfigForEdit = modifiedConfig;
                 if (!partials.isEmpty()) {
                     LOGGER.debug("[Config Save] Updating GoConfigHolder with mergedCruiseConfigForEdit: Starting.");
-                    mergedCruiseConfigForEdit = cloner.deepClone(modifiedConfig);
-                    mergedCruiseConfigForEdit.merge(partials, true);
+                    mergedCruiseConfigForEdit = modifiedConfig.mergedCopy(partials, true, localPipelineCopies(previousConfigHolder));
                     LOGGER.debug("[Config Save] Updating GoConfigHolder with mergedCruiseConfigForEdit: Done.");
                 }
                 return new EntityConfigSaveResult<>(updatingCommand.getPreprocessedEntityConfig(), new GoConfigHolder(preprocessedConfig, modifiedConfig, mergedCruiseConfigForEdit));
@@ -543,13 +542,18 @@ public class GoFileConfigDataSource {
         return lastKnownPartials.isEmpty() || partials.isEquivalent(lastKnownPartials, lastValidPartials);
     }
 
-    private void updateMergedConfigForEdit(GoConfigHolder validatedConfigHolder, List<PartialConfig> partialConfigs) {
+    private LocalPipelineCopies localPipelineCopies(GoConfigHolder previousConfigHolder) {
+        if (previousConfigHolder == null) {
+            return new LocalPipelineCopies(cloner, null, null);
+        }
+        return new LocalPipelineCopies(cloner, previousConfigHolder.mergedConfigForEdit, previousConfigHolder.configForEdit);
+    }
+
+    private void updateMergedConfigForEdit(GoConfigHolder validatedConfigHolder, GoConfigHolder previousConfigHolder, List<PartialConfig> partialConfigs) {
         if (partialConfigs.isEmpty()) {
             return;
         }
-        CruiseConfig mergedCruiseConfigForEdit = cloner.deepClone(validatedConfigHolder.configForEdit);
-        mergedCruiseConfigForEdit.merge(partialConfigs, true);
-        validatedConfigHolder.mergedConfigForEdit = mergedCruiseConfigForEdit;
+        validatedConfigHolder.mergedConfigForEdit = validatedConfigHolder.configForEdit.mergedCopy(partialConfigs, true, localPipelineCopies(previousConfigHolder));
     }
 
     private GoConfigHolder trySavingFullConfig(FullConfigUpdateCommand updatingCommand, GoConfigHolder configHolder, List<PartialConfig> partials) throws IOException, GitAPIException, JDOMException {
@@ -0,0 +1,62 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Understands copying the local pipelines of a config for editing into its merged copy. A save usually changes very
+ * few pipelines, so a pipeline equal to its copy in the merged config being replaced keeps that copy, and only the
+ * pipelines the save changed are cloned. {@link PipelineConfig#equals} leaves out the state the merged config is
+ * served with besides the pipeline definition (display order, origin, template applied), so that is compared too.
+ */
+class LocalPipelineCopies implements UnaryOperator<PipelineConfig> {
+    private final GoConfigCloner cloner;
+    private final Map<CaseInsensitiveString, PipelineConfig> previousCopies = new HashMap<>();
+
+    LocalPipelineCopies(GoConfigCloner cloner, CruiseConfig previousMergedConfigForEdit, CruiseConfig previousConfigForEdit) {
+        this.cloner = cloner;
+        if (previousMergedConfigForEdit == null || previousMergedConfigForEdit == previousConfigForEdit) {
+            return;
+        }
+        for (PipelineConfigs group : previousMergedConfigForEdit.getGroups()) {
+            for (PipelineConfig pipeline : group) {
+                if (pipeline.isLocal()) {
+                    previousCopies.put(pipeline.name(), pipeline);
+                }
+            }
+        }
+    }
+
+    @Override
+    public PipelineConfig apply(PipelineConfig pipeline) {
+        PipelineConfig previousCopy = previousCopies.get(pipeline.name());
+        if (previousCopy != null && previousCopy != pipeline && isUnchanged(previousCopy, pipeline)) {
+            return previousCopy;
+        }
+        return cloner.deepClone(pipeline);
+    }
+
+    private static boolean isUnchanged(PipelineConfig previousCopy, PipelineConfig pipeline) {
+        return previousCopy.equals(pipeline) &&
+                previousCopy.getDisplayOrderWeight() == pipeline.getDisplayOrderWeight() &&
+                previousCopy.hasTemplateApplied() == pipeline.hasTemplateApplied() &&
+                Objects.equals(previousCopy.getOrigin(), pipeline.getOrigin());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Understands how much of the config entity saves have had to revalidate, next to how big the config is.
+ */
+public class ValidationScopeStatistics {
+    private final LongAdder saves = new LongAdder();
+    private final LongAdder totalNodesRevalidated = new LongAdder();
+    private final AtomicLong maxNodesRevalidated = new AtomicLong();
+    private final AtomicLong lastNodesRevalidated = new AtomicLong();
+    private final AtomicLong nodesInConfig = new AtomicLong();
+
+    public void record(int nodesRevalidated, int nodesInConfig) {
+        saves.increment();
+        totalNodesRevalidated.add(nodesRevalidated);
+        maxNodesRevalidated.accumulateAndGet(nodesRevalidated, Math::max);
+        lastNodesRevalidated.set(nodesRevalidated);
+        this.nodesInConfig.set(nodesInConfig);
+    }
+
+    public long saves() {
+        return saves.sum();
+    }
+
+    public long averageNodesRevalidated() {
+        long count = saves.sum();
+        return count == 0 ? 0 : totalNodesRevalidated.sum() / count;
+    }
+
+    public long maxNodesRevalidated() {
+        return maxNodesRevalidated.get();
+    }
+
+    public long lastNodesRevalidated() {
+        return lastNodesRevalidated.get();
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Count", saves());
+        json.put("Average nodes revalidated", averageNodesRevalidated());
+        json.put("Max nodes revalidated", maxNodesRevalidated());
+        json.put("Last nodes revalidated", lastNodesRevalidated());
+        json.put("Nodes in config at last save", nodesInConfig.get());
+        return json;
+    }
+}
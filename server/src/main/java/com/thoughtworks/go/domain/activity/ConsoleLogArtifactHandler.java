@@ -42,5 +42,8 @@ public class ConsoleLogArtifactHandler implements JobStatusListener {
             JobIdentifier identifier = job.getIdentifier();
             consoleService.moveConsoleArtifacts(identifier);
         }
+        if (job.isRescheduled()) {
+            consoleService.forgetAppendedChunks(job.getIdentifier());
+        }
     }
 }
@@ -18,75 +18,17 @@ package com.thoughtworks.go.server.cache;
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 
 import java.io.File;
-import java.io.IOException;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
- * Understands serving prepared artifacts and preparing artifact offline
+ * Understands where prepared artifacts are kept under the artifacts directory
  */
-public abstract class ArtifactCache<T extends Comparable<T>> {
+public abstract class ArtifactCache<T> {
     protected final ArtifactsDirHolder artifactsDirHolder;
-    protected ConcurrentSkipListSet<T> pendingCacheFiles = new ConcurrentSkipListSet<>();
-    protected ConcurrentMap<T, Exception> pendingExceptions = new ConcurrentHashMap<>();
     public static final String CACHE_ARTIFACTS_FOLDER = "cache/artifacts/";
 
     public ArtifactCache(ArtifactsDirHolder artifactsDirHolder) {
         this.artifactsDirHolder = artifactsDirHolder;
     }
 
-    public boolean cacheCreated(T artifactLocation) throws IOException {
-        if (currentlyCreatingCache(artifactLocation)) { return false; }
-
-        throwOnExceptionFor(artifactLocation);
-
-        if (cacheAlreadyCreated(artifactLocation)) { return true; }
-
-        startCacheCreationThread(artifactLocation);
-        return false;
-    }
-
-    private void throwOnExceptionFor(T artifactLocation) throws IOException {
-        Exception e = pendingExceptions.remove(artifactLocation);
-        if (e != null) {
-            switch (e) {
-                case IOException ioe -> throw ioe;
-                case RuntimeException re -> throw re;
-                default -> throw new RuntimeException(e); // unexpected
-            }
-        }
-    }
-
-    private boolean cacheAlreadyCreated(T artifactLocation) {
-        return cachedFile(artifactLocation).exists();
-    }
-
-    private boolean currentlyCreatingCache(T artifactLocation) {
-        return pendingCacheFiles.contains(artifactLocation);
-    }
-
-    protected void startCacheCreationThread(final T artifactLocation) {
-        boolean inserted = pendingCacheFiles.add(artifactLocation);
-        if (inserted) {
-            Thread cacheCreatorThread = new Thread("cache-creator-thread-" + UUID.randomUUID()) {
-                @Override
-                public void run() {
-                    try {
-                        createCachedFile(artifactLocation);
-                    } catch (Exception e) {
-                        pendingExceptions.putIfAbsent(artifactLocation, e);
-                    } finally {
-                        pendingCacheFiles.remove(artifactLocation);
-                    }
-                }
-            };
-            cacheCreatorThread.start();
-        }
-    }
-
     public abstract File cachedFile(T artifactLocation);
-
-    abstract void createCachedFile(T artifactLocation) throws IOException;
 }
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.cache;
 
+import com.github.benmanes.caffeine.cache.Interner;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import org.jetbrains.annotations.NotNull;
 
@@ -26,6 +27,7 @@ import static java.util.stream.Stream.of;
 
 public class CacheKeyGenerator {
     private static final String DELIMITER = ".$";
+    private static final Interner<String> KEYS = Interner.newWeakInterner();
     private final Class<?> clazz;
 
     public CacheKeyGenerator(Class<?> clazz) {
@@ -37,7 +39,7 @@ public class CacheKeyGenerator {
     }
 
     public @NotNull String generate(@NotNull String identifier, String arg) {
-        return String.join(DELIMITER, clazz.getName(), identifier, toStringSafe(arg)).intern();
+        return canonical(String.join(DELIMITER, clazz.getName(), identifier, toStringSafe(arg)));
     }
 
     public @NotNull String generate(@NotNull String identifier, String... arg) {
@@ -49,7 +51,15 @@ public class CacheKeyGenerator {
     }
 
     private @NotNull String generateFor(@NotNull String identifier, Stream<String> args) {
-        return Stream.concat(of(clazz.getName(), identifier), args).collect(Collectors.joining(DELIMITER)).intern();
+        return canonical(Stream.concat(of(clazz.getName(), identifier), args).collect(Collectors.joining(DELIMITER)));
+    }
+
+    /**
+     * Returns the one instance of an equal key that is currently in use, so that it can be synchronized on. Unlike
+     * {@link String#intern()}, a key is left to be garbage collected once nothing refers to it.
+     */
+    public static @NotNull String canonical(@NotNull String key) {
+        return KEYS.intern(key);
     }
 
     private static String toStringSafe(String arg) {
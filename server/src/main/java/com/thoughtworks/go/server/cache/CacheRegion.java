@@ -0,0 +1,189 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Understands caching one kind of value under keys of its own type, with its own size and time to live. Threads
+ * looking up a key that is not cached wait for one of them to load it, rather than all going to the database.
+ * <p>
+ * Follows the same rules as the {@link GoCache} it belongs to: nothing is cached while a transaction is active, and
+ * nothing is served to a transaction that has called {@link GoCache#stopServingForTransaction()}.
+ */
+public class CacheRegion<K, V> {
+    private final String name;
+    private final GoCache goCache;
+    private final long maximumSize;
+    private final Duration timeToLive;
+    private final AsyncCache<K, V> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final DurationStatistics loads = new DurationStatistics();
+
+    private CacheRegion(GoCache goCache, String name, long maximumSize, Duration timeToLive) {
+        this.name = name;
+        this.goCache = goCache;
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .executor(Runnable::run)
+            .recordStats();
+        if (timeToLive != null) {
+            builder.expireAfterWrite(timeToLive);
+        }
+        this.cache = builder.buildAsync();
+    }
+
+    public static <K, V> CacheRegion<K, V> create(GoCache goCache, String name, long maximumSize) {
+        return create(goCache, name, maximumSize, null);
+    }
+
+    public static <K, V> CacheRegion<K, V> create(GoCache goCache, String name, long maximumSize, Duration timeToLive) {
+        CacheRegion<K, V> region = new CacheRegion<>(goCache, name, maximumSize, timeToLive);
+        goCache.register(region);
+        return region;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the cached value, or the one loaded for the key if there is none. A null value is never cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        if (!goCache.isServingFromCache()) {
+            return load(key, loader);
+        }
+        while (true) {
+            CompletableFuture<V> cached = cache.getIfPresent(key);
+            if (cached == null && goCache.acceptsUpdates()) {
+                CompletableFuture<V> loading = new CompletableFuture<>();
+                cached = cache.asMap().putIfAbsent(key, loading);
+                if (cached == null) {
+                    misses.increment();
+                    return loadInto(loading, key, loader);
+                }
+            }
+            if (cached == null) {
+                misses.increment();
+                return load(key, loader);
+            }
+            try {
+                V value = cached.join();
+                hits.increment();
+                return value;
+            } catch (CompletionException | CancellationException e) {
+                // The load this was waiting on failed and is no longer cached; go again, most likely loading it here
+            }
+        }
+    }
+
+    public V getIfPresent(K key) {
+        if (!goCache.isServingFromCache()) {
+            return null;
+        }
+        CompletableFuture<V> cached = cache.getIfPresent(key);
+        V value = cached == null || !cached.isDone() || cached.isCompletedExceptionally() ? null : cached.join();
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (!goCache.acceptsUpdates()) {
+            return;
+        }
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        GoCache.logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
+        cache.put(key, CompletableFuture.completedFuture(value));
+    }
+
+    /**
+     * Removes the key, along with any load of it still in progress, whose result will then not be cached
+     */
+    public void remove(K key) {
+        cache.synchronous().invalidate(key);
+    }
+
+    public void clear() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private V loadInto(CompletableFuture<V> loading, K key, Function<? super K, ? extends V> loader) {
+        V value;
+        try {
+            value = load(key, loader);
+            GoCache.logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
+        } catch (RuntimeException | Error e) {
+            cache.asMap().remove(key, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        if (value == null) {
+            cache.asMap().remove(key, loading);
+        }
+        loading.complete(value);
+        return value;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long start = System.nanoTime();
+        try {
+            return loader.apply(key);
+        } finally {
+            loads.record(Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        json.put("Maximum Size", maximumSize);
+        json.put("Time To Live Seconds", timeToLive == null ? "Eternal" : timeToLive.toSeconds());
+        json.put("Size", size());
+        json.put("Hits", hitCount);
+        json.put("Misses", missCount);
+        json.put("Hit Ratio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        json.put("Evictions", cache.synchronous().stats().evictionCount());
+        json.put("Loads", loads.asJsonCompatibleMap());
+        return json;
+    }
+}
@@ -29,9 +29,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import javax.annotation.PreDestroy;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 import static org.apache.commons.lang3.StringUtils.splitByWholeSeparator;
@@ -46,6 +49,7 @@ public class GoCache {
 
     private final Ehcache ehCache;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
+    private final Map<String, CacheRegion<?, ?>> regions = new ConcurrentSkipListMap<>();
 
     @VisibleForTesting static class KeyList extends HashSet<String> { }
 
@@ -84,6 +88,29 @@ public class GoCache {
         }
     }
 
+    /**
+     * @return false if this thread's transaction has changed what would be cached, in which case nothing should be
+     * served from the cache until it completes
+     */
+    boolean isServingFromCache() {
+        return !doNotServeForTransaction();
+    }
+
+    /**
+     * @return false while a transaction is active, as whatever it reads may not have been committed yet
+     */
+    boolean acceptsUpdates() {
+        return !transactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    void register(CacheRegion<?, ?> region) {
+        regions.put(region.name(), region);
+    }
+
+    public Collection<CacheRegion<?, ?>> regions() {
+        return regions.values();
+    }
+
     public void put(String key, Object value) {
         logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
         if (transactionSynchronizationManager.isActualTransactionActive()) {
@@ -100,7 +127,7 @@ public class GoCache {
         return ehCache.getKeys();
     }
 
-    private void logUnsavedPersistentObjectInteraction(Object value, String message) {
+    static void logUnsavedPersistentObjectInteraction(Object value, String message) {
         if (value instanceof PersistentObject persistent && isMissingId(persistent)) {
             String msg = String.format(message, persistent);
             IllegalStateException exception = new IllegalStateException();
@@ -109,7 +136,7 @@ public class GoCache {
         }
     }
 
-    private boolean isMissingId(PersistentObject persistentObject) {
+    private static boolean isMissingId(PersistentObject persistentObject) {
         return !persistentObject.hasId() && !isNullObject(persistentObject);
     }
 
@@ -140,10 +167,11 @@ public class GoCache {
 
     public void clear() {
         ehCache.removeAll();
+        regions.values().forEach(CacheRegion::clear);
     }
 
     public boolean remove(String key) {
-        synchronized (key.intern()) {
+        synchronized (CacheKeyGenerator.canonical(key)) {
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList keyList) {
                 for (String subKey : keyList) {
@@ -160,7 +188,7 @@ public class GoCache {
 
     public void put(String key, String subKey, Object value) {
         KeyList subKeys;
-        synchronized (key.intern()) {
+        synchronized (CacheKeyGenerator.canonical(key)) {
             subKeys = subKeyFamily(key);
             if (subKeys == null) {
                 subKeys = new KeyList();
@@ -179,7 +207,7 @@ public class GoCache {
 
     public void removeAssociations(String key, Element element) {
         if (element.getObjectValue() instanceof KeyList keyList) {
-            synchronized (key.intern()) {
+            synchronized (CacheKeyGenerator.canonical(key)) {
                 for (String subkey : keyList) {
                     remove(compositeKey(key, subkey));
                 }
@@ -188,7 +216,7 @@ public class GoCache {
             String[] parts = splitByWholeSeparator(key, SUB_KEY_DELIMITER);
             String parentKey = parts[0];
             String childKey = parts[1];
-            synchronized (parentKey.intern()) {
+            synchronized (CacheKeyGenerator.canonical(parentKey)) {
                 Element parent = ehCache.get(parentKey);
                 if (parent == null) {
                     return;
@@ -216,7 +244,7 @@ public class GoCache {
     }
 
     public void remove(String key, String subKey) {
-        synchronized (key.intern()) {
+        synchronized (CacheKeyGenerator.canonical(key)) {
             KeyList subKeys = subKeyFamily(key);
             if (subKeys == null) {
                 return;
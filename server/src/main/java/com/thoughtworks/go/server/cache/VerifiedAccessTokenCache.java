@@ -0,0 +1,121 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.thoughtworks.go.domain.AccessToken;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Understands remembering access tokens that have recently been verified, so that an API client presenting the same
+ * token again does not cost another database lookup and another round of PBKDF2. Tokens are only held for a short
+ * while, are keyed by an HMAC of the presented token under a key that never leaves this process, and are forgotten as
+ * soon as they are revoked.
+ */
+@Component
+public class VerifiedAccessTokenCache {
+    private static final int KEY_LENGTH_IN_BYTES = 32;
+
+    private final Cache<String, AccessToken> verifiedTokens;
+    private final byte[] key;
+    private final boolean enabled;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public VerifiedAccessTokenCache(SystemEnvironment systemEnvironment) {
+        this(systemEnvironment, Ticker.systemTicker());
+    }
+
+    public VerifiedAccessTokenCache(SystemEnvironment systemEnvironment, Ticker ticker) {
+        this.enabled = systemEnvironment.getAccessTokenCacheTtlInSeconds() > 0 && systemEnvironment.getAccessTokenCacheMaxSize() > 0;
+        this.verifiedTokens = Caffeine.newBuilder()
+            .ticker(ticker)
+            .expireAfterWrite(Math.max(systemEnvironment.getAccessTokenCacheTtlInSeconds(), 0), TimeUnit.SECONDS)
+            .maximumSize(Math.max(systemEnvironment.getAccessTokenCacheMaxSize(), 0))
+            .recordStats()
+            .build();
+        this.key = new byte[KEY_LENGTH_IN_BYTES];
+        new SecureRandom().nextBytes(key);
+    }
+
+    public AccessToken get(String actualToken) {
+        if (!enabled) {
+            return null;
+        }
+        return verifiedTokens.getIfPresent(keyFor(actualToken));
+    }
+
+    /**
+     * @return a marker to hand back to {@link #put} once the token has been verified, so that a token read from the
+     * database before it was revoked is not put back into the cache after the revocation has cleared it.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public void put(String actualToken, AccessToken verifiedToken, long generationWhenRead) {
+        if (!enabled || verifiedToken.isRevoked()) {
+            return;
+        }
+        String key = keyFor(actualToken);
+        verifiedTokens.put(key, verifiedToken);
+        if (generation.get() != generationWhenRead) {
+            verifiedTokens.invalidate(key);
+        }
+    }
+
+    public void invalidate(long tokenId) {
+        generation.incrementAndGet();
+        verifiedTokens.asMap().values().removeIf(token -> token.getId() == tokenId);
+    }
+
+    public void invalidateTokensOf(Collection<String> usernames) {
+        generation.incrementAndGet();
+        verifiedTokens.asMap().values().removeIf(token -> usernames.stream().anyMatch(username -> username.equalsIgnoreCase(token.getUsername())));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        verifiedTokens.invalidateAll();
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Enabled", enabled);
+        json.put("Size", verifiedTokens.estimatedSize());
+        json.put("Hits", verifiedTokens.stats().hitCount());
+        json.put("Misses", verifiedTokens.stats().missCount());
+        json.put("Evictions", verifiedTokens.stats().evictionCount());
+        return json;
+    }
+
+    private String keyFor(String actualToken) {
+        return new HmacUtils(HmacAlgorithms.HMAC_SHA_256, key).hmacHex(actualToken);
+    }
+}
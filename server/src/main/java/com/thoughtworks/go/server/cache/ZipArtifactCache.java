@@ -17,24 +17,72 @@ package com.thoughtworks.go.server.cache;
 
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.ZipUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 import java.util.zip.Deflater;
 
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Understands zipping artifact folders for download. A folder which has not been zipped before is zipped into the
+ * cache once, by one of a fixed number of workers, however many downloads of it are waiting. Each download follows the
+ * zip as it is written, copying to its client whatever the worker has written so far, so clients get the start of a
+ * large zip straight away and a slow client never holds up the zip. The least recently used zips are deleted once the
+ * cache grows beyond its size limit.
+ */
 @Component
 public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZipArtifactCache.class);
+
     private final ZipUtil zipUtil;
+    private final long maxSizeInBytes;
+    private final boolean writeToCache;
+    private final ExecutorService workers;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final ConcurrentMap<File, ZipBeingCached> zipsBeingCached = new ConcurrentHashMap<>();
+
+    private final LinkedHashMap<File, Long> zipsInLeastRecentlyUsedOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean indexedExistingZips;
+    private long sizeInBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
 
     @Autowired
-    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
+    public ZipArtifactCache(ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, SystemEnvironment systemEnvironment) {
         super(artifactsDirHolder);
         this.zipUtil = zipUtil;
+        this.maxSizeInBytes = systemEnvironment.getArtifactZipCacheMaxSizeInBytes();
+        this.writeToCache = systemEnvironment.isArtifactZipCacheEnabled();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(systemEnvironment.getArtifactZipCacheWorkers(), runnable -> {
+            Thread thread = new Thread(runnable, "artifact-zip-thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     private static String removeTrailingSlash(String s) {
@@ -44,22 +92,158 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         return s;
     }
 
-    @Override
-    void createCachedFile(ArtifactFolder artifactFolder) throws IOException {
-        File originalFolder = artifactFolder.getRootFolder();
+    /**
+     * @return the cached zip of the folder, or null if it has to be zipped
+     */
+    public File cachedZip(ArtifactFolder artifactFolder) {
+        File cachedZip = cachedFile(artifactFolder);
+        if (cachedZip.exists()) {
+            hits.increment();
+            used(cachedZip);
+            return cachedZip;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Writes the zip of the folder to the output. Unless writing to the cache has been turned off, this copies the zip
+     * as it is written into the cache, joining any zip of it already in progress, until it is finished. Otherwise the
+     * folder is zipped straight into the output, once one of the workers is free.
+     */
+    public void zipTo(ArtifactFolder artifactFolder, OutputStream output) throws IOException {
+        if (!writeToCache) {
+            await(CompletableFuture.runAsync(() -> {
+                try {
+                    zipUtil.zip(artifactFolder.getRootFolder(), output, Deflater.DEFAULT_COMPRESSION);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, workers), artifactFolder);
+            return;
+        }
+
+        ZipBeingCached zip = zipToCache(artifactFolder);
+        long copied = 0;
+        boolean followedTempZip = false;
+        try (FileChannel tempZip = openTempZip(zip)) {
+            if (tempZip != null) {
+                followedTempZip = true;
+                long written;
+                while ((written = awaitBytesAfter(zip, copied, artifactFolder)) > copied) {
+                    copied = copy(tempZip, copied, written, output);
+                }
+            }
+        }
+
+        File cachedZip = await(zip.zipped, artifactFolder);
+        if (!followedTempZip) {
+            try (InputStream input = new FileInputStream(cachedZip)) {
+                input.transferTo(output);
+            }
+        }
+    }
+
+    private ZipBeingCached zipToCache(ArtifactFolder artifactFolder) {
         File cachedZip = cachedFile(artifactFolder);
-        File cachedTempZip = zipToTempFile(cachedZip);
+        if (cachedZip.exists()) {
+            used(cachedZip);
+            return ZipBeingCached.alreadyCached(cachedZip);
+        }
+
+        ZipBeingCached zipping = new ZipBeingCached(zipToTempFile(cachedZip));
+        ZipBeingCached alreadyZipping = zipsBeingCached.putIfAbsent(cachedZip, zipping);
+        if (alreadyZipping != null) {
+            return alreadyZipping;
+        }
+        workers.execute(() -> {
+            try {
+                zipping.zipped.complete(cachedZip.exists() ? cachedZip : createCachedZip(artifactFolder.getRootFolder(), cachedZip, zipping));
+            } catch (Throwable e) {
+                zipping.zipped.completeExceptionally(e);
+            } finally {
+                zipsBeingCached.remove(cachedZip, zipping);
+                zipping.finished();
+            }
+        });
+        return zipping;
+    }
+
+    private File createCachedZip(File originalFolder, File cachedZip, ZipBeingCached zipping) throws IOException {
+        File cachedTempZip = zipping.tempZip;
         cachedTempZip.getParentFile().mkdirs();
-        try {
-            zipUtil.zip(originalFolder, cachedTempZip, Deflater.DEFAULT_COMPRESSION);
-        } catch (IOException e) {
+        try (OutputStream output = new BufferedOutputStream(zipping.writingTo(new FileOutputStream(cachedTempZip)), COPY_BUFFER_SIZE)) {
+            zipUtil.zip(originalFolder, output, Deflater.DEFAULT_COMPRESSION);
+        } catch (IOException | RuntimeException e) {
             cachedTempZip.delete();
             throw e;
         }
+        // Downloads following the temp zip keep reading it after it has been moved, as they already have it open
         FileUtils.moveFile(cachedTempZip, cachedZip);
+        added(cachedZip);
+        return cachedZip;
+    }
+
+    /**
+     * @return the temp zip being written, or null if the zip is already finished, has failed, or was moved into the
+     * cache before it could be opened
+     */
+    private static FileChannel openTempZip(ZipBeingCached zip) throws IOException {
+        if (zip.isAlreadyCached()) {
+            return null;
+        }
+        try {
+            // Opened through NIO, which lets the writer move it while it is open on Windows too
+            return zip.awaitStarted() ? FileChannel.open(zip.tempZip.toPath(), READ) : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + zip.tempZip + " to be written");
+        }
     }
 
-    private File zipToTempFile(File cachedZip) {
+    private static long awaitBytesAfter(ZipBeingCached zip, long position, ArtifactFolder artifactFolder) throws InterruptedIOException {
+        try {
+            return zip.awaitBytesAfter(position);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while zipping " + artifactFolder.getRootFolder());
+        }
+    }
+
+    private static long copy(FileChannel from, long position, long end, OutputStream output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = from.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Zip being written ended at " + position + " bytes instead of " + end);
+            }
+            output.write(buffer.array(), 0, read);
+            position += read;
+        }
+        return position;
+    }
+
+    // Waiting downloads do not cancel the zip when interrupted, as other downloads may be waiting for it too
+    private static <V> V await(CompletableFuture<V> future, ArtifactFolder artifactFolder) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while zipping " + artifactFolder.getRootFolder());
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case UncheckedIOException uioe -> throw uioe.getCause();
+                case IOException ioe -> throw ioe;
+                case RuntimeException re -> throw re;
+                default -> throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private static File zipToTempFile(File cachedZip) {
         File parent = cachedZip.getParentFile();
         return new File(parent, cachedZip.getName() + ".tmp");
     }
@@ -70,4 +254,138 @@ public class ZipArtifactCache extends ArtifactCache<ArtifactFolder> {
         String relativize = FilenameUtils.separatorsToUnix(artifactFolder.getRootFolder().getPath()).replaceFirst(FilenameUtils.separatorsToUnix(root.getPath()), CACHE_ARTIFACTS_FOLDER);
         return new File(root, removeTrailingSlash(relativize) + ".zip");
     }
+
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Hits", hits.sum());
+        json.put("Misses", misses.sum());
+        json.put("Evictions", evictions.sum());
+        json.put("Size in bytes", sizeInBytes());
+        json.put("Max size in bytes", maxSizeInBytes);
+        json.put("Zips being written to the cache", zipsBeingCached.size());
+        return json;
+    }
+
+    private synchronized void used(File cachedZip) {
+        indexExistingZipsIfNeeded();
+        track(cachedZip);
+    }
+
+    private synchronized void added(File cachedZip) {
+        indexExistingZipsIfNeeded();
+        track(cachedZip);
+
+        Iterator<Map.Entry<File, Long>> leastRecentlyUsed = zipsInLeastRecentlyUsedOrder.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+            Map.Entry<File, Long> entry = leastRecentlyUsed.next();
+            if (entry.getKey().equals(cachedZip)) {
+                continue;
+            }
+            LOGGER.debug("Evicting {} from the artifact zip cache", entry.getKey());
+            FileUtils.deleteQuietly(entry.getKey());
+            sizeInBytes -= entry.getValue();
+            leastRecentlyUsed.remove();
+            evictions.increment();
+        }
+    }
+
+    private void track(File cachedZip) {
+        Long previousSize = zipsInLeastRecentlyUsedOrder.put(cachedZip, cachedZip.length());
+        sizeInBytes += cachedZip.length() - (previousSize == null ? 0 : previousSize);
+    }
+
+    /**
+     * Understands how much of a zip being written to the cache is on disk, for the downloads following it.
+     */
+    private static final class ZipBeingCached {
+        private final File tempZip;
+        private final CompletableFuture<File> zipped = new CompletableFuture<>();
+        // -1 until the temp zip has been created
+        private long writtenBytes = -1;
+
+        private ZipBeingCached(File tempZip) {
+            this.tempZip = tempZip;
+        }
+
+        static ZipBeingCached alreadyCached(File cachedZip) {
+            ZipBeingCached zip = new ZipBeingCached(null);
+            zip.zipped.complete(cachedZip);
+            return zip;
+        }
+
+        boolean isAlreadyCached() {
+            return tempZip == null;
+        }
+
+        OutputStream writingTo(FileOutputStream tempZipOutput) {
+            synchronized (this) {
+                writtenBytes = 0;
+                notifyAll();
+            }
+            return new FilterOutputStream(tempZipOutput) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    wrote(len);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    wrote(1);
+                }
+            };
+        }
+
+        private synchronized void wrote(int bytes) {
+            writtenBytes += bytes;
+            notifyAll();
+        }
+
+        synchronized void finished() {
+            notifyAll();
+        }
+
+        /**
+         * @return whether the temp zip was created, as opposed to the zip finishing or failing without it
+         */
+        synchronized boolean awaitStarted() throws InterruptedException {
+            while (writtenBytes < 0 && !zipped.isDone()) {
+                wait();
+            }
+            return writtenBytes >= 0;
+        }
+
+        /**
+         * @return how many bytes of the temp zip have been written, once that is more than the given position or the
+         * zip is finished
+         */
+        synchronized long awaitBytesAfter(long position) throws InterruptedException {
+            while (writtenBytes <= position && !zipped.isDone()) {
+                wait();
+            }
+            return writtenBytes;
+        }
+    }
+
+    private void indexExistingZipsIfNeeded() {
+        if (indexedExistingZips) {
+            return;
+        }
+        indexedExistingZips = true;
+
+        File cacheRoot = new File(artifactsDirHolder.getArtifactsDir(), CACHE_ARTIFACTS_FOLDER);
+        if (!cacheRoot.isDirectory()) {
+            return;
+        }
+        try (Stream<File> zips = Files.walk(cacheRoot.toPath()).map(Path::toFile).filter(file -> file.isFile() && file.getName().endsWith(".zip"))) {
+            zips.sorted(Comparator.comparingLong(File::lastModified)).forEach(this::track);
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.warn("Could not work out the size of the artifact zip cache in {}", cacheRoot, e);
+        }
+    }
 }
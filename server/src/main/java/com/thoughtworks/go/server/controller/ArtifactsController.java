@@ -28,6 +28,7 @@ import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.service.RestfulService;
 import com.thoughtworks.go.server.util.ErrorHandler;
+import com.thoughtworks.go.server.util.KeyedLocks;
 import com.thoughtworks.go.server.view.artifacts.ArtifactsView;
 import com.thoughtworks.go.server.view.artifacts.LocalArtifactsView;
 import com.thoughtworks.go.server.web.*;
@@ -35,6 +36,7 @@ import com.thoughtworks.go.util.SystemEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -51,6 +53,7 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static com.thoughtworks.go.util.ArtifactUtil.*;
 import static com.thoughtworks.go.util.GoConstants.*;
@@ -70,6 +73,7 @@ public class ArtifactsController {
     private final RestfulService restfulService;
     private final ConsoleService consoleService;
     private final ConfirmationConstraint confirmationConstraint;
+    private final KeyedLocks checksumFileLocks = new KeyedLocks();
 
     @Autowired
     ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
@@ -158,7 +162,7 @@ public class ArtifactsController {
                 return FileModelAndView.invalidUploadRequest();
             }
 
-            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
+            boolean success = saveFile(jobIdentifier, convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
 
             if (!success) {
                 return FileModelAndView.errorSavingFile(filePath);
@@ -182,7 +186,7 @@ public class ArtifactsController {
         if (checksumMultipartFile != null) {
             String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), CRUISE_OUTPUT_FOLDER, MD5_CHECKSUM_FILENAME);
             File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
-            synchronized (checksumFilePath.intern()) {
+            synchronized (checksumFileLocks.lockFor(checksumFilePath)) {
                 return artifactsService.saveOrAppendFile(checksumFile, checksumMultipartFile.getInputStream());
             }
         } else {
@@ -191,9 +195,9 @@ public class ArtifactsController {
         return true;
     }
 
-    private boolean saveFile(int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
+    private boolean saveFile(JobIdentifier jobIdentifier, int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
         try (InputStream inputStream = multipartFile.getInputStream()) {
-            return artifactsService.saveFile(artifact, inputStream, shouldUnzip, convertedAttempt);
+            return artifactsService.saveFile(jobIdentifier, artifact, inputStream, shouldUnzip, convertedAttempt);
         }
     }
 
@@ -224,7 +228,7 @@ public class ArtifactsController {
         }
 
         if (isConsoleOutput(filePath)) {
-            return putConsoleOutput(jobIdentifier, request.getInputStream());
+            return putConsoleOutput(jobIdentifier, request);
         } else {
             return putArtifact(jobIdentifier, filePath, request.getInputStream());
         }
@@ -310,9 +314,24 @@ public class ArtifactsController {
         return request.getFile(CHECKSUM_MULTIPART_FILENAME);
     }
 
-    private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final InputStream inputStream) throws IllegalArtifactLocationException {
+    private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final HttpServletRequest request) throws IOException, IllegalArtifactLocationException {
+        String sequenceHeader = request.getHeader(StandardHeaders.REQUEST_CONSOLE_SEQUENCE_NUMBER);
+        Long sequenceNumber = null;
+        if (sequenceHeader != null) {
+            try {
+                sequenceNumber = Long.parseLong(sequenceHeader);
+            } catch (NumberFormatException e) {
+                return ResponseCodeView.create(HTTP_BAD_REQUEST, "Invalid console output sequence number: " + sequenceHeader);
+            }
+        }
+
+        InputStream inputStream = "gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))
+            ? new GZIPInputStream(request.getInputStream())
+            : request.getInputStream();
         File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
-        boolean updated = consoleService.appendToConsoleLogIoSafe(consoleLogFile, inputStream);
+        boolean updated = sequenceNumber == null
+            ? consoleService.appendToConsoleLogIoSafe(consoleLogFile, inputStream)
+            : consoleService.appendToConsoleLogIoSafe(jobIdentifier, consoleLogFile, sequenceNumber, inputStream);
         if (updated) {
             consoleActivityMonitor.consoleUpdatedFor(jobIdentifier);
             return FileModelAndView.fileAppended(consoleLogFile.getPath());
@@ -16,7 +16,9 @@
 package com.thoughtworks.go.server.dao;
 
 import com.thoughtworks.go.domain.AccessToken;
+import com.thoughtworks.go.server.cache.VerifiedAccessTokenCache;
 import com.thoughtworks.go.server.service.AccessTokenFilter;
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.Clock;
 import org.hibernate.Criteria;
@@ -29,6 +31,7 @@ import org.springframework.orm.hibernate3.support.HibernateDaoSupport;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.sql.Timestamp;
 import java.util.Collection;
@@ -40,13 +43,19 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
     private final SessionFactory sessionFactory;
     private final TransactionTemplate transactionTemplate;
     private final Clock clock;
+    private final TransactionSynchronizationManager transactionSynchronizationManager;
+    private final VerifiedAccessTokenCache verifiedAccessTokenCache;
 
     @Autowired
     public AccessTokenSqlMapDao(SessionFactory sessionFactory,
-                                TransactionTemplate transactionTemplate, Clock clock) {
+                                TransactionTemplate transactionTemplate, Clock clock,
+                                TransactionSynchronizationManager transactionSynchronizationManager,
+                                VerifiedAccessTokenCache verifiedAccessTokenCache) {
         this.sessionFactory = sessionFactory;
         this.transactionTemplate = transactionTemplate;
         this.clock = clock;
+        this.transactionSynchronizationManager = transactionSynchronizationManager;
+        this.verifiedAccessTokenCache = verifiedAccessTokenCache;
         setSessionFactory(sessionFactory);
     }
 
@@ -106,6 +115,12 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
     @Override
     public void revokeTokensBecauseOfUserDelete(Collection<String> usernames, String byWhom) {
         transactionTemplate.execute(status -> {
+            transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    verifiedAccessTokenCache.invalidateTokensOf(usernames);
+                }
+            });
             Session currentSession = sessionFactory.getCurrentSession();
             usernames
                 .stream()
@@ -140,9 +155,9 @@ public class AccessTokenSqlMapDao extends HibernateDaoSupport implements AccessT
     public void updateLastUsedTime(Map<Long, Timestamp> accessTokenIdToLastUsedTimestamp) {
         transactionTemplate.execute(transactionCallback -> {
             final Session currentSession = sessionFactory.getCurrentSession();
+            final Query query = currentSession.createQuery("UPDATE AccessToken SET lastUsed = :lastUsed WHERE id = :id");
 
             accessTokenIdToLastUsedTimestamp.keySet().forEach(tokenId -> {
-                final Query query = currentSession.createQuery("UPDATE AccessToken SET lastUsed = :lastUsed WHERE id = :id");
                 query.setLong("id", tokenId);
                 query.setTimestamp("lastUsed", accessTokenIdToLastUsedTimestamp.get(tokenId));
                 query.executeUpdate();
@@ -28,6 +28,8 @@ public interface JobInstanceDao {
 
     List<JobPlan> orderedScheduledBuilds();
 
+    JobPlan scheduledPlan(long jobId);
+
     JobInstances latestCompletedJobs(String pipelineName, String stageName, String jobConfigName, int count);
 
     JobInstance save(long stageId, JobInstance jobInstance);
@@ -21,6 +21,7 @@ import com.thoughtworks.go.config.elastic.ClusterProfile;
 import com.thoughtworks.go.config.elastic.ElasticProfile;
 import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.cache.LazyCache;
 import com.thoughtworks.go.server.domain.JobStatusListener;
@@ -57,6 +58,9 @@ import static com.thoughtworks.go.util.IBatisUtil.arguments;
 public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobInstanceDao, JobStatusListener {
     private static final Logger LOG = LoggerFactory.getLogger(JobInstanceSqlMapDao.class);
     private final LazyCache latestCompletedCache;
+    private final CacheRegion<Long, JobInstance> jobsWithTransitions;
+    private final CacheRegion<Long, JobPlan> scheduledPlans;
+    private final CacheRegion<OriginalJobKey, JobIdentifier> originalJobIdentifiers;
     private final CacheKeyGenerator cacheKeyGenerator;
     private final Cache buildDurationCache;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
@@ -87,6 +91,9 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         this.jobAgentMetadataDao = jobAgentMetadataDao;
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
         this.latestCompletedCache = new LazyCache(createCacheIfRequired(getClass().getName()), transactionSynchronizationManager);
+        this.jobsWithTransitions = CacheRegion.create(goCache, "jobsWithTransitions", 10_000);
+        this.scheduledPlans = CacheRegion.create(goCache, "scheduledJobPlans", 10_000);
+        this.originalJobIdentifiers = CacheRegion.create(goCache, "originalJobIdentifiers", 20_000);
     }
 
     private static Ehcache createCacheIfRequired(String cacheName) {
@@ -108,20 +115,8 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
     @Override
     public JobInstance buildByIdWithTransitions(long buildInstanceId) {
-        String cacheKey = cacheKeyForJobInstanceWithTransitions(buildInstanceId);
-        synchronized (cacheKey) {
-            JobInstance instance = goCache.get(cacheKey);
-            if (instance == null) {
-                instance = job(buildInstanceId, "buildByIdWithTransitions");
-                goCache.put(cacheKey, instance);
-            }
-            return cloner.deepClone(instance);
-        }
-    }
-
-    @VisibleForTesting
-    String cacheKeyForJobInstanceWithTransitions(long jobId) {
-        return cacheKeyGenerator.generate("jobInstanceWithTransitionIds", jobId);
+        JobInstance instance = jobsWithTransitions.get(buildInstanceId, jobId -> job(jobId, "buildByIdWithTransitions"));
+        return cloner.deepClone(instance);
     }
 
     @Override
@@ -218,37 +213,29 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
     @Override
     public JobIdentifier findOriginalJobIdentifier(StageIdentifier stageIdentifier, String jobName) {
-        String key = cacheKeyForOriginalJobIdentifier(stageIdentifier, jobName);
-
-        JobIdentifier jobIdentifier = goCache.get(key);
-        if (jobIdentifier == null) {
-            synchronized (key) {
-                jobIdentifier = goCache.get(key);
-                if (jobIdentifier == null) {
-                    Map<String, Object> params =
-                        arguments("pipelineName", stageIdentifier.getPipelineName())
-                            .and("pipelineCounter", stageIdentifier.getPipelineCounter())
-                            .and("stageName", stageIdentifier.getStageName())
-                            .and("stageCounter", Integer.parseInt(stageIdentifier.getStageCounter()))
-                            .and("jobName", jobName)
-                            .asMap();
-
-                    jobIdentifier = getSqlMapClientTemplate().queryForObject("findJobId", params);
-
-                    goCache.put(key, jobIdentifier);
-                }
-            }
-        }
+        JobIdentifier jobIdentifier = originalJobIdentifiers.get(OriginalJobKey.of(stageIdentifier, jobName), key -> {
+            Map<String, Object> params =
+                arguments("pipelineName", stageIdentifier.getPipelineName())
+                    .and("pipelineCounter", stageIdentifier.getPipelineCounter())
+                    .and("stageName", stageIdentifier.getStageName())
+                    .and("stageCounter", Integer.parseInt(stageIdentifier.getStageCounter()))
+                    .and("jobName", jobName)
+                    .asMap();
+
+            return getSqlMapClientTemplate().queryForObject("findJobId", params);
+        });
 
         return cloner.deepClone(jobIdentifier);
     }
 
     @VisibleForTesting
-    String cacheKeyForOriginalJobIdentifier(StageIdentifier stageIdentifier, String jobName) {
-        return cacheKeyGenerator.generate("originalJobIdentifier", stageIdentifier.getPipelineName(),
-            stageIdentifier.getPipelineLabel().toLowerCase(), String.valueOf(stageIdentifier.getPipelineCounter()),
-            stageIdentifier.getStageName().toLowerCase(),
-            stageIdentifier.getStageCounter().toLowerCase(), jobName.toLowerCase());
+    record OriginalJobKey(String pipelineName, String pipelineLabel, int pipelineCounter, String stageName, String stageCounter, String jobName) {
+        static OriginalJobKey of(StageIdentifier stageIdentifier, String jobName) {
+            return new OriginalJobKey(stageIdentifier.getPipelineName(),
+                stageIdentifier.getPipelineLabel().toLowerCase(), stageIdentifier.getPipelineCounter(),
+                stageIdentifier.getStageName().toLowerCase(),
+                stageIdentifier.getStageCounter().toLowerCase(), jobName.toLowerCase());
+        }
     }
 
     @Override
@@ -298,9 +285,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
                 @Override
                 public void afterCommit() {
                     // Methods not extracted in order to make synchronization visible.
-                    synchronized (cacheKeyForJobPlan(jobInstance.getId())) {
-                        removeCachedJobPlan(jobInstance);
-                    }
+                    scheduledPlans.remove(jobInstance.getId());
                     synchronized (cacheKeyForActiveJobIds()) {
                         goCache.remove(cacheKeyForActiveJobIds());
                     }
@@ -320,14 +305,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     private void removeCachedJobInstance(JobInstance jobInstance) {
-        String cacheKeyOfJob = cacheKeyForJobInstanceWithTransitions(jobInstance.getId());
-        synchronized (cacheKeyOfJob) {
-            goCache.remove(cacheKeyOfJob);
-        }
-    }
-
-    private void removeCachedJobPlan(JobInstance jobInstance) {
-        goCache.remove(cacheKeyForJobPlan(jobInstance.getId()));
+        jobsWithTransitions.remove(jobInstance.getId());
     }
 
     // TODO: (ketan) do we really need to reload the current state from DB?
@@ -407,22 +385,20 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
         List<JobPlan> plans = new ArrayList<>();
         for (Long jobId : jobIds) {
-            String cacheKey = cacheKeyForJobPlan(jobId);
-            synchronized (cacheKey) {
-                JobPlan jobPlan = goCache.get(cacheKey);
-                if (jobPlan == null) {
-                    jobPlan = _loadJobPlan(jobId);
-                }
-                if (jobPlan != null) {
-                    jobPlan = cloner.deepClone(jobPlan);
-                    goCache.put(cacheKey, jobPlan);
-                    plans.add(jobPlan);
-                }
+            JobPlan jobPlan = scheduledPlan(jobId);
+            if (jobPlan != null) {
+                plans.add(jobPlan);
             }
         }
         return plans;
     }
 
+    @Override
+    public JobPlan scheduledPlan(long jobId) {
+        JobPlan jobPlan = scheduledPlans.get(jobId, this::_loadJobPlan);
+        return jobPlan == null ? null : cloner.deepClone(jobPlan);
+    }
+
     private JobPlan _loadJobPlan(Long jobId) {
         DefaultJobPlan jobPlan = getSqlMapClientTemplate().queryForObject("scheduledPlan", arguments("id", jobId).asMap());
         if (jobPlan == null) {
@@ -432,11 +408,6 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
         return jobPlan;
     }
 
-    @VisibleForTesting
-    String cacheKeyForJobPlan(long jobId) {
-        return cacheKeyGenerator.generate("jobPlan", jobId);
-    }
-
     @VisibleForTesting
     String cacheKeyForActiveJob(long jobId) {
         return cacheKeyGenerator.generate("activeJob", jobId);
@@ -482,7 +453,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     @Override
     public void jobStatusChanged(final JobInstance job) {
         if (job.isRescheduled()) {
-            goCache.remove(cacheKeyForOriginalJobIdentifier(job.getIdentifier().getStageIdentifier(), job.getName()));
+            originalJobIdentifiers.remove(OriginalJobKey.of(job.getIdentifier().getStageIdentifier(), job.getName()));
         }
     }
 
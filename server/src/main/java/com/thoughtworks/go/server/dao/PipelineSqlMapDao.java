@@ -26,6 +26,7 @@ import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialRevisio
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModels;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.cache.LazyCache;
 import com.thoughtworks.go.server.database.Database;
@@ -77,6 +78,11 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     private final GoConfigDao configFileDao;
     private final Cloner cloner = ClonerFactory.instance();
     private final Clock timeProvider;
+    private final CacheRegion<PipelineCounterKey, BuildCause> buildCauses;
+    private final CacheRegion<PipelineCounterKey, PipelineInstanceModel> historyByNameAndCounter;
+    private final CacheRegion<Long, PipelineInstanceModel> historyById;
+    private final CacheRegion<String, PipelinePauseInfo> pauseStates;
+    private final CacheRegion<LatestPassedStageKey, StageIdentifier> latestPassedStages;
 
     @Autowired
     public PipelineSqlMapDao(StageDao stageDao,
@@ -100,6 +106,11 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         this.timeProvider = timeProvider;
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
         this.pipelineByBuildIdCache = new LazyCache(createCacheIfRequired(PipelineSqlMapDao.class.getName()), transactionSynchronizationManager);
+        this.buildCauses = CacheRegion.create(goCache, "pipelineBuildCauses", 10_000);
+        this.historyByNameAndCounter = CacheRegion.create(goCache, "pipelineHistoryByNameAndCounter", 10_000);
+        this.historyById = CacheRegion.create(goCache, "pipelineHistoryById", 20_000);
+        this.pauseStates = CacheRegion.create(goCache, "pipelinePauseStates", 10_000);
+        this.latestPassedStages = CacheRegion.create(goCache, "latestPassedStages", 20_000);
     }
 
     private static Ehcache createCacheIfRequired(String cacheName) {
@@ -199,27 +210,14 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @Override
     public BuildCause findBuildCauseOfPipelineByNameAndCounter(String name, int counter) {
-        String cacheKey = cacheKeyForBuildCauseByNameAndCounter(name, counter);
-        BuildCause buildCause = goCache.get(cacheKey);
-        if (buildCause == null) {
-            synchronized (cacheKey) {
-                buildCause = goCache.get(cacheKey);
-                if (buildCause == null) {
-                    Pipeline pipeline = findPipelineByNameAndCounter(name, counter);
-                    if (pipeline == null) {
-                        throw new RecordNotFoundException(String.format("Pipeline %s with counter %d was not found", name, counter));
-                    }
-                    loadMaterialRevisions(pipeline);
-                    buildCause = pipeline.getBuildCause();
-                    goCache.put(cacheKey, buildCause);
-                }
+        return buildCauses.get(PipelineCounterKey.of(name, counter), key -> {
+            Pipeline pipeline = findPipelineByNameAndCounter(name, counter);
+            if (pipeline == null) {
+                throw new RecordNotFoundException(String.format("Pipeline %s with counter %d was not found", name, counter));
             }
-        }
-        return buildCause;
-    }
-
-    String cacheKeyForBuildCauseByNameAndCounter(String name, int counter) {
-        return cacheKeyGenerator.generate("buildCauseByNameAndCounter", name.toLowerCase(), counter);
+            loadMaterialRevisions(pipeline);
+            return pipeline.getBuildCause();
+        });
     }
 
     protected void updateCachedLatestSuccessfulStage(Stage stage) {
@@ -333,23 +331,9 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     private PipelineInstanceModel loadPipelineInstanceModelByNameAndCounter(String pipelineName, int pipelineCounter) {
-        String cacheKey = cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter);
-        PipelineInstanceModel instanceModel = goCache.get(cacheKey);
-        if (instanceModel == null) {
-            synchronized (cacheKey) {
-                instanceModel = goCache.get(cacheKey);
-                if (instanceModel == null) {
-                    instanceModel = getSqlMapClientTemplate().queryForObject("getPipelineHistoryByNameAndCounter",
-                        arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).asMap());
-                    goCache.put(cacheKey, instanceModel);
-                }
-            }
-        }
-        return instanceModel;
-    }
-
-    String cacheKeyForPipelineHistoryByNameAndCounter(String pipelineName, int pipelineCounter) {
-        return cacheKeyGenerator.generate("cacheKeyForPipelineHistoryByName", pipelineName.toLowerCase(), "AndCounter", pipelineCounter);
+        return historyByNameAndCounter.get(PipelineCounterKey.of(pipelineName, pipelineCounter), key ->
+            getSqlMapClientTemplate().queryForObject("getPipelineHistoryByNameAndCounter",
+                arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).asMap()));
     }
 
     private void cacheActivePipelineHistory() {
@@ -385,7 +369,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         final Thread historyCacheLoader = new Thread(() -> {
             LOGGER.info("Loading pipeline history to cache...Started");
             for (PipelineInstanceModel pipeline : pipelines) {
-                goCache.put(pipelineHistoryCacheKey(pipeline.getId()), pipeline);
+                historyById.put(pipeline.getId(), pipeline);
             }
             LOGGER.info("Loading pipeline history to cache...Done");
         }, "goPipelineHistoryCacheLoader");
@@ -422,21 +406,9 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @VisibleForTesting
     public PipelineInstanceModel loadHistory(long id) {
-        String cacheKey = pipelineHistoryCacheKey(id);
-        PipelineInstanceModel result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("getPipelineHistoryById", arguments("id", id).asMap());
-                    if (result == null) {
-                        return null;
-                    }
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return cloner.deepClone(result);
+        PipelineInstanceModel result = historyById.get(id, key ->
+            getSqlMapClientTemplate().queryForObject("getPipelineHistoryById", arguments("id", key).asMap()));
+        return result == null ? null : cloner.deepClone(result);
     }
 
     @Override
@@ -447,16 +419,12 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     private void clearPipelineHistoryCacheViaNameAndCounter(String pipelineName, int pipelineCounter) {
-        goCache.remove(cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter));
+        historyByNameAndCounter.remove(PipelineCounterKey.of(pipelineName, pipelineCounter));
     }
 
     private void removeStageSpecificCache(Stage stage) {
-        goCache.remove(pipelineHistoryCacheKey(stage.getPipelineId()));
-        goCache.remove(cacheKeyForLatestPassedStage(stage.getPipelineId(), stage.getName()));
-    }
-
-    String pipelineHistoryCacheKey(long id) {
-        return cacheKeyGenerator.generate("pipelineHistory", id);
+        historyById.remove(stage.getPipelineId());
+        latestPassedStages.remove(LatestPassedStageKey.of(stage.getPipelineId(), stage.getName()));
     }
 
     @Override
@@ -609,7 +577,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
             } else {
                 getSqlMapClientTemplate().update("updatePipelinePauseState", args);
             }
-            goCache.remove(cacheKey);
+            pauseStates.remove(pipelineName.toLowerCase());
         }
     }
 
@@ -622,49 +590,32 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
                 .and("paused", false)
                 .and("pausedAt", null).asMap();
             getSqlMapClientTemplate().update("updatePipelinePauseState", args);
-            goCache.remove(cacheKey);
+            pauseStates.remove(pipelineName.toLowerCase());
         }
     }
 
     public PipelinePauseInfo pauseState(String pipelineName) {
-        String cacheKey = cacheKeyForPauseState(pipelineName);
-        PipelinePauseInfo result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("getPipelinePauseState", pipelineName);
-                    result = result == null ? PipelinePauseInfo.NULL : result;
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return result;
+        return pauseStates.get(pipelineName.toLowerCase(), key -> {
+            PipelinePauseInfo result = getSqlMapClientTemplate().queryForObject("getPipelinePauseState", pipelineName);
+            return result == null ? PipelinePauseInfo.NULL : result;
+        });
     }
 
     String cacheKeyForPauseState(String pipelineName) {
         return cacheKeyGenerator.generate("cacheKeyForPauseState", pipelineName.toLowerCase());
     }
 
-    String cacheKeyForLatestPassedStage(long pipelineId, String stage) {
-        return cacheKeyGenerator.generate("cacheKeyForlatestPassedStage", pipelineId, stage.toLowerCase());
-    }
-
     @Override
     public StageIdentifier latestPassedStageIdentifier(long pipelineId, String stage) {
-        String cacheKey = cacheKeyForLatestPassedStage(pipelineId, stage);
-        StageIdentifier result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("latestPassedStageForPipelineId", arguments("id", pipelineId).and("stage", stage).asMap());
-                    result = result == null ? StageIdentifier.NULL : result;
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return result;
+        return latestPassedStages.get(LatestPassedStageKey.of(pipelineId, stage), key -> {
+            StageIdentifier result = getSqlMapClientTemplate().queryForObject("latestPassedStageForPipelineId", arguments("id", pipelineId).and("stage", stage).asMap());
+            return result == null ? StageIdentifier.NULL : result;
+        });
+    }
+
+    @VisibleForTesting
+    StageIdentifier cachedLatestPassedStageIdentifier(long pipelineId, String stage) {
+        return latestPassedStages.getIfPresent(LatestPassedStageKey.of(pipelineId, stage));
     }
 
     @Override
@@ -765,6 +716,18 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
         getSqlMapClientTemplate().update("updatePipelineComment", args);
 
         Pipeline pipeline = findPipelineByNameAndCounter(pipelineName, pipelineCounter);
-        goCache.remove(pipelineHistoryCacheKey(pipeline.getId()));
+        historyById.remove(pipeline.getId());
+    }
+
+    private record PipelineCounterKey(String pipelineName, int pipelineCounter) {
+        static PipelineCounterKey of(String pipelineName, int pipelineCounter) {
+            return new PipelineCounterKey(pipelineName.toLowerCase(), pipelineCounter);
+        }
+    }
+
+    private record LatestPassedStageKey(long pipelineId, String stageName) {
+        static LatestPassedStageKey of(long pipelineId, String stageName) {
+            return new LatestPassedStageKey(pipelineId, stageName.toLowerCase());
+        }
     }
 }
@@ -516,7 +516,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @VisibleForTesting
     String mutexForStageHistory(String pipelineName, String stageName) {
-        return format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName).intern();
+        return CacheKeyGenerator.canonical(format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName));
     }
 
     @VisibleForTesting
@@ -558,7 +558,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @VisibleForTesting
     String cacheKeyForStageOffset(Stage stage) {
-        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName()).intern();
+        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName());
     }
 
     @Override
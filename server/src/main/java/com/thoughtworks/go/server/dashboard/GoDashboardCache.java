@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /* Understands how to cache dashboard statuses, for every pipeline. */
 @Component
@@ -37,6 +38,7 @@ public class GoDashboardCache {
     private final Map<CaseInsensitiveString, GoDashboardPipeline> cache = new LinkedHashMap<>();
 
     private volatile GoDashboardPipelines dashboardPipelines;
+    private final List<GoDashboardCacheListener> listeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter) {
@@ -47,16 +49,25 @@ public class GoDashboardCache {
     public void put(GoDashboardPipeline pipeline) {
         cache.put(pipeline.name(), pipeline);
         cacheHasChanged();
+        listeners.forEach(listener -> listener.pipelineChanged(pipeline));
     }
 
     public void remove(CaseInsensitiveString pipelineName) {
-        cache.remove(pipelineName);
+        if (cache.remove(pipelineName) != null) {
+            cacheHasChanged();
+            listeners.forEach(listener -> listener.pipelineRemoved(pipelineName));
+        }
     }
 
     public void replaceAllEntriesInCacheWith(List<GoDashboardPipeline> newPipelinesToCache) {
         cache.clear();
         cache.putAll(createMapFor(newPipelinesToCache));
         cacheHasChanged();
+        listeners.forEach(GoDashboardCacheListener::allPipelinesChanged);
+    }
+
+    public void addListener(GoDashboardCacheListener listener) {
+        listeners.add(listener);
     }
 
     public GoDashboardPipelines allEntries() {
@@ -0,0 +1,32 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.server.domain.Username;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Understands turning what a {@link GoDashboardSubscriber} is told into the frames sent to it. The representers for
+ * the dashboard live with its API, so this is implemented there.
+ */
+public interface GoDashboardFrameRenderer {
+    String snapshot(List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments, Username user,
+                    String personalizationEtag, URI serverUri, String contextPath);
+
+    String pipeline(GoDashboardPipeline pipeline, Username user, URI serverUri, String contextPath);
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.server.initializers.Daemonized;
+import com.thoughtworks.go.server.initializers.Initializer;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor.Action;
+import com.thoughtworks.go.server.service.GoDashboardService;
+import org.jetbrains.annotations.TestOnly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Understands who is watching the dashboard and what each of them needs to be told when the dashboard cache changes.
+ * A subscriber is sent its personalized dashboard once, and after that only the pipelines on it which have changed.
+ * Anything that changes the shape of its dashboard (a pipeline appearing, disappearing, moving to another group or
+ * being shown to or hidden from the user) gets it a fresh snapshot instead.
+ * <p>
+ * Everything a subscriber is told happens on one thread, in the order the cache changed, so that the dashboard
+ * activity queue is never held up by subscribers.
+ */
+@Component
+public class GoDashboardSubscriptions implements Initializer, Daemonized, GoDashboardCacheListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GoDashboardSubscriptions.class);
+
+    private final GoDashboardCache cache;
+    private final GoDashboardService goDashboardService;
+    private final MultiplexingQueueProcessor processor;
+    private final Map<GoDashboardSubscriber, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GoDashboardSubscriptions(GoDashboardCache cache, GoDashboardService goDashboardService) {
+        this(cache, goDashboardService, new MultiplexingQueueProcessor("Dashboard subscriptions"));
+    }
+
+    GoDashboardSubscriptions(GoDashboardCache cache, GoDashboardService goDashboardService, MultiplexingQueueProcessor processor) {
+        this.cache = cache;
+        this.goDashboardService = goDashboardService;
+        this.processor = processor;
+    }
+
+    @Override
+    public void initialize() {
+        cache.addListener(this);
+    }
+
+    @Override
+    public void start() {
+        processor.start();
+    }
+
+    @PreDestroy
+    @Override
+    public void stop() throws InterruptedException {
+        processor.stop();
+    }
+
+    public void subscribe(GoDashboardSubscriber subscriber) {
+        Subscription subscription = new Subscription(subscriber);
+        subscriptions.put(subscriber, subscription);
+        processor.add(action("new subscriber", () -> sendSnapshot(subscription)));
+    }
+
+    public void unsubscribe(GoDashboardSubscriber subscriber) {
+        subscriptions.remove(subscriber);
+    }
+
+    @TestOnly
+    int numberOfSubscribers() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void pipelineChanged(GoDashboardPipeline pipeline) {
+        processor.add(action("change to pipeline " + pipeline.name(), () -> forEachSubscription(subscription -> subscription.pipelineChanged(pipeline))));
+    }
+
+    @Override
+    public void pipelineRemoved(CaseInsensitiveString pipelineName) {
+        processor.add(action("removal of pipeline " + pipelineName, () -> forEachSubscription(subscription -> {
+            if (subscription.isShowing(pipelineName)) {
+                sendSnapshot(subscription);
+            }
+        })));
+    }
+
+    @Override
+    public void allPipelinesChanged() {
+        processor.add(action("change to all pipelines", () -> forEachSubscription(this::sendSnapshot)));
+    }
+
+    private void forEachSubscription(Consumer<Subscription> consumer) {
+        for (Subscription subscription : subscriptions.values()) {
+            try {
+                consumer.accept(subscription);
+            } catch (Exception e) {
+                LOGGER.warn("Failed to update dashboard subscriber {}", subscription.subscriber, e);
+            }
+        }
+    }
+
+    private void sendSnapshot(Subscription subscription) {
+        if (!goDashboardService.hasEverLoadedCurrentState() || !subscriptions.containsKey(subscription.subscriber)) {
+            return;
+        }
+        subscription.snapshot();
+    }
+
+    private static Action action(String description, Runnable runnable) {
+        return new Action() {
+            @Override
+            public void call() {
+                runnable.run();
+            }
+
+            @Override
+            public String description() {
+                return description;
+            }
+        };
+    }
+
+    /* Only ever used on the processor thread. */
+    private class Subscription {
+        private final GoDashboardSubscriber subscriber;
+        private final Set<CaseInsensitiveString> shownPipelines = new HashSet<>();
+        private GoDashboardPipelines pipelinesAtLastSnapshot;
+
+        private Subscription(GoDashboardSubscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private void snapshot() {
+            pipelinesAtLastSnapshot = cache.allEntries();
+            List<GoDashboardPipelineGroup> pipelineGroups = goDashboardService.allPipelineGroupsForDashboard(subscriber.filter(), subscriber.user());
+            List<GoDashboardEnvironment> environments = goDashboardService.allEnvironmentsForDashboard(subscriber.filter(), subscriber.user());
+
+            shownPipelines.clear();
+            pipelineGroups.forEach(group -> group.allPipelines().forEach(pipeline -> shownPipelines.add(pipeline.name())));
+            environments.forEach(environment -> environment.allPipelines().forEach(pipeline -> shownPipelines.add(pipeline.name())));
+
+            subscriber.snapshot(pipelineGroups, environments);
+        }
+
+        private void pipelineChanged(GoDashboardPipeline pipeline) {
+            if (pipelinesAtLastSnapshot == null) {
+                return;
+            }
+
+            GoDashboardPipeline before = pipelinesAtLastSnapshot.find(pipeline.name());
+            if (before == null || !before.groupName().equals(pipeline.groupName()) || isVisible(before) != isVisible(pipeline)) {
+                sendSnapshot(this);
+            } else if (isShowing(pipeline.name())) {
+                subscriber.pipelineChanged(pipeline);
+            }
+        }
+
+        private boolean isShowing(CaseInsensitiveString pipelineName) {
+            return shownPipelines.contains(pipelineName);
+        }
+
+        private boolean isVisible(GoDashboardPipeline pipeline) {
+            return pipeline.canBeViewedBy(subscriber.user().getUsername().toString()) && subscriber.filter().isPipelineVisible(pipeline.name());
+        }
+    }
+}
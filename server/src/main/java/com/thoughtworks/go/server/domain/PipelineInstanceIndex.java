@@ -0,0 +1,140 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Understands finding the instances of one pipeline, in the order they were added to the timeline, by their id or
+ * counter. Counters and ids are kept in primitive arrays next to the instances, so that a lookup is a binary search
+ * instead of a walk through every instance of the pipeline. This is an index over the instances, not a replacement for
+ * them: every {@link PipelineTimelineEntry} is still held, so it costs a little more heap than the list it replaced.
+ * Not thread safe, {@link PipelineTimeline} guards it.
+ */
+class PipelineInstanceIndex {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private PipelineTimelineEntry[] entries = new PipelineTimelineEntry[INITIAL_CAPACITY];
+    private int[] counters = new int[INITIAL_CAPACITY];
+    private long[] sortedIds = new long[INITIAL_CAPACITY];
+    private int[] positionOfSortedIds = new int[INITIAL_CAPACITY];
+    private int size;
+    private boolean countersAscending = true;
+
+    void add(PipelineTimelineEntry entry) {
+        ensureCapacity(size + 1);
+        if (size > 0 && entry.getCounter() < counters[size - 1]) {
+            countersAscending = false;
+        }
+        entries[size] = entry;
+        counters[size] = entry.getCounter();
+
+        // ids are nearly always added in ascending order, which makes this an append
+        int insertAt = insertionPointOf(entry.getId());
+        System.arraycopy(sortedIds, insertAt, sortedIds, insertAt + 1, size - insertAt);
+        System.arraycopy(positionOfSortedIds, insertAt, positionOfSortedIds, insertAt + 1, size - insertAt);
+        sortedIds[insertAt] = entry.getId();
+        positionOfSortedIds[insertAt] = size;
+        size++;
+    }
+
+    boolean remove(PipelineTimelineEntry entry) {
+        int sortedIndex = Arrays.binarySearch(sortedIds, 0, size, entry.getId());
+        if (sortedIndex < 0) {
+            return false;
+        }
+        int position = positionOfSortedIds[sortedIndex];
+        System.arraycopy(entries, position + 1, entries, position, size - position - 1);
+        System.arraycopy(counters, position + 1, counters, position, size - position - 1);
+        System.arraycopy(sortedIds, sortedIndex + 1, sortedIds, sortedIndex, size - sortedIndex - 1);
+        System.arraycopy(positionOfSortedIds, sortedIndex + 1, positionOfSortedIds, sortedIndex, size - sortedIndex - 1);
+        size--;
+        entries[size] = null;
+        for (int i = 0; i < size; i++) {
+            if (positionOfSortedIds[i] > position) {
+                positionOfSortedIds[i]--;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    PipelineTimelineEntry get(int index) {
+        return entries[Objects.checkIndex(index, size)];
+    }
+
+    PipelineTimelineEntry withId(long id) {
+        int sortedIndex = Arrays.binarySearch(sortedIds, 0, size, id);
+        return sortedIndex < 0 ? null : entries[positionOfSortedIds[sortedIndex]];
+    }
+
+    /**
+     * @return the most recently added instance with this counter, or null if there is none
+     */
+    PipelineTimelineEntry lastWithCounter(int counter) {
+        if (!countersAscending) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (counters[i] == counter) {
+                    return entries[i];
+                }
+            }
+            return null;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (counters[middle] <= counter) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low > 0 && counters[low - 1] == counter ? entries[low - 1] : null;
+    }
+
+    void forEach(Consumer<PipelineTimelineEntry> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(entries[i]);
+        }
+    }
+
+    private int insertionPointOf(long id) {
+        if (size == 0 || sortedIds[size - 1] < id) {
+            return size;
+        }
+        int index = Arrays.binarySearch(sortedIds, 0, size, id);
+        return index < 0 ? -(index + 1) : index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entries.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, entries.length + (entries.length >> 1));
+        entries = Arrays.copyOf(entries, newCapacity);
+        counters = Arrays.copyOf(counters, newCapacity);
+        sortedIds = Arrays.copyOf(sortedIds, newCapacity);
+        positionOfSortedIds = Arrays.copyOf(positionOfSortedIds, newCapacity);
+    }
+}
@@ -17,14 +17,20 @@ package com.thoughtworks.go.server.domain;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.server.perf.DurationStatistics;
 import com.thoughtworks.go.server.persistence.PipelineRepository;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.jetbrains.annotations.TestOnly;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -35,22 +41,36 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 @Component
 public class PipelineTimeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTimeline.class);
+
     private final PipelineRepository pipelineRepository;
     private final TransactionTemplate transactionTemplate;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
+    private final SystemEnvironment systemEnvironment;
 
+    // Where a new instance goes in the natural order depends on the shape of the tree it is added to, and the natural
+    // order of instances already stored in the database was worked out from that, so this has to stay a TreeSet.
     private final Map<CaseInsensitiveString, NavigableSet<PipelineTimelineEntry>> naturalOrderPmm = new HashMap<>();
-    private final Map<CaseInsensitiveString, List<PipelineTimelineEntry>> scheduleOrderPmm = new HashMap<>();
+    private final Map<CaseInsensitiveString, PipelineInstanceIndex> scheduleOrderPmm = new HashMap<>();
     private final ReadWriteLock naturalOrderLock = new ReentrantReadWriteLock();
     private final ReadWriteLock scheduleOrderLock = new ReentrantReadWriteLock();
 
     private final AtomicLong maximumId = new AtomicLong(-1);
 
-    @Autowired
+    private final Map<String, Object> startupStatistics = new LinkedHashMap<>();
+    private final DurationStatistics checkpoints = new DurationStatistics();
+    private volatile long maximumIdAtLastCheckpoint = -1;
+
     public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager) {
+        this(pipelineRepository, transactionTemplate, transactionSynchronizationManager, new SystemEnvironment());
+    }
+
+    @Autowired
+    public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager, SystemEnvironment systemEnvironment) {
         this.pipelineRepository = pipelineRepository;
         this.transactionTemplate = transactionTemplate;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
+        this.systemEnvironment = systemEnvironment;
     }
 
     @TestOnly
@@ -129,38 +149,111 @@ public class PipelineTimeline {
     }
 
     /**
-     * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other time, the method update should be used
+     * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other time, the method update should be used.
+     * If a snapshot was written by {@link #checkpoint()}, it is loaded first and only the pipelines which ran after it was written are loaded from the database.
      */
     public void updateTimelineOnInit() {
         acquireAllWriteLocks();
         try {
-            pipelineRepository.updatePipelineTimeline(this, new ArrayList<>());
+            long startedAt = System.currentTimeMillis();
+            int fromSnapshot = restoreFromSnapshot();
+            long snapshotLoadedAt = System.currentTimeMillis();
+            List<PipelineTimelineEntry> fromDatabase = new ArrayList<>();
+            pipelineRepository.updatePipelineTimeline(this, fromDatabase);
+            long finishedAt = System.currentTimeMillis();
+
+            synchronized (startupStatistics) {
+                startupStatistics.put("Entries loaded from snapshot", fromSnapshot);
+                startupStatistics.put("Entries loaded from database", fromDatabase.size());
+                startupStatistics.put("Snapshot load time (ms)", snapshotLoadedAt - startedAt);
+                startupStatistics.put("Database load time (ms)", finishedAt - snapshotLoadedAt);
+                startupStatistics.put("Total load time (ms)", finishedAt - startedAt);
+            }
+            LOGGER.info("Loaded the pipeline timeline in {} ms, {} entries from the snapshot and {} from the database", finishedAt - startedAt, fromSnapshot, fromDatabase.size());
         } finally {
             releaseAllWriteLocks();
         }
     }
 
+    private int restoreFromSnapshot() {
+        File snapshot = systemEnvironment.getPipelineTimelineSnapshotFile();
+        if (!systemEnvironment.isPipelineTimelineSnapshotEnabled() || !snapshot.isFile()) {
+            return 0;
+        }
+        try {
+            List<PipelineTimelineEntry> entries = PipelineTimelineSnapshot.read(snapshot);
+            if (entries.isEmpty()) {
+                return 0;
+            }
+            long snapshotMaximumId = entries.getLast().getId();
+            long pipelinesInDatabase = pipelineRepository.countPipelinesUpTo(snapshotMaximumId);
+            if (pipelinesInDatabase != entries.size()) {
+                LOGGER.warn("Ignoring the pipeline timeline snapshot [{}]. It has {} pipelines up to id {}, but the database has {}.", snapshot, entries.size(), snapshotMaximumId, pipelinesInDatabase);
+                return 0;
+            }
+            for (PipelineTimelineEntry entry : entries) {
+                add(entry);
+            }
+            maximumIdAtLastCheckpoint = snapshotMaximumId;
+            return entries.size();
+        } catch (Exception e) {
+            LOGGER.warn("Could not load the pipeline timeline snapshot [{}], loading the whole timeline from the database instead.", snapshot, e);
+            naturalOrderPmm.clear();
+            scheduleOrderPmm.clear();
+            maximumId.set(-1);
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the timeline to the snapshot file, so that the next startup only needs to load the pipelines which run after this.
+     * This is called periodically by Spring.
+     */
+    public void checkpoint() {
+        if (!systemEnvironment.isPipelineTimelineSnapshotEnabled() || maximumId.get() == maximumIdAtLastCheckpoint) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        List<PipelineTimelineEntry> entries = new ArrayList<>();
+        long maximumIdOfSnapshot;
+        scheduleOrderLock.readLock().lock();
+        try {
+            maximumIdOfSnapshot = maximumId.get();
+            scheduleOrderPmm.values().forEach(instances -> instances.forEach(entries::add));
+        } finally {
+            scheduleOrderLock.readLock().unlock();
+        }
+        entries.sort(Comparator.comparingLong(PipelineTimelineEntry::getId));
+
+        File snapshot = systemEnvironment.getPipelineTimelineSnapshotFile();
+        try {
+            PipelineTimelineSnapshot.write(entries, snapshot);
+            maximumIdAtLastCheckpoint = maximumIdOfSnapshot;
+            checkpoints.record(System.currentTimeMillis() - startedAt);
+        } catch (IOException e) {
+            LOGGER.warn("Could not write the pipeline timeline snapshot [{}]", snapshot, e);
+        }
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Snapshot enabled", systemEnvironment.isPipelineTimelineSnapshotEnabled());
+        synchronized (startupStatistics) {
+            json.put("Startup", new LinkedHashMap<>(startupStatistics));
+        }
+        json.put("Checkpoints", checkpoints.asJsonCompatibleMap());
+        json.put("Maximum id", maximumId());
+        return json;
+    }
+
     /**
      * @param id           for the pipeline
      * @param pipelineName name for the pipeline
      * @return PMM which was before the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing before this pipeline during insertion
      */
     public PipelineTimelineEntry runBefore(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
-        try {
-            Set<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
-                return null;
-            }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedAfter();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+        PipelineTimelineEntry entry = entryWithId(id, pipelineName);
+        return entry == null ? null : entry.insertedAfter();
     }
 
     /**
@@ -169,20 +262,24 @@ public class PipelineTimeline {
      * @return PMM which was after the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing after this pipeline during insertion
      */
     public PipelineTimelineEntry runAfter(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
+        PipelineTimelineEntry entry = entryWithId(id, pipelineName);
+        return entry == null ? null : entry.insertedBefore();
+    }
+
+    private PipelineTimelineEntry entryWithId(long id, CaseInsensitiveString pipelineName) {
+        scheduleOrderLock.readLock().lock();
         try {
-            Set<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
+            PipelineInstanceIndex instances = scheduleOrderPmm.get(pipelineName);
+            if (instances == null) {
                 return null;
             }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedBefore();
-                }
+            PipelineTimelineEntry entry = instances.withId(id);
+            if (entry == null) {
+                throw new RuntimeException("Cannot find pipeline with id: " + id);
             }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
+            return entry;
         } finally {
-            naturalOrderLock.readLock().unlock();
+            scheduleOrderLock.readLock().unlock();
         }
     }
 
@@ -194,8 +291,8 @@ public class PipelineTimeline {
         return naturalOrderPmm.computeIfAbsent(pipelineName, k -> new TreeSet<>());
     }
 
-    private List<PipelineTimelineEntry> initializedScheduleOrderCollection(final CaseInsensitiveString pipelineName) {
-        return scheduleOrderPmm.computeIfAbsent(pipelineName, k -> new ArrayList<>());
+    private PipelineInstanceIndex initializedScheduleOrderCollection(final CaseInsensitiveString pipelineName) {
+        return scheduleOrderPmm.computeIfAbsent(pipelineName, k -> new PipelineInstanceIndex());
     }
 
     private PipelineTimelineEntry naturalOrderAfter(PipelineTimelineEntry pipelineTimelineEntry) {
@@ -233,7 +330,7 @@ public class PipelineTimeline {
     public int instanceCount(CaseInsensitiveString pipelineName) {
         scheduleOrderLock.readLock().lock();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
+            PipelineInstanceIndex instances = scheduleOrderPmm.get(pipelineName);
             return instances == null ? 0 : instances.size();
         } finally {
             scheduleOrderLock.readLock().unlock();
@@ -243,7 +340,7 @@ public class PipelineTimeline {
     public PipelineTimelineEntry instanceFor(CaseInsensitiveString pipelineName, int index) {
         scheduleOrderLock.readLock().lock();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
+            PipelineInstanceIndex instances = scheduleOrderPmm.get(pipelineName);
             return instances == null ? null : instances.get(index);
         } finally {
             scheduleOrderLock.readLock().unlock();
@@ -254,14 +351,8 @@ public class PipelineTimeline {
     public PipelineTimelineEntry getEntryFor(CaseInsensitiveString pipelineName, int pipelineCounter) {
         scheduleOrderLock.readLock().lock();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            for (int i = instances.size() - 1; i >= 0; i--) {
-                PipelineTimelineEntry instance = instances.get(i);
-                if (instance.getCounter() == pipelineCounter) {
-                    return instance;
-                }
-            }
-            return null;
+            PipelineInstanceIndex instances = scheduleOrderPmm.get(pipelineName);
+            return instances == null ? null : instances.lastWithCounter(pipelineCounter);
         } finally {
             scheduleOrderLock.readLock().unlock();
         }
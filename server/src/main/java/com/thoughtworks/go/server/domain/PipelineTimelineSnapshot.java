@@ -0,0 +1,180 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.domain.PipelineTimelineEntry.Revision;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Understands writing the pipeline timeline to a file and reading it back, so that a restarting server only has to
+ * load the pipelines that ran since the file was written. Pipeline names, material fingerprints and modifications are
+ * written once each and referred to by their position, everything else is written as primitives.
+ */
+public class PipelineTimelineSnapshot {
+    private static final int MAGIC = 0x47505453;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PipelineTimelineSnapshot() {
+    }
+
+    /**
+     * @param entries the entries in the order they were added to the timeline, which is the order they are added back in
+     */
+    public static void write(List<PipelineTimelineEntry> entries, File file) throws IOException {
+        Map<String, Integer> names = new LinkedHashMap<>();
+        Map<String, Integer> fingerprints = new LinkedHashMap<>();
+        Map<ModificationKey, Integer> modifications = new LinkedHashMap<>();
+        for (PipelineTimelineEntry entry : entries) {
+            names.putIfAbsent(entry.getPipelineName(), names.size());
+            for (Map.Entry<String, List<Revision>> revisions : entry.revisions().entrySet()) {
+                fingerprints.putIfAbsent(revisions.getKey(), fingerprints.size());
+                for (Revision revision : revisions.getValue()) {
+                    modifications.putIfAbsent(ModificationKey.of(revision), modifications.size());
+                }
+            }
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeStrings(out, names.keySet());
+                writeStrings(out, fingerprints.keySet());
+
+                out.writeInt(modifications.size());
+                for (ModificationKey modification : modifications.keySet()) {
+                    out.writeLong(modification.id());
+                    out.writeLong(modification.modifiedTime());
+                    writeString(out, modification.revision());
+                }
+
+                out.writeInt(entries.size());
+                for (PipelineTimelineEntry entry : entries) {
+                    out.writeInt(names.get(entry.getPipelineName()));
+                    out.writeLong(entry.getId());
+                    out.writeInt(entry.getCounter());
+                    out.writeDouble(entry.naturalOrder());
+                    out.writeInt(entry.revisions().size());
+                    for (Map.Entry<String, List<Revision>> revisions : entry.revisions().entrySet()) {
+                        out.writeInt(fingerprints.get(revisions.getKey()));
+                        out.writeInt(revisions.getValue().size());
+                        for (Revision revision : revisions.getValue()) {
+                            out.writeInt(modifications.get(ModificationKey.of(revision)));
+                        }
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * @return the entries in the order they were written, sharing one {@link Revision} per modification
+     */
+    public static List<PipelineTimelineEntry> read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(String.format("[%s] is not a pipeline timeline snapshot this version of GoCD can read", file));
+            }
+            String[] names = readStrings(in);
+            String[] fingerprints = readStrings(in);
+
+            Revision[] modifications = new Revision[in.readInt()];
+            for (int i = 0; i < modifications.length; i++) {
+                long id = in.readLong();
+                long modifiedTime = in.readLong();
+                modifications[i] = new Revision(new Date(modifiedTime), readString(in), id);
+            }
+
+            int entryCount = in.readInt();
+            List<PipelineTimelineEntry> entries = new ArrayList<>(entryCount);
+            for (int i = 0; i < entryCount; i++) {
+                String name = names[in.readInt()];
+                long id = in.readLong();
+                int counter = in.readInt();
+                double naturalOrder = in.readDouble();
+                int materialCount = in.readInt();
+                Map<String, List<Revision>> revisionsByFingerprint = HashMap.newHashMap(materialCount);
+                for (int j = 0; j < materialCount; j++) {
+                    String fingerprint = fingerprints[in.readInt()];
+                    int revisionCount = in.readInt();
+                    List<Revision> revisions = new ArrayList<>(revisionCount);
+                    for (int k = 0; k < revisionCount; k++) {
+                        revisions.add(modifications[in.readInt()]);
+                    }
+                    revisionsByFingerprint.put(fingerprint, revisions);
+                }
+                entries.add(new PipelineTimelineEntry(name, id, counter, revisionsByFingerprint, naturalOrder));
+            }
+            return entries;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(in);
+        }
+        return strings;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record ModificationKey(long id, long modifiedTime, String revision) {
+        static ModificationKey of(Revision revision) {
+            return new ModificationKey(revision.id(), revision.date().getTime(), revision.revision());
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.thoughtworks.go.plugin.infra.monitor.DefaultPluginJarLocationMonitor;
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
 import com.thoughtworks.go.server.dao.PipelineSqlMapDao;
 import com.thoughtworks.go.server.dashboard.GoDashboardActivityListener;
+import com.thoughtworks.go.server.dashboard.GoDashboardSubscriptions;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
@@ -57,6 +58,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private AgentService agentService;
     @Autowired private GoConfigService goConfigService;
     @Autowired private EnvironmentConfigService environmentConfigService;
+    @Autowired private ConfigDependencyGraphService configDependencyGraphService;
     @Autowired private DefaultPluginJarLocationMonitor defaultPluginJarLocationMonitor;
     @Autowired private CachedGoConfig cachedGoConfig;
     @Autowired private ConsoleActivityMonitor consoleActivityMonitor;
@@ -76,6 +78,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private FeatureToggleService featureToggleService;
     @Autowired private CcTrayActivityListener ccTrayActivityListener;
     @Autowired private GoDashboardActivityListener dashboardActivityListener;
+    @Autowired private GoDashboardSubscriptions dashboardSubscriptions;
     @Autowired private EntityHashingService entityHashingService;
     @Autowired private DependencyMaterialUpdateNotifier dependencyMaterialUpdateNotifier;
     @Autowired private SCMMaterialSource scmMaterialSource;
@@ -120,6 +123,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
 
             //change listener
             environmentConfigService.initialize();
+            configDependencyGraphService.initialize();
             invalidConfigMessageRemover.initialize();
             agentService.initialize();
             pipelineLockService.initialize();
@@ -138,6 +142,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             railsAssetsService.initialize();
             ccTrayActivityListener.initialize();
             dashboardActivityListener.initialize();
+            dashboardSubscriptions.initialize();
 
             ServletHelper.init();
             // initialize static accessors
@@ -151,6 +156,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
 
             if (this.daemonsEnabled) {
                 dashboardActivityListener.start();
+                dashboardSubscriptions.start();
                 ccTrayActivityListener.start();
             }
         } catch (Throwable throwable) {
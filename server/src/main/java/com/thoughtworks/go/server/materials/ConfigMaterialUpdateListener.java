@@ -16,10 +16,13 @@
 package com.thoughtworks.go.server.materials;
 
 import com.thoughtworks.go.config.GoConfigRepoConfigDataSource;
+import com.thoughtworks.go.config.PartialConfigParseResult;
 import com.thoughtworks.go.config.materials.SubprocessExecutionContext;
+import com.thoughtworks.go.domain.MaterialRevision;
 import com.thoughtworks.go.domain.MaterialRevisions;
 import com.thoughtworks.go.domain.materials.Material;
 import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
 import com.thoughtworks.go.domain.materials.Revision;
 import com.thoughtworks.go.domain.materials.mercurial.StringRevision;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
@@ -29,6 +32,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
 
 /**
  * Updates configuration from repositories.
@@ -80,6 +86,9 @@ public class ConfigMaterialUpdateListener implements GoMessageListener<MaterialU
                 // this is fast, but we may need to consider only merging into the main config if different?
                 //
                 // Open to any better ideas :).
+                //
+                // Providers whose output only depends on the revision skip the parse when nothing has changed, and
+                // are told which files changed since their last good parse otherwise.
                 updateConfigurationFromCheckout(folder, modification, material);
             }
             LOGGER.debug("[Config Material Update] Completed parsing of Config material {}.", material);
@@ -95,6 +104,26 @@ public class ConfigMaterialUpdateListener implements GoMessageListener<MaterialU
     private void updateConfigurationFromCheckout(File folder, Modification modification, Material material) {
         Revision revision = new StringRevision(modification.getRevision());
         this.materialService.checkout(material, folder, revision, this.subprocessExecutionContext);
-        this.repoConfigDataSource.onCheckoutComplete(material.config(), folder, modification);
+        this.repoConfigDataSource.onCheckoutComplete(material.config(), folder, modification, filesChangedSinceLastGoodParse(material, modification));
+    }
+
+    private Set<String> filesChangedSinceLastGoodParse(Material material, Modification modification) {
+        PartialConfigParseResult result = repoConfigDataSource.getLastParseResult(material.config());
+        if (result == null || result.getGoodModification() == null) {
+            return null;
+        }
+        Modification goodModification = result.getGoodModification();
+        if (goodModification.getRevision().equals(modification.getRevision())) {
+            return Set.of();
+        }
+        try {
+            return materialRepository.findModificationsSince(material, new MaterialRevision(material, goodModification)).stream()
+                .flatMap(since -> since.getModifiedFiles().stream())
+                .map(ModifiedFile::getFileName)
+                .collect(toSet());
+        } catch (Exception e) {
+            LOGGER.debug("[Config Material Update] Could not work out the files changed in {} since revision {}, everything will be parsed", material, goodModification.getRevision(), e);
+            return null;
+        }
     }
 }
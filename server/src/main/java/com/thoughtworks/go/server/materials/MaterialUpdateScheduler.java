@@ -0,0 +1,216 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Understands the order in which materials get updated. Updates somebody asked for, through a push notification, the
+ * API or by triggering a pipeline, go before the ones the timer asks for. After that, the repository host with the fewest
+ * updates running goes next, so that one slow host cannot take up every update thread, and the cheapest material of
+ * that host goes first, going by how long its recent updates took. Only as many updates as there are threads to run
+ * them are handed to the queue at a time, so that the ones still waiting can be reordered.
+ */
+class MaterialUpdateScheduler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaterialUpdateScheduler.class);
+    private static final Pattern SCP_LIKE_URL = Pattern.compile("^(?:[^@/]+@)?([^:/]+):");
+
+    private final GoMessageQueue<MaterialUpdateMessage> queue;
+    private final MDUPerformanceLogger mduPerformanceLogger;
+    private final int capacity;
+    private final Consumer<Material> onDispatchFailure;
+
+    private final Map<String, List<Waiting>> waitingByHost = new LinkedHashMap<>();
+    private final Map<Long, String> running = new HashMap<>();
+    private final Map<String, Integer> runningByHost = new HashMap<>();
+    private int waiting;
+
+    private final DurationStatistics triggeredWait = new DurationStatistics();
+    private final DurationStatistics timerWait = new DurationStatistics();
+
+    MaterialUpdateScheduler(GoMessageQueue<MaterialUpdateMessage> queue, MDUPerformanceLogger mduPerformanceLogger, int capacity,
+                            Consumer<Material> onDispatchFailure) {
+        this.queue = queue;
+        this.mduPerformanceLogger = mduPerformanceLogger;
+        this.capacity = Math.max(1, capacity);
+        this.onDispatchFailure = onDispatchFailure;
+    }
+
+    void schedule(MaterialUpdateMessage message, boolean triggered) {
+        List<Waiting> dispatchable;
+        synchronized (this) {
+            Material material = message.getMaterial();
+            String host = hostOf(material);
+            waitingByHost.computeIfAbsent(host, k -> new ArrayList<>())
+                .add(new Waiting(message, host, mduPerformanceLogger.estimatedCostInMillis(material), System.currentTimeMillis(), triggered));
+            waiting++;
+            dispatchable = takeDispatchable();
+        }
+        dispatch(dispatchable, message);
+    }
+
+    /**
+     * Moves an update of this material that is still waiting ahead of the ones the timer asked for.
+     */
+    synchronized void prioritise(Material material) {
+        List<Waiting> waitingForHost = waitingByHost.get(hostOf(material));
+        if (waitingForHost == null) {
+            return;
+        }
+        for (Waiting update : waitingForHost) {
+            if (update.message.getMaterial().equals(material)) {
+                update.triggered = true;
+            }
+        }
+    }
+
+    void completed(long trackingId) {
+        List<Waiting> dispatchable;
+        synchronized (this) {
+            if (!release(trackingId)) {
+                return;
+            }
+            dispatchable = takeDispatchable();
+        }
+        dispatch(dispatchable, null);
+    }
+
+    synchronized Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Update threads", capacity);
+        json.put("Running", running.size());
+        json.put("Waiting", waiting);
+        json.put("Wait of triggered updates", triggeredWait.asJsonCompatibleMap());
+        json.put("Wait of timer updates", timerWait.asJsonCompatibleMap());
+        return json;
+    }
+
+    private List<Waiting> takeDispatchable() {
+        List<Waiting> dispatchable = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (waiting > 0 && running.size() < capacity) {
+            Waiting next = next();
+            waitingByHost.get(next.host).remove(next);
+            if (waitingByHost.get(next.host).isEmpty()) {
+                waitingByHost.remove(next.host);
+            }
+            waiting--;
+            running.put(next.message.trackingId(), next.host);
+            runningByHost.merge(next.host, 1, Integer::sum);
+            (next.triggered ? triggeredWait : timerWait).record(now - next.queuedAt);
+            dispatchable.add(next);
+        }
+        return dispatchable;
+    }
+
+    private Waiting next() {
+        boolean anyTriggered = waitingByHost.values().stream().flatMap(List::stream).anyMatch(update -> update.triggered);
+        Waiting next = null;
+        int runningForNextHost = Integer.MAX_VALUE;
+        for (Map.Entry<String, List<Waiting>> entry : waitingByHost.entrySet()) {
+            int runningForHost = runningByHost.getOrDefault(entry.getKey(), 0);
+            for (Waiting update : entry.getValue()) {
+                if (update.triggered != anyTriggered) {
+                    continue;
+                }
+                if (next == null || runningForHost < runningForNextHost || (runningForHost == runningForNextHost && update.goesBefore(next))) {
+                    next = update;
+                    runningForNextHost = runningForHost;
+                }
+            }
+        }
+        return next;
+    }
+
+    private boolean release(long trackingId) {
+        String host = running.remove(trackingId);
+        if (host == null) {
+            return false;
+        }
+        runningByHost.computeIfPresent(host, (k, count) -> count == 1 ? null : count - 1);
+        return true;
+    }
+
+    private void dispatch(List<Waiting> dispatchable, MaterialUpdateMessage scheduled) {
+        RuntimeException failureOfScheduled = null;
+        for (Waiting update : dispatchable) {
+            try {
+                queue.post(update.message);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    release(update.message.trackingId());
+                }
+                if (update.message == scheduled) {
+                    failureOfScheduled = e;
+                } else {
+                    LOGGER.error("[Material Update] Could not queue update of material {}", update.message.getMaterial(), e);
+                    onDispatchFailure.accept(update.message.getMaterial());
+                }
+            }
+        }
+        if (failureOfScheduled != null) {
+            throw failureOfScheduled;
+        }
+    }
+
+    static String hostOf(Material material) {
+        String uri = material.getUriForDisplay();
+        if (uri == null) {
+            return "";
+        }
+        try {
+            String host = new URI(uri).getHost();
+            if (host != null) {
+                return host.toLowerCase();
+            }
+        } catch (URISyntaxException ignored) {
+        }
+        Matcher scpLike = SCP_LIKE_URL.matcher(uri);
+        return scpLike.find() ? scpLike.group(1).toLowerCase() : uri;
+    }
+
+    private static class Waiting {
+        private final MaterialUpdateMessage message;
+        private final String host;
+        private final long cost;
+        private final long queuedAt;
+        private boolean triggered;
+
+        private Waiting(MaterialUpdateMessage message, String host, long cost, long queuedAt, boolean triggered) {
+            this.message = message;
+            this.host = host;
+            this.cost = cost;
+            this.queuedAt = queuedAt;
+            this.triggered = triggered;
+        }
+
+        private boolean goesBefore(Waiting other) {
+            return cost < other.cost || (cost == other.cost && queuedAt < other.queuedAt);
+        }
+    }
+}
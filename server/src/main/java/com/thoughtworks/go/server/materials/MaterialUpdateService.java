@@ -18,9 +18,7 @@ package com.thoughtworks.go.server.materials;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.GoConfigWatchList;
 import com.thoughtworks.go.config.PipelineConfig;
-import com.thoughtworks.go.config.materials.PluggableSCMMaterial;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterial;
-import com.thoughtworks.go.config.materials.git.GitMaterial;
 import com.thoughtworks.go.config.materials.svn.SvnMaterial;
 import com.thoughtworks.go.domain.materials.Material;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
@@ -32,6 +30,7 @@ import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialTyp
 import com.thoughtworks.go.server.materials.postcommit.PostCommitHookMaterialTypeResolver;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.perf.DurationStatistics;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.MaintenanceModeService;
@@ -54,8 +53,6 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.serverhealth.HealthStateType.general;
 import static com.thoughtworks.go.serverhealth.ServerHealthState.warning;
@@ -85,6 +82,10 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     private final MaterialConfigConverter materialConfigConverter;
     private final Set<MaterialSource> materialSources = new HashSet<>();
     private final Set<MaterialUpdateCompleteListener> materialUpdateCompleteListeners = new HashSet<>();
+    private final PostCommitMaterialIndex postCommitMaterials;
+    private final ConcurrentMap<Material, Long> pushNotifiedAt = new ConcurrentHashMap<>();
+    private final DurationStatistics pushToMaterialUpdate = new DurationStatistics();
+    private final MaterialUpdateScheduler scheduler;
     public static final String TYPE = "post_commit_hook_material_type";
 
     @Autowired
@@ -108,6 +109,8 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         this.maintenanceModeService = maintenanceModeService;
         this.secretParamResolver = secretParamResolver;
         this.exponentialBackoffService = exponentialBackoffService;
+        this.postCommitMaterials = new PostCommitMaterialIndex(materialConfigConverter);
+        this.scheduler = new MaterialUpdateScheduler(queue, mduPerformanceLogger, systemEnvironment.getNumberOfMaterialCheckListener(), inProgress::remove);
         completed.addListener(this);
     }
 
@@ -134,7 +137,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
                     continue;
                 }
 
-                updateMaterial(material);
+                updateMaterial(material, false);
             }
         }
     }
@@ -173,12 +176,16 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
 
     public boolean updateGitMaterial(String branchName, Collection<String> possibleUrls, List<String> scmNames) {
         final CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
-        Set<Material> allUniquePostCommitSchedulableMaterials = materialConfigConverter.toMaterials(cruiseConfig.getAllUniquePostCommitSchedulableMaterials());
-
-        Predicate<Material> predicate = scmNames.isEmpty() ? new MaterialPredicate(branchName, possibleUrls) : new PluggableScmPredicate(scmNames);
-        Set<Material> allGitMaterials = allUniquePostCommitSchedulableMaterials.stream().filter(predicate).collect(Collectors.toSet());
-
-        allGitMaterials.forEach(MaterialUpdateService.this::updateMaterial);
+        Set<Material> allGitMaterials = scmNames.isEmpty()
+                ? postCommitMaterials.gitMaterialsFor(cruiseConfig, branchName, possibleUrls)
+                : postCommitMaterials.pluggableScmMaterialsFor(cruiseConfig, scmNames);
+
+        long notifiedAt = System.currentTimeMillis();
+        for (Material material : allGitMaterials) {
+            if (updateMaterial(material)) {
+                pushNotifiedAt.putIfAbsent(material, notifiedAt);
+            }
+        }
 
         return !allGitMaterials.isEmpty();
     }
@@ -188,12 +195,16 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     }
 
     public boolean updateMaterial(@NotNull Material material) {
+        return updateMaterial(material, true);
+    }
+
+    private boolean updateMaterial(Material material, boolean triggered) {
         Date inProgressSince = inProgress.putIfAbsent(material, new Date());
         if (inProgressSince == null || !material.isAutoUpdate()) {
             LOGGER.debug("[Material Update] Starting update of material {}", material);
             try {
                 long trackingId = mduPerformanceLogger.materialSentToUpdateQueue(material);
-                queueFor(material).post(new MaterialUpdateMessage(material, trackingId));
+                post(new MaterialUpdateMessage(material, trackingId), triggered);
 
                 return true;
             } catch (RuntimeException e) {
@@ -202,6 +213,9 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
             }
         } else {
             LOGGER.warn("[Material Update] Skipping update of material {} which has been in-progress since {}", material, inProgressSince);
+            if (triggered) {
+                scheduler.prioritise(material);
+            }
             long idleTime = getProcessManager().getIdleTimeFor(new MaterialFingerprintTag(material.getFingerprint()));
             if (idleTime > getMaterialUpdateInActiveTimeoutInMillis()) {
                 HealthStateScope scope = HealthStateScope.forMaterialUpdate(material);
@@ -230,6 +244,8 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     public void onMessage(MaterialUpdateCompletedMessage message) {
         if (message instanceof MaterialUpdateSkippedMessage) {
             inProgress.remove(message.getMaterial());
+            pushNotifiedAt.remove(message.getMaterial());
+            scheduler.completed(message.trackingId());
             return;
         }
 
@@ -237,6 +253,10 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
             LOGGER.debug("[Material Update] Material update completed for material {}", message.getMaterial());
 
             Date addedOn = inProgress.remove(message.getMaterial());
+            Long notifiedAt = pushNotifiedAt.remove(message.getMaterial());
+            if (notifiedAt != null) {
+                pushToMaterialUpdate.record(System.currentTimeMillis() - notifiedAt);
+            }
             serverHealthService.removeByScope(HealthStateScope.forMaterialUpdate(message.getMaterial()));
             if (addedOn == null) {
                 LOGGER.warn("[Material Update] Material {} was not removed from those inProgress. This might result in it's pipelines not getting scheduled. in-progress: {}", message.getMaterial(), inProgress);
@@ -246,6 +266,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
                 listener.onMaterialUpdate(message.getMaterial());
             }
         } finally {
+            scheduler.completed(message.trackingId());
             mduPerformanceLogger.completionMessageForMaterialReceived(message.trackingId(), message.getMaterial());
         }
     }
@@ -254,6 +275,7 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         Set<HealthStateScope> materialScopes = toHealthStateScopes(newCruiseConfig.getAllUniqueMaterials());
         serverHealthService.removeByScopeMatcher(scope -> scope.isForMaterial() && !materialScopes.contains(scope));
+        postCommitMaterials.refresh(newCruiseConfig);
     }
 
     protected EntityConfigChangedListener<PipelineConfig> pipelineConfigChangedListener() {
@@ -282,6 +304,15 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         return TimeUnit.MINUTES.toMillis(systemEnvironment.get(SystemEnvironment.MATERIAL_UPDATE_INACTIVE_TIMEOUT_IN_MINUTES));
     }
 
+    private void post(MaterialUpdateMessage message, boolean triggered) {
+        GoMessageQueue<MaterialUpdateMessage> queue = queueFor(message.getMaterial());
+        if (queue == updateQueue) {
+            scheduler.schedule(message, triggered);
+        } else {
+            queue.post(message);
+        }
+    }
+
     private GoMessageQueue<MaterialUpdateMessage> queueFor(Material material) {
         if (isConfigMaterial(material)) {
             return configUpdateQueue;
@@ -307,34 +338,16 @@ public class MaterialUpdateService implements GoMessageListener<MaterialUpdateCo
         this.materialUpdateCompleteListeners.add(materialUpdateCompleteListener);
     }
 
-    private static class MaterialPredicate implements Predicate<Material> {
-        private final String branchName;
-        private final Set<String> possibleUrls;
-
-        public MaterialPredicate(String branchName, Collection<String> possibleUrls) {
-            this.branchName = branchName;
-            this.possibleUrls = new HashSet<>(possibleUrls);
-        }
-
-        @Override
-        public boolean test(Material material) {
-            return material instanceof GitMaterial &&
-                    ((GitMaterial) material).getBranch().equals(branchName) &&
-                    possibleUrls.contains(((GitMaterial) material).getUrlArgument().withoutCredentials());
-        }
+    public Map<String, Object> pushNotificationStatistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Post-commit materials indexed", postCommitMaterials.size());
+        json.put("Index rebuilds", postCommitMaterials.rebuilds().asJsonCompatibleMap());
+        json.put("Push to material update completion", pushToMaterialUpdate.asJsonCompatibleMap());
+        json.put("Material updates pending after a push", pushNotifiedAt.size());
+        return json;
     }
 
-    private static class PluggableScmPredicate implements Predicate<Material> {
-        private final List<String> scmNames;
-
-        public PluggableScmPredicate(List<String> scmNames) {
-            this.scmNames = scmNames;
-        }
-
-        @Override
-        public boolean test(Material material) {
-            return material instanceof PluggableSCMMaterial &&
-                    scmNames.contains(((PluggableSCMMaterial) material).getScmConfig().getName());
-        }
+    public Map<String, Object> schedulingStatistics() {
+        return scheduler.asJsonCompatibleMap();
     }
 }
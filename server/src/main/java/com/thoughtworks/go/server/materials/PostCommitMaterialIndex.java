@@ -0,0 +1,108 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.materials.PluggableSCMMaterial;
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import com.thoughtworks.go.server.service.MaterialConfigConverter;
+
+import java.util.*;
+
+/**
+ * Understands finding the materials a push notification is about without converting every post-commit material in the
+ * config for each notification. The materials are converted once for each version of the config, and indexed by the
+ * url and branch of git materials and by the name of pluggable SCMs.
+ */
+class PostCommitMaterialIndex {
+    private final MaterialConfigConverter materialConfigConverter;
+    private final DurationStatistics rebuilds = new DurationStatistics();
+    private volatile Index index = new Index(null, Map.of(), Map.of(), 0);
+
+    PostCommitMaterialIndex(MaterialConfigConverter materialConfigConverter) {
+        this.materialConfigConverter = materialConfigConverter;
+    }
+
+    Set<Material> gitMaterialsFor(CruiseConfig cruiseConfig, String branchName, Collection<String> possibleUrls) {
+        Index current = indexOf(cruiseConfig);
+        Set<Material> materials = new HashSet<>();
+        for (String url : possibleUrls) {
+            materials.addAll(current.gitMaterials().getOrDefault(new UrlAndBranch(url, branchName), Set.of()));
+        }
+        return materials;
+    }
+
+    Set<Material> pluggableScmMaterialsFor(CruiseConfig cruiseConfig, Collection<String> scmNames) {
+        Index current = indexOf(cruiseConfig);
+        Set<Material> materials = new HashSet<>();
+        for (String scmName : scmNames) {
+            materials.addAll(current.pluggableScmMaterials().getOrDefault(scmName, Set.of()));
+        }
+        return materials;
+    }
+
+    void refresh(CruiseConfig cruiseConfig) {
+        indexOf(cruiseConfig);
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    DurationStatistics rebuilds() {
+        return rebuilds;
+    }
+
+    private Index indexOf(CruiseConfig cruiseConfig) {
+        Index current = index;
+        if (current.cruiseConfig() == cruiseConfig) {
+            return current;
+        }
+        synchronized (this) {
+            if (index.cruiseConfig() != cruiseConfig) {
+                index = build(cruiseConfig);
+            }
+            return index;
+        }
+    }
+
+    private Index build(CruiseConfig cruiseConfig) {
+        long start = System.currentTimeMillis();
+        Set<Material> materials = materialConfigConverter.toMaterials(cruiseConfig.getAllUniquePostCommitSchedulableMaterials());
+
+        Map<UrlAndBranch, Set<Material>> gitMaterials = new HashMap<>();
+        Map<String, Set<Material>> pluggableScmMaterials = new HashMap<>();
+        for (Material material : materials) {
+            if (material instanceof GitMaterial gitMaterial) {
+                UrlAndBranch key = new UrlAndBranch(gitMaterial.getUrlArgument().withoutCredentials(), gitMaterial.getBranch());
+                gitMaterials.computeIfAbsent(key, k -> new HashSet<>()).add(material);
+            } else if (material instanceof PluggableSCMMaterial scmMaterial) {
+                pluggableScmMaterials.computeIfAbsent(scmMaterial.getScmConfig().getName(), k -> new HashSet<>()).add(material);
+            }
+        }
+        rebuilds.record(System.currentTimeMillis() - start);
+        return new Index(cruiseConfig, gitMaterials, pluggableScmMaterials, materials.size());
+    }
+
+    private record UrlAndBranch(String url, String branch) {
+    }
+
+    private record Index(CruiseConfig cruiseConfig, Map<UrlAndBranch, Set<Material>> gitMaterials,
+                         Map<String, Set<Material>> pluggableScmMaterials, int size) {
+    }
+}
@@ -28,6 +28,8 @@ import com.thoughtworks.go.server.service.AgentRuntimeInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 @Component
 public class BuildRepositoryMessageProducer implements BuildRepositoryRemote {
     private final BuildRepositoryRemoteImpl buildRepository;
@@ -56,6 +58,26 @@ public class BuildRepositoryMessageProducer implements BuildRepositoryRemote {
         return work;
     }
 
+    /**
+     * Holds on to the agent's request for up to the given time until there is work for it.
+     *
+     * @return the work for the agent, or empty if it could not be held on to, in which case {@link #getWork} should be used
+     */
+    public Optional<Work> waitForWork(AgentRuntimeInfo runtimeInfo, long maxWaitMillis) {
+        long startTime = System.currentTimeMillis();
+
+        Optional<Work> work;
+        try {
+            work = workAssignments.waitForWork(runtimeInfo, maxWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+
+        work.ifPresent(assigned -> workAssignmentPerformanceLogger.retrievedWorkForAgent(runtimeInfo, assigned, startTime, System.currentTimeMillis()));
+        return work;
+    }
+
     @Override
     public void reportCurrentStatus(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobState jobState) {
         buildRepository.reportCurrentStatus(agentRuntimeInfo, jobIdentifier, jobState);
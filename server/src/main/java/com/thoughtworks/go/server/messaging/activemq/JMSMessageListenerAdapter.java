@@ -34,16 +34,26 @@ import static com.thoughtworks.go.serverhealth.HealthStateScope.GLOBAL;
 public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageListenerAdapter.class);
 
-    private final MessageConsumer consumer;
+    private final MessageSource<T> source;
     private final GoMessageListener<T> listener;
     private final DaemonThreadStatsCollector daemonThreadStatsCollector;
     private final SystemEnvironment systemEnvironment;
     private final ServerHealthService serverHealthService;
     private final Thread thread;
 
-    private JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+    /**
+     * Understands where a listener gets its next message from. {@link #receive()} blocks until there is a message, and
+     * returns null once the source has been closed.
+     */
+    public interface MessageSource<T extends GoMessage> {
+        T receive() throws JMSException;
+
+        void close() throws JMSException;
+    }
+
+    private JMSMessageListenerAdapter(MessageSource<T> source, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
                                       SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
-        this.consumer = consumer;
+        this.source = source;
         this.listener = listener;
         this.daemonThreadStatsCollector = daemonThreadStatsCollector;
         this.systemEnvironment = systemEnvironment;
@@ -65,20 +75,18 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
     }
 
     public void stop() throws JMSException {
-        consumer.close();
+        source.close();
     }
 
     protected boolean runImpl() {
         try {
-            Message message = consumer.receive();
-            if (message == null) {
+            T object = source.receive();
+            if (object == null) {
                 LOG.debug("Message consumer was closed.");
                 return true;
             }
 
-            ObjectMessage om = (ObjectMessage) message;
             daemonThreadStatsCollector.captureStats(thread.threadId());
-            @SuppressWarnings("unchecked") T object = (T) om.getObject();
             listener.onMessage(object);
         } catch (JMSException e) {
             slowDownAndWarnAboutPossibleProblems(e);
@@ -105,7 +113,27 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
     }
 
     static <T extends GoMessage> JMSMessageListenerAdapter<T> startListening(MessageConsumer consumer, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
-        return new JMSMessageListenerAdapter<>(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        return startListening(objectMessagesFrom(consumer), listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    public static <T extends GoMessage> JMSMessageListenerAdapter<T> startListening(MessageSource<T> source, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        return new JMSMessageListenerAdapter<>(source, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    private static <T extends GoMessage> MessageSource<T> objectMessagesFrom(MessageConsumer consumer) {
+        return new MessageSource<>() {
+            @Override
+            public T receive() throws JMSException {
+                Message message = consumer.receive();
+                @SuppressWarnings("unchecked") T object = message == null ? null : (T) ((ObjectMessage) message).getObject();
+                return object;
+            }
+
+            @Override
+            public void close() throws JMSException {
+                consumer.close();
+            }
+        };
     }
 
     public String listenerThreadName() {
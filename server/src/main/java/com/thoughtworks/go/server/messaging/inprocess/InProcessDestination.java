@@ -0,0 +1,119 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter.MessageSource;
+import com.thoughtworks.go.util.Clock;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Understands holding the messages of one queue, or of one topic subscription, in memory until a consumer takes them.
+ * Consumers compete for messages, which are handed over by reference, and a message whose time to live has passed is
+ * dropped instead of being delivered.
+ */
+class InProcessDestination {
+    // Messages without a time to live are held as they are, so that posting one allocates nothing but the queue node
+    private final BlockingQueue<Object> messages = new LinkedBlockingQueue<>();
+    private final Set<Consumer> consumers = ConcurrentHashMap.newKeySet();
+    private final Clock clock;
+
+    InProcessDestination(Clock clock) {
+        this.clock = clock;
+    }
+
+    void offer(GoMessage message, long timeToLive) {
+        messages.offer(timeToLive > 0 ? new Expiring(message, clock.currentTimeMillis() + timeToLive) : message);
+    }
+
+    MessageSource<GoMessage> newConsumer(Runnable onClose) {
+        Consumer consumer = new Consumer(onClose);
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    void close() {
+        consumers.forEach(Consumer::close);
+        messages.clear();
+    }
+
+    private GoMessage unexpired(Object held) {
+        if (held instanceof Expiring expiring) {
+            return expiring.expiresAt() > clock.currentTimeMillis() ? expiring.message() : null;
+        }
+        return (GoMessage) held;
+    }
+
+    private record Expiring(GoMessage message, long expiresAt) {
+    }
+
+    private class Consumer implements MessageSource<GoMessage> {
+        private final Runnable onClose;
+        private Thread receiving;
+        private boolean closed;
+
+        private Consumer(Runnable onClose) {
+            this.onClose = onClose;
+        }
+
+        @Override
+        public GoMessage receive() {
+            synchronized (this) {
+                if (closed) {
+                    return null;
+                }
+                receiving = Thread.currentThread();
+            }
+            try {
+                while (true) {
+                    GoMessage message = unexpired(messages.take());
+                    if (message != null) {
+                        return message;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return null;
+            } finally {
+                synchronized (this) {
+                    receiving = null;
+                    if (closed) {
+                        // close() may have interrupted this thread just after it took a message; don't let that leak into the listener
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (receiving != null) {
+                    receiving.interrupt();
+                }
+            }
+            consumers.remove(this);
+            onClose.run();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Understands passing messages between the parts of the server on in-memory queues and topics. Unlike the embedded
+ * broker, messages are never serialized: the sender and every listener share the very object that was posted, so
+ * neither the message nor anything it refers to (materials, modifications, ...) may be changed once it has been
+ * posted. A listener that needs a changed version, e.g. a material with its secrets resolved, works on its own copy.
+ */
+public class InProcessMessagingService implements MessagingService<GoMessage> {
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final SystemEnvironment systemEnvironment;
+    private final ServerHealthService serverHealthService;
+    private final Clock clock;
+    private final ConcurrentMap<String, InProcessDestination> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<InProcessDestination>> topics = new ConcurrentHashMap<>();
+
+    public InProcessMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, Clock clock) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.systemEnvironment = systemEnvironment;
+        this.serverHealthService = serverHealthService;
+        this.clock = clock;
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        List<InProcessDestination> subscriptions = subscriptionsTo(topic);
+        return new MessageSender() {
+            @Override
+            public void sendMessage(GoMessage goMessage) {
+                sendMessage(goMessage, 0);
+            }
+
+            @Override
+            public void sendMessage(GoMessage goMessage, long timeToLive) {
+                for (InProcessDestination subscription : subscriptions) {
+                    subscription.offer(goMessage, timeToLive);
+                }
+            }
+        };
+    }
+
+    @Override
+    public JMSMessageListenerAdapter<GoMessage> addListener(String topic, GoMessageListener<GoMessage> listener) {
+        List<InProcessDestination> subscriptions = subscriptionsTo(topic);
+        InProcessDestination subscription = new InProcessDestination(clock);
+        subscriptions.add(subscription);
+        return startListening(subscription.newConsumer(() -> subscriptions.remove(subscription)), listener);
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        // The queue is looked up on every send, as it is created again after it has been removed, like a broker would
+        return new MessageSender() {
+            @Override
+            public void sendMessage(GoMessage goMessage) {
+                sendMessage(goMessage, 0);
+            }
+
+            @Override
+            public void sendMessage(GoMessage goMessage, long timeToLive) {
+                queue(queueName).offer(goMessage, timeToLive);
+            }
+        };
+    }
+
+    @Override
+    public JMSMessageListenerAdapter<GoMessage> addQueueListener(String queueName, GoMessageListener<GoMessage> listener) {
+        return startListening(queue(queueName).newConsumer(() -> {}), listener);
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        InProcessDestination queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void stop() {
+        queues.keySet().forEach(this::removeQueue);
+        topics.values().forEach(subscriptions -> subscriptions.forEach(InProcessDestination::close));
+    }
+
+    private InProcessDestination queue(String queueName) {
+        return queues.computeIfAbsent(queueName, name -> new InProcessDestination(clock));
+    }
+
+    private List<InProcessDestination> subscriptionsTo(String topic) {
+        return topics.computeIfAbsent(topic, name -> new CopyOnWriteArrayList<>());
+    }
+
+    private JMSMessageListenerAdapter<GoMessage> startListening(JMSMessageListenerAdapter.MessageSource<GoMessage> source, GoMessageListener<GoMessage> listener) {
+        return JMSMessageListenerAdapter.startListening(source, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.notifications;
+
+import com.thoughtworks.go.util.Clock;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Understands the notifications waiting to be sent to one plugin. A notification replaces one with the same coalescing
+ * key that is still waiting, so that an agent which changes status many times before the plugin catches up is reported
+ * once, with its latest status. Notifications whose time to live has passed are dropped instead of being sent.
+ */
+class PendingNotifications {
+    private final Clock clock;
+    private final Map<Object, Pending> pending = new LinkedHashMap<>();
+    private long sequence;
+
+    PendingNotifications(Clock clock) {
+        this.clock = clock;
+    }
+
+    synchronized void add(PluginNotificationMessage<?> message, long timeToLive) {
+        Object key = message.coalescingKey() == null ? sequence++ : message.coalescingKey();
+        pending.put(key, new Pending(message, timeToLive > 0 ? clock.currentTimeMillis() + timeToLive : Long.MAX_VALUE));
+    }
+
+    synchronized List<PluginNotificationMessage<?>> take(int max) {
+        long now = clock.currentTimeMillis();
+        List<PluginNotificationMessage<?>> taken = new ArrayList<>(Math.min(max, pending.size()));
+        for (Iterator<Pending> iterator = pending.values().iterator(); iterator.hasNext() && taken.size() < max; ) {
+            Pending next = iterator.next();
+            iterator.remove();
+            if (next.expiresAt() > now) {
+                taken.add(next.message());
+            }
+        }
+        return taken;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    private record Pending(PluginNotificationMessage<?> message, long expiresAt) {
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.messaging.notifications;
 
+import com.thoughtworks.go.plugin.access.notification.NotificationRequest;
 import com.thoughtworks.go.server.messaging.PluginAwareMessage;
 
 import java.io.Serializable;
@@ -22,21 +23,39 @@ import java.util.Objects;
 
 public class PluginNotificationMessage<T extends Serializable> implements PluginAwareMessage {
     private String pluginId;
-    private final String requestName;
-    private final T data;
+    private final NotificationRequest request;
+    private final String coalescingKey;
 
     public PluginNotificationMessage(String pluginId, String requestName, T data) {
+        this(pluginId, new NotificationRequest(requestName, data), null);
+    }
+
+    /**
+     * @param request       shared by the messages that send the same notification to different plugins
+     * @param coalescingKey a notification still waiting to be sent is dropped when one with the same key comes after it;
+     *                      null for notifications that must all be sent
+     */
+    PluginNotificationMessage(String pluginId, NotificationRequest request, String coalescingKey) {
         this.pluginId = pluginId;
-        this.requestName = requestName;
-        this.data = data;
+        this.request = request;
+        this.coalescingKey = coalescingKey;
     }
 
     public String getRequestName() {
-        return requestName;
+        return request.name();
     }
 
+    @SuppressWarnings("unchecked")
     public T getData() {
-        return data;
+        return (T) request.data();
+    }
+
+    public NotificationRequest getRequest() {
+        return request;
+    }
+
+    String coalescingKey() {
+        return coalescingKey;
     }
 
     @Override
@@ -49,14 +68,14 @@ public class PluginNotificationMessage<T extends Serializable> implements Plugin
         }
         PluginNotificationMessage<?> that = (PluginNotificationMessage<?>) o;
         return Objects.equals(pluginId, that.pluginId) &&
-                Objects.equals(requestName, that.requestName) &&
-                Objects.equals(data, that.data);
+                Objects.equals(getRequestName(), that.getRequestName()) &&
+                Objects.equals(getData(), that.getData());
     }
 
     @Override
     public int hashCode() {
 
-        return Objects.hash(pluginId, requestName, data);
+        return Objects.hash(pluginId, getRequestName(), getData());
     }
 
     @Override
@@ -68,8 +87,8 @@ public class PluginNotificationMessage<T extends Serializable> implements Plugin
     public String toString() {
         return "PluginNotificationMessage{" +
                 "pluginId='" + pluginId + '\'' +
-                ", requestName='" + requestName + '\'' +
-                ", data=" + data +
+                ", requestName='" + getRequestName() + '\'' +
+                ", data=" + getData() +
                 '}';
     }
 }
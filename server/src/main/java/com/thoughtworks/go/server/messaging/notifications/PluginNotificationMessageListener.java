@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.messaging.notifications;
 
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
+import com.thoughtworks.go.plugin.access.notification.NotificationPluginRegistry;
 import com.thoughtworks.go.plugin.api.response.Result;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
@@ -25,31 +26,56 @@ import com.thoughtworks.go.serverhealth.ServerHealthState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
+import static com.thoughtworks.go.plugin.access.notification.NotificationExtension.BATCH_NOTIFICATION;
 import static java.lang.String.join;
 
+/**
+ * Understands sending the notifications waiting for a plugin. Every message posted for the plugin wakes a listener up,
+ * which then sends whatever is waiting by then: one notification at a time, or as many as a batch can hold when the
+ * plugin is interested in {@link NotificationExtension#BATCH_NOTIFICATION}. A message can find nothing left to send,
+ * because another listener has already sent it or because it was superseded or has expired.
+ */
 public class PluginNotificationMessageListener implements GoMessageListener<PluginNotificationMessage<?>> {
     private static final Logger LOGGER = LoggerFactory.getLogger(PluginNotificationMessageListener.class);
     private final NotificationExtension notificationExtension;
+    private final NotificationPluginRegistry notificationPluginRegistry;
     private final ServerHealthService serverHealthService;
+    private final PendingNotifications pendingNotifications;
+    private final int batchSize;
 
-    public PluginNotificationMessageListener(NotificationExtension notificationExtension, ServerHealthService serverHealthService) {
+    public PluginNotificationMessageListener(NotificationExtension notificationExtension, NotificationPluginRegistry notificationPluginRegistry,
+                                             ServerHealthService serverHealthService, PendingNotifications pendingNotifications, int batchSize) {
         this.notificationExtension = notificationExtension;
+        this.notificationPluginRegistry = notificationPluginRegistry;
         this.serverHealthService = serverHealthService;
+        this.pendingNotifications = pendingNotifications;
+        this.batchSize = batchSize;
     }
 
     @Override
     public void onMessage(PluginNotificationMessage<?> message) {
+        boolean batched = notificationPluginRegistry.getPluginsInterestedIn(BATCH_NOTIFICATION).contains(message.pluginId());
+        List<PluginNotificationMessage<?>> messages = pendingNotifications.take(batched ? batchSize : 1);
+        if (messages.isEmpty()) {
+            LOGGER.debug("Nothing left to send to plugin {} when woken up by {}", message.pluginId(), message);
+            return;
+        }
+
         HealthStateScope scope = HealthStateScope.aboutPlugin(message.pluginId());
         try {
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Sending {} notification message {} for plugin {}", message.getRequestName(), message, message.pluginId());
+                LOGGER.debug("Sending notification messages {} for plugin {}", messages, message.pluginId());
             }
-            Result result = notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData());
+            Result result = messages.size() == 1
+                ? notificationExtension.notify(message.pluginId(), messages.getFirst().getRequest())
+                : notificationExtension.notifyBatch(message.pluginId(), messages.stream().map(PluginNotificationMessage::getRequest).toList());
 
             if (result.isSuccessful()) {
                 serverHealthService.removeByScope(scope);
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Successfully sent {} notification message {} for plugin {}", message.getRequestName(), message, message.pluginId());
+                    LOGGER.debug("Successfully sent notification messages {} for plugin {}", messages, message.pluginId());
                 }
             } else {
                 String errorDescription = result.getMessages() == null ? null : join(", ", result.getMessages());
@@ -25,6 +25,7 @@ import com.thoughtworks.go.domain.notificationdata.AgentNotificationData;
 import com.thoughtworks.go.domain.notificationdata.StageNotificationData;
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
 import com.thoughtworks.go.plugin.access.notification.NotificationPluginRegistry;
+import com.thoughtworks.go.plugin.access.notification.NotificationRequest;
 import com.thoughtworks.go.server.dao.PipelineDao;
 import com.thoughtworks.go.server.dao.StageDao;
 import com.thoughtworks.go.server.service.GoConfigService;
@@ -66,19 +67,24 @@ public class PluginNotificationService {
     }
 
     public void notifyAgentStatus(AgentInstance agentInstance) {
-        notify(NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, agentInstance);
+        // Only the latest status of an agent is worth sending, so it replaces any earlier one still waiting to be sent
+        notify(NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, agentInstance, agentInstance.getUuid());
     }
 
     public void notifyStageStatus(Stage stage) {
-        notify(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, stage);
+        notify(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION, stage, null);
     }
 
-    private void notify(String requestName, Object instance) {
+    private void notify(String requestName, Object instance, String coalescingKey) {
         Set<String> interestedPlugins = notificationPluginRegistry.getPluginsInterestedIn(requestName);
+        if (interestedPlugins.isEmpty()) {
+            return;
+        }
         long timeToLive = systemEnvironment.get(NOTIFICATION_PLUGIN_MESSAGES_TTL_IN_MILLIS);
+        @SuppressWarnings("unchecked") Serializable data = ((NotificationDataCreator<Object, ?>) notificationCreators.get(requestName)).notificationDataFor(instance);
+        NotificationRequest request = new NotificationRequest(requestName, data);
         for (String pluginId : interestedPlugins) {
-            @SuppressWarnings("unchecked") PluginNotificationMessage<?> message = new PluginNotificationMessage<>(pluginId, requestName, ((NotificationDataCreator<Object, ?>) notificationCreators.get(requestName)).notificationDataFor(instance));
-            pluginNotificationsQueueHandler.post(message, timeToLive);
+            pluginNotificationsQueueHandler.post(new PluginNotificationMessage<>(pluginId, request, coalescingKey), timeToLive);
         }
     }
 
@@ -16,40 +16,75 @@
 package com.thoughtworks.go.server.messaging.notifications;
 
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
+import com.thoughtworks.go.plugin.access.notification.NotificationPluginRegistry;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
 import com.thoughtworks.go.server.messaging.*;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.SystemTimeClock;
 import org.jetbrains.annotations.TestOnly;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class PluginNotificationsQueueHandler extends PluginAwareMessageQueueHandler<PluginNotificationMessage<?>> {
     private final static String QUEUE_NAME_PREFIX = PluginNotificationsQueueHandler.class.getSimpleName() + ".";
+    private final Map<String, PendingNotifications> pendingNotifications;
 
     @Autowired
-    public PluginNotificationsQueueHandler(final MessagingService<GoMessage> messaging, NotificationExtension notificationExtension,
+    public PluginNotificationsQueueHandler(final MessagingService<GoMessage> messaging, NotificationExtension notificationExtension, NotificationPluginRegistry notificationPluginRegistry,
         PluginManager pluginManager, final SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        this(messaging, notificationExtension, notificationPluginRegistry, pluginManager, systemEnvironment, serverHealthService, new ConcurrentHashMap<>());
+    }
+
+    private PluginNotificationsQueueHandler(final MessagingService<GoMessage> messaging, NotificationExtension notificationExtension, NotificationPluginRegistry notificationPluginRegistry,
+        PluginManager pluginManager, final SystemEnvironment systemEnvironment, ServerHealthService serverHealthService, Map<String, PendingNotifications> pendingNotifications) {
         super(notificationExtension, messaging, pluginManager, new QueueFactory<PluginNotificationMessage<?>>() {
             @Override
             public PluginAwareMessageQueue<PluginNotificationMessage<?>> create(GoPluginDescriptor pluginDescriptor) {
+                PendingNotifications pending = pendingNotifications.computeIfAbsent(pluginDescriptor.id(), id -> new PendingNotifications(new SystemTimeClock()));
                 return new PluginAwareMessageQueue<>(messaging,
                     QUEUE_NAME_PREFIX + pluginDescriptor.id(),
-                    systemEnvironment.getNotificationListenerCountForPlugin(pluginDescriptor.id()), listener());
+                    systemEnvironment.getNotificationListenerCountForPlugin(pluginDescriptor.id()), listener(pending));
             }
 
-            public ListenerFactory<PluginNotificationMessage<?>> listener() {
-                return () -> new PluginNotificationMessageListener(notificationExtension, serverHealthService);
+            public ListenerFactory<PluginNotificationMessage<?>> listener(PendingNotifications pending) {
+                return () -> new PluginNotificationMessageListener(notificationExtension, notificationPluginRegistry, serverHealthService, pending,
+                    systemEnvironment.getNotificationPluginBatchSize());
             }
         });
+        this.pendingNotifications = pendingNotifications;
+    }
+
+    @Override
+    public void post(PluginNotificationMessage<?> message, long timeToLive) {
+        PendingNotifications pending = pendingNotifications.get(message.pluginId());
+        if (pending != null) {
+            pending.add(message, timeToLive);
+        }
+        super.post(message, timeToLive);
+    }
+
+    @Override
+    public void pluginUnLoaded(GoPluginDescriptor pluginDescriptor) {
+        try {
+            super.pluginUnLoaded(pluginDescriptor);
+        } finally {
+            pendingNotifications.remove(pluginDescriptor.id());
+        }
     }
 
     @TestOnly
     Map<String, PluginAwareMessageQueue<PluginNotificationMessage<?>>> getQueues() {
         return queues;
     }
+
+    @TestOnly
+    PendingNotifications getPendingNotifications(String pluginId) {
+        return pendingNotifications.get(pluginId);
+    }
 }
@@ -21,11 +21,14 @@ import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.messaging.GoMessageChannel;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.server.util.KeyedLocks;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Optional;
+import java.util.concurrent.*;
 
 @Service
 public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
@@ -33,11 +36,24 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
     private ConcurrentMap<AgentIdentifier, Work> assignments;
     private static final NoWork NO_WORK = new NoWork();
 
+    private final WorkDispatchStatistics statistics;
+    private final SystemEnvironment systemEnvironment;
+    private final ConcurrentMap<AgentIdentifier, WaitingAgent> waitingAgents = new ConcurrentHashMap<>();
+    private final Semaphore waitingAgentPermits;
+    private final KeyedLocks agentLocks = new KeyedLocks();
+
     @Autowired
     public WorkAssignments(IdleAgentTopic idleAgentsTopic,
-                           WorkAssignedTopic assignedWorkTopic) {
+                           WorkAssignedTopic assignedWorkTopic,
+                           BuildAssignmentService buildAssignmentService,
+                           WorkDispatchStatistics statistics,
+                           SystemEnvironment systemEnvironment) {
         this.idleAgentsTopic = idleAgentsTopic;
+        this.statistics = statistics;
+        this.systemEnvironment = systemEnvironment;
+        this.waitingAgentPermits = new Semaphore(systemEnvironment.getAgentWorkMaxWaitingAgents());
         assignedWorkTopic.addListener(this);
+        buildAssignmentService.registerJobsQueuedListener(this::lookForWorkForWaitingAgents);
         this.assignments = new ConcurrentHashMap<>();
     }
 
@@ -55,12 +71,84 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
                 return work;
             }
 
-            return assignments.remove(agent);
+            return handOver(assignments.remove(agent));
+        }
+    }
+
+    /**
+     * Like {@link #getWork(AgentRuntimeInfo)}, but holds on to the request until work is assigned to the agent or the
+     * wait is over, rather than having the agent poll again. Jobs scheduled while the agent waits are offered to it
+     * straight away.
+     *
+     * @return the work assigned to the agent, or empty if too many agents are already waiting, in which case the agent
+     * should be answered straight away. Each waiting agent ties up a request thread, so no agent is allowed to wait
+     * unless go.agent.work.max.waiting.agents is set.
+     */
+    public Optional<Work> waitForWork(AgentRuntimeInfo runtimeInfo, long maxWaitMillis) throws InterruptedException {
+        if (!waitingAgentPermits.tryAcquire()) {
+            return Optional.empty();
+        }
+
+        AgentIdentifier agent = runtimeInfo.getIdentifier();
+        WaitingAgent waitingAgent = new WaitingAgent(runtimeInfo);
+        synchronized (agentMutex(agent)) {
+            WaitingAgent previous = waitingAgents.put(agent, waitingAgent);
+            if (previous != null) {
+                // The agent gave up on an earlier request; let it go empty-handed, as nobody is listening for its answer
+                previous.supersede();
+            }
+        }
+        try {
+            Work work = getWork(runtimeInfo);
+            if (!(work instanceof NoWork)) {
+                return Optional.of(work);
+            }
+
+            waitingAgent.await(Math.min(maxWaitMillis, systemEnvironment.getAgentWorkMaxWait()));
+            return Optional.of(takeAssignedWork(waitingAgent));
+        } finally {
+            waitingAgents.remove(agent, waitingAgent);
+            waitingAgentPermits.release();
         }
     }
 
-    private String agentMutex(AgentIdentifier agent) {
-        return agent.getUuid().intern();
+    public int numberOfWaitingAgents() {
+        return waitingAgents.size();
+    }
+
+    private Work takeAssignedWork(WaitingAgent waitingAgent) {
+        AgentIdentifier agent = waitingAgent.runtimeInfo.getIdentifier();
+        synchronized (agentMutex(agent)) {
+            if (waitingAgent.superseded) {
+                return NO_WORK;
+            }
+            Work work = assignments.get(agent);
+            if (work == null || work instanceof NoWork) {
+                return NO_WORK;
+            }
+            return handOver(assignments.remove(agent));
+        }
+    }
+
+    private Work handOver(Work work) {
+        statistics.agentNotified(work);
+        return work;
+    }
+
+    private void lookForWorkForWaitingAgents() {
+        for (WaitingAgent waitingAgent : waitingAgents.values()) {
+            AgentIdentifier agent = waitingAgent.runtimeInfo.getIdentifier();
+            synchronized (agentMutex(agent)) {
+                // Agents that are already being looked at will be given the new job if it is a match
+                if (assignments.putIfAbsent(agent, NO_WORK) == null) {
+                    idleAgentsTopic.post(new IdleAgentMessage(waitingAgent.runtimeInfo));
+                }
+            }
+        }
+    }
+
+    private Object agentMutex(AgentIdentifier agent) {
+        return agentLocks.lockFor(agent.getUuid());
     }
 
     @Override
@@ -75,7 +163,34 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
             synchronized (agentMutex(agentIdentifier)) {
                 assignments.replace(agentIdentifier, NO_WORK, work);
             }
+            WaitingAgent waitingAgent = waitingAgents.get(agentIdentifier);
+            if (waitingAgent != null) {
+                waitingAgent.wakeUp();
+            }
         }
     }
 
+    private static class WaitingAgent {
+        private final AgentRuntimeInfo runtimeInfo;
+        private final CountDownLatch workAssigned = new CountDownLatch(1);
+        private boolean superseded;
+
+        WaitingAgent(AgentRuntimeInfo runtimeInfo) {
+            this.runtimeInfo = runtimeInfo;
+        }
+
+        void await(long maxWaitMillis) throws InterruptedException {
+            workAssigned.await(maxWaitMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void wakeUp() {
+            workAssigned.countDown();
+        }
+
+        // Called holding the agent's mutex, so that the superseded request can't take work meant for the newer one
+        void supersede() {
+            superseded = true;
+            wakeUp();
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.scheduling;
+
+import com.thoughtworks.go.domain.JobInstance;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.remote.work.BuildWork;
+import com.thoughtworks.go.remote.work.Work;
+import com.thoughtworks.go.server.domain.JobStatusListener;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import com.thoughtworks.go.server.service.JobInstanceService;
+import com.thoughtworks.go.util.TimeProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Understands how long jobs wait between being scheduled and an agent being handed them.
+ */
+@Component
+public class WorkDispatchStatistics implements JobStatusListener {
+    private final JobInstanceService jobInstanceService;
+    private final TimeProvider timeProvider;
+    private final Map<Long, Long> scheduledTimeByJobId = new ConcurrentHashMap<>();
+    private final DurationStatistics scheduledToAgentNotified = new DurationStatistics();
+
+    @Autowired
+    public WorkDispatchStatistics(JobInstanceService jobInstanceService, TimeProvider timeProvider) {
+        this.jobInstanceService = jobInstanceService;
+        this.timeProvider = timeProvider;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jobInstanceService.registerJobStateChangeListener(this);
+    }
+
+    @Override
+    public void jobStatusChanged(JobInstance job) {
+        if (job.getState() == JobState.Scheduled) {
+            scheduledTimeByJobId.put(job.getId(), job.getScheduledDate() == null ? timeProvider.currentTimeMillis() : job.getScheduledDate().getTime());
+        } else if (job.getState() != JobState.Assigned) {
+            // Agents report building once they have been handed the job, so anything past assigned will never be handed out
+            scheduledTimeByJobId.remove(job.getId());
+        }
+    }
+
+    public void agentNotified(Work work) {
+        if (work instanceof BuildWork buildWork) {
+            Long scheduledTime = scheduledTimeByJobId.remove(buildWork.getAssignment().getJobIdentifier().getBuildId());
+            if (scheduledTime != null) {
+                scheduledToAgentNotified.record(timeProvider.currentTimeMillis() - scheduledTime);
+            }
+        }
+    }
+
+    public DurationStatistics scheduledToAgentNotified() {
+        return scheduledToAgentNotified;
+    }
+}
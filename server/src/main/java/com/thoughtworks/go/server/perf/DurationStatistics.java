@@ -0,0 +1,65 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.perf;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Understands keeping running totals of how long something took, cheaply enough to be updated on hot paths.
+ */
+public class DurationStatistics {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+    private final AtomicLong lastMillis = new AtomicLong();
+
+    public void record(long millis) {
+        long duration = Math.max(0, millis);
+        count.increment();
+        totalMillis.add(duration);
+        maxMillis.accumulateAndGet(duration, Math::max);
+        lastMillis.set(duration);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long averageMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0 : totalMillis.sum() / samples;
+    }
+
+    public long maxMillis() {
+        return maxMillis.get();
+    }
+
+    public long lastMillis() {
+        return lastMillis.get();
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Count", count());
+        json.put("Average (ms)", averageMillis());
+        json.put("Max (ms)", maxMillis());
+        json.put("Last (ms)", lastMillis());
+        return json;
+    }
+}
@@ -20,12 +20,16 @@ import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class MDUPerformanceLogger {
     private final Logger performanceLogger;
     private final AtomicLong currentTrackingId = new AtomicLong(0);
+    private final ConcurrentMap<Long, Long> startedAt = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> costByFingerprint = new ConcurrentHashMap<>();
 
     @Autowired
     public MDUPerformanceLogger(PerformanceLogger performanceLogger) {
@@ -41,18 +45,21 @@ public class MDUPerformanceLogger {
     }
 
     public void pickedUpMaterialForMDU(long trackingId, Material material) {
+        startedAt.put(trackingId, System.currentTimeMillis());
         if (performanceLogger.isDebugEnabled()) {
             performanceLogger.debug("MDU-START {} {} {}", trackingId, material.getFingerprint(), material.getDisplayName());
         }
     }
 
     public void postingMessageAboutMDUCompletion(long trackingId, Material material) {
+        recordCost(trackingId, material);
         if (performanceLogger.isDebugEnabled()) {
             performanceLogger.debug("MDU-DONE {} {} {}", trackingId, material.getFingerprint(), material.getDisplayName());
         }
     }
 
     public void postingMessageAboutMDUFailure(long trackingId, Material material) {
+        recordCost(trackingId, material);
         if (performanceLogger.isDebugEnabled()) {
             performanceLogger.debug("MDU-FAIL {} {} {}", trackingId, material.getFingerprint(), material.getDisplayName());
         }
@@ -64,4 +71,18 @@ public class MDUPerformanceLogger {
         }
     }
 
+    /**
+     * @return how long updating this material has taken lately, or 0 if it has not been updated yet
+     */
+    public long estimatedCostInMillis(Material material) {
+        return costByFingerprint.getOrDefault(material.getFingerprint(), 0L);
+    }
+
+    private void recordCost(long trackingId, Material material) {
+        Long start = startedAt.remove(trackingId);
+        if (start != null) {
+            long duration = System.currentTimeMillis() - start;
+            costByFingerprint.merge(material.getFingerprint(), duration, (previous, latest) -> (previous + latest) / 2);
+        }
+    }
 }
@@ -23,6 +23,7 @@ import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.domain.materials.*;
 import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialInstance;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.dao.FeedModifier;
 import com.thoughtworks.go.server.database.Database;
@@ -71,6 +72,7 @@ public class MaterialRepository extends HibernateDaoSupport {
     private static final Logger LOGGER = LoggerFactory.getLogger(MaterialRepository.class.getName());
     private static final int BATCH_SIZE_NUM_PIPELINES_TO_GET_PIPELINE_MATERIAL_REVISIONS = 500;
     private static final int BATCH_SIZE_NUM_PIPELINE_MATERIAL_REVISION_To_GET_MODIFICATIONS = 100;
+    private static final int MIN_ROWS_TO_INSERT_IN_BATCHES = 50;
 
     private final GoCache goCache;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
@@ -79,6 +81,8 @@ public class MaterialRepository extends HibernateDaoSupport {
     private final CacheKeyGenerator cacheKeyGenerator;
     private final int latestModificationsCacheLimit;
     private final MaterialExpansionService materialExpansionService;
+    private final CacheRegion<ModificationWithRevisionKey, Modification> modificationsWithRevision;
+    private final CacheRegion<LatestPmrForPipelineKey, Long> latestPmrForPipelines;
 
     @Autowired
     public MaterialRepository(SessionFactory sessionFactory,
@@ -96,6 +100,8 @@ public class MaterialRepository extends HibernateDaoSupport {
         this.queryExtensions = databaseStrategy.getQueryExtensions();
         setSessionFactory(sessionFactory);
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
+        this.modificationsWithRevision = CacheRegion.create(goCache, "modificationsWithRevision", 20_000);
+        this.latestPmrForPipelines = CacheRegion.create(goCache, "latestPmrForPipelines", 20_000);
     }
 
     @SuppressWarnings("unchecked")
@@ -352,7 +358,7 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     private String pipelinePmrsKey(long pipelineId) {
-        return (MaterialRepository.class.getName() + "_pipelinePMRs_" + pipelineId).intern();
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_pipelinePMRs_" + pipelineId);
     }
 
     @SuppressWarnings("unchecked")
@@ -379,8 +385,8 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     private String pmrModificationsKey(PipelineMaterialRevision pmr) {
-        // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_pmrModifications_" + pmr.getId()).intern();
+        // canonical because we might synchronize on the returned String
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_pmrModifications_" + pmr.getId());
     }
 
     private List<String> pmrModificationsKey(Modification modification, List<PipelineMaterialRevision> pmrs) {
@@ -400,18 +406,18 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     String latestMaterialModificationsKey(MaterialInstance materialInstance) {
-        // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_latestMaterialModifications_" + materialInstance.getId()).intern();
+        // canonical because we might synchronize on the returned String
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_latestMaterialModifications_" + materialInstance.getId());
     }
 
     String materialModificationCountKey(MaterialInstance materialInstance) {
-        // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_materialModificationCount_" + materialInstance.getId()).intern();
+        // canonical because we might synchronize on the returned String
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_materialModificationCount_" + materialInstance.getId());
     }
 
     String materialModificationsWithPaginationKey(MaterialInstance materialInstance) {
-        // we intern() it because we might synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_materialModificationsWithPagination_" + materialInstance.getId()).intern();
+        // canonical because we might synchronize on the returned String
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_materialModificationsWithPagination_" + materialInstance.getId());
     }
 
     String materialModificationsWithPaginationSubKey(Pagination pagination) {
@@ -471,8 +477,8 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     private @NotNull String materialKey(String fingerprint) {
-        // we intern() it because we synchronize on the returned String
-        return (MaterialRepository.class.getName() + "_materialInstance_" + fingerprint).intern();
+        // canonical because we synchronize on the returned String
+        return CacheKeyGenerator.canonical(MaterialRepository.class.getName() + "_materialInstance_" + fingerprint);
     }
 
     public MaterialInstance findMaterialInstance(@NotNull Material material) {
@@ -599,10 +605,7 @@ public class MaterialRepository extends HibernateDaoSupport {
         transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
             @Override
             public void afterCommit() {
-                String key = cacheKeyForLatestPmrForPipelineKey(pipelineMaterialRevision.getMaterialId(), pipelineName.toLowerCase());
-                synchronized (key) {
-                    goCache.remove(key);
-                }
+                latestPmrForPipelines.remove(new LatestPmrForPipelineKey(pipelineMaterialRevision.getMaterialId(), pipelineName.toLowerCase()));
             }
         });
     }
@@ -752,8 +755,12 @@ public class MaterialRepository extends HibernateDaoSupport {
 
         try {
             checkAndRemoveDuplicates(materialInstance, newChanges, list);
-            for (Modification modification : list) {
-                getHibernateTemplate().saveOrUpdate(modification);
+            if (rowsToInsert(list) >= MIN_ROWS_TO_INSERT_IN_BATCHES) {
+                insertInBatches(materialInstance, list);
+            } else {
+                for (Modification modification : list) {
+                    getHibernateTemplate().saveOrUpdate(modification);
+                }
             }
         } catch (Exception e) {
             String message = "Cannot save modification: ";
@@ -765,6 +772,24 @@ public class MaterialRepository extends HibernateDaoSupport {
         removeCachedModificationsFor(materialInstance);
     }
 
+    // A single commit can touch tens of thousands of files, each of which is a row of its own
+    private static long rowsToInsert(List<Modification> modifications) {
+        long rows = modifications.size();
+        for (Modification modification : modifications) {
+            rows += modification.getModifiedFiles().size();
+        }
+        return rows;
+    }
+
+    private void insertInBatches(MaterialInstance materialInstance, List<Modification> modifications) {
+        ModificationBatchInserter inserter = new ModificationBatchInserter(new SystemEnvironment().getModificationsBatchInsertSize());
+        getHibernateTemplate().execute(session -> {
+            session.flush();
+            session.doWork(connection -> inserter.insert(connection, materialInstance.getId(), modifications));
+            return null;
+        });
+    }
+
     private void checkAndRemoveDuplicates(MaterialInstance materialInstance,
                                           List<Modification> newChanges,
                                           List<Modification> list) {
@@ -809,22 +834,12 @@ public class MaterialRepository extends HibernateDaoSupport {
     }
 
     Modification findModificationWithRevision(Session session, long materialId, String revision) {
-        Modification modification;
-        String key = cacheKeyForModificationWithRevision(materialId, revision);
-        modification = goCache.get(key);
-        if (modification == null) {
-            synchronized (key) {
-                modification = goCache.get(key);
-                if (modification == null) {
-                    Query query = session.createQuery("FROM Modification WHERE materialId = ? and revision = ? ORDER BY id DESC");
-                    query.setLong(0, materialId);
-                    query.setString(1, revision);
-                    modification = (Modification) query.uniqueResult();
-                    goCache.put(key, modification);
-                }
-            }
-        }
-        return modification;
+        return modificationsWithRevision.get(new ModificationWithRevisionKey(materialId, revision), key -> {
+            Query query = session.createQuery("FROM Modification WHERE materialId = ? and revision = ? ORDER BY id DESC");
+            query.setLong(0, materialId);
+            query.setString(1, revision);
+            return (Modification) query.uniqueResult();
+        });
     }
 
     public MaterialRevisions findLatestRevisions(MaterialConfigs materialConfigs) {
@@ -977,40 +992,21 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     public Long latestModificationRunByPipeline(final CaseInsensitiveString pipelineName, final Material material) {
         final long materialId = findMaterialInstance(material).getId();
-        String key = cacheKeyForLatestPmrForPipelineKey(materialId, pipelineName.toLower());
-        Long modificationId = goCache.get(key);
-        if (modificationId == null) {
-            synchronized (key) {
-                modificationId = goCache.get(key);
-                if (modificationId == null) {
-                    modificationId = (Long) getHibernateTemplate().execute(session -> {
-                        SQLQuery sqlQuery = session.createSQLQuery("""
-                            SELECT MAX(pmr.toRevisionId) toRevisionId \
-                            FROM (SELECT torevisionid, pipelineid FROM pipelineMaterialRevisions WHERE materialid = :material_id) AS pmr \
-                                INNER JOIN pipelines p ON (p.name = :pipeline_name AND p.id = pmr.pipelineId) \
-                            """);
-
-                        sqlQuery.setParameter("material_id", materialId);
-                        sqlQuery.setParameter("pipeline_name", pipelineName.toString());
-                        sqlQuery.addScalar("toRevisionId", new LongType());
-                        return sqlQuery.uniqueResult();
-                    });
-                    if (modificationId == null) {
-                        modificationId = -1L;
-                    }
-                    goCache.put(key, modificationId);
-                }
-            }
-        }
-        return modificationId;
-    }
-
-    private String cacheKeyForLatestPmrForPipelineKey(long materialId, final String lowerCasePipelineName) {
-        return cacheKeyGenerator.generate("latestPmrForPipeline", lowerCasePipelineName, "andMaterial", materialId);
-    }
-
-    String cacheKeyForModificationWithRevision(long materialId, String revision) {
-        return cacheKeyGenerator.generate("findModificationWithRevision", "ForMaterialId", materialId, "andRevision", revision);
+        return latestPmrForPipelines.get(new LatestPmrForPipelineKey(materialId, pipelineName.toLower()), key -> {
+            Long modificationId = (Long) getHibernateTemplate().execute(session -> {
+                SQLQuery sqlQuery = session.createSQLQuery("""
+                    SELECT MAX(pmr.toRevisionId) toRevisionId \
+                    FROM (SELECT torevisionid, pipelineid FROM pipelineMaterialRevisions WHERE materialid = :material_id) AS pmr \
+                        INNER JOIN pipelines p ON (p.name = :pipeline_name AND p.id = pmr.pipelineId) \
+                    """);
+
+                sqlQuery.setParameter("material_id", materialId);
+                sqlQuery.setParameter("pipeline_name", pipelineName.toString());
+                sqlQuery.addScalar("toRevisionId", new LongType());
+                return sqlQuery.uniqueResult();
+            });
+            return modificationId == null ? -1L : modificationId;
+        });
     }
 
     String cacheKeyForModificationsForStageLocator(StageIdentifier stageIdentifier) {
@@ -1107,4 +1103,10 @@ public class MaterialRepository extends HibernateDaoSupport {
                 .list();
         });
     }
+
+    private record ModificationWithRevisionKey(long materialId, String revision) {
+    }
+
+    private record LatestPmrForPipelineKey(long materialId, String lowerCasePipelineName) {
+    }
 }
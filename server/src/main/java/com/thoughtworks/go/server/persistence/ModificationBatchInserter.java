@@ -0,0 +1,113 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.PersistentObject;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+import org.apache.commons.collections4.ListUtils;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Understands inserting a lot of modifications, and the files they touched, a batch of rows at a time. Hibernate can
+ * not batch inserts into tables with identity columns, so it makes a round trip to the database for every row.
+ */
+class ModificationBatchInserter {
+    static final String INSERT_MODIFICATION = "INSERT INTO modifications (revision, comment, emailAddress, modifiedTime, userName, pipelineLabel, pipelineId, additionalData, materialId) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_MODIFIED_FILE = "INSERT INTO modifiedFiles (action, fileName, folderName, modificationId) VALUES (?, ?, ?, ?)";
+
+    private final int batchSize;
+
+    ModificationBatchInserter(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Inserts the modifications in the order given, and sets the ids the database gave them and their files.
+     */
+    void insert(Connection connection, long materialId, List<Modification> modifications) throws SQLException {
+        try (PreparedStatement insertModification = connection.prepareStatement(INSERT_MODIFICATION, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement insertFile = connection.prepareStatement(INSERT_MODIFIED_FILE, Statement.RETURN_GENERATED_KEYS)) {
+            List<ModifiedFile> files = new ArrayList<>();
+            for (List<Modification> batch : ListUtils.partition(modifications, batchSize)) {
+                for (Modification modification : batch) {
+                    bind(insertModification, modification, materialId);
+                    insertModification.addBatch();
+                }
+                insertModification.executeBatch();
+                assignGeneratedIds(insertModification, batch);
+
+                for (Modification modification : batch) {
+                    for (ModifiedFile file : modification.getModifiedFiles()) {
+                        file.setModificationId(modification.getId());
+                        bind(insertFile, file, modification.getId());
+                        insertFile.addBatch();
+                        files.add(file);
+                        if (files.size() == batchSize) {
+                            insertFiles(insertFile, files);
+                        }
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                insertFiles(insertFile, files);
+            }
+        }
+    }
+
+    private void insertFiles(PreparedStatement insertFile, List<ModifiedFile> files) throws SQLException {
+        insertFile.executeBatch();
+        assignGeneratedIds(insertFile, files);
+        files.clear();
+    }
+
+    private static void bind(PreparedStatement statement, Modification modification, long materialId) throws SQLException {
+        statement.setString(1, modification.getRevision());
+        statement.setString(2, modification.getComment());
+        statement.setString(3, modification.getEmailAddress());
+        statement.setTimestamp(4, modification.getModifiedTime() == null ? null : new Timestamp(modification.getModifiedTime().getTime()));
+        statement.setString(5, modification.getUserName());
+        statement.setString(6, modification.getPipelineLabel());
+        if (modification.getPipelineId() == null) {
+            statement.setNull(7, Types.BIGINT);
+        } else {
+            statement.setLong(7, modification.getPipelineId());
+        }
+        statement.setString(8, modification.getAdditionalData());
+        statement.setLong(9, materialId);
+    }
+
+    private static void bind(PreparedStatement statement, ModifiedFile file, long modificationId) throws SQLException {
+        statement.setString(1, file.getAction() == null ? null : file.getAction().name());
+        statement.setString(2, file.getFileName());
+        statement.setString(3, file.getFolderName());
+        statement.setLong(4, modificationId);
+    }
+
+    private static void assignGeneratedIds(Statement statement, List<? extends PersistentObject> inserted) throws SQLException {
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            for (PersistentObject object : inserted) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("The database did not return an id for each of the " + inserted.size() + " rows inserted");
+                }
+                object.setId(generatedKeys.getLong(1));
+            }
+        }
+    }
+}
@@ -126,21 +126,30 @@ public class PipelineRepository extends HibernateDaoSupport {
                 BigInteger lastId = null;
                 PipelineTimelineEntry lastEntry = null;
 
+                // The same pipeline names, fingerprints and modifications come up over and over again across the
+                // instances of a pipeline and its downstreams, so keep one copy of each rather than one per row.
+                Map<String, String> strings = new HashMap<>();
+                Map<Long, PipelineTimelineEntry.Revision> revisions = new HashMap<>();
+
                 for (Object[] row : matches) {
                     BigInteger id = id(row);
 
                     // New row
                     if (!id.equals(lastId)) {
                         lastId = id;
-                        lastEntry = new PipelineTimelineEntry(pipelineName(row), lastId.longValue(), counter(row), new HashMap<>(), naturalOrder(row));
+                        lastEntry = new PipelineTimelineEntry(shared(strings, pipelineName(row)), lastId.longValue(), counter(row), new HashMap<>(), naturalOrder(row));
                         newPipelines.add(lastEntry);
                     }
 
-                    lastEntry.addRevision(fingerprint(row), rev(row));
+                    lastEntry.addRevision(shared(strings, fingerprint(row)), revisions.computeIfAbsent(modId(row), modId -> rev(row)));
                 }
                 return newPipelines;
             }
 
+            private String shared(Map<String, String> strings, String value) {
+                return value == null ? null : strings.computeIfAbsent(value, v -> v);
+            }
+
             private PipelineTimelineEntry.Revision rev(Object[] row) {
                 return new PipelineTimelineEntry.Revision(modifiedTime(row), stringRevision(row), modId(row));
             }
@@ -183,6 +192,14 @@ public class PipelineRepository extends HibernateDaoSupport {
         });
     }
 
+    public long countPipelinesUpTo(final long pipelineId) {
+        return getHibernateTemplate().execute(session -> {
+            SQLQuery query = session.createSQLQuery("SELECT COUNT(*) FROM pipelines WHERE id <= :pipelineId");
+            query.setLong("pipelineId", pipelineId);
+            return ((Number) query.uniqueResult()).longValue();
+        });
+    }
+
     private void addEntriesToPipelineTimeline(List<PipelineTimelineEntry> newEntries, PipelineTimeline pipelineTimeline, List<PipelineTimelineEntry> tempEntriesForRollback) {
         for (PipelineTimelineEntry newEntry : newEntries) {
             tempEntriesForRollback.add(newEntry);
@@ -22,6 +22,7 @@ import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.util.SystemEnvironment;
 
 import java.util.*;
+import java.util.function.Function;
 
 import static java.util.stream.Collectors.toCollection;
 
@@ -32,12 +33,28 @@ public class FetchArtifactViewHelper {
     private final CaseInsensitiveString pipelineName;
     private final CaseInsensitiveString stageName;
     private final boolean template;
+    private final Function<CaseInsensitiveString, MaterialConfigs> upstreamMaterials;
 
     private static final String NULL_STR = "";
 
     public FetchArtifactViewHelper(SystemEnvironment systemEnvironment, CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName, CaseInsensitiveString stageName, boolean template) {
+        this(systemEnvironment, cruiseConfig, name -> cruiseConfig.pipelineConfigByName(name).materialConfigs(), pipelineName, stageName, template);
+    }
+
+    /**
+     * @param dependencyGraph where to find the materials of upstream pipelines, instead of looking each of them up in
+     *                        {@code cruiseConfig}; stages and jobs still come from {@code cruiseConfig}, so the graph
+     *                        must have been built from that same config
+     */
+    public FetchArtifactViewHelper(SystemEnvironment systemEnvironment, CruiseConfig cruiseConfig, ConfigDependencyGraph dependencyGraph, CaseInsensitiveString pipelineName, CaseInsensitiveString stageName, boolean template) {
+        this(systemEnvironment, cruiseConfig, dependencyGraph::materialsOf, pipelineName, stageName, template);
+    }
+
+    private FetchArtifactViewHelper(SystemEnvironment systemEnvironment, CruiseConfig cruiseConfig, Function<CaseInsensitiveString, MaterialConfigs> upstreamMaterials,
+                                    CaseInsensitiveString pipelineName, CaseInsensitiveString stageName, boolean template) {
         this.systemEnvironment = systemEnvironment;
         this.cruiseConfig = cruiseConfig;
+        this.upstreamMaterials = upstreamMaterials;
         this.pipelineName = pipelineName;
         this.stageName = stageName;
         this.template = template;
@@ -78,7 +95,7 @@ public class FetchArtifactViewHelper {
             put(pipelineName, stageMap);
         }
 
-        private void populateFetchableJobHierarchyFor(Queue<JobHierarchyQueueEntry> bfsQueue, CruiseConfig cruiseConfig) {
+        private void populateFetchableJobHierarchyFor(Queue<JobHierarchyQueueEntry> bfsQueue, CruiseConfig cruiseConfig, Function<CaseInsensitiveString, MaterialConfigs> upstreamMaterials) {
             while (!bfsQueue.isEmpty()) {
                 JobHierarchyQueueEntry entry = bfsQueue.remove();
                 CaseInsensitiveString pipelineName = entry.pipelineName;
@@ -91,7 +108,7 @@ public class FetchArtifactViewHelper {
                     }
                 }
                 addStagesToHierarchy(new CaseInsensitiveString(entry.pathFromAncestor()), fetchableStages, cruiseConfig);
-                addMaterialsToQueue(bfsQueue, pipelineConfig, entry.pathFromAncestor());
+                addMaterialsToQueue(bfsQueue, upstreamMaterials.apply(pipelineName), entry.pathFromAncestor());
             }
         }
     }
@@ -120,8 +137,8 @@ public class FetchArtifactViewHelper {
         FetchSuggestionHierarchy hierarchy = new FetchSuggestionHierarchy();
         Queue<JobHierarchyQueueEntry> bfsQueue = new ArrayDeque<>();
         addLocalUpstreamStages(hierarchy, pipelineConfig, cruiseConfig);
-        addMaterialsToQueue(bfsQueue, pipelineConfig, "");
-        hierarchy.populateFetchableJobHierarchyFor(bfsQueue, cruiseConfig);
+        addMaterialsToQueue(bfsQueue, pipelineConfig.materialConfigs(), "");
+        hierarchy.populateFetchableJobHierarchyFor(bfsQueue, cruiseConfig, upstreamMaterials);
         return hierarchy;
     }
 
@@ -135,8 +152,8 @@ public class FetchArtifactViewHelper {
         }
     }
 
-    private static void addMaterialsToQueue(Queue<JobHierarchyQueueEntry> bfsQueue, PipelineConfig pipelineConfig, String pathFromThisPipeline) {
-        for (MaterialConfig mat : pipelineConfig.materialConfigs()) {
+    private static void addMaterialsToQueue(Queue<JobHierarchyQueueEntry> bfsQueue, MaterialConfigs materialConfigs, String pathFromThisPipeline) {
+        for (MaterialConfig mat : materialConfigs) {
             if (mat instanceof DependencyMaterialConfig depMat) {
                 bfsQueue.add(new JobHierarchyQueueEntry(pathFromThisPipeline, depMat.getPipelineName(), depMat.getStageName()));
             }
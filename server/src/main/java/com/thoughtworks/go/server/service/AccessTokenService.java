@@ -19,6 +19,7 @@ import com.thoughtworks.go.config.exceptions.ConflictException;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.domain.AccessToken;
+import com.thoughtworks.go.server.cache.VerifiedAccessTokenCache;
 import com.thoughtworks.go.server.dao.AccessTokenDao;
 import com.thoughtworks.go.server.domain.Username;
 import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
@@ -46,13 +47,15 @@ public class AccessTokenService {
 
     private final AccessTokenDao accessTokenDao;
     private final SecurityService securityService;
+    private final VerifiedAccessTokenCache verifiedAccessTokenCache;
     private final ConcurrentMap<Long, Timestamp> accessTokenIdToLastUsedTimestampCache = new ConcurrentHashMap<>();
 
     @Autowired
-    public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService) {
+    public AccessTokenService(AccessTokenDao accessTokenDao, Clock clock, SecurityService securityService, VerifiedAccessTokenCache verifiedAccessTokenCache) {
         this.accessTokenDao = accessTokenDao;
         this.timeProvider = clock;
         this.securityService = securityService;
+        this.verifiedAccessTokenCache = verifiedAccessTokenCache;
     }
 
     public AccessToken.AccessTokenWithDisplayValue create(String description, String username, String authConfigId) {
@@ -96,6 +99,12 @@ public class AccessTokenService {
             throw new InvalidAccessTokenException();
         }
 
+        AccessToken verifiedToken = verifiedAccessTokenCache.get(actualToken);
+        if (verifiedToken != null) {
+            return verifiedToken;
+        }
+
+        long generation = verifiedAccessTokenCache.generation();
         String saltId = substring(actualToken, 0, 8);
 
         AccessToken token = accessTokenDao.findAccessTokenBySaltId(saltId);
@@ -113,6 +122,7 @@ public class AccessTokenService {
             throw new RevokedAccessTokenException(token.getRevokedAt());
         }
 
+        verifiedAccessTokenCache.put(actualToken, token, generation);
         return token;
     }
 
@@ -136,6 +146,7 @@ public class AccessTokenService {
         ACCESS_TOKEN_LOGGER.debug("[Access Token] Revoking access token with id: '{}' for user '{}' with revoked cause '{}'.", fetchedAccessToken.getId(), username, revokeCause);
         fetchedAccessToken.revoke(username, revokeCause, timeProvider.currentSqlTimestamp());
         accessTokenDao.saveOrUpdate(fetchedAccessToken);
+        verifiedAccessTokenCache.invalidate(fetchedAccessToken.getId());
 
         ACCESS_TOKEN_LOGGER.debug("[Access Token] Done revoking access token with id: '{}' for user '{}' with revoked cause '{}'.", fetchedAccessToken.getId(), username, revokeCause);
 
@@ -150,14 +161,16 @@ public class AccessTokenService {
         return accessTokenDao.findAllTokens(filter);
     }
 
+    public void invalidateVerifiedTokens() {
+        verifiedAccessTokenCache.invalidateAll();
+    }
+
     public void updateLastUsedCacheWith(AccessToken accessToken) {
         if (!securityService.isSecurityEnabled()) {
             throw new UnsupportedOperationException("Security is disable. Updating cache is not allowed.");
         }
 
-        synchronized (accessTokenIdToLastUsedTimestampCache) {
-            accessTokenIdToLastUsedTimestampCache.put(accessToken.getId(), timeProvider.currentSqlTimestamp());
-        }
+        accessTokenIdToLastUsedTimestampCache.put(accessToken.getId(), timeProvider.currentSqlTimestamp());
     }
 
     public void onTimer() {
@@ -177,10 +190,9 @@ public class AccessTokenService {
     }
 
     private Map<Long, Timestamp> cloneAndClearCache() {
-        synchronized (accessTokenIdToLastUsedTimestampCache) {
-            Map<Long, Timestamp> dataInCache = new HashMap<>(accessTokenIdToLastUsedTimestampCache);
-            accessTokenIdToLastUsedTimestampCache.clear();
-            return dataInCache;
-        }
+        Map<Long, Timestamp> dataInCache = new HashMap<>(accessTokenIdToLastUsedTimestampCache);
+        // only remove what is being written now, a token used again in the meantime is written with the next batch
+        dataInCache.forEach(accessTokenIdToLastUsedTimestampCache::remove);
+        return dataInCache;
     }
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.server.util.KeyedLocks;
+import com.thoughtworks.go.util.IllegalPathException;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.thoughtworks.go.util.ArtifactUtil.CRUISE_OUTPUT_FOLDER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.codec.digest.DigestUtils.getSha256Digest;
+
+/**
+ * Understands keeping a single copy of each distinct artifact file, however many jobs publish it.
+ * <p>
+ * File contents live under {@code <artifacts>/blobs}, keyed by their SHA-256. The files in a job's artifact tree are
+ * hard links to those blobs, so everything that serves artifacts from the job's directory keeps working as it is. The
+ * link count of a blob is its reference count: each job records the blobs it links to in a manifest, and when the job's
+ * artifacts are purged the blobs nothing links to any more are deleted.
+ */
+@Component
+public class ArtifactBlobStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactBlobStore.class);
+    static final String BLOBS_DIR = "blobs";
+    static final String MANIFEST_FILE_NAME = "blobs.manifest";
+
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final SystemEnvironment systemEnvironment;
+    private final LongAdder filesStored = new LongAdder();
+    private final LongAdder filesDeduplicated = new LongAdder();
+    private final LongAdder bytesDeduplicated = new LongAdder();
+    private final LongAdder blobsDeleted = new LongAdder();
+    private final KeyedLocks blobLocks = new KeyedLocks();
+    private final KeyedLocks manifestLocks = new KeyedLocks();
+    private volatile boolean enabled;
+
+    @Autowired
+    public ArtifactBlobStore(ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public void initialize() {
+        if (!systemEnvironment.isArtifactDeduplicationEnabled()) {
+            return;
+        }
+        boolean hardLinksWork;
+        try {
+            Files.createDirectories(tmpDir());
+            Path probe = Files.createTempFile(tmpDir(), "probe", "");
+            Path link = probe.resolveSibling(probe.getFileName() + ".link");
+            try {
+                Files.createLink(link, probe);
+                hardLinksWork = linkCount(probe) == 2;
+            } finally {
+                Files.deleteIfExists(link);
+                Files.deleteIfExists(probe);
+            }
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            LOGGER.debug("Could not create a hard link in the artifacts directory", e);
+            hardLinksWork = false;
+        }
+        enabled = hardLinksWork;
+        if (!hardLinksWork) {
+            LOGGER.warn("Artifact deduplication is turned off because the artifacts directory does not support hard links");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Unzips an upload into {@code dest}, linking each file to the blob with the same content and recording the blob in
+     * the manifest of the job it belongs to.
+     */
+    public void unzip(ZipInputStream zipInputStream, File dest, File jobRoot) throws IOException {
+        List<String> manifestEntries = new ArrayList<>();
+        try (ZipInputStream zip = zipInputStream) {
+            dest.mkdirs();
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String entryName = entry.getName();
+                if (entryName.contains("..")) {
+                    throw new IllegalPathException(String.format("File %s is outside extraction target directory", entryName));
+                }
+                if (entryName.startsWith("/")) {
+                    entryName = entryName.substring(1);
+                }
+                File outputFile = new File(dest, entryName);
+                if (entryName.endsWith("/")) {
+                    outputFile.mkdirs();
+                    continue;
+                }
+                String hash = store(zip, outputFile.toPath());
+                manifestEntries.add(hash + " " + jobRoot.toPath().relativize(outputFile.toPath()));
+            }
+        } finally {
+            appendToManifest(jobRoot, manifestEntries);
+        }
+    }
+
+    /**
+     * To be called once the artifacts of a job have been deleted, so the blobs only that job was using go too.
+     */
+    public void release(File jobRoot) {
+        File manifest = manifestOf(jobRoot);
+        if (!manifest.exists()) {
+            return;
+        }
+        try {
+            Set<String> hashes = new HashSet<>();
+            for (String line : Files.readAllLines(manifest.toPath(), UTF_8)) {
+                if (!line.isBlank()) {
+                    hashes.add(line.substring(0, line.indexOf(' ')));
+                }
+            }
+            for (String hash : hashes) {
+                deleteIfUnused(hash);
+            }
+            FileUtils.deleteQuietly(manifest);
+        } catch (IOException e) {
+            LOGGER.error("Could not release the artifact blobs used by [{}]", jobRoot.getAbsolutePath(), e);
+        }
+    }
+
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Enabled", enabled);
+        json.put("Files stored", filesStored.sum());
+        json.put("Files deduplicated", filesDeduplicated.sum());
+        json.put("Bytes deduplicated", bytesDeduplicated.sum());
+        json.put("Blobs deleted", blobsDeleted.sum());
+        return json;
+    }
+
+    private String store(InputStream content, Path destination) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir(), "upload", "");
+        try {
+            MessageDigest sha256 = getSha256Digest();
+            try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)), sha256)) {
+                content.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            Path blob = blobPath(hash);
+            synchronized (blobLocks.lockFor(hash)) {
+                if (Files.exists(blob)) {
+                    filesDeduplicated.increment();
+                    bytesDeduplicated.add(Files.size(tmp));
+                } else {
+                    Files.createDirectories(blob.getParent());
+                    Files.move(tmp, blob, StandardCopyOption.ATOMIC_MOVE);
+                    blob.toFile().setReadOnly();
+                    filesStored.increment();
+                }
+                Files.createDirectories(destination.getParent());
+                Files.deleteIfExists(destination);
+                Files.createLink(destination, blob);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void deleteIfUnused(String hash) throws IOException {
+        Path blob = blobPath(hash);
+        synchronized (blobLocks.lockFor(hash)) {
+            if (Files.exists(blob) && linkCount(blob) <= 1) {
+                Files.delete(blob);
+                blobsDeleted.increment();
+            }
+        }
+    }
+
+    private void appendToManifest(File jobRoot, List<String> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        File manifest = manifestOf(jobRoot);
+        synchronized (manifestLocks.lockFor(manifest.getAbsolutePath())) {
+            FileUtils.writeLines(manifest, UTF_8.name(), entries, true);
+        }
+    }
+
+    private static int linkCount(Path path) throws IOException {
+        return (Integer) Files.getAttribute(path, "unix:nlink");
+    }
+
+    private static File manifestOf(File jobRoot) {
+        return new File(new File(jobRoot, CRUISE_OUTPUT_FOLDER), MANIFEST_FILE_NAME);
+    }
+
+    private Path blobPath(String hash) {
+        return blobsDir().resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private Path tmpDir() {
+        return blobsDir().resolve("tmp");
+    }
+
+    private Path blobsDir() {
+        return artifactsDirHolder.getArtifactsDir().toPath().resolve(BLOBS_DIR);
+    }
+}
@@ -44,19 +44,31 @@ public class ArtifactsService implements ArtifactUrlReader {
     private final JobResolverService jobResolverService;
     private final StageDao stageDao;
     private final ArtifactDirectoryChooser chooser;
+    private final ArtifactBlobStore artifactBlobStore;
 
-    @Autowired
     public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
                             ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil) {
-        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, new ArtifactDirectoryChooser());
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, new ArtifactBlobStore(artifactsDirHolder, new SystemEnvironment()));
+    }
+
+    @Autowired
+    public ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
+                            ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, ArtifactBlobStore artifactBlobStore) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, new ArtifactDirectoryChooser(), artifactBlobStore);
     }
 
     protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao,
                                ArtifactsDirHolder artifactsDirHolder, ZipUtil zipUtil, ArtifactDirectoryChooser chooser) {
+        this(jobResolverService, stageDao, artifactsDirHolder, zipUtil, chooser, new ArtifactBlobStore(artifactsDirHolder, new SystemEnvironment()));
+    }
+
+    protected ArtifactsService(JobResolverService jobResolverService, StageDao stageDao, ArtifactsDirHolder artifactsDirHolder,
+                               ZipUtil zipUtil, ArtifactDirectoryChooser chooser, ArtifactBlobStore artifactBlobStore) {
         this.artifactsDirHolder = artifactsDirHolder;
         this.zipUtil = zipUtil;
         this.jobResolverService = jobResolverService;
         this.stageDao = stageDao;
+        this.artifactBlobStore = artifactBlobStore;
 
         //This is a Chain of Responsibility to decide which view should be shown for a particular artifact URL
         this.chooser = chooser;
@@ -66,13 +78,24 @@ public class ArtifactsService implements ArtifactUrlReader {
     public void initialize() {
         chooser.add(new PathBasedArtifactsLocator(artifactsDirHolder.getArtifactsDir()));
         chooser.add(new BuildIdArtifactLocator(artifactsDirHolder.getArtifactsDir()));
+        artifactBlobStore.initialize();
     }
 
     public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt) {
+        return saveFile(null, dest, stream, shouldUnzip, attempt);
+    }
+
+    /**
+     * Zipped uploads for a job go through the blob store when deduplication is turned on, so files that have been
+     * published before are only kept once.
+     */
+    public boolean saveFile(JobIdentifier jobIdentifier, File dest, InputStream stream, boolean shouldUnzip, int attempt) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
-            if (shouldUnzip) {
+            if (shouldUnzip && jobIdentifier != null && artifactBlobStore.isEnabled()) {
+                artifactBlobStore.unzip(new ZipInputStream(new BufferedInputStream(stream)), dest, chooser.findArtifact(jobIdentifier, ""));
+            } else if (shouldUnzip) {
                 zipUtil.unzip(new ZipInputStream(new BufferedInputStream(stream)), dest);
             } else {
                 try (FileOutputStream out = FileUtils.openOutputStream(dest, true)) {
@@ -89,7 +112,7 @@ public class ArtifactsService implements ArtifactUrlReader {
                 LOGGER.error(message, e);
             }
             return false;
-        } catch (IllegalPathException e) {
+        } catch (IllegalPathException | IllegalArtifactLocationException e) {
             final String message = format("Failed to save the file to: [%s]", destPath);
             LOGGER.error(message, e);
             return false;
@@ -189,6 +212,7 @@ public class ArtifactsService implements ArtifactUrlReader {
                     deletePartiallyFailed = true;
                 }
             }
+            artifactBlobStore.release(jobRoot);
         }
         return !deletePartiallyFailed;
     }
@@ -27,6 +27,7 @@ import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.plugin.access.exceptions.SecretResolutionFailureException;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.*;
+import com.thoughtworks.go.server.domain.JobStatusListener;
 import com.thoughtworks.go.server.exceptions.RulesViolationException;
 import com.thoughtworks.go.server.materials.StaleMaterialsOnBuildCause;
 import com.thoughtworks.go.server.messaging.JobStatusMessage;
@@ -41,10 +42,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.thoughtworks.go.util.command.EnvironmentVariableContext.GO_ENVIRONMENT_NAME;
 import static java.lang.String.format;
@@ -56,7 +57,7 @@ import static java.util.stream.StreamSupport.stream;
  * Understands how to assign work to agents
  */
 @Service
-public class BuildAssignmentService implements ConfigChangedListener {
+public class BuildAssignmentService implements ConfigChangedListener, JobStatusListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildAssignmentService.class.getName());
     public static final NoWork NO_WORK = new NoWork();
     public static final String GO_PIPELINE_GROUP_NAME = "GO_PIPELINE_GROUP_NAME";
@@ -79,7 +80,20 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private final JobStatusTopic jobStatusTopic;
     private final ConsoleService consoleService;
 
-    private List<JobPlan> jobPlans = new ArrayList<>();
+    // Assignments share the read lock so agents are matched concurrently; reloading or pruning the queue takes the
+    // write lock so that a job claimed by an agent is never reloaded as scheduled before its assignment is committed.
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+    private volatile JobAssignmentIndex jobPlans = JobAssignmentIndex.empty();
+
+    // Job status changes keep the queue current between consistency checks. They are applied under their own mutex
+    // rather than the queue lock, as they are published after commit by threads that may already hold the read lock.
+    private final Object queueChangesMutex = new Object();
+    private List<QueueChange> changesDuringReload;
+    private final Map<Long, JobPlan> scheduledSinceLastTimer = new LinkedHashMap<>();
+    private final Set<Long> unscheduledSinceLastTimer = new HashSet<>();
+    private volatile boolean consistencyCheckRequested;
+    private long lastConsistencyCheck;
+    private final List<Runnable> jobsQueuedListeners = new CopyOnWriteArrayList<>();
 
     @Autowired
     public BuildAssignmentService(GoConfigService goConfigService, JobInstanceService jobInstanceService,
@@ -110,6 +124,8 @@ public class BuildAssignmentService implements ConfigChangedListener {
     public void initialize() {
         goConfigService.register(this);
         goConfigService.register(pipelineConfigChangedListener());
+        goConfigService.register(environmentConfigChangedListener());
+        jobInstanceService.registerJobStateChangeListener(this);
     }
 
 
@@ -119,15 +135,34 @@ public class BuildAssignmentService implements ConfigChangedListener {
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 LOGGER.info("[Configuration Changed] Removing deleted jobs for pipeline {}.", pipelineConfig.name());
 
-                synchronized (BuildAssignmentService.this) {
+                queueLock.writeLock().lock();
+                try {
                     List<JobPlan> jobsToRemove;
                     if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
-                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans.pending());
                     } else {
-                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans.pending());
                     }
 
                     jobsToRemove.forEach(o -> tryRemoveJob(o));
+                } finally {
+                    queueLock.writeLock().unlock();
+                }
+            }
+        };
+    }
+
+    protected EntityConfigChangedListener<EnvironmentConfig> environmentConfigChangedListener() {
+        return new EntityConfigChangedListener<>() {
+            @Override
+            public void onEntityConfigChange(EnvironmentConfig environmentConfig) {
+                LOGGER.info("[Configuration Changed] Regrouping queued jobs after environment {} changed.", environmentConfig.name());
+
+                queueLock.writeLock().lock();
+                try {
+                    regroupJobPlansByEnvironment();
+                } finally {
+                    queueLock.writeLock().unlock();
                 }
             }
         };
@@ -172,8 +207,9 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
-        synchronized (this) {
-//          check to ensure agent is not disabled after entering the synchronized block
+        queueLock.readLock().lock();
+        try {
+//          check to ensure agent is not disabled after acquiring the lock
             if (agent.isDisabled()) {
                 return new DeniedAgentWork(agent.getUuid());
             }
@@ -189,40 +225,53 @@ public class BuildAssignmentService implements ConfigChangedListener {
                 }
                 return buildWork;
             }
+        } finally {
+            queueLock.readLock().unlock();
         }
         return NO_WORK;
     }
 
     @VisibleForTesting
     JobPlan findMatchingJob(AgentInstance agent) {
-        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
-        JobPlan match = null;
+        JobAssignmentIndex queue = jobPlans;
+        Set<String> agentEnvironments = environmentConfigService.getAgentEnvironmentNames(agent.getUuid());
         if (!agent.isElastic()) {
-            match = agent.firstMatching(filteredJobPlans);
-        } else {
-            for (JobPlan jobPlan : filteredJobPlans) {
-                try {
-                    if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())) {
-                        match = jobPlan;
-                        break;
-                    }
-                } catch (RulesViolationException | SecretResolutionFailureException e) {
-                    JobInstance instance = jobInstanceService.buildById(jobPlan.getJobId());
-                    JobIdentifier jobIdentifier = jobPlan.getIdentifier();
-                    String failureMessage = format("""
-                        
-                        This job was failed by GoCD. This job is configured to run on an elastic agent, there were errors while resolving secrets for the the associated elastic configurations.
-                        Reasons: %s""", e.getMessage());
-                    consoleService.appendToConsoleLogSafe(jobIdentifier, failureMessage);
-                    scheduleService.failJob(instance);
-                    jobStatusTopic.post(new JobStatusMessage(jobIdentifier, instance.getState(), agent.getUuid()));
+            // Another agent may claim the same head concurrently, in which case look again at the next one in line
+            while (true) {
+                List<JobPlan> candidates = queue.candidatesFor(agentEnvironments, agent.getUuid());
+                if (candidates.isEmpty()) {
+                    return null;
+                }
+                JobPlan match = agent.firstMatching(environmentConfigService.filterJobsByAgent(candidates, agent.getUuid()));
+                if (match == null || queue.claim(match)) {
+                    return match;
+                }
+                if (!queue.contains(match)) {
+                    return null;
                 }
             }
         }
-        if (match != null) {
-            jobPlans.remove(match);
+
+        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(queue.elasticCandidatesFor(agentEnvironments), agent.getUuid());
+        for (JobPlan jobPlan : filteredJobPlans) {
+            try {
+                if (elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())
+                        && queue.claim(jobPlan)) {
+                    return jobPlan;
+                }
+            } catch (RulesViolationException | SecretResolutionFailureException e) {
+                JobInstance instance = jobInstanceService.buildById(jobPlan.getJobId());
+                JobIdentifier jobIdentifier = jobPlan.getIdentifier();
+                String failureMessage = format("""
+                    
+                    This job was failed by GoCD. This job is configured to run on an elastic agent, there were errors while resolving secrets for the the associated elastic configurations.
+                    Reasons: %s""", e.getMessage());
+                consoleService.appendToConsoleLogSafe(jobIdentifier, failureMessage);
+                scheduleService.failJob(instance);
+                jobStatusTopic.post(new JobStatusMessage(jobIdentifier, instance.getState(), agent.getUuid()));
+            }
         }
-        return match;
+        return null;
     }
 
     @SuppressWarnings("unused") // used by spring scheduler
@@ -232,37 +281,158 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return;
         }
 
-        reloadJobPlans();
+        // Every job scheduled, rescheduled, assigned or finished goes through JobInstanceService, which publishes the
+        // status change that keeps the queue current, so it is only reloaded from the database periodically
+        long now = System.currentTimeMillis();
+        if (consistencyCheckRequested || now - lastConsistencyCheck >= systemEnvironment.getBuildAssignmentConsistencyCheckInterval()) {
+            consistencyCheckRequested = false;
+            reloadJobPlans();
+            lastConsistencyCheck = now;
+        }
+
+        List<JobPlan> scheduled;
+        Set<Long> unscheduled;
+        synchronized (queueChangesMutex) {
+            scheduled = new ArrayList<>(scheduledSinceLastTimer.values());
+            unscheduled = new HashSet<>(unscheduledSinceLastTimer);
+            scheduledSinceLastTimer.clear();
+            unscheduledSinceLastTimer.clear();
+        }
+        elasticAgentPluginService.createAgentsForQueueChanges(scheduled, unscheduled);
+    }
+
+    /**
+     * Makes the next {@link #onTimer()} reload the queue from the database without waiting for the consistency check
+     * interval, for jobs saved without going through {@link JobInstanceService}, such as by the database test helpers.
+     */
+    @VisibleForTesting
+    void requestConsistencyCheck() {
+        consistencyCheckRequested = true;
+    }
+
+    @Override
+    public void jobStatusChanged(JobInstance job) {
+        JobPlan scheduledPlan = job.getState() == JobState.Scheduled ? jobInstanceService.scheduledPlan(job.getId()) : null;
+        boolean queued;
+        synchronized (queueChangesMutex) {
+            QueueChange change = new QueueChange(job.getId(), scheduledPlan);
+            queued = apply(change);
+            if (changesDuringReload != null) {
+                changesDuringReload.add(change);
+            }
+        }
+        if (queued) {
+            notifyJobsQueued();
+        }
+    }
+
+    /**
+     * Registers a callback for when jobs join the queue, so that agents waiting for work can be offered them without
+     * waiting for their next poll. Callbacks are made outside any queue locks.
+     */
+    public void registerJobsQueuedListener(Runnable listener) {
+        jobsQueuedListeners.add(listener);
     }
 
+    private void notifyJobsQueued() {
+        for (Runnable listener : jobsQueuedListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                LOGGER.error("Failed to notify listener of newly queued jobs", e);
+            }
+        }
+    }
+
+    /**
+     * Reloads the queue from the database, in case a job status change was missed. Changes published while the
+     * database is being read are replayed on top of the reloaded queue.
+     */
     private void reloadJobPlans() {
-        synchronized (this) {
-            if (jobPlans == null) {
-                jobPlans = jobInstanceService.orderedScheduledBuilds();
-                elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
-            } else {
-                List<JobPlan> old = jobPlans;
-                List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
-                jobPlans = newPlan;
-                elasticAgentPluginService.createAgentsFor(old, newPlan);
+        boolean foundNewJobs = false;
+        queueLock.writeLock().lock();
+        try {
+            synchronized (queueChangesMutex) {
+                changesDuringReload = new ArrayList<>();
             }
+            List<JobPlan> newPlan;
+            try {
+                newPlan = jobInstanceService.orderedScheduledBuilds();
+            } catch (RuntimeException e) {
+                synchronized (queueChangesMutex) {
+                    changesDuringReload = null;
+                }
+                throw e;
+            }
+            JobAssignmentIndex reloaded = new JobAssignmentIndex(newPlan, environmentConfigService::envForPipeline);
+
+            synchronized (queueChangesMutex) {
+                Map<Long, JobPlan> old = new HashMap<>();
+                jobPlans.pending().forEach(jobPlan -> old.put(jobPlan.getJobId(), jobPlan));
+                for (JobPlan jobPlan : newPlan) {
+                    if (old.remove(jobPlan.getJobId()) == null) {
+                        scheduledSinceLastTimer.put(jobPlan.getJobId(), jobPlan);
+                        foundNewJobs = true;
+                    }
+                }
+                unscheduledSinceLastTimer.addAll(old.keySet());
+
+                jobPlans = reloaded;
+                changesDuringReload.forEach(this::apply);
+                changesDuringReload = null;
+            }
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+        if (foundNewJobs) {
+            notifyJobsQueued();
+        }
+    }
+
+    private boolean apply(QueueChange change) {
+        if (change.scheduledPlan() != null) {
+            if (jobPlans.add(change.scheduledPlan())) {
+                scheduledSinceLastTimer.put(change.jobId(), change.scheduledPlan());
+                return true;
+            }
+            return false;
         }
+        // A job claimed by an agent has already left the index, but may still be waiting for an elastic agent
+        jobPlans.remove(change.jobId());
+        unscheduledSinceLastTimer.add(change.jobId());
+        return false;
     }
 
     @Override
     public void onConfigChange(CruiseConfig cruiseConfig) {
-        synchronized (this) {
-            if (jobPlans.isEmpty()) {
+        queueLock.writeLock().lock();
+        try {
+            List<JobPlan> pending = jobPlans.pending();
+            if (pending.isEmpty()) {
                 return;
             }
             LOGGER.info("[Configuration Changed] Removing jobs for pipelines that no longer exist in configuration.");
             List<JobPlan> jobsToRemove = new ArrayList<>();
-            for (JobPlan jobPlan : jobPlans) {
+            for (JobPlan jobPlan : pending) {
                 if (!cruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
                     jobsToRemove.add(jobPlan);
                 }
             }
             jobsToRemove.forEach(this::tryRemoveJob);
+            regroupJobPlansByEnvironment();
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Jobs are grouped by the environment of their pipeline when they join the queue, so the queue has to be regrouped
+     * whenever pipelines may have moved between environments. Must be called holding the queue write lock, and relies
+     * on {@link EnvironmentConfigService} having already seen the change, as it registers for changes before us.
+     */
+    private void regroupJobPlansByEnvironment() {
+        synchronized (queueChangesMutex) {
+            jobPlans = new JobAssignmentIndex(jobPlans.pending(), environmentConfigService::envForPipeline);
         }
     }
 
@@ -274,7 +444,7 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void tryRemoveJob(JobPlan jobPlan) {
         try {
-            jobPlans.remove(jobPlan);
+            jobPlans.claim(jobPlan);
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             JobInstance instance = jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId());
             //#2846 - remove this hack
@@ -392,7 +562,10 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     List<JobPlan> jobPlans() {
-        return jobPlans;
+        return jobPlans.pending();
+    }
+
+    private record QueueChange(long jobId, JobPlan scheduledPlan) {
     }
 
     // This method will resolve secrets in all the pluggable scm materials if any
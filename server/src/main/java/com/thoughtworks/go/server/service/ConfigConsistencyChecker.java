@@ -0,0 +1,90 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.MagicalGoConfigXmlLoader;
+import com.thoughtworks.go.domain.ConfigErrors;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import com.thoughtworks.go.serverhealth.HealthStateScope;
+import com.thoughtworks.go.serverhealth.HealthStateType;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.TimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Understands validating the whole config now and then. Entity saves only revalidate the part of the config they could
+ * have affected, so this is the backstop that notices if anything has slipped through.
+ */
+@Component
+public class ConfigConsistencyChecker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigConsistencyChecker.class);
+    static final HealthStateScope SCOPE = HealthStateScope.forConfigConsistencyCheck();
+    private static final int ERRORS_TO_SHOW = 5;
+
+    private final GoConfigService goConfigService;
+    private final ServerHealthService serverHealthService;
+    private final TimeProvider timeProvider;
+    private final DurationStatistics fullValidation = new DurationStatistics();
+    private volatile int errorsFound;
+
+    @Autowired
+    public ConfigConsistencyChecker(GoConfigService goConfigService, ServerHealthService serverHealthService, TimeProvider timeProvider) {
+        this.goConfigService = goConfigService;
+        this.serverHealthService = serverHealthService;
+        this.timeProvider = timeProvider;
+    }
+
+    public void checkConsistency() {
+        try {
+            long start = timeProvider.currentTimeMillis();
+            CruiseConfig config = goConfigService.getConfigForEditing().cloneForValidation();
+            List<String> errors = MagicalGoConfigXmlLoader.validate(config).stream()
+                .map(ConfigErrors::getAll)
+                .flatMap(List::stream)
+                .toList();
+            fullValidation.record(timeProvider.currentTimeMillis() - start);
+            errorsFound = errors.size();
+
+            if (errors.isEmpty()) {
+                serverHealthService.removeByScope(SCOPE);
+                return;
+            }
+            String message = "Configuration has validation errors";
+            String description = String.format("Validating the whole configuration found %d error(s) that were not caught when it was saved: %s",
+                errors.size(), errors.stream().limit(ERRORS_TO_SHOW).collect(Collectors.joining("; ")));
+            serverHealthService.update(ServerHealthState.warning(message, description, HealthStateType.general(SCOPE)));
+            LOGGER.warn("{}: {}", message, description);
+        } catch (Exception e) {
+            LOGGER.error("Could not check the consistency of the configuration", e);
+        }
+    }
+
+    public int errorsFound() {
+        return errorsFound;
+    }
+
+    public DurationStatistics fullValidation() {
+        return fullValidation;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.ConfigDependencyGraph;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.ValidationScopeStatistics;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.initializers.Initializer;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Understands keeping one {@link ConfigDependencyGraph} for the current config, so that the value stream map, fan-in
+ * resolution and the dependency pipelines API do not each walk the whole config for every request. The graph is built
+ * once for each version of the config, and a pipeline save only replaces that pipeline in the graph it already has.
+ */
+@Service
+public class ConfigDependencyGraphService implements Initializer {
+    public static final String VALUE_STREAM_MAP = "Value stream map";
+    public static final String FAN_IN_RESOLUTION = "Fan-in resolution";
+    public static final String DEPENDENCY_PIPELINES_API = "Dependency pipelines API";
+
+    private static final Graph NONE = new Graph(null, null);
+
+    private final GoConfigService goConfigService;
+    private final DurationStatistics rebuilds = new DurationStatistics();
+    private final DurationStatistics pipelineUpdates = new DurationStatistics();
+    private final Map<String, DurationStatistics> consumers = new ConcurrentHashMap<>();
+    private final ValidationScopeStatistics validationScopes = new ValidationScopeStatistics();
+    private volatile Graph graph = NONE;
+    private volatile Graph graphForEditing = NONE;
+
+    @Autowired
+    public ConfigDependencyGraphService(GoConfigService goConfigService) {
+        this.goConfigService = goConfigService;
+    }
+
+    @Override
+    public void initialize() {
+        goConfigService.register(new GraphUpdater());
+    }
+
+    public ConfigDependencyGraph currentGraph() {
+        return graphFor(goConfigService.getCurrentConfig());
+    }
+
+    /**
+     * @return the graph of the given config; only kept for later if it is the current config, so that a caller
+     * holding on to an older config does not replace the graph everyone else is using
+     */
+    public ConfigDependencyGraph graphFor(CruiseConfig cruiseConfig) {
+        Graph current = graph;
+        if (current.cruiseConfig() == cruiseConfig) {
+            return current.dependencies();
+        }
+        long start = System.currentTimeMillis();
+        ConfigDependencyGraph dependencies = new ConfigDependencyGraph(cruiseConfig);
+        rebuilds.record(System.currentTimeMillis() - start);
+        synchronized (this) {
+            if (graph.cruiseConfig() != cruiseConfig && goConfigService.getCurrentConfig() == cruiseConfig) {
+                graph = new Graph(cruiseConfig, dependencies);
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return the graph of the given merged config for editing, which keeps pipelines as they were written rather than
+     * with their parameters and templates resolved; only kept for later if it is the current merged config for editing
+     */
+    public ConfigDependencyGraph graphForEditing(CruiseConfig mergedConfigForEditing) {
+        Graph current = graphForEditing;
+        if (current.cruiseConfig() == mergedConfigForEditing) {
+            return current.dependencies();
+        }
+        long start = System.currentTimeMillis();
+        ConfigDependencyGraph dependencies = new ConfigDependencyGraph(mergedConfigForEditing);
+        rebuilds.record(System.currentTimeMillis() - start);
+        synchronized (this) {
+            if (graphForEditing.cruiseConfig() != mergedConfigForEditing && goConfigService.getMergedConfigForEditing() == mergedConfigForEditing) {
+                graphForEditing = new Graph(mergedConfigForEditing, dependencies);
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * Records how long a consumer of the graph took to build what it needed from it for a single request.
+     */
+    public void recordUse(String consumer, long millis) {
+        consumers.computeIfAbsent(consumer, name -> new DurationStatistics()).record(millis);
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        ConfigDependencyGraph current = graph.dependencies();
+        json.put("Pipelines in graph", current == null ? 0 : current.pipelines().size());
+        json.put("Rebuilds", rebuilds.asJsonCompatibleMap());
+        json.put("Pipeline updates", pipelineUpdates.asJsonCompatibleMap());
+        new TreeMap<>(consumers).forEach((consumer, statistics) -> json.put(consumer, statistics.asJsonCompatibleMap()));
+        return json;
+    }
+
+    public ValidationScopeStatistics validationScopeStatistics() {
+        return validationScopes;
+    }
+
+    /**
+     * Measures how much of the config an entity save had to revalidate, using the graph already kept for the saved
+     * config rather than walking the whole config again while the save still holds the config write lock.
+     */
+    private void recordValidationScope(Object entity) {
+        ConfigDependencyGraph dependencies = currentGraph();
+        validationScopes.record(dependencies.revalidationScopeOf(entity), dependencies.size());
+    }
+
+    private synchronized void invalidate() {
+        graph = NONE;
+        graphForEditing = NONE;
+    }
+
+    private synchronized void update(PipelineConfig pipeline) {
+        graphForEditing = NONE;
+        CruiseConfig cruiseConfig = goConfigService.getCurrentConfig();
+        Graph previous = graph;
+        if (previous == NONE || previous.cruiseConfig() == cruiseConfig) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ConfigDependencyGraph dependencies = cruiseConfig.hasPipelineNamed(pipeline.name())
+            ? previous.dependencies().withPipeline(cruiseConfig.pipelineConfigByName(pipeline.name()))
+            : previous.dependencies().withoutPipeline(pipeline.name());
+        graph = new Graph(cruiseConfig, dependencies);
+        pipelineUpdates.record(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Hears about every change to the config. Saving a pipeline is the common case and only touches that pipeline;
+     * anything else may have changed materials or the set of pipelines, so the graph is built again when next needed.
+     */
+    private class GraphUpdater extends EntityConfigChangedListener<Object> {
+        @Override
+        public boolean shouldCareAbout(Object entity) {
+            return true;
+        }
+
+        @Override
+        public void onConfigChange(CruiseConfig newCruiseConfig) {
+            invalidate();
+        }
+
+        @Override
+        public void onEntityConfigChange(Object entity) {
+            if (entity instanceof PipelineConfig pipeline) {
+                update(pipeline);
+            } else {
+                invalidate();
+            }
+            recordValidationScope(entity);
+        }
+    }
+
+    private record Graph(CruiseConfig cruiseConfig, ConfigDependencyGraph dependencies) {
+    }
+}
@@ -16,10 +16,12 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.domain.ConsoleConsumer;
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.domain.LocatableEntity;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.util.KeyedLocks;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
 import com.thoughtworks.go.server.view.artifacts.BuildIdArtifactLocator;
 import com.thoughtworks.go.server.view.artifacts.PathBasedArtifactsLocator;
@@ -35,7 +37,11 @@ import org.springframework.stereotype.Component;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class ConsoleService {
@@ -43,6 +49,8 @@ public class ConsoleService {
 
     private final ArtifactDirectoryChooser chooser;
     private final ArtifactsDirHolder artifactsDirHolder;
+    private final Map<String, LastAppendedChunk> lastAppendedChunks = new ConcurrentHashMap<>();
+    private final KeyedLocks consoleLogLocks = new KeyedLocks();
 
     @Autowired
     public ConsoleService(ArtifactsDirHolder artifactsDirHolder) {
@@ -94,17 +102,61 @@ public class ConsoleService {
         appendToConsoleLogIoSafe(consoleLogFile(jobIdentifier), new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
     }
 
+    /**
+     * Appends a numbered chunk of console output sent by an agent. Agents send a chunk again when they cannot tell
+     * whether it got through, so a chunk numbered no higher than the last one appended for the job is not appended twice.
+     * A chunk is read in full before any of it is appended, so one which breaks off part way is left out altogether and
+     * can be sent again.
+     */
+    public boolean appendToConsoleLogIoSafe(JobIdentifier jobIdentifier, File dest, long sequenceNumber, InputStream in) {
+        LastAppendedChunk lastAppended = lastAppendedChunks.computeIfAbsent(jobIdentifier.entityLocator(), locator -> new LastAppendedChunk());
+        synchronized (lastAppended) {
+            if (sequenceNumber <= lastAppended.sequenceNumber) {
+                LOGGER.debug("Ignoring console output chunk {} for {} which has already been appended", sequenceNumber, jobIdentifier);
+                return true;
+            }
+            byte[] chunk;
+            try {
+                chunk = in.readAllBytes();
+            } catch (IOException e) {
+                LOGGER.error("Failed to read console output chunk {} for {}", sequenceNumber, jobIdentifier, e);
+                return false;
+            }
+            if (!appendToConsoleLogIoSafe(dest, new ByteArrayInputStream(chunk))) {
+                return false;
+            }
+            lastAppended.sequenceNumber = sequenceNumber;
+            return true;
+        }
+    }
+
+    /**
+     * Every append to a console log, whether it comes from an agent or from the server, goes through here and holds the
+     * lock of that log, so that appends to the same log never overlap.
+     */
     public boolean appendToConsoleLogIoSafe(File dest, InputStream in) {
         FileUtil.mkdirsParentQuietly(dest);
-        try (OutputStream out = new FileOutputStream(dest, dest.exists())) {
-            in.transferTo(out);
-        } catch (IOException e) {
-            LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
-            return false;
+        synchronized (consoleLogLocks.lockFor(dest.getAbsolutePath())) {
+            try (OutputStream out = Files.newOutputStream(dest.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                LOGGER.error("Failed to update console log at : [{}]", dest.getAbsolutePath(), e);
+                return false;
+            }
+            updateLineIndex(dest);
         }
         return true;
     }
 
+    private void updateLineIndex(File log) {
+        try {
+            ConsoleLogIndex.update(log.toPath());
+        } catch (IOException e) {
+            // Readers fall back to reading the log from the start, so there is no need to fail the update
+            LOGGER.warn("Failed to update line index for console log at : [{}]", log.getAbsolutePath(), e);
+        }
+    }
+
     void appendToConsoleLogSafe(JobIdentifier jobIdentifier, String errorMessage) {
         try {
             appendToConsoleLogIoSafe(jobIdentifier, errorMessage);
@@ -131,5 +183,33 @@ public class ConsoleService {
         } catch (IOException e) {
             throw new RuntimeException("Unexpected error moving console log from temporary location [%s] to permanent artifact location [%s]".formatted(from, to), e);
         }
+        moveLineIndex(from, to);
+        forgetAppendedChunks(locatableEntity);
+    }
+
+    /**
+     * Forgets the last chunk appended for a job which will not send any more, or whose console log is going to be
+     * started again by another agent after it was rescheduled.
+     */
+    public void forgetAppendedChunks(LocatableEntity locatableEntity) {
+        lastAppendedChunks.remove(locatableEntity.entityLocator());
+    }
+
+    private void moveLineIndex(File from, File to) {
+        File fromIndex = ConsoleLogIndex.indexFor(from.toPath()).toFile();
+        if (!fromIndex.exists()) {
+            return;
+        }
+        try {
+            FileUtils.moveFile(fromIndex, ConsoleLogIndex.indexFor(to.toPath()).toFile());
+        } catch (IOException e) {
+            // The log may have been appended to since it was moved, which starts a new index next to it
+            LOGGER.warn("Failed to move line index for console log from [{}] to [{}]", from, to, e);
+            FileUtils.deleteQuietly(fromIndex);
+        }
+    }
+
+    private static class LastAppendedChunk {
+        private long sequenceNumber;
     }
 }
@@ -44,7 +44,6 @@ import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
 import com.thoughtworks.go.util.TimeProvider;
 import com.thoughtworks.go.util.Timeout;
-import org.apache.commons.collections4.SetUtils;
 import org.apache.commons.lang3.Strings;
 import org.jetbrains.annotations.TestOnly;
 import org.slf4j.Logger;
@@ -79,6 +78,7 @@ public class ElasticAgentPluginService {
     private final TimeProvider timeProvider;
     private final ServerHealthService serverHealthService;
     private final ConcurrentHashMap<Long, Long> jobCreationTimeMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, JobPlan> jobsAwaitingElasticAgent = new ConcurrentHashMap<>();
     private final ScheduleService scheduleService;
     private final ConsoleService consoleService;
     private EphemeralAutoRegisterKeyService ephemeralAutoRegisterKeyService;
@@ -184,25 +184,46 @@ public class ElasticAgentPluginService {
         return new AgentMetadata(obj.elasticAgentId(), obj.agentState().toString(), obj.buildState().toString(), obj.configStatus().toString());
     }
 
-    public void createAgentsFor(List<JobPlan> old, List<JobPlan> newPlan) {
+    /**
+     * Requests elastic agents for the jobs that were scheduled since the last call. Elastic jobs that are still
+     * waiting for an agent are remembered here until they show up in {@code noLongerScheduled}, so that starving
+     * ones can be retried.
+     */
+    public void createAgentsForQueueChanges(List<JobPlan> scheduled, Set<Long> noLongerScheduled) {
+        for (Long jobId : noLongerScheduled) {
+            jobsAwaitingElasticAgent.remove(jobId);
+            jobCreationTimeMap.remove(jobId);
+        }
+
+        List<JobPlan> newElasticJobs = scheduled.stream()
+                .filter(isElasticAgent())
+                .filter(plan -> !noLongerScheduled.contains(plan.getJobId()))
+                .toList();
+
+        List<JobPlan> jobsThatRequireAgent = new ArrayList<>(starvingJobs(jobsAwaitingElasticAgent.values()));
+        jobsThatRequireAgent.addAll(newElasticJobs);
+        newElasticJobs.forEach(plan -> jobsAwaitingElasticAgent.put(plan.getJobId(), plan));
+
+        requestAgentsFor(jobsThatRequireAgent);
+    }
+
+    private Collection<JobPlan> starvingJobs(Collection<JobPlan> queuedJobs) {
         Collection<JobPlan> starvingJobs = new ArrayList<>();
-        for (JobPlan jobPlan : newPlan) {
+        for (JobPlan jobPlan : queuedJobs) {
             if (jobPlan.requiresElasticAgent()) {
-                if (!jobCreationTimeMap.containsKey(jobPlan.getJobId())) {
+                Long lastTryTime = jobCreationTimeMap.get(jobPlan.getJobId());
+                if (lastTryTime == null) {
                     continue;
                 }
-                long lastTryTime = jobCreationTimeMap.get(jobPlan.getJobId());
                 if (timeProvider.currentTimeMillis() - lastTryTime >= goConfigService.elasticJobStarvationThreshold()) {
                     starvingJobs.add(jobPlan);
                 }
             }
         }
+        return starvingJobs;
+    }
 
-        List<JobPlan> jobsThatRequireAgent = new ArrayList<>();
-        jobsThatRequireAgent.addAll(SetUtils.difference(new HashSet<>(newPlan), new HashSet<>(old)));
-        jobsThatRequireAgent.addAll(starvingJobs);
-
-        List<JobPlan> plansThatRequireElasticAgent = jobsThatRequireAgent.stream().filter(isElasticAgent()).toList();
+    private void requestAgentsFor(List<JobPlan> plansThatRequireElasticAgent) {
 //      messageTimeToLive is lesser than the starvation threshold to ensure there are no duplicate create agent message
         long messageTimeToLive = goConfigService.elasticJobStarvationThreshold() - 10000;
 
@@ -329,6 +350,7 @@ public class ElasticAgentPluginService {
 
         if (job.isAssignedToAgent()) {
             jobCreationTimeMap.remove(job.getId());
+            jobsAwaitingElasticAgent.remove(job.getId());
         }
 
         String pluginId = agentInstance.elasticAgentMetadata().elasticPluginId();
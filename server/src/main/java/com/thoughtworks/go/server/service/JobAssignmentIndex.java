@@ -0,0 +1,222 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.JobPlan;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Understands how to find the scheduled jobs an agent could pick up without scanning the whole build queue.
+ * <p>
+ * Jobs are bucketed by the environment of their pipeline and then by the resources they need (or the agent they are
+ * pinned to, or whether they need an elastic agent). Every job in a bucket is interchangeable as far as agent
+ * matching goes, so only the head of each bucket needs to be considered. Buckets keep the order in which jobs were
+ * added, so picking the earliest head across buckets preserves the order of
+ * {@link JobInstanceService#orderedScheduledBuilds()}.
+ * <p>
+ * Claiming a job is a CAS on its entry, which lets several agents match concurrently while guaranteeing a job is
+ * handed out at most once. Newly scheduled jobs can be appended and cancelled ones removed while agents are matching.
+ */
+class JobAssignmentIndex {
+    static final String NO_ENVIRONMENT = "";
+
+    private final Function<String, String> environmentForPipeline;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Entry> entries = new ConcurrentSkipListMap<>();
+    private final Map<JobPlan, Entry> entriesByPlan = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final Map<Long, Entry> entriesByJobId = new ConcurrentHashMap<>();
+    private final Map<String, EnvironmentBuckets> bucketsByEnvironment = new ConcurrentHashMap<>();
+
+    static JobAssignmentIndex empty() {
+        return new JobAssignmentIndex(List.of(), pipelineName -> NO_ENVIRONMENT);
+    }
+
+    JobAssignmentIndex(List<JobPlan> orderedJobPlans, Function<String, String> environmentForPipeline) {
+        this.environmentForPipeline = environmentForPipeline;
+        Map<String, String> environmentCache = new HashMap<>();
+        for (JobPlan jobPlan : orderedJobPlans) {
+            append(jobPlan, environmentCache.computeIfAbsent(String.valueOf(jobPlan.getPipelineName()), name -> environmentOf(jobPlan)));
+        }
+    }
+
+    /**
+     * Appends a newly scheduled job to the end of the queue.
+     *
+     * @return false if a job with the same id is already known to this index
+     */
+    boolean add(JobPlan jobPlan) {
+        if (entriesByJobId.containsKey(jobPlan.getJobId())) {
+            return false;
+        }
+        append(jobPlan, environmentOf(jobPlan));
+        return true;
+    }
+
+    /**
+     * Takes a job that is no longer scheduled (assigned elsewhere, cancelled, rescheduled...) out of the queue.
+     *
+     * @return the job that was removed, or null if it was not queued
+     */
+    JobPlan remove(long jobId) {
+        Entry entry = entriesByJobId.get(jobId);
+        return entry != null && claim(entry) ? entry.jobPlan : null;
+    }
+
+    /**
+     * @return the earliest unclaimed job of each bucket an agent with no elastic capabilities could pick up, in queue
+     * order. Resources are not checked here; every job of a bucket needs the same resources, so checking the head is
+     * enough.
+     */
+    List<JobPlan> candidatesFor(Collection<String> agentEnvironments, String agentUuid) {
+        List<Entry> heads = new ArrayList<>();
+        for (String environment : environmentsToSearch(agentEnvironments)) {
+            EnvironmentBuckets buckets = bucketsByEnvironment.get(environment);
+            if (buckets != null) {
+                buckets.collectHeads(agentUuid, heads);
+            }
+        }
+        return sortedPlans(heads);
+    }
+
+    /**
+     * @return all unclaimed jobs that require an elastic agent an elastic agent in the given environments could pick
+     * up, in queue order. Whether the elastic agent can run the job is up to the plugin, so these cannot be narrowed
+     * down any further.
+     */
+    List<JobPlan> elasticCandidatesFor(Collection<String> agentEnvironments) {
+        List<Entry> candidates = new ArrayList<>();
+        for (String environment : environmentsToSearch(agentEnvironments)) {
+            EnvironmentBuckets buckets = bucketsByEnvironment.get(environment);
+            if (buckets != null) {
+                candidates.addAll(buckets.elastic.values());
+            }
+        }
+        return sortedPlans(candidates);
+    }
+
+    /**
+     * @return true if the job was in this index and has now been claimed by the caller, false if it is unknown or
+     * someone else got there first
+     */
+    boolean claim(JobPlan jobPlan) {
+        Entry entry = entriesByPlan.get(jobPlan);
+        return entry != null && claim(entry);
+    }
+
+    boolean contains(JobPlan jobPlan) {
+        return entriesByPlan.containsKey(jobPlan);
+    }
+
+    List<JobPlan> pending() {
+        return entries.values().stream().map(entry -> entry.jobPlan).toList();
+    }
+
+    private void append(JobPlan jobPlan, String environment) {
+        EnvironmentBuckets buckets = bucketsByEnvironment.computeIfAbsent(environment, name -> new EnvironmentBuckets());
+        Entry entry = new Entry(sequence.getAndIncrement(), jobPlan, buckets.bucketFor(jobPlan));
+        entriesByPlan.put(jobPlan, entry);
+        entriesByJobId.put(jobPlan.getJobId(), entry);
+        entries.put(entry.sequence, entry);
+        entry.bucket.put(entry.sequence, entry);
+    }
+
+    private boolean claim(Entry entry) {
+        if (!entry.claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        // Claimed entries stay known by id and plan until the index is rebuilt, so a job that is being assigned is
+        // never added back and a lost race can be told apart from a job that was never queued
+        entry.bucket.remove(entry.sequence);
+        entries.remove(entry.sequence);
+        return true;
+    }
+
+    private String environmentOf(JobPlan jobPlan) {
+        return Objects.toString(environmentForPipeline.apply(jobPlan.getPipelineName()), NO_ENVIRONMENT);
+    }
+
+    private static Collection<String> environmentsToSearch(Collection<String> agentEnvironments) {
+        // An agent outside any environment can only pick up jobs of pipelines outside any environment, and vice versa
+        return agentEnvironments == null || agentEnvironments.isEmpty() ? List.of(NO_ENVIRONMENT) : agentEnvironments;
+    }
+
+    private static List<JobPlan> sortedPlans(List<Entry> entries) {
+        entries.sort(comparingLong(entry -> entry.sequence));
+        return entries.stream().map(entry -> entry.jobPlan).toList();
+    }
+
+    private static class EnvironmentBuckets {
+        private final Map<List<String>, ConcurrentSkipListMap<Long, Entry>> byResources = new ConcurrentHashMap<>();
+        private final Map<String, ConcurrentSkipListMap<Long, Entry>> byPinnedAgent = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Long, Entry> elastic = new ConcurrentSkipListMap<>();
+
+        ConcurrentSkipListMap<Long, Entry> bucketFor(JobPlan jobPlan) {
+            if (jobPlan.requiresElasticAgent()) {
+                return elastic;
+            }
+            if (!jobPlan.assignedToAgent()) {
+                return byPinnedAgent.computeIfAbsent(jobPlan.getAgentUuid(), uuid -> new ConcurrentSkipListMap<>());
+            }
+            return byResources.computeIfAbsent(resourceKey(jobPlan), key -> new ConcurrentSkipListMap<>());
+        }
+
+        void collectHeads(String agentUuid, List<Entry> heads) {
+            for (ConcurrentSkipListMap<Long, Entry> bucket : byResources.values()) {
+                collectHead(bucket, heads);
+            }
+            ConcurrentSkipListMap<Long, Entry> pinned = agentUuid == null ? null : byPinnedAgent.get(agentUuid);
+            if (pinned != null) {
+                collectHead(pinned, heads);
+            }
+        }
+
+        private static void collectHead(ConcurrentSkipListMap<Long, Entry> bucket, List<Entry> heads) {
+            Map.Entry<Long, Entry> head = bucket.firstEntry();
+            if (head != null) {
+                heads.add(head.getValue());
+            }
+        }
+
+        private static List<String> resourceKey(JobPlan jobPlan) {
+            return jobPlan.getResources().toResourceConfigs().resourceNames().stream()
+                .map(String::toLowerCase)
+                .distinct()
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static class Entry {
+        private final long sequence;
+        private final JobPlan jobPlan;
+        private final ConcurrentSkipListMap<Long, Entry> bucket;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Entry(long sequence, JobPlan jobPlan, ConcurrentSkipListMap<Long, Entry> bucket) {
+            this.sequence = sequence;
+            this.jobPlan = jobPlan;
+            this.bucket = bucket;
+        }
+    }
+}
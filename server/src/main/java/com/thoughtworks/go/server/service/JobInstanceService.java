@@ -169,6 +169,13 @@ public class JobInstanceService implements JobPlanLoader, ConfigChangedListener
         return jobInstanceDao.orderedScheduledBuilds();
     }
 
+    /**
+     * @return the plan of the job if it is still waiting to be assigned, null otherwise
+     */
+    public JobPlan scheduledPlan(long jobId) {
+        return jobInstanceDao.scheduledPlan(jobId);
+    }
+
     public List<WaitingJobPlan> waitingJobPlans(Username username) {
         List<JobPlan> jobPlans = orderedScheduledBuilds();
         return jobPlans.stream()
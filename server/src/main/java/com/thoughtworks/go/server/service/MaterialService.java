@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.rits.cloning.Cloner;
 import com.thoughtworks.go.config.SecretParamAware;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.materials.PackageMaterial;
@@ -40,6 +41,7 @@ import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.util.Pagination;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
+import com.thoughtworks.go.util.ClonerFactory;
 import com.thoughtworks.go.util.Pair;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,6 +71,7 @@ public class MaterialService {
     private final TransactionTemplate transactionTemplate;
     private final SecretParamResolver secretParamResolver;
     private final Map<Class<? extends Material>, MaterialPoller<? extends Material>> materialPollerMap = new HashMap<>();
+    private final Cloner cloner = ClonerFactory.instance();
 
     @Autowired
     public MaterialService(MaterialRepository materialRepository,
@@ -124,22 +127,18 @@ public class MaterialService {
     public List<Modification> latestModification(Material material,
                                                  File baseDir,
                                                  final SubprocessExecutionContext execCtx) {
-        resolveSecretParams(material);
-        return getPollerImplementation(material).latestModification(material, baseDir, execCtx);
+        return getPollerImplementation(material).latestModification(withSecretParamsResolved(material), baseDir, execCtx);
     }
 
     public List<Modification> modificationsSince(Material material,
                                                  File baseDir,
                                                  Revision revision,
                                                  final SubprocessExecutionContext execCtx) {
-        resolveSecretParams(material);
-        return getPollerImplementation(material).modificationsSince(material, baseDir, revision, execCtx);
+        return getPollerImplementation(material).modificationsSince(withSecretParamsResolved(material), baseDir, revision, execCtx);
     }
 
     public void checkout(Material material, File baseDir, Revision revision, final SubprocessExecutionContext execCtx) {
-        resolveSecretParams(material);
-
-        getPollerImplementation(material).checkout(material, baseDir, revision, execCtx);
+        getPollerImplementation(material).checkout(withSecretParamsResolved(material), baseDir, revision, execCtx);
     }
 
     protected MaterialPoller<Material> getPollerImplementation(Material material) {
@@ -160,10 +159,17 @@ public class MaterialService {
         return materialRepository.getModificationsFor(materialInstance, pagination);
     }
 
-    private void resolveSecretParams(Material material) {
-        if (material instanceof SecretParamAware) {
-            this.secretParamResolver.resolve(material);
+    /**
+     * The material is usually shared, e.g. with the config or with the other listeners of the message it came in, so
+     * secrets are resolved on a copy of it rather than on the material itself.
+     */
+    private Material withSecretParamsResolved(Material material) {
+        if (!(material instanceof SecretParamAware secretParamAware) || !secretParamAware.hasSecretParams()) {
+            return material;
         }
+        Material copy = cloner.deepClone(material);
+        this.secretParamResolver.resolve(copy);
+        return copy;
     }
 
     Class<? extends Material> getMaterialClass(Material material) {
@@ -29,6 +29,7 @@ import com.thoughtworks.go.server.domain.PipelineConfigDependencyGraph;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.dd.FanInGraph;
+import com.thoughtworks.go.server.service.dd.FanInResolutionCache;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -53,11 +54,14 @@ public class PipelineService implements UpstreamPipelineResolver {
     private final PipelineTimeline pipelineTimeline;
     private final MaterialRepository materialRepository;
     private final MaterialConfigConverter materialConfigConverter;
+    private final ConfigDependencyGraphService configDependencyGraphService;
+    private final FanInResolutionCache fanInResolutionCache;
     private final IntSupplier maxBackTrackLimit;
 
     @Autowired
     public PipelineService(PipelineSqlMapDao pipelineDao, StageService stageService, PipelineLockService pipelineLockService, PipelineTimeline pipelineTimeline, MaterialRepository materialRepository,
-                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, MaterialConfigConverter materialConfigConverter) {
+                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, MaterialConfigConverter materialConfigConverter,
+                           ConfigDependencyGraphService configDependencyGraphService, FanInResolutionCache fanInResolutionCache) {
         this.pipelineDao = pipelineDao;
         this.stageService = stageService;
         this.pipelineLockService = pipelineLockService;
@@ -65,6 +69,8 @@ public class PipelineService implements UpstreamPipelineResolver {
         this.materialRepository = materialRepository;
         this.transactionTemplate = transactionTemplate;
         this.materialConfigConverter = materialConfigConverter;
+        this.configDependencyGraphService = configDependencyGraphService;
+        this.fanInResolutionCache = fanInResolutionCache;
         this.maxBackTrackLimit = () -> systemEnvironment.get(RESOLVE_FANIN_MAX_BACK_TRACK_LIMIT);
     }
 
@@ -208,8 +214,10 @@ public class PipelineService implements UpstreamPipelineResolver {
     /* DIAMOND BEGIN */
 
     public MaterialRevisions getRevisionsBasedOnDependencies(MaterialRevisions actualRevisions, CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, materialConfigConverter, maxBackTrackLimit);
-        final MaterialRevisions computedRevisions = fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
+        long start = System.currentTimeMillis();
+        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, configDependencyGraphService.graphFor(cruiseConfig), pipelineName, materialRepository, pipelineDao, materialConfigConverter, maxBackTrackLimit);
+        configDependencyGraphService.recordUse(ConfigDependencyGraphService.FAN_IN_RESOLUTION, System.currentTimeMillis() - start);
+        final MaterialRevisions computedRevisions = fanInResolutionCache.computeRevisions(pipelineName, fanInGraph, actualRevisions, pipelineTimeline);
         fillUpNonOverridableRevisions(actualRevisions, computedRevisions);
         return restoreOriginalMaterialConfigAndMaterialOrderUsingFingerprint(actualRevisions, computedRevisions);
     }
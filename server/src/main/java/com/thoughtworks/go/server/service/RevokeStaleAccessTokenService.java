@@ -74,6 +74,7 @@ public class RevokeStaleAccessTokenService extends EntityConfigChangedListener<S
                     this.revokeAccessTokenDueToRemovalOfAuthConfig(token);
                 }
             });
+            this.accessTokenService.invalidateVerifiedTokens();
         }
 
         this.existingSecurityAuthConfigs = updatedSecurityAuthConfigs;
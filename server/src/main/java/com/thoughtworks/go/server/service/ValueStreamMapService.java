@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.service;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.ConfigDependencyGraph;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.PipelineConfigs;
@@ -45,10 +46,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 public class ValueStreamMapService {
@@ -60,11 +58,13 @@ public class ValueStreamMapService {
     private final RunStagesPopulator runStagesPopulator;
     private final UnrunStagesPopulator unrunStagePopulator;
     private final SecurityService securityService;
+    private final ConfigDependencyGraphService configDependencyGraphService;
     private static final Logger LOGGER = LoggerFactory.getLogger(ValueStreamMapService.class);
 
     @Autowired
     public ValueStreamMapService(PipelineService pipelineService, MaterialRepository materialRepository, GoConfigService goConfigService, DownstreamInstancePopulator downstreamInstancePopulator,
-                                 RunStagesPopulator runStagesPopulator, UnrunStagesPopulator unrunStagePopulator, SecurityService securityService) {
+                                 RunStagesPopulator runStagesPopulator, UnrunStagesPopulator unrunStagePopulator, SecurityService securityService,
+                                 ConfigDependencyGraphService configDependencyGraphService) {
         this.pipelineService = pipelineService;
         this.materialRepository = materialRepository;
         this.goConfigService = goConfigService;
@@ -72,6 +72,7 @@ public class ValueStreamMapService {
         this.runStagesPopulator = runStagesPopulator;
         this.unrunStagePopulator = unrunStagePopulator;
         this.securityService = securityService;
+        this.configDependencyGraphService = configDependencyGraphService;
     }
 
     public ValueStreamMapPresentationModel getValueStreamMap(CaseInsensitiveString pipelineName, int counter, Username username, LocalizedOperationResult result) {
@@ -93,6 +94,15 @@ public class ValueStreamMapService {
     }
 
     private ValueStreamMap buildValueStreamMap(CaseInsensitiveString pipelineName, int counter, Username username, LocalizedOperationResult result) {
+        long start = System.currentTimeMillis();
+        try {
+            return buildValueStreamMapOfPipeline(pipelineName, counter, username, result);
+        } finally {
+            configDependencyGraphService.recordUse(ConfigDependencyGraphService.VALUE_STREAM_MAP, System.currentTimeMillis() - start);
+        }
+    }
+
+    private ValueStreamMap buildValueStreamMapOfPipeline(CaseInsensitiveString pipelineName, int counter, Username username, LocalizedOperationResult result) {
         CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
         BuildCause buildCauseForPipeline;
         try {
@@ -104,9 +114,9 @@ public class ValueStreamMapService {
         }
         String label = pipelineService.findPipelineByNameAndCounter(pipelineName.toString(), counter).getLabel();
         ValueStreamMap valueStreamMap = new ValueStreamMap(pipelineName, new PipelineRevision(pipelineName.toString(), counter, label));
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        ConfigDependencyGraph dependencyGraph = configDependencyGraphService.graphFor(cruiseConfig);
 
-        traverseDownstream(pipelineName, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
+        traverseDownstream(pipelineName, dependencyGraph, valueStreamMap, new HashSet<>());
         traverseUpstream(pipelineName, buildCauseForPipeline, valueStreamMap, new ArrayList<>());
 
         if (valueStreamMap.hasCycle()) {
@@ -180,15 +190,20 @@ public class ValueStreamMapService {
     }
 
     private ValueStreamMap buildValueStreamMap(Material material, MaterialInstance materialInstance, Modification modification, List<PipelineConfig> downstreamPipelines, Username username) {
-        CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
-        ValueStreamMap valueStreamMap = new ValueStreamMap(material, materialInstance, modification);
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        long start = System.currentTimeMillis();
+        try {
+            ValueStreamMap valueStreamMap = new ValueStreamMap(material, materialInstance, modification);
+            ConfigDependencyGraph dependencyGraph = configDependencyGraphService.graphFor(goConfigService.currentCruiseConfig());
+            List<CaseInsensitiveString> downstreamPipelineNames = downstreamPipelines.stream().map(PipelineConfig::name).toList();
 
-        traverseDownstream(new CaseInsensitiveString(material.getFingerprint()), downstreamPipelines, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
+            traverseDownstream(new CaseInsensitiveString(material.getFingerprint()), downstreamPipelineNames, dependencyGraph, valueStreamMap, new HashSet<>());
 
-        addInstanceInformationToTheGraph(valueStreamMap);
-        removeRevisionsBasedOnPermissionAndCurrentConfig(valueStreamMap, username);
-        return valueStreamMap;
+            addInstanceInformationToTheGraph(valueStreamMap);
+            removeRevisionsBasedOnPermissionAndCurrentConfig(valueStreamMap, username);
+            return valueStreamMap;
+        } finally {
+            configDependencyGraphService.recordUse(ConfigDependencyGraphService.VALUE_STREAM_MAP, System.currentTimeMillis() - start);
+        }
     }
 
     private void removeRevisionsBasedOnPermissionAndCurrentConfig(ValueStreamMap valueStreamMap, Username username) {
@@ -237,18 +252,16 @@ public class ValueStreamMapService {
         }
     }
 
-    private void traverseDownstream(CaseInsensitiveString upstreamPipelineName, Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap, ValueStreamMap graph, List<PipelineConfig> visitedNodes) {
-        List<PipelineConfig> downstreamPipelines = pipelineToDownstreamMap.get(upstreamPipelineName);
-        traverseDownstream(upstreamPipelineName, downstreamPipelines, pipelineToDownstreamMap, graph, visitedNodes);
+    private void traverseDownstream(CaseInsensitiveString upstreamPipelineName, ConfigDependencyGraph dependencyGraph, ValueStreamMap graph, Set<CaseInsensitiveString> visitedNodes) {
+        traverseDownstream(upstreamPipelineName, dependencyGraph.directDownstreamsOf(upstreamPipelineName), dependencyGraph, graph, visitedNodes);
     }
 
-    private void traverseDownstream(CaseInsensitiveString materialId, List<PipelineConfig> downstreamPipelines, Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap, ValueStreamMap graph, List<PipelineConfig> visitedNodes) {
-        for (PipelineConfig downstreamPipeline : downstreamPipelines) {
-            graph.addDownstreamNode(new PipelineDependencyNode(downstreamPipeline.name(), downstreamPipeline.name().toString()), materialId);
+    private void traverseDownstream(CaseInsensitiveString materialId, Collection<CaseInsensitiveString> downstreamPipelines, ConfigDependencyGraph dependencyGraph, ValueStreamMap graph, Set<CaseInsensitiveString> visitedNodes) {
+        for (CaseInsensitiveString downstreamPipeline : downstreamPipelines) {
+            graph.addDownstreamNode(new PipelineDependencyNode(downstreamPipeline, downstreamPipeline.toString()), materialId);
 
-            if (!visitedNodes.contains(downstreamPipeline)) {
-                visitedNodes.add(downstreamPipeline);
-                traverseDownstream(downstreamPipeline.name(), pipelineToDownstreamMap, graph, visitedNodes);
+            if (visitedNodes.add(downstreamPipeline)) {
+                traverseDownstream(downstreamPipeline, dependencyGraph, graph, visitedNodes);
             }
         }
     }
@@ -108,6 +108,10 @@ class DependencyFanInNode extends FanInNode<DependencyMaterialConfig> {
         return revisionAlteration;
     }
 
+    int backtrackDepth() {
+        return currentCount;
+    }
+
     PipelineTimelineEntry latestPipelineTimelineEntry(FanInGraphContext context) {
         if (totalInstanceCount == 0) {
             return null;
@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.ConfigDependencyGraph;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.materials.MaterialConfigs;
@@ -47,7 +48,7 @@ import static com.thoughtworks.go.server.service.dd.NoCompatibleUpstreamRevision
 
 public class FanInGraph {
     private final PipelineDao pipelineDao;
-    private final CruiseConfig cruiseConfig;
+    private final ConfigDependencyGraph dependencyGraph;
     private final MaterialRepository materialRepository;
     private final MaterialConfigConverter materialConfigConverter;
 
@@ -62,7 +63,16 @@ public class FanInGraph {
 
     public FanInGraph(CruiseConfig cruiseConfig, CaseInsensitiveString root, MaterialRepository materialRepository, PipelineDao pipelineDao,
                       MaterialConfigConverter materialConfigConverter, IntSupplier maxBackTrackLimit) {
-        this.cruiseConfig = cruiseConfig;
+        this(cruiseConfig, new ConfigDependencyGraph(cruiseConfig), root, materialRepository, pipelineDao, materialConfigConverter, maxBackTrackLimit);
+    }
+
+    /**
+     * @param dependencyGraph the upstream materials of every pipeline in {@code cruiseConfig}, so that the graph can be
+     *                        built without looking each upstream pipeline up in the config again
+     */
+    public FanInGraph(CruiseConfig cruiseConfig, ConfigDependencyGraph dependencyGraph, CaseInsensitiveString root, MaterialRepository materialRepository,
+                      PipelineDao pipelineDao, MaterialConfigConverter materialConfigConverter, IntSupplier maxBackTrackLimit) {
+        this.dependencyGraph = dependencyGraph;
         this.materialRepository = materialRepository;
         this.pipelineDao = pipelineDao;
         this.pipelineName = root;
@@ -78,12 +88,12 @@ public class FanInGraph {
     private void buildGraph(PipelineConfig target) {
         nodes.put(this.root.materialConfig.getFingerprint(), this.root);
         final Set<String> scmMaterials = new HashSet<>();
-        buildRestOfTheGraph(this.root, target, scmMaterials, new HashSet<>());
+        buildRestOfTheGraph(this.root, target.materialConfigs(), scmMaterials, new HashSet<>());
         dependencyMaterialFingerprintMap.put(this.root.materialConfig, scmMaterials);
     }
 
-    private void buildRestOfTheGraph(DependencyFanInNode root, PipelineConfig target, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
-        for (MaterialConfig material : target.materialConfigs()) {
+    private void buildRestOfTheGraph(DependencyFanInNode root, MaterialConfigs materialConfigs, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
+        for (MaterialConfig material : materialConfigs) {
             FanInNode<?> node = nodes.computeIfAbsent(material.getFingerprint(), k -> FanInNode.create(material));
             root.addChild(node);
             if (node instanceof DependencyFanInNode) {
@@ -110,7 +120,7 @@ public class FanInGraph {
         visitedNodes.add(depMaterial);
 
         final Set<String> scmMaterialFingerprintSet = new HashSet<>();
-        buildRestOfTheGraph(node, cruiseConfig.pipelineConfigByName(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
+        buildRestOfTheGraph(node, dependencyGraph.materialsOf(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
         dependencyMaterialFingerprintMap.put(depMaterial, scmMaterialFingerprintSet);
         scmMaterialSet.addAll(scmMaterialFingerprintSet);
     }
@@ -140,6 +150,56 @@ public class FanInGraph {
         return dependencyMaterialListMap;
     }
 
+    /**
+     * @return whether {@link #computeRevisions} has anything to resolve, which it does not when every material of the
+     * pipeline is an SCM
+     */
+    boolean requiresResolution() {
+        return !FanInNode.ByType.from(root.children).isAllScm();
+    }
+
+    /**
+     * @return everything the resolved revisions depend on other than the database: how the upstream materials are
+     * wired together in the config, the revisions being resolved and where the timeline of each pipeline whose history
+     * is walked has got to
+     */
+    FanInResolutionCache.Key resolutionKey(MaterialRevisions actualRevisions, PipelineTimeline pipelineTimeline) {
+        Map<String, Set<String>> upstreamMaterials = new HashMap<>();
+        for (FanInNode<?> node : nodes.values()) {
+            if (node instanceof DependencyFanInNode dependencyNode) {
+                upstreamMaterials.put(dependencyNode.materialConfig.getFingerprint(),
+                    dependencyNode.children.stream().map(child -> child.materialConfig.getFingerprint()).collect(Collectors.toSet()));
+            }
+        }
+        Map<String, String> revisions = new HashMap<>();
+        for (MaterialRevision revision : actualRevisions) {
+            revisions.put(revision.getMaterial().getFingerprint(), revision.getLatestRevisionString());
+        }
+        Map<CaseInsensitiveString, FanInResolutionCache.TimelinePosition> timelinePositions = new HashMap<>();
+        timelinePositions.put(pipelineName, timelinePositionOf(pipelineName, pipelineTimeline));
+        for (DependencyFanInNode child : FanInNode.ByType.from(root.children).dep()) {
+            CaseInsensitiveString upstream = child.materialConfig.getPipelineName();
+            timelinePositions.put(upstream, timelinePositionOf(upstream, pipelineTimeline));
+        }
+        return new FanInResolutionCache.Key(upstreamMaterials, revisions, timelinePositions);
+    }
+
+    private static FanInResolutionCache.TimelinePosition timelinePositionOf(CaseInsensitiveString pipelineName, PipelineTimeline pipelineTimeline) {
+        int instanceCount = pipelineTimeline.instanceCount(pipelineName);
+        PipelineTimelineEntry latest = instanceCount == 0 ? null : pipelineTimeline.instanceFor(pipelineName, instanceCount - 1);
+        return new FanInResolutionCache.TimelinePosition(instanceCount, latest == null ? -1 : latest.getId());
+    }
+
+    /**
+     * @return the most instances of an upstream pipeline the last {@link #computeRevisions} had to go back through
+     */
+    int backtrackDepth() {
+        return FanInNode.ByType.from(root.children).dep().stream()
+            .mapToInt(DependencyFanInNode::backtrackDepth)
+            .max()
+            .orElse(0);
+    }
+
     public MaterialRevisions computeRevisions(MaterialRevisions actualRevisions, PipelineTimeline pipelineTimeline) {
         assertAllDirectDependenciesArePresentInInput(actualRevisions, pipelineName);
 
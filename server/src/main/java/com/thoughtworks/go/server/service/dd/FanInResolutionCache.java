@@ -0,0 +1,116 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.MaterialRevisions;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.perf.DurationStatistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Understands remembering the revisions fan-in resolution last came up with for each pipeline, so that checking a
+ * pipeline again when nothing upstream of it has changed does not walk the pipeline timeline all over again. A result
+ * is only used again while the config of the upstream materials, the revisions being resolved and the timeline of the
+ * upstream pipelines are all the same as when it was worked out, so a new timeline entry is enough to drop it.
+ */
+@Component
+public class FanInResolutionCache {
+    private final Map<CaseInsensitiveString, Resolution> resolutions = new ConcurrentHashMap<>();
+    private final Map<CaseInsensitiveString, PipelineStatistics> statistics = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MaterialRevisions computeRevisions(CaseInsensitiveString pipelineName, FanInGraph fanInGraph, MaterialRevisions actualRevisions, PipelineTimeline pipelineTimeline) {
+        if (!fanInGraph.requiresResolution()) {
+            return fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
+        }
+        Key key = fanInGraph.resolutionKey(actualRevisions, pipelineTimeline);
+        PipelineStatistics pipelineStatistics = statistics.computeIfAbsent(pipelineName, name -> new PipelineStatistics());
+        Resolution previous = resolutions.get(pipelineName);
+        if (previous != null && previous.key().equals(key)) {
+            hits.increment();
+            pipelineStatistics.hits.increment();
+            return new MaterialRevisions(previous.revisions());
+        }
+
+        misses.increment();
+        long start = System.currentTimeMillis();
+        try {
+            MaterialRevisions computedRevisions = fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
+            resolutions.put(pipelineName, new Resolution(key, List.copyOf(computedRevisions.getRevisions())));
+            return computedRevisions;
+        } finally {
+            pipelineStatistics.record(System.currentTimeMillis() - start, fanInGraph.backtrackDepth());
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Cache hits", hits.sum());
+        json.put("Cache misses", misses.sum());
+        json.put("Cached pipelines", resolutions.size());
+        Map<String, Object> pipelines = new TreeMap<>();
+        statistics.forEach((pipelineName, pipelineStatistics) -> pipelines.put(pipelineName.toString(), pipelineStatistics.asJsonCompatibleMap()));
+        json.put("Pipelines", pipelines);
+        return json;
+    }
+
+    record Key(Map<String, Set<String>> upstreamMaterials, Map<String, String> revisions, Map<CaseInsensitiveString, TimelinePosition> timelinePositions) {
+    }
+
+    /**
+     * A new instance of a pipeline always changes how many instances it has, and the id of its latest instance tells
+     * apart an instance which was rolled back from one which replaced it.
+     */
+    record TimelinePosition(int instanceCount, long latestEntryId) {
+    }
+
+    private record Resolution(Key key, List<MaterialRevision> revisions) {
+    }
+
+    private static class PipelineStatistics {
+        private final DurationStatistics resolutions = new DurationStatistics();
+        private final LongAdder hits = new LongAdder();
+        private final AtomicInteger lastBacktrackDepth = new AtomicInteger();
+        private final AtomicInteger maxBacktrackDepth = new AtomicInteger();
+
+        private void record(long millis, int backtrackDepth) {
+            resolutions.record(millis);
+            lastBacktrackDepth.set(backtrackDepth);
+            maxBacktrackDepth.accumulateAndGet(backtrackDepth, Math::max);
+        }
+
+        private Map<String, Object> asJsonCompatibleMap() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Resolutions", resolutions.asJsonCompatibleMap());
+            json.put("Cache hits", hits.sum());
+            json.put("Last backtrack depth", lastBacktrackDepth.get());
+            json.put("Max backtrack depth", maxBacktrackDepth.get());
+            return json;
+        }
+    }
+}
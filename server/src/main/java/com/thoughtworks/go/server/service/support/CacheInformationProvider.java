@@ -15,10 +15,15 @@
  */
 package com.thoughtworks.go.server.service.support;
 
+import com.thoughtworks.go.server.cache.CacheRegion;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.cache.VerifiedAccessTokenCache;
+import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.statistics.StatisticsGateway;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.LinkedHashMap;
@@ -26,6 +31,16 @@ import java.util.Map;
 
 @Component
 public class CacheInformationProvider implements ServerInfoProvider {
+    private final GoCache goCache;
+    private final ZipArtifactCache zipArtifactCache;
+    private final VerifiedAccessTokenCache verifiedAccessTokenCache;
+
+    @Autowired
+    public CacheInformationProvider(GoCache goCache, ZipArtifactCache zipArtifactCache, VerifiedAccessTokenCache verifiedAccessTokenCache) {
+        this.goCache = goCache;
+        this.zipArtifactCache = zipArtifactCache;
+        this.verifiedAccessTokenCache = verifiedAccessTokenCache;
+    }
 
     @Override
     public double priority() {
@@ -50,6 +65,14 @@ public class CacheInformationProvider implements ServerInfoProvider {
             }
         }
 
+        LinkedHashMap<String, Object> jsonForRegions = new LinkedHashMap<>();
+        for (CacheRegion<?, ?> region : goCache.regions()) {
+            jsonForRegions.put(region.name(), region.asJsonCompatibleMap());
+        }
+        json.put("Cache regions", jsonForRegions);
+        json.put("Artifact zip cache", zipArtifactCache.asJsonCompatibleMap());
+        json.put("Verified access token cache", verifiedAccessTokenCache.asJsonCompatibleMap());
+
         return json;
     }
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.materials.MaterialUpdateService;
+import com.thoughtworks.go.server.messaging.scheduling.WorkAssignments;
+import com.thoughtworks.go.server.messaging.scheduling.WorkDispatchStatistics;
+import com.thoughtworks.go.server.service.ArtifactBlobStore;
+import com.thoughtworks.go.server.service.ConfigConsistencyChecker;
+import com.thoughtworks.go.server.service.ConfigDependencyGraphService;
+import com.thoughtworks.go.server.service.dd.FanInResolutionCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Understands reporting the statistics that the server keeps about its own work, one section for each part of the
+ * server that keeps them.
+ */
+@Component
+public class PerformanceStatisticsProvider implements ServerInfoProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PerformanceStatisticsProvider.class);
+
+    private final Map<String, Supplier<Map<String, Object>>> sections = new LinkedHashMap<>();
+
+    @Autowired
+    public PerformanceStatisticsProvider(ConfigConsistencyChecker configConsistencyChecker, ConfigDependencyGraphService configDependencyGraphService,
+                                         FanInResolutionCache fanInResolutionCache, WorkAssignments workAssignments,
+                                         WorkDispatchStatistics workDispatchStatistics, PipelineTimeline pipelineTimeline,
+                                         ArtifactBlobStore artifactBlobStore, MaterialUpdateService materialUpdateService) {
+        section("Config Validation", () -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Entity saves", configDependencyGraphService.validationScopeStatistics().asJsonCompatibleMap());
+            json.put("Full validation", configConsistencyChecker.fullValidation().asJsonCompatibleMap());
+            json.put("Errors found by last full validation", configConsistencyChecker.errorsFound());
+            return json;
+        });
+        section("Pipeline Dependency Graph", configDependencyGraphService::statistics);
+        section("Fan-in Resolution", fanInResolutionCache::statistics);
+        section("Work Assignments", () -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("Agents waiting for work", workAssignments.numberOfWaitingAgents());
+            json.put("Job scheduled to agent notified", workDispatchStatistics.scheduledToAgentNotified().asJsonCompatibleMap());
+            return json;
+        });
+        section("Pipeline Timeline", pipelineTimeline::asJsonCompatibleMap);
+        section("Artifact Deduplication", artifactBlobStore::asJsonCompatibleMap);
+        section("Push Notifications", materialUpdateService::pushNotificationStatistics);
+        section("Material Update Scheduling", materialUpdateService::schedulingStatistics);
+    }
+
+    private void section(String name, Supplier<Map<String, Object>> statistics) {
+        sections.put(name, statistics);
+    }
+
+    @Override
+    public double priority() {
+        return 11.6;
+    }
+
+    @Override
+    public Map<String, Object> asJsonCompatibleMap() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        sections.forEach((name, statistics) -> {
+            try {
+                json.put(name, statistics.get());
+            } catch (Exception e) {
+                json.put(name, String.format("Could not collect statistics: %s", e.getMessage()));
+                LOGGER.warn("Could not collect {} statistics for the API support page.", name, e);
+            }
+        });
+        return json;
+    }
+
+    @Override
+    public String name() {
+        return "Performance Statistics";
+    }
+}
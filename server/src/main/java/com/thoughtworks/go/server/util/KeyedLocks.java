@@ -0,0 +1,33 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.util;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Understands handing out one lock object per key. A lock is kept for as long as anyone is holding on to it, and left
+ * to be garbage collected after that. Unlike synchronizing on an interned string, no code outside the owner of the
+ * locks can end up synchronizing on the same object.
+ */
+public class KeyedLocks {
+    private final LoadingCache<String, Object> locks = Caffeine.newBuilder().weakValues().build(key -> new Object());
+
+    public @NotNull Object lockFor(@NotNull String key) {
+        return locks.get(key);
+    }
+}
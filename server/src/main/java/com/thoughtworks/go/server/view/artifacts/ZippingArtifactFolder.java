@@ -0,0 +1,55 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.view.artifacts;
+
+import com.thoughtworks.go.server.cache.ZipArtifactCache;
+import com.thoughtworks.go.server.web.ArtifactFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.view.AbstractView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+
+public class ZippingArtifactFolder extends AbstractView {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZippingArtifactFolder.class);
+
+    private final ZipArtifactCache zipArtifactCache;
+    private final ArtifactFolder artifactFolder;
+
+    public ZippingArtifactFolder(ZipArtifactCache zipArtifactCache, ArtifactFolder artifactFolder) {
+        this.zipArtifactCache = zipArtifactCache;
+        this.artifactFolder = artifactFolder;
+        setContentType("application/zip");
+    }
+
+    public ArtifactFolder getArtifactFolder() {
+        return artifactFolder;
+    }
+
+    @Override
+    protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LOGGER.info("[Artifact Download] About to zip and download: {}", artifactFolder.getRootFolder().getAbsolutePath());
+        long before = System.currentTimeMillis();
+
+        response.setContentType(getContentType());
+        zipArtifactCache.zipTo(artifactFolder, response.getOutputStream());
+
+        LOGGER.info("[Artifact Download] Finished zipping and downloading: {}. The time taken is: {} ms", artifactFolder.getRootFolder().getAbsolutePath(), System.currentTimeMillis() - before);
+    }
+}
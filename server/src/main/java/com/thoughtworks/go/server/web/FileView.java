@@ -16,6 +16,7 @@
 package com.thoughtworks.go.server.web;
 
 import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -30,6 +31,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.zip.Deflater;
 
 import static org.apache.commons.lang3.StringUtils.isEmpty;
@@ -41,6 +44,7 @@ public class FileView implements View, ServletContextAware {
 
     private ServletContext servletContext;
     public static final String NEED_TO_ZIP = "need_to_zip";
+    private static final Pattern SINGLE_BYTE_RANGE = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
 
     private ServletContext getServletContext() {
         return this.servletContext;
@@ -56,14 +60,46 @@ public class FileView implements View, ServletContextAware {
         return "application/octet-stream";
     }
 
-    private void handleFile(File file, boolean needToZip, HttpServletResponse response) throws IOException {
+    private void handleFile(File file, boolean needToZip, HttpServletRequest request, HttpServletResponse response) throws IOException {
         String filename = file.getName();
         seContentType(needToZip, response, filename);
         setHeaders(response, filename);
+        if (!needToZip) {
+            response.setHeader("Accept-Ranges", "bytes");
+            String rangeHeader = request.getHeader("Range");
+            Matcher range = SINGLE_BYTE_RANGE.matcher(rangeHeader == null ? "" : rangeHeader);
+            if (range.matches()) {
+                sendRange(file, range, response);
+                return;
+            }
+        }
         setContentLength(needToZip, file, response);
         setOutput(needToZip, file, response);
     }
 
+    /**
+     * Only single ranges are supported, which is what an agent resuming a download asks for. Anything else in the
+     * header is ignored and the whole file is sent, as the spec allows.
+     */
+    private void sendRange(File file, Matcher range, HttpServletResponse response) throws IOException {
+        long length = file.length();
+        long start = Long.parseLong(range.group(1));
+        long end = range.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(range.group(2)), length - 1);
+        if (start >= length || start > end) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", String.format("bytes %d-%d/%d", start, end, length));
+        response.addHeader("Content-Length", Long.toString(end - start + 1));
+        ServletOutputStream out = response.getOutputStream();
+        try (FileInputStream input = new FileInputStream(file)) {
+            IOUtils.copyLarge(input, out, start, end - start + 1);
+        }
+        out.flush();
+    }
+
     private void setOutput(boolean needToZip, File file, HttpServletResponse response) throws IOException {
         ServletOutputStream out = response.getOutputStream();
         if (needToZip) {
@@ -108,14 +144,14 @@ public class FileView implements View, ServletContextAware {
     public void render(Map<String, ?> map, HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse) throws IOException {
         File file = (File) map.get("targetFile");
         boolean needToZip = map.containsKey(NEED_TO_ZIP);
-        handleFileWithLogging(httpServletResponse, file, needToZip);
+        handleFileWithLogging(httpServletRequest, httpServletResponse, file, needToZip);
     }
 
-    private void handleFileWithLogging(HttpServletResponse httpServletResponse, File file, boolean needToZip) throws IOException {
+    private void handleFileWithLogging(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse, File file, boolean needToZip) throws IOException {
         LOGGER.info("[Artifact Download] About to download: {}. ShouldZip? = {}", file.getAbsolutePath(), needToZip);
         long before = System.currentTimeMillis();
 
-        handleFile(file, needToZip, httpServletResponse);
+        handleFile(file, needToZip, httpServletRequest, httpServletResponse);
 
         long timeTaken = System.currentTimeMillis() - before;
         LOGGER.info("[Artifact Download] Finished downloading: {}. ShouldZip? = {}. The time taken is: {} ms", file.getAbsolutePath(), needToZip, timeTaken);
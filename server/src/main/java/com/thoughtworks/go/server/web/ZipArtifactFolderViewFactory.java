@@ -17,9 +17,10 @@ package com.thoughtworks.go.server.web;
 
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
-import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.ZippingArtifactFolder;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
@@ -33,12 +34,13 @@ public class ZipArtifactFolderViewFactory implements ArtifactFolderViewFactory {
 
     @Override
     public ModelAndView createView(JobIdentifier identifier, ArtifactFolder artifactFolder) throws IOException {
-        if (zipArtifactCache.cacheCreated(artifactFolder)) {
+        File cachedZip = zipArtifactCache.cachedZip(artifactFolder);
+        if (cachedZip != null) {
             Map<String, Object> data = new HashMap<>();
-            data.put("targetFile", zipArtifactCache.cachedFile(artifactFolder));
+            data.put("targetFile", cachedZip);
             return new ModelAndView("fileView", data);
         } else {
-            return new ModelAndView(new PreparingArtifactFile());
+            return new ModelAndView(new ZippingArtifactFolder(zipArtifactCache, artifactFolder));
         }
     }
 
@@ -0,0 +1,185 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleLogIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Understands cutting a console log into frames of whole lines, read straight from the file without decoding, and
+ * compressed when large enough for it to be worthwhile.
+ */
+class ConsoleLogFrames {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogFrames.class);
+
+    static final int MAX_FRAME_SIZE = 1024 * 1024; // 1MB
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_GZIP_SIZE = 512;
+
+    interface FrameSender {
+        void send(ByteBuffer frame) throws IOException;
+    }
+
+    private ConsoleLogFrames() {
+    }
+
+    /**
+     * Sends the log from {@code from} up to {@code to} (or the end of the log, whichever comes first) as frames that
+     * end on a line boundary where possible.
+     *
+     * @param holdBackPartialLine whether a last line that is still being written should be left for a later call, or
+     *                            sent with a line ending added
+     * @return the position in the log up to which frames were sent
+     */
+    static long send(Path log, long from, long to, boolean holdBackPartialLine, FrameSender sender) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, READ)) {
+            long end = Math.min(to, channel.size());
+            if (end <= from) {
+                return from;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(MAX_FRAME_SIZE, end - from));
+            long position = from;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                if (!fill(channel, buffer, position)) {
+                    break;
+                }
+
+                int length = buffer.position();
+                boolean lastChunk = position + length >= end;
+                int frameLength = lastIndexOfLineEnding(buffer.array(), length) + 1;
+                if (lastChunk && !holdBackPartialLine) {
+                    frameLength = length;
+                } else if (frameLength == 0) {
+                    if (length < MAX_FRAME_SIZE) {
+                        break;
+                    }
+                    frameLength = length; // a single line longer than a frame
+                }
+
+                byte[] frame = Arrays.copyOf(buffer.array(), frameLength);
+                if (lastChunk && !holdBackPartialLine && frame[frameLength - 1] != '\n') {
+                    frame = Arrays.copyOf(frame, frameLength + 1);
+                    frame[frameLength] = '\n';
+                }
+                sender.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(frame)));
+                position += frameLength;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * @return the position in the log at which the given line starts, or {@code limit} if the log does not have that
+     * many lines before it
+     */
+    static long positionOfLine(Path log, long line, long limit) throws IOException {
+        if (line <= 0) {
+            return 0;
+        }
+        ConsoleLogIndex.Position indexed = ConsoleLogIndex.beforeLineFeedLine(log, line);
+        if (indexed.lineFeeds() == line || indexed.offset() >= limit) {
+            return Math.min(indexed.offset(), limit);
+        }
+        try (FileChannel channel = FileChannel.open(log, READ)) {
+            long end = Math.min(limit, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long position = indexed.offset();
+            long linesSeen = indexed.lineFeeds();
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                if (!fill(channel, buffer, position)) {
+                    break;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < buffer.position(); i++) {
+                    if (bytes[i] == '\n' && ++linesSeen == line) {
+                        return position + i + 1;
+                    }
+                }
+                position += buffer.position();
+            }
+            return end;
+        }
+    }
+
+    /**
+     * @return the position in the log just after its last complete line
+     */
+    static long endOfLastCompleteLine(Path log) throws IOException {
+        try (FileChannel channel = FileChannel.open(log, READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            long end = channel.size();
+            while (end > 0) {
+                long start = Math.max(0, end - buffer.capacity());
+                buffer.clear().limit((int) (end - start));
+                if (!fill(channel, buffer, start)) {
+                    break;
+                }
+                int lineEnding = lastIndexOfLineEnding(buffer.array(), buffer.position());
+                if (lineEnding >= 0) {
+                    return start + lineEnding + 1;
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+
+    static byte[] maybeGzipIfLargeEnough(byte[] input) {
+        if (input.length < MIN_GZIP_SIZE) {
+            return input;
+        }
+        // To avoid having to re-allocate the internal byte array, allocate an initial buffer assuming a safe 10:1 compression ratio
+        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(input.length / 10);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes, 1024 * 8)) {
+            gzipOutputStream.write(input);
+        } catch (IOException e) {
+            LOGGER.error("Could not gzip {}", input);
+        }
+        return gzipBytes.toByteArray();
+    }
+
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.position() > 0;
+    }
+
+    private static int lastIndexOfLineEnding(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
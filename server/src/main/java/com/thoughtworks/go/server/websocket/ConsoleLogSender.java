@@ -15,44 +15,55 @@
  */
 package com.thoughtworks.go.server.websocket;
 
-import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
 import com.thoughtworks.go.server.util.Retryable;
-import com.thoughtworks.go.util.SystemEnvironment;
-import org.apache.commons.io.output.ProxyOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
+import javax.annotation.PostConstruct;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import java.util.zip.GZIPOutputStream;
-
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Understands sending console logs to websocket viewers. A completed build's log is sent in one go; viewers of a
+ * running build share a single {@link ConsoleLogTailer} per job, which is told the job has completed through the
+ * {@link JobStatusTopic}.
+ */
 @Component
-public class ConsoleLogSender {
+public class ConsoleLogSender implements GoMessageListener<JobStatusMessage> {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogSender.class);
 
     private static final int LOG_DOES_NOT_EXIST = 4004;
     private static final int LOG_FILE_DOES_NOT_EXIST = 4410;
-    private static final int BUF_SIZE = 1024 * 1024; // 1MB
-    private static final int FILL_INTERVAL_MILLIS = 500;
+    // Only a fallback for jobs that finish without a status message, such as cancelled ones
+    private static final long COMPLETION_CHECK_INTERVAL_MILLIS = 30_000;
 
-    private final Charset charset;
     private final ConsoleService consoleService;
     private final JobInstanceDao jobInstanceDao;
+    private final JobStatusTopic jobStatusTopic;
+    private final Map<Long, ConsoleLogTailer> tailers = new ConcurrentHashMap<>();
 
     @Autowired
-    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, JobStatusTopic jobStatusTopic) {
         this.consoleService = consoleService;
         this.jobInstanceDao = jobInstanceDao;
-        this.charset = systemEnvironment.consoleLogCharset();
+        this.jobStatusTopic = jobStatusTopic;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        jobStatusTopic.addListener(this);
     }
 
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws IllegalArtifactLocationException, IOException {
@@ -68,8 +79,6 @@ public class ConsoleLogSender {
             return;
         }
 
-        boolean isRunningBuild = !detectCompleted;
-
         // Sometimes the log file may not have been created yet; leave it up to the client to handle reconnect logic.
         try {
             waitForLogToExist(webSocket, jobIdentifier);
@@ -78,128 +87,117 @@ public class ConsoleLogSender {
             return;
         }
 
-        try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
-            do {
-                start += sendLogs(webSocket, streamer, jobIdentifier);
-
-                // allow buffers to fill to avoid sending 1 line at a time for running builds
-                if (isRunningBuild) {
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(FILL_INTERVAL_MILLIS);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
+        if (detectCompleted) {
+            try {
+                Path log = consoleLogFile(jobIdentifier);
+                long end = ConsoleLogFrames.send(log, ConsoleLogFrames.positionOfLine(log, start, Long.MAX_VALUE), Long.MAX_VALUE, false, webSocket::send);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Sent console log for {} up to byte {} from {}", jobIdentifier, end, log);
                 }
-            } while (webSocket.isOpen() && !detectCompleted(jobIdentifier) && !Thread.currentThread().isInterrupted());
-
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-            }
-            // empty the tail end of the file because the build could have been marked completed, and exited the
-            // loop before we've seen the last content update
-            if (isRunningBuild) {
-                sendLogs(webSocket, streamer, jobIdentifier);
+            } finally {
+                webSocket.close();
             }
+        } else {
+            watch(webSocket, jobIdentifier, start);
+        }
+    }
 
-            //send the remaining logs if any
-            if (detectCompleted(jobIdentifier)) {
-                try (ConsoleConsumer consoleFileStreamer = consoleService.getStreamer(start, jobIdentifier)) {
-                    start += sendLogs(webSocket, consoleFileStreamer, jobIdentifier);
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("Sent {} log lines for {} from {}", streamer.totalLinesConsumed(), jobIdentifier, consoleService.consoleLogFile(jobIdentifier).toPath());
-                    }
-                }
+    /**
+     * Sends a viewer of a running build the log up to where its job's tailer has got to, after which the tailer
+     * sends it the rest.
+     */
+    private void watch(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws IllegalArtifactLocationException, IOException {
+        Path log = consoleLogFile(jobIdentifier);
+        ConsoleLogTailer tailer;
+        ConsoleLogTailer.Viewer viewer;
+        do {
+            tailer = tailerFor(jobIdentifier, log);
+            viewer = tailer.attach(webSocket);
+            if (viewer == null) {
+                tailers.remove(jobIdentifier.getBuildId(), tailer);
             }
+        } while (viewer == null);
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Sent {} log lines for {} from all sources", start, jobIdentifier);
-            }
+        boolean caughtUp = false;
+        try {
+            ConsoleLogFrames.send(log, ConsoleLogFrames.positionOfLine(log, start, viewer.position()), viewer.position(), false, webSocket::send);
+            caughtUp = true;
         } finally {
-            webSocket.close();
+            if (caughtUp) {
+                tailer.startSending(viewer);
+            } else {
+                tailer.detach(viewer);
+            }
         }
     }
 
-    private boolean doesLogExists(JobIdentifier jobIdentifier) {
-        return consoleService.doesLogExist(jobIdentifier);
-    }
-
-    private void waitForLogToExist(final SocketEndpoint websocket, final JobIdentifier jobIdentifier) throws Retryable.TooManyRetriesException {
-        Retryable.retry(integer -> !websocket.isOpen() || doesLogExists(jobIdentifier), String.format("waiting for console log to exist for %s", jobIdentifier), 20);
-    }
+    private ConsoleLogTailer tailerFor(JobIdentifier jobIdentifier, Path log) throws IOException {
+        ConsoleLogTailer tailer = tailers.get(jobIdentifier.getBuildId());
+        if (tailer != null) {
+            return tailer;
+        }
 
-    private boolean detectCompleted(JobIdentifier jobIdentifier) {
-        return jobInstanceDao.isJobCompleted(jobIdentifier);
+        ConsoleLogTailer created = new ConsoleLogTailer(jobIdentifier, consoleService, ConsoleLogFrames.endOfLastCompleteLine(log), System.currentTimeMillis());
+        tailer = tailers.putIfAbsent(jobIdentifier.getBuildId(), created);
+        if (tailer != null) {
+            return tailer;
+        }
+        // The job may have completed after this viewer checked, in which case there is no status message left to see
+        if (detectCompleted(jobIdentifier)) {
+            created.jobCompleted();
+        }
+        return created;
     }
 
-    private long sendLogs(final SocketEndpoint webSocket, final ConsoleConsumer console, final JobIdentifier jobIdentifier) throws IOException {
-        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUF_SIZE);
-        final OutputStream proxyOutputStream = new AutoFlushingStream(buffer, webSocket, BUF_SIZE);
-        long linesProcessed = console.stream(line -> {
+    @SuppressWarnings("unused") // used by spring scheduler
+    public void tailRunningBuilds() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, ConsoleLogTailer> entry : tailers.entrySet()) {
+            ConsoleLogTailer tailer = entry.getValue();
             try {
-                byte[] bytes = line.getBytes(charset);
-                ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length);
-                byteArrayOutputStream.write(bytes);
-                byteArrayOutputStream.write('\n');
-                proxyOutputStream.write(byteArrayOutputStream.toByteArray());
-            } catch (IOException e) {
-                LOGGER.error("Failed to send log line {} for {}", console.totalLinesConsumed(), jobIdentifier, e);
+                if (now - tailer.completionCheckedAt() >= COMPLETION_CHECK_INTERVAL_MILLIS) {
+                    tailer.completionChecked(now);
+                    if (detectCompleted(tailer.jobIdentifier())) {
+                        tailer.jobCompleted();
+                    }
+                }
+                if (!tailer.tail()) {
+                    tailers.remove(entry.getKey(), tailer);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to send console log for {}", tailer.jobIdentifier(), e);
             }
-        });
-
-        flushBuffer(buffer, webSocket);
-        return linesProcessed;
+        }
     }
 
-    private void flushBuffer(ByteArrayOutputStream buffer, SocketEndpoint webSocket) throws IOException {
-        if (buffer.size() == 0) {
-            return;
+    @Override
+    public void onMessage(JobStatusMessage message) {
+        JobState state = message.getJobState();
+        if (state.isCompleted() || state == JobState.Rescheduled) {
+            ConsoleLogTailer tailer = tailers.get(message.getJobIdentifier().getBuildId());
+            if (tailer != null) {
+                tailer.jobCompleted();
+            }
         }
-        webSocket.send(ByteBuffer.wrap(maybeGzipIfLargeEnough(buffer.toByteArray())));
-        buffer.reset();
     }
 
-    byte[] maybeGzipIfLargeEnough(byte[] input) {
-        if (input.length < 512) {
-            return input;
-        }
-        // To avoid having to re-allocate the internal byte array, allocate an initial buffer assuming a safe 10:1 compression ratio
-        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(input.length / 10);
-        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes, 1024 * 8)) {
-            gzipOutputStream.write(input);
-        } catch (IOException e) {
-            LOGGER.error("Could not gzip {}", input);
-        }
-        return gzipBytes.toByteArray();
+    int numberOfTailers() {
+        return tailers.size();
     }
 
-    // Flushes stream just before it becomes larger than `bufSize`
-    private class AutoFlushingStream extends ProxyOutputStream {
-        private final ByteArrayOutputStream buffer;
-        private final SocketEndpoint webSocket;
-        private final int bufSize;
-
-        public AutoFlushingStream(ByteArrayOutputStream buffer, SocketEndpoint webSocket, int bufSize) {
-            super(buffer);
-            this.buffer = buffer;
-            this.webSocket = webSocket;
-            this.bufSize = bufSize;
-        }
+    private Path consoleLogFile(JobIdentifier jobIdentifier) throws IllegalArtifactLocationException {
+        return consoleService.consoleLogFile(jobIdentifier).toPath();
+    }
 
-        @Override
-        protected void beforeWrite(int n) throws IOException {
-            maybeFlush(n);
-        }
+    private boolean doesLogExists(JobIdentifier jobIdentifier) {
+        return consoleService.doesLogExist(jobIdentifier);
+    }
 
-        @Override
-        protected void afterWrite(int n) throws IOException {
-            maybeFlush(n);
-        }
+    private void waitForLogToExist(final SocketEndpoint websocket, final JobIdentifier jobIdentifier) throws Retryable.TooManyRetriesException {
+        Retryable.retry(integer -> !websocket.isOpen() || doesLogExists(jobIdentifier), String.format("waiting for console log to exist for %s", jobIdentifier), 20);
+    }
 
-        private void maybeFlush(int n) throws IOException {
-            if (buffer.size() + n >= bufSize) {
-                flushBuffer(buffer, webSocket);
-            }
-        }
+    private boolean detectCompleted(JobIdentifier jobIdentifier) {
+        return jobInstanceDao.isJobCompleted(jobIdentifier);
     }
 }
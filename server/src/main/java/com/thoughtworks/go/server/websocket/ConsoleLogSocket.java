@@ -22,6 +22,7 @@ import org.apache.http.client.utils.URLEncodedUtils;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
@@ -34,6 +35,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 @WebSocket
 public class ConsoleLogSocket implements SocketEndpoint {
@@ -106,6 +108,27 @@ public class ConsoleLogSocket implements SocketEndpoint {
         session.getRemote().sendBytes(data);
     }
 
+    @Override
+    public CompletableFuture<Void> sendAsync(ByteBuffer data) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        try {
+            session.getRemote().sendBytes(data, new WriteCallback() {
+                @Override
+                public void writeFailed(Throwable x) {
+                    sent.completeExceptionally(x);
+                }
+
+                @Override
+                public void writeSuccess() {
+                    sent.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            sent.completeExceptionally(e);
+        }
+        return sent;
+    }
+
     @Override
     public void ping() throws IOException {
         session.getRemote().sendString(PING);
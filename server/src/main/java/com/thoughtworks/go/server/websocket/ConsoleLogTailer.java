@@ -0,0 +1,206 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.service.ConsoleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Understands reading the console log of a running build once on behalf of everyone watching it. Each new chunk of
+ * the log is compressed once, and the same frame is queued to every viewer without waiting for any of them.
+ */
+class ConsoleLogTailer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogTailer.class);
+
+    // Browsers reconnect from the last line they have seen when closed with this code
+    static final int VIEWER_TOO_SLOW = 4004;
+    static final int MAX_FRAMES_IN_FLIGHT = 64;
+
+    private final JobIdentifier jobIdentifier;
+    private final ConsoleService consoleService;
+    private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+
+    private long position;
+    private boolean stopped;
+    private volatile boolean jobCompleted;
+    private volatile long completionCheckedAt;
+
+    ConsoleLogTailer(JobIdentifier jobIdentifier, ConsoleService consoleService, long position, long now) {
+        this.jobIdentifier = jobIdentifier;
+        this.consoleService = consoleService;
+        this.position = position;
+        this.completionCheckedAt = now;
+    }
+
+    JobIdentifier jobIdentifier() {
+        return jobIdentifier;
+    }
+
+    /**
+     * Starts sending new frames to the viewer. Frames are held back until {@link #startSending(Viewer)}, so the viewer
+     * can first be sent the log up to {@link Viewer#position()} on its own.
+     *
+     * @return the viewer, or null if this tailer has stopped and a new one is needed
+     */
+    synchronized Viewer attach(SocketEndpoint socket) {
+        if (stopped) {
+            return null;
+        }
+        Viewer viewer = new Viewer(socket, position);
+        viewers.add(viewer);
+        return viewer;
+    }
+
+    void startSending(Viewer viewer) {
+        synchronized (viewer) {
+            List<ByteBuffer> backlog = viewer.backlog;
+            viewer.backlog = null;
+            for (ByteBuffer frame : backlog) {
+                push(viewer, frame);
+            }
+            if (viewer.finished) {
+                viewer.socket.close();
+            }
+        }
+    }
+
+    void detach(Viewer viewer) {
+        viewers.remove(viewer);
+    }
+
+    void jobCompleted() {
+        jobCompleted = true;
+    }
+
+    long completionCheckedAt() {
+        return completionCheckedAt;
+    }
+
+    void completionChecked(long now) {
+        completionCheckedAt = now;
+    }
+
+    /**
+     * Sends whatever has been appended to the log since the last call. Once the job has completed, the rest of the log
+     * is sent and every viewer is closed.
+     *
+     * @return false once this tailer has stopped, either because the job has completed or nobody is watching
+     */
+    synchronized boolean tail() {
+        if (stopped) {
+            return false;
+        }
+        viewers.removeIf(viewer -> !viewer.socket.isOpen());
+
+        boolean finishing = jobCompleted;
+        try {
+            position = ConsoleLogFrames.send(log(), position, Long.MAX_VALUE, !finishing, this::deliver);
+        } catch (IOException | IllegalArtifactLocationException e) {
+            // The log may be in the middle of being moved to its final location; try again on the next tick
+            LOGGER.debug("Could not read console log for {}", jobIdentifier, e);
+            return true;
+        }
+
+        if (finishing) {
+            viewers.forEach(this::finish);
+            viewers.clear();
+            stopped = true;
+        } else if (viewers.isEmpty()) {
+            stopped = true;
+        }
+        return !stopped;
+    }
+
+    private Path log() throws IllegalArtifactLocationException {
+        return consoleService.consoleLogFile(jobIdentifier).toPath();
+    }
+
+    private void deliver(ByteBuffer frame) {
+        for (Viewer viewer : viewers) {
+            synchronized (viewer) {
+                if (viewer.backlog != null) {
+                    if (viewer.backlog.size() >= MAX_FRAMES_IN_FLIGHT) {
+                        disconnect(viewer);
+                    } else {
+                        viewer.backlog.add(frame);
+                    }
+                    continue;
+                }
+            }
+            push(viewer, frame);
+        }
+    }
+
+    private void push(Viewer viewer, ByteBuffer frame) {
+        if (viewer.framesInFlight.incrementAndGet() > MAX_FRAMES_IN_FLIGHT) {
+            disconnect(viewer);
+            return;
+        }
+        viewer.socket.sendAsync(frame.duplicate()).whenComplete((ignored, error) -> {
+            viewer.framesInFlight.decrementAndGet();
+            if (error != null) {
+                LOGGER.debug("Failed to send console log for {} to {}", jobIdentifier, viewer.socket.key(), error);
+                viewers.remove(viewer);
+            }
+        });
+    }
+
+    private void disconnect(Viewer viewer) {
+        viewers.remove(viewer);
+        viewer.socket.close(VIEWER_TOO_SLOW, "Console log is being written faster than it can be sent; reconnect to catch up.");
+    }
+
+    private void finish(Viewer viewer) {
+        synchronized (viewer) {
+            if (viewer.backlog != null) {
+                viewer.finished = true;
+                return;
+            }
+        }
+        viewer.socket.close();
+    }
+
+    static class Viewer {
+        private final SocketEndpoint socket;
+        private final long position;
+        private final AtomicInteger framesInFlight = new AtomicInteger();
+        private List<ByteBuffer> backlog = new ArrayList<>();
+        private boolean finished;
+
+        private Viewer(SocketEndpoint socket, long position) {
+            this.socket = socket;
+            this.position = position;
+        }
+
+        /**
+         * @return the position in the log from which this viewer will be sent frames by the tailer
+         */
+        long position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.dashboard.*;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Understands sending one browser its dashboard, and then every change to a pipeline on it, instead of it polling
+ * for the whole dashboard.
+ */
+@WebSocket
+public class DashboardSocket implements SocketEndpoint, GoDashboardSubscriber {
+    private static final String PING = "{\"type\":\"ping\"}";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardSocket.class);
+
+    // Browsers reconnect, and so get a fresh snapshot, when closed with this code
+    static final int SUBSCRIBER_TOO_SLOW = 4004;
+    static final int MAX_FRAMES_IN_FLIGHT = 64;
+
+    private final GoDashboardSubscriptions subscriptions;
+    private final GoDashboardFrameRenderer renderer;
+    private final SocketHealthService socketHealthService;
+    private final Username user;
+    private final DashboardFilter filter;
+    private final String personalizationEtag;
+    private final URI serverUri;
+    private final String contextPath;
+    private final String key;
+    private final AtomicInteger framesInFlight = new AtomicInteger();
+
+    private Session session;
+
+    DashboardSocket(GoDashboardSubscriptions subscriptions, GoDashboardFrameRenderer renderer, SocketHealthService socketHealthService,
+                    Username user, DashboardFilter filter, String personalizationEtag, URI serverUri, String contextPath) {
+        this.subscriptions = subscriptions;
+        this.renderer = renderer;
+        this.socketHealthService = socketHealthService;
+        this.user = user;
+        this.filter = filter;
+        this.personalizationEtag = personalizationEtag;
+        this.serverUri = serverUri;
+        this.contextPath = contextPath;
+        this.key = String.format("dashboard:%s:%d", user.getUsername(), hashCode());
+    }
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        this.session = session;
+        socketHealthService.register(this);
+        subscriptions.subscribe(this);
+    }
+
+    @OnWebSocketError
+    public void onError(Throwable error) {
+        LOGGER.error("{} closing session because an error was thrown", key, error);
+        try {
+            close(StatusCode.SERVER_ERROR, error.getMessage());
+        } finally {
+            disconnected();
+        }
+    }
+
+    @OnWebSocketClose
+    public void onClose(int status, String reason) {
+        disconnected();
+    }
+
+    @Override
+    public Username user() {
+        return user;
+    }
+
+    @Override
+    public DashboardFilter filter() {
+        return filter;
+    }
+
+    @Override
+    public void snapshot(List<GoDashboardPipelineGroup> pipelineGroups, List<GoDashboardEnvironment> environments) {
+        sendFrame(renderer.snapshot(pipelineGroups, environments, user, personalizationEtag, serverUri, contextPath));
+    }
+
+    @Override
+    public void pipelineChanged(GoDashboardPipeline pipeline) {
+        sendFrame(renderer.pipeline(pipeline, user, serverUri, contextPath));
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        session.getRemote().sendBytes(data);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendAsync(ByteBuffer data) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        try {
+            session.getRemote().sendBytes(data, completing(sent));
+        } catch (RuntimeException e) {
+            sent.completeExceptionally(e);
+        }
+        return sent;
+    }
+
+    @Override
+    public void ping() throws IOException {
+        session.getRemote().sendString(PING);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return session != null && session.isOpen();
+    }
+
+    @Override
+    public void close() {
+        close(StatusCode.NORMAL, null);
+    }
+
+    @Override
+    public void close(int code, String reason) {
+        session.close(code, reason);
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    private void sendFrame(String frame) {
+        if (!isOpen()) {
+            return;
+        }
+
+        if (framesInFlight.incrementAndGet() > MAX_FRAMES_IN_FLIGHT) {
+            LOGGER.debug("{} is not keeping up with the dashboard, asking it to reconnect", key);
+            subscriptions.unsubscribe(this);
+            close(SUBSCRIBER_TOO_SLOW, "Not keeping up with the dashboard");
+            return;
+        }
+
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        sent.whenComplete((ignored, error) -> framesInFlight.decrementAndGet());
+        try {
+            session.getRemote().sendString(frame, completing(sent));
+        } catch (RuntimeException e) {
+            sent.completeExceptionally(e);
+        }
+    }
+
+    private void disconnected() {
+        subscriptions.unsubscribe(this);
+        socketHealthService.deregister(this);
+    }
+
+    private static WriteCallback completing(CompletableFuture<Void> sent) {
+        return new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                sent.completeExceptionally(x);
+            }
+
+            @Override
+            public void writeSuccess() {
+                sent.complete(null);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.dashboard.GoDashboardFrameRenderer;
+import com.thoughtworks.go.server.dashboard.GoDashboardSubscriptions;
+import com.thoughtworks.go.server.domain.user.PipelineSelections;
+import com.thoughtworks.go.server.newsecurity.utils.SessionUtils;
+import com.thoughtworks.go.server.service.PipelineSelectionsService;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeResponse;
+import org.eclipse.jetty.websocket.server.JettyWebSocketCreator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+
+import static com.thoughtworks.go.server.domain.user.DashboardFilter.DEFAULT_NAME;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+@Component
+public class DashboardSocketCreator implements JettyWebSocketCreator {
+    private static final String COOKIE_NAME = "selected_pipelines";
+    private static final String VIEW_NAME = "viewName";
+
+    private final GoDashboardSubscriptions subscriptions;
+    // Implemented alongside the dashboard API, which is not part of every context this is created in
+    private final ObjectProvider<GoDashboardFrameRenderer> renderer;
+    private final PipelineSelectionsService pipelineSelectionsService;
+    private final SocketHealthService socketHealthService;
+
+    @Autowired
+    public DashboardSocketCreator(GoDashboardSubscriptions subscriptions, ObjectProvider<GoDashboardFrameRenderer> renderer,
+                                  PipelineSelectionsService pipelineSelectionsService, SocketHealthService socketHealthService) {
+        this.subscriptions = subscriptions;
+        this.renderer = renderer;
+        this.pipelineSelectionsService = pipelineSelectionsService;
+        this.socketHealthService = socketHealthService;
+    }
+
+    @Override
+    public Object createWebSocket(JettyServerUpgradeRequest req, JettyServerUpgradeResponse resp) {
+        HttpServletRequest request = req.getHttpServletRequest();
+        PipelineSelections personalization = pipelineSelectionsService.load(personalizationCookie(request), SessionUtils.getUserId(request));
+
+        return new DashboardSocket(subscriptions, renderer.getObject(), socketHealthService, SessionUtils.currentUsername(),
+            personalization.namedFilter(viewName(request)), personalization.etag(), serverUri(request), request.getContextPath());
+    }
+
+    private String personalizationCookie(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return null;
+        }
+        return Arrays.stream(request.getCookies())
+            .filter(cookie -> COOKIE_NAME.equals(cookie.getName()))
+            .map(Cookie::getValue)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private String viewName(HttpServletRequest request) {
+        String viewName = request.getParameter(VIEW_NAME);
+        return isBlank(viewName) ? DEFAULT_NAME : viewName;
+    }
+
+    private URI serverUri(HttpServletRequest request) {
+        try {
+            return new URI(request.getScheme(), null, request.getServerName(), request.getServerPort(), null, null, null);
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -17,10 +17,18 @@ package com.thoughtworks.go.server.websocket;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 public interface SocketEndpoint {
     void send(ByteBuffer data) throws IOException;
 
+    /**
+     * Queues the data to be sent without waiting for it to be written.
+     *
+     * @return a future that completes once the data has been written, or exceptionally if it could not be
+     */
+    CompletableFuture<Void> sendAsync(ByteBuffer data);
+
     void ping() throws IOException;
 
     boolean isOpen();
@@ -199,7 +199,7 @@ public class BuildAssignmentServiceIntegrationTest {
                 DEFAULT_APPROVED_BY), md5, new TimeProvider());
         dbHelper.savePipelineWithStagesAndMaterials(pipeline);
         buildAssignmentService.onConfigChange(goConfigService.getCurrentConfig());
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         buildAssignmentService.assignWorkToAgent(instance);
         long firstAssignedBuildId = buildOf(pipeline).getId();
 
@@ -253,7 +253,7 @@ public class BuildAssignmentServiceIntegrationTest {
         agentService.saveOrUpdate(agent);
 
         pipelineFixture.createPipelineWithFirstStageScheduled();
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         AgentInstance agentInstance = agentService.findAgent(agent.getUuid());
         assertFalse(agentInstance.isBuilding());
@@ -266,7 +266,7 @@ public class BuildAssignmentServiceIntegrationTest {
     @Test
     public void shouldCancelOutOfDateBuilds() {
         pipelineFixture.createPipelineWithFirstStageScheduled();
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         configHelper.removeStage(pipelineFixture.pipelineName, pipelineFixture.devStage);
 
         buildAssignmentService.onConfigChange(goConfigService.getCurrentConfig());
@@ -282,7 +282,7 @@ public class BuildAssignmentServiceIntegrationTest {
         buildAssignmentService.initialize();
 
         pipelineFixture.createPipelineWithFirstStageScheduled();
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         PipelineConfig originalPipelineConfig = goConfigDao.currentConfig().getPipelineConfigByName(new CaseInsensitiveString(pipelineFixture.pipelineName));
         PipelineConfig pipelineConfig = configHelper.deepClone(originalPipelineConfig);
@@ -297,7 +297,7 @@ public class BuildAssignmentServiceIntegrationTest {
         assertThat(job.getState()).isEqualTo(JobState.Completed);
         assertThat(job.getResult()).isEqualTo(JobResult.Cancelled);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         List<JobPlan> latestJobPlans = buildAssignmentService.jobPlans();
         assertThat(latestJobPlans.size()).isEqualTo(0);
     }
@@ -309,7 +309,7 @@ public class BuildAssignmentServiceIntegrationTest {
         pipelineFixture.usingConfigHelper(configHelper).usingDbHelper(dbHelper).onSetUp();
         pipelineFixture.createPipelineWithFirstStageScheduled();
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         PipelineConfig originalPipelineConfig = configHelper.getGoConfigDao().currentConfig().getPipelineConfigByName(new CaseInsensitiveString(pipelineFixture.pipelineName));
         PipelineConfig pipelineConfig = configHelper.deepClone(originalPipelineConfig);
@@ -327,7 +327,7 @@ public class BuildAssignmentServiceIntegrationTest {
         assertThat(retainedJob.getState()).isEqualTo(JobState.Scheduled);
         assertThat(retainedJob.getResult()).isEqualTo(JobResult.Unknown);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         List<JobPlan> latestJobPlans = buildAssignmentService.jobPlans();
         assertThat(latestJobPlans.size()).isEqualTo(1);
         assertThat(latestJobPlans.getFirst().getName()).isEqualTo(retainedJob.getName());
@@ -340,7 +340,7 @@ public class BuildAssignmentServiceIntegrationTest {
         pipelineFixture.usingConfigHelper(configHelper).usingDbHelper(dbHelper).onSetUp();
         pipelineFixture.createPipelineWithFirstStageScheduled();
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         PipelineConfig pipelineConfig = configHelper.deepClone(configHelper.getGoConfigDao().currentConfig().getPipelineConfigByName(new CaseInsensitiveString(pipelineFixture.pipelineName)));
 
@@ -355,7 +355,7 @@ public class BuildAssignmentServiceIntegrationTest {
         assertThat(job2.getState()).isEqualTo(JobState.Completed);
         assertThat(job2.getResult()).isEqualTo(JobResult.Cancelled);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         List<JobPlan> latestJobPlans = buildAssignmentService.jobPlans();
         assertThat(latestJobPlans.size()).isEqualTo(0);
     }
@@ -363,7 +363,7 @@ public class BuildAssignmentServiceIntegrationTest {
     @Test
     public void shouldCancelBuildBelongingToNonExistentPipeline() {
         pipelineFixture.createPipelineWithFirstStageScheduled();
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         configHelper.removePipeline(pipelineFixture.pipelineName);
 
@@ -423,6 +423,7 @@ public class BuildAssignmentServiceIntegrationTest {
         assigner.start();
 
         sem.acquire();
+        buildAssignmentServiceUnderTest.requestConsistencyCheck();
         buildAssignmentServiceUnderTest.onTimer();
 
         assigner.join();
@@ -446,7 +447,7 @@ public class BuildAssignmentServiceIntegrationTest {
         buildAssignmentService = new BuildAssignmentService(mockGoConfigService, jobInstanceService, scheduleService, agentService, environmentConfigService,
                 transactionTemplate, scheduledPipelineLoader, pipelineService, builderFactory, maintenanceModeService, elasticAgentPluginService,
                 systemEnvironment, secretParamResolver, jobStatusTopic, consoleService);
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         Agent agent = AgentMother.localAgent();
         agent.setResources("some-other-resource");
@@ -473,7 +474,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Pipeline pipeline1 = instanceFactory.createPipelineInstance(evolveConfig, modifySomeFiles(evolveConfig), new DefaultSchedulingContext(DEFAULT_APPROVED_BY), md5, new TimeProvider());
         dbHelper.savePipelineWithStagesAndMaterials(pipeline1);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         BuildWork work = (BuildWork) buildAssignmentService.assignWorkToAgent(agent(AgentMother.localAgent()));
 
         BuildWork deserialized = SerializationTester.objectSerializeAndDeserialize(work);
@@ -490,7 +491,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Pipeline pipeline1 = instanceFactory.createPipelineInstance(evolveConfig, modifySomeFiles(evolveConfig), new DefaultSchedulingContext(DEFAULT_APPROVED_BY), md5, new TimeProvider());
         dbHelper.savePipelineWithStagesAndMaterials(pipeline1);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         BuildWork work = (BuildWork) buildAssignmentService.assignWorkToAgent(agent(AgentMother.localAgent()));
 
         assertThat(work.getAssignment().shouldFetchMaterials()).isTrue();
@@ -573,7 +574,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Pipeline downestInstance = instanceFactory.createPipelineInstance(downest, buildCauseForDependency(downest_sMaterial, downest_sMaterialStage), defaultSchedulingCtx, md5, new TimeProvider());
         dbHelper.savePipelineWithStagesAndMaterials(downestInstance);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         Agent agent = AgentMother.localAgent();
         agent.setResources("fetcher");
         BuildWork work = (BuildWork) buildAssignmentService.assignWorkToAgent(agent(agent));
@@ -602,6 +603,12 @@ public class BuildAssignmentServiceIntegrationTest {
         return agentService.findAgent(agent.getUuid()).getAgentIdentifier();
     }
 
+    // Jobs saved straight through the database helpers publish no status changes, so always reload them on the tick
+    private void reloadJobPlans() {
+        buildAssignmentService.requestConsistencyCheck();
+        buildAssignmentService.onTimer();
+    }
+
     @Test
     public void shouldNotScheduleIfAgentDoesNotHaveResources() {
         JobConfig plan = evolveConfig.findBy(new CaseInsensitiveString(STAGE_NAME)).jobConfigByInstanceName("unit", true);
@@ -649,7 +656,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Agent agent = AgentMother.localAgent();
         agent.setResources("some-resource");
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         Work work = buildAssignmentService.assignWorkToAgent(agent(agent));
         assertThat(work).isNotEqualTo(BuildAssignmentService.NO_WORK);
 
@@ -675,7 +682,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Agent agent = AgentMother.localAgent();
         agent.setResources("some-resource");
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         Work work = buildAssignmentService.assignWorkToAgent(agent(agent));
         assertThat(work).isEqualTo(BuildAssignmentService.NO_WORK);
 
@@ -696,7 +703,7 @@ public class BuildAssignmentServiceIntegrationTest {
 
         scheduleHelper.schedule(evolveConfig, modifySomeFiles(evolveConfig), DEFAULT_APPROVED_BY);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         Agent agent = AgentMother.localAgent();
         agent.setResources("some-resource");
@@ -715,11 +722,11 @@ public class BuildAssignmentServiceIntegrationTest {
 
         assertThat(rescheduledJob.getId()).isNotEqualTo(runningJob.getId());
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         Work noResourcesWork = buildAssignmentService.assignWorkToAgent(agent(AgentMother.localAgentWithResources("WITHOUT_RESOURCES")));
         assertThat(noResourcesWork).isEqualTo(BuildAssignmentService.NO_WORK);
 
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
         Work correctAgentWork = buildAssignmentService.assignWorkToAgent(agent(agent));
         assertThat(correctAgentWork).isNotEqualTo(BuildAssignmentService.NO_WORK);
 
@@ -738,7 +745,7 @@ public class BuildAssignmentServiceIntegrationTest {
         dbHelper.savePipelineWithStagesAndMaterials(p2_1);
         CruiseConfig cruiseConfig = goConfigService.getCurrentConfig();
         buildAssignmentService.onConfigChange(cruiseConfig);
-        buildAssignmentService.onTimer();
+        reloadJobPlans();
 
         List<JobPlan> plans = ReflectionUtil.getField(buildAssignmentService, "jobPlans");
         assertThat(plans.isEmpty()).isFalse();
@@ -761,7 +768,7 @@ public class BuildAssignmentServiceIntegrationTest {
         ScheduleTestUtil.AddedPipeline renamedPipeline = u.renamePipelineAndFirstStage(p1, "pipeline_which_will_eventually_change_case", "NEW_RANDOM_STAGE_NAME" + UUID.randomUUID());
 
         CruiseConfig cruiseConfig = configHelper.load();
-        buildAssignmentService.onTimer();   // To Reload Job Plans
+        reloadJobPlans();
         buildAssignmentService.onConfigChange(cruiseConfig);
         Stages allStages = stageDao.findAllStagesFor(originalPipelineRun.getName(), originalPipelineRun.getCounter());
         assertThat(allStages.byName(CaseInsensitiveString.str(p1.config.getFirst().name())).getState()).isEqualTo(StageState.Cancelled);
@@ -784,7 +791,7 @@ public class BuildAssignmentServiceIntegrationTest {
         Pipeline originalPipelineRun = scheduleService.schedulePipeline(p1.config.name(), buildCause);
         ScheduleTestUtil.AddedPipeline renamedPipeline = u.renamePipelineAndFirstStage(p1, p1.config.name().toLower(), p1.config.getStages().getFirst().name().toLower());
         CruiseConfig cruiseConfig = configHelper.load();
-        buildAssignmentService.onTimer();   // To Reload Job Plans
+        reloadJobPlans();
         buildAssignmentService.onConfigChange(cruiseConfig);
 
         Stages allStages = stageDao.findAllStagesFor(originalPipelineRun.getName(), originalPipelineRun.getCounter());
@@ -514,6 +514,8 @@ public class ScheduleServiceIntegrationTest {
         //trigger the pipeline
         Pipeline pipeline = dbHelper.schedulePipeline(pipelineConfig, forceBuild(pipelineConfig), "Bob", new TimeProvider(), Map.of("elastic_agent_profile", elasticAgentProfile), Map.of("cluster_profile", clusterProfile));
 
+        // Scheduling straight through the database helper publishes no job status changes
+        buildAssignmentService.requestConsistencyCheck();
         buildAssignmentService.onTimer();
 
         //verify no agents are building
@@ -558,7 +560,7 @@ public class ScheduleServiceIntegrationTest {
         assertThat(jobInstanceDao.loadPlan(newlyScheduledBuildId).getClusterProfile()).isEqualTo(clusterProfile);
         assertThat(jobInstanceDao.loadPlan(newlyScheduledBuildId).getElasticProfile()).isEqualTo(elasticAgentProfile);
 
-        elasticAgentPluginService.createAgentsFor(Collections.emptyList(), List.of(jobInstanceDao.loadPlan(newlyScheduledBuildId)));
+        elasticAgentPluginService.createAgentsForQueueChanges(List.of(jobInstanceDao.loadPlan(newlyScheduledBuildId)), Set.of());
 
         //verify create agent request was sent to the plugin
         CreateAgentMessage message = new CreateAgentMessage(ephemeralAutoRegisterKey, null, elasticAgentProfile, clusterProfile, jobPlanOfRescheduledInstance.getIdentifier());
@@ -142,6 +142,8 @@ public class ScheduleServiceRescheduleHungJobsIntegrationTest {
         jobInstance.changeState(JobState.Building);
         pipelineDao.saveWithStages(pipeline);
 
+        // Saving straight through the DAO publishes no job status changes
+        buildAssignmentService.requestConsistencyCheck();
         buildAssignmentService.onTimer();
         buildAssignmentService.assignWorkToAgent(instance);
         buildAssignmentService.onTimer();
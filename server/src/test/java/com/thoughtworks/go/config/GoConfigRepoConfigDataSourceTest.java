@@ -32,8 +32,10 @@ import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.io.File;
+import java.util.Set;
 
 import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -364,6 +366,82 @@ public class GoConfigRepoConfigDataSourceTest {
         assertFalse(repoConfigDataSource.hasConfigRepoConfigChangedSinceLastUpdate(material));
     }
 
+    @Test
+    public void shouldNotLoadARevisionAgainWhenTheProviderIsDeterminedByRevision() {
+        ScmMaterialConfig material = git("http://my.git");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(ConfigRepoConfig.createConfigRepoConfig(material, "myplugin", "id")));
+        configWatchList.onConfigChange(cruiseConfig);
+        when(plugin.isDeterminedByRevision()).thenReturn(true);
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        verify(plugin, times(1)).load(eq(folder), any());
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("9b2c"));
+        verify(plugin, times(2)).load(eq(folder), any());
+    }
+
+    @Test
+    public void shouldLoadARevisionAgainWhenTheProviderMayGiveADifferentResultForIt() {
+        ScmMaterialConfig material = git("http://my.git");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(ConfigRepoConfig.createConfigRepoConfig(material, "myplugin", "id")));
+        configWatchList.onConfigChange(cruiseConfig);
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+
+        verify(plugin, times(2)).load(eq(folder), any());
+    }
+
+    @Test
+    public void shouldLoadARevisionAgainWhenTheConfigRepoConfigHasChanged() {
+        ScmMaterialConfig material = git("http://my.git");
+        ConfigRepoConfig repoConfig = ConfigRepoConfig.createConfigRepoConfig(material, "myplugin", "id");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(repoConfig));
+        configWatchList.onConfigChange(cruiseConfig);
+        when(plugin.isDeterminedByRevision()).thenReturn(true);
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        repoConfigDataSource.onConfigRepoConfigChange(repoConfig);
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+
+        verify(plugin, times(2)).load(eq(folder), any());
+    }
+
+    @Test
+    public void shouldLoadARevisionAgainWhenItsPartialCouldNotBeMerged() {
+        ScmMaterialConfig material = git("http://my.git");
+        ConfigRepoConfig repoConfig = ConfigRepoConfig.createConfigRepoConfig(material, "myplugin", "id");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(repoConfig));
+        configWatchList.onConfigChange(cruiseConfig);
+        when(plugin.isDeterminedByRevision()).thenReturn(true);
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        serverHealthService.update(ServerHealthState.error("merge failed", "description", HealthStateType.general(HealthStateScope.forPartialConfigRepo(repoConfig))));
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+
+        verify(plugin, times(2)).load(eq(folder), any());
+    }
+
+    @Test
+    public void shouldProvideChangedFilesAndPreviousPartialInParseContext() {
+        ScmMaterialConfig material = git("http://my.git");
+        cruiseConfig.setConfigRepos(new ConfigReposConfig(ConfigRepoConfig.createConfigRepoConfig(material, "myplugin", "id")));
+        configWatchList.onConfigChange(cruiseConfig);
+        PartialConfig previous = PartialConfigMother.withPipeline("pipe1");
+        when(plugin.load(any(), any())).thenReturn(previous);
+
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("7a8f"));
+        repoConfigDataSource.onCheckoutComplete(material, folder, getModificationFor("9b2c"), Set.of("pipe1.gocd.xml"));
+
+        ArgumentCaptor<PartialConfigLoadContext> contexts = ArgumentCaptor.forClass(PartialConfigLoadContext.class);
+        verify(plugin, times(2)).load(eq(folder), contexts.capture());
+        assertThat(contexts.getAllValues().getFirst().changedFiles()).isEmpty();
+        assertThat(contexts.getAllValues().getFirst().previousPartialConfig()).isNull();
+        assertThat(contexts.getAllValues().getLast().changedFiles()).hasValue(Set.of("pipe1.gocd.xml"));
+        assertThat(contexts.getAllValues().getLast().previousPartialConfig()).isSameAs(previous);
+    }
+
     private Modification getModificationFor(String revision) {
         Modification modification = new Modification();
         modification.setRevision(revision);
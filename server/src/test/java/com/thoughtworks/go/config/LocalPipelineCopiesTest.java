@@ -0,0 +1,86 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config;
+
+import com.thoughtworks.go.config.remote.UIConfigOrigin;
+import com.thoughtworks.go.helper.GoConfigMother;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalPipelineCopiesTest {
+    private final GoConfigCloner cloner = new GoConfigCloner();
+
+    @Test
+    void shouldKeepThePreviousCopyOfAPipelineWhichDidNotChange() {
+        BasicCruiseConfig previousConfigForEdit = GoConfigMother.configWithPipelines("p1", "p2");
+        BasicCruiseConfig previousMergedConfigForEdit = cloner.deepClone(previousConfigForEdit);
+        BasicCruiseConfig configForEdit = cloner.deepClone(previousConfigForEdit);
+        configForEdit.pipelineConfigByName(name("p2")).setLabelTemplate("edited-${COUNT}");
+
+        LocalPipelineCopies copies = new LocalPipelineCopies(cloner, previousMergedConfigForEdit, previousConfigForEdit);
+
+        assertThat(copies.apply(configForEdit.pipelineConfigByName(name("p1")))).isSameAs(previousMergedConfigForEdit.pipelineConfigByName(name("p1")));
+        PipelineConfig edited = copies.apply(configForEdit.pipelineConfigByName(name("p2")));
+        assertThat(edited).isNotSameAs(previousMergedConfigForEdit.pipelineConfigByName(name("p2")));
+        assertThat(edited).isNotSameAs(configForEdit.pipelineConfigByName(name("p2")));
+        assertThat(edited.getLabelTemplate()).isEqualTo("edited-${COUNT}");
+    }
+
+    @Test
+    void shouldCopyAPipelineWhoseDisplayOrderWeightIsAllThatChanged() {
+        BasicCruiseConfig previousConfigForEdit = GoConfigMother.configWithPipelines("p1");
+        BasicCruiseConfig previousMergedConfigForEdit = cloner.deepClone(previousConfigForEdit);
+        BasicCruiseConfig configForEdit = cloner.deepClone(previousConfigForEdit);
+        configForEdit.pipelineConfigByName(name("p1")).setDisplayOrderWeight(42);
+
+        LocalPipelineCopies copies = new LocalPipelineCopies(cloner, previousMergedConfigForEdit, previousConfigForEdit);
+
+        PipelineConfig copy = copies.apply(configForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy).isNotSameAs(previousMergedConfigForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy.getDisplayOrderWeight()).isEqualTo(42);
+    }
+
+    @Test
+    void shouldCopyAPipelineWhoseOriginIsAllThatChanged() {
+        BasicCruiseConfig previousConfigForEdit = GoConfigMother.configWithPipelines("p1");
+        BasicCruiseConfig previousMergedConfigForEdit = cloner.deepClone(previousConfigForEdit);
+        BasicCruiseConfig configForEdit = cloner.deepClone(previousConfigForEdit);
+        configForEdit.pipelineConfigByName(name("p1")).setOrigin(new UIConfigOrigin());
+
+        LocalPipelineCopies copies = new LocalPipelineCopies(cloner, previousMergedConfigForEdit, previousConfigForEdit);
+
+        PipelineConfig copy = copies.apply(configForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy).isNotSameAs(previousMergedConfigForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy.getOrigin()).isEqualTo(new UIConfigOrigin());
+    }
+
+    @Test
+    void shouldCopyEveryPipelineWhenThePreviousMergedConfigWasTheConfigForEditItself() {
+        BasicCruiseConfig previousConfigForEdit = GoConfigMother.configWithPipelines("p1");
+        BasicCruiseConfig configForEdit = cloner.deepClone(previousConfigForEdit);
+
+        LocalPipelineCopies copies = new LocalPipelineCopies(cloner, previousConfigForEdit, previousConfigForEdit);
+
+        PipelineConfig copy = copies.apply(configForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy).isNotSameAs(previousConfigForEdit.pipelineConfigByName(name("p1")));
+        assertThat(copy).isNotSameAs(configForEdit.pipelineConfigByName(name("p1")));
+    }
+
+    private static CaseInsensitiveString name(String name) {
+        return new CaseInsensitiveString(name);
+    }
+}
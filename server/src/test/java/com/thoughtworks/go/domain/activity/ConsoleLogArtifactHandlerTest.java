@@ -66,4 +66,11 @@ public class ConsoleLogArtifactHandlerTest {
         verify(consoleService, never()).moveConsoleArtifacts(buildingJobInstance.getIdentifier());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldForgetTheChunksAppendedByTheAgentWhenJobIsRescheduled() {
+        JobInstance rescheduled = JobInstanceMother.rescheduled("job", "agent");
+        handler.jobStatusChanged(rescheduled);
+        verify(consoleService).forgetAppendedChunks(rescheduled.getIdentifier());
+        verify(consoleService, never()).moveConsoleArtifacts(rescheduled.getIdentifier());
+    }
+}
@@ -65,22 +65,22 @@ class CacheKeyGeneratorTest {
     }
 
     @Test
-    void shouldAlwaysReturnInternedString() {
+    void shouldReturnTheSameInstanceForEqualKeysSoThatTheyCanBeSynchronizedOn() {
         assertThat(cacheKeyGenerator.generate("foo", "bar", new CaseInsensitiveString("1"), 1L))
-            .describedAs("Using '==' to check returned key is interned String")
-            .isSameAs("com.thoughtworks.go.domain.Pipeline.$foo.$bar.$1.$1");
+            .describedAs("Using '==' to check returned key is the canonical instance")
+            .isSameAs(cacheKeyGenerator.generate("foo", "bar", "1", 1L));
 
         assertThat(cacheKeyGenerator.generate("foo", 1))
-            .describedAs("Using '==' to check returned key is interned String")
-            .isSameAs("com.thoughtworks.go.domain.Pipeline.$foo.$1");
+            .describedAs("Using '==' to check returned key is the canonical instance")
+            .isSameAs(cacheKeyGenerator.generate("foo", "1"));
 
         assertThat(cacheKeyGenerator.generate("foo", "bar"))
-            .describedAs("Using '==' to check returned key is interned String")
-            .isSameAs("com.thoughtworks.go.domain.Pipeline.$foo.$bar");
+            .describedAs("Using '==' to check returned key is the canonical instance")
+            .isSameAs(CacheKeyGenerator.canonical(new String("com.thoughtworks.go.domain.Pipeline.$foo.$bar")));
 
         assertThat(cacheKeyGenerator.generate("foo", "bar", "baz"))
-            .describedAs("Using '==' to check returned key is interned String")
-            .isSameAs("com.thoughtworks.go.domain.Pipeline.$foo.$bar.$baz");
+            .describedAs("Using '==' to check returned key is the canonical instance")
+            .isSameAs(cacheKeyGenerator.generate("foo", "bar", "baz"));
     }
 
     @Test
@@ -0,0 +1,157 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import net.sf.ehcache.Ehcache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CacheRegionTest {
+    private TransactionSynchronizationManager transactionSynchronizationManager;
+    private GoCache goCache;
+    private CacheRegion<Long, String> region;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        transactionSynchronizationManager = mock(TransactionSynchronizationManager.class);
+        goCache = new GoCache(mock(Ehcache.class, Answers.RETURNS_DEEP_STUBS), transactionSynchronizationManager);
+        region = CacheRegion.create(goCache, "names", 10);
+        loads = new AtomicInteger();
+    }
+
+    private String load(Long id) {
+        loads.incrementAndGet();
+        return "name-" + id;
+    }
+
+    @Test
+    void shouldLoadAValueOnceAndServeItFromTheCacheAfterThat() {
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        assertThat(region.get(2L, this::load)).isEqualTo("name-2");
+
+        assertThat(loads.get()).isEqualTo(2);
+        Map<String, Object> stats = region.asJsonCompatibleMap();
+        assertThat(stats).containsEntry("Hits", 1L).containsEntry("Misses", 2L).containsEntry("Size", 2L);
+    }
+
+    @Test
+    void shouldHaveOnlyOneThreadLoadAKeyWhileOthersWaitForIt() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> region.get(1L, id -> {
+            loading.countDown();
+            awaitQuietly(release);
+            return load(id);
+        }));
+        assertThat(loading.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> region.get(1L, this::load));
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("name-1");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("name-1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCacheNullValues() {
+        assertThat(region.get(1L, id -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheAFailedLoad() {
+        assertThatThrownBy(() -> region.get(1L, id -> {
+            throw new IllegalStateException("database is down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLoadAgainOnceAKeyIsRemoved() {
+        region.get(1L, this::load);
+
+        region.remove(1L);
+
+        assertThat(region.getIfPresent(1L)).isNull();
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheAnythingReadWhileATransactionIsActive() {
+        when(transactionSynchronizationManager.isActualTransactionActive()).thenReturn(true);
+
+        region.get(1L, this::load);
+        region.put(2L, "name-2");
+
+        when(transactionSynchronizationManager.isActualTransactionActive()).thenReturn(false);
+        assertThat(region.size()).isZero();
+        region.get(1L, this::load);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotServeFromTheCacheToATransactionThatHasStoppedServing() {
+        region.put(1L, "cached");
+        when(transactionSynchronizationManager.isTransactionBodyExecuting()).thenReturn(true);
+
+        goCache.stopServingForTransaction();
+
+        assertThat(region.getIfPresent(1L)).isNull();
+        assertThat(region.get(1L, this::load)).isEqualTo("name-1");
+        verify(transactionSynchronizationManager).registerSynchronization(any());
+    }
+
+    @Test
+    void shouldBeClearedAlongWithTheGoCacheItIsRegisteredWith() {
+        region.get(1L, this::load);
+
+        goCache.clear();
+
+        assertThat(goCache.regions()).containsExactly(region);
+        assertThat(region.size()).isZero();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -18,17 +18,30 @@ package com.thoughtworks.go.server.cache;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.web.ArtifactFolder;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestFileUtil;
 import com.thoughtworks.go.util.ZipUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static com.thoughtworks.go.util.TestUtils.doInterruptiblyQuietlyRethrowInterrupt;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -45,6 +58,7 @@ public class ZipArtifactCacheTest {
     @TempDir
     File folder;
     private ArtifactFolder artifactFolder;
+    private ArtifactsDirHolder artifactsDirHolder;
 
     @BeforeEach
     public void setUp() throws Exception {
@@ -53,89 +67,219 @@ public class ZipArtifactCacheTest {
         TestFileUtil.createTestFolder(artifact, "dir");
         TestFileUtil.createTestFile(artifact, "dir/file1");
 
-        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        artifactsDirHolder = mock(ArtifactsDirHolder.class);
         when(artifactsDirHolder.getArtifactsDir()).thenReturn(folder);
-        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil());
+        zipArtifactCache = cacheOfSize(10 * 1024 * 1024, true);
         artifactFolder = new ArtifactFolder(JOB_IDENTIFIER, new File(artifact, "dir"), "dir");
     }
 
     @Test
     public void shouldKnowWhenCacheAlreadyCreated() throws Exception {
-        zipArtifactCache.createCachedFile(artifactFolder);
+        zipArtifactCache.zipTo(artifactFolder, new ByteArrayOutputStream());
 
         assertThat(zipArtifactCache)
-            .satisfies(cache -> assertThat(cache.cacheCreated(artifactFolder)).isTrue())
+            .satisfies(cache -> assertThat(cache.cachedZip(artifactFolder)).isNotNull())
             .satisfies(cache -> assertThat(cache.cachedFile(artifactFolder).getName()).isEqualTo("dir.zip"));
     }
 
     @Test
     public void shouldCreateCacheWhenNotYetCreated() throws Exception {
-        waitForCacheCreated();
+        zipArtifactCache.zipTo(artifactFolder, new ByteArrayOutputStream());
         assertThat(zipArtifactCache)
-            .satisfies(cache -> assertThat(cache.cacheCreated(artifactFolder)).isTrue())
+            .satisfies(cache -> assertThat(cache.cachedZip(artifactFolder)).isNotNull())
             .satisfies(cache -> assertThat(cache.cachedFile(artifactFolder).getAbsolutePath().replaceAll("\\\\", "/")).endsWith("cache/artifacts/" + JOB_FOLDERS + "/dir.zip"));
     }
 
     @Test
-    public void shouldOnlyCreateCacheOnce() {
+    public void shouldOnlyCreateCacheOnce() throws Exception {
+        AtomicInteger zips = new AtomicInteger();
+        CountDownLatch allDownloadsStarted = new CountDownLatch(10);
+        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil() {
+            @Override
+            public void zip(File file, OutputStream output, int level) throws IOException {
+                zips.incrementAndGet();
+                doInterruptiblyQuietlyRethrowInterrupt(() -> allDownloadsStarted.await(2, SECONDS));
+                super.zip(file, output, level);
+            }
+        }, systemEnvironment(10 * 1024 * 1024, true));
 
-        List<FileCheckerThread> threads = IntStream.range(0, 10).mapToObj(i -> new FileCheckerThread()).toList();
+        List<DownloadThread> threads = IntStream.range(0, 10).mapToObj(i -> new DownloadThread(allDownloadsStarted)).toList();
         threads.forEach(Thread::start);
 
         try {
             threads.forEach(thread -> doInterruptiblyQuietlyRethrowInterrupt(() -> {
-                thread.join(TimeUnit.SECONDS.toMillis(2));
+                thread.join(TimeUnit.SECONDS.toMillis(5));
                 if (thread.isAlive()) {
                     fail("Timeout waiting for threads");
                 }
             }));
 
-            threads.forEach(thread -> {
-                assertThat(thread.isDone()).isTrue();
-                assertThat(thread.artifact.replaceAll("\\\\", "/")).endsWith(JOB_FOLDERS + "/dir.zip");
-            });
+            for (DownloadThread thread : threads) {
+                assertThat(entriesIn(thread.download.toByteArray())).contains("dir/file1");
+            }
+            assertThat(zips.get()).isEqualTo(1);
         } finally {
             threads.forEach(Thread::interrupt);
         }
     }
 
+    @Test
+    public void shouldStreamTheZipToTheClientBeforeItIsFinished() throws Exception {
+        CountDownLatch clientGotBytes = new CountDownLatch(1);
+        zipArtifactCache = new ZipArtifactCache(artifactsDirHolder, new ZipUtil() {
+            @Override
+            public void zip(File file, OutputStream output, int level) throws IOException {
+                super.zip(file, new FilterOutputStream(output) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    // Holds the end of the zip back until the client has had the start of it
+                    @Override
+                    public void close() throws IOException {
+                        flush();
+                        doInterruptiblyQuietlyRethrowInterrupt(() -> clientGotBytes.await(5, SECONDS));
+                        super.close();
+                    }
+                }, level);
+            }
+        }, systemEnvironment(10 * 1024 * 1024, true));
+        List<Boolean> cachedWhenStreamed = new ArrayList<>();
+        ByteArrayOutputStream download = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                cachedWhenStreamed.add(zipArtifactCache.cachedFile(artifactFolder).exists());
+                super.write(b, off, len);
+                clientGotBytes.countDown();
+            }
+        };
+
+        zipArtifactCache.zipTo(artifactFolder, download);
+
+        assertThat(cachedWhenStreamed).isNotEmpty().startsWith(false);
+        assertThat(zipArtifactCache.cachedFile(artifactFolder)).hasBinaryContent(download.toByteArray());
+        assertThat(entriesIn(download.toByteArray())).contains("dir/file1");
+    }
+
     @Test
     public void shouldRecoverFromOldZipTmpFile() throws Exception {
         File cacheDir = new File(folder, "cache/artifacts/" + JOB_FOLDERS);
         cacheDir.mkdirs();
         TestFileUtil.createTestFile(cacheDir, "dir.zip.tmp");
 
-        waitForCacheCreated();
+        zipArtifactCache.zipTo(artifactFolder, new ByteArrayOutputStream());
         assertThat(new File(cacheDir, "dir.zip.tmp")).doesNotExist();
         new ZipUtil().unzip(new File(cacheDir, "dir.zip"), cacheDir);
         assertThat(new File(cacheDir, "dir/file1")).exists();
     }
 
-    private void waitForCacheCreated() throws Exception {
-        long waitUntil = System.currentTimeMillis() + SECONDS.toMillis(2);
-        while (System.currentTimeMillis() <= waitUntil && !zipArtifactCache.cacheCreated(artifactFolder)) {
-            Thread.sleep(10);
-        }
-        if (System.currentTimeMillis() > waitUntil) {
-            fail("Timeout creating cache");
+    @Test
+    public void shouldStreamTheZipWhileWritingItToTheCache() throws Exception {
+        assertThat(zipArtifactCache.cachedZip(artifactFolder)).isNull();
+
+        ByteArrayOutputStream download = new ByteArrayOutputStream();
+        zipArtifactCache.zipTo(artifactFolder, download);
+
+        assertThat(entriesIn(download.toByteArray())).contains("dir/file1");
+        File cachedZip = zipArtifactCache.cachedZip(artifactFolder);
+        assertThat(cachedZip).hasBinaryContent(download.toByteArray());
+        assertThat(new File(cachedZip.getParentFile(), "dir.zip.tmp")).doesNotExist();
+        assertThat(zipArtifactCache.asJsonCompatibleMap())
+            .containsEntry("Hits", 1L)
+            .containsEntry("Misses", 1L)
+            .containsEntry("Size in bytes", cachedZip.length());
+    }
+
+    @Test
+    public void shouldOnlyStreamTheZipWhenWritingToTheCacheIsTurnedOff() throws Exception {
+        zipArtifactCache = cacheOfSize(10 * 1024 * 1024, false);
+
+        ByteArrayOutputStream download = new ByteArrayOutputStream();
+        zipArtifactCache.zipTo(artifactFolder, download);
+
+        assertThat(entriesIn(download.toByteArray())).contains("dir/file1");
+        assertThat(zipArtifactCache.cachedFile(artifactFolder)).doesNotExist();
+    }
+
+    @Test
+    public void shouldEvictTheLeastRecentlyUsedZipsWhenTheCacheIsFull() throws Exception {
+        ArtifactFolder first = folderWithFileOfSize("first", 1000);
+        ArtifactFolder second = folderWithFileOfSize("second", 1000);
+        ArtifactFolder third = folderWithFileOfSize("third", 1000);
+        zipArtifactCache = cacheOfSize(3000, true);
+
+        zipArtifactCache.zipTo(first, new ByteArrayOutputStream());
+        zipArtifactCache.zipTo(second, new ByteArrayOutputStream());
+        assertThat(zipArtifactCache.cachedZip(first)).isNotNull();
+        zipArtifactCache.zipTo(third, new ByteArrayOutputStream());
+
+        assertThat(zipArtifactCache.cachedFile(first)).exists();
+        assertThat(zipArtifactCache.cachedFile(second)).doesNotExist();
+        assertThat(zipArtifactCache.cachedFile(third)).exists();
+        assertThat(zipArtifactCache.sizeInBytes()).isLessThanOrEqualTo(3000);
+        assertThat(zipArtifactCache.asJsonCompatibleMap()).containsEntry("Evictions", 1L);
+    }
+
+    @Test
+    public void shouldCountZipsAlreadyInTheCacheTowardsItsSize() throws Exception {
+        File cacheDir = new File(folder, "cache/artifacts/" + JOB_FOLDERS);
+        cacheDir.mkdirs();
+        Files.write(new File(cacheDir, "old.zip").toPath(), new byte[2000]);
+        zipArtifactCache = cacheOfSize(1500, true);
+
+        zipArtifactCache.zipTo(artifactFolder, new ByteArrayOutputStream());
+
+        assertThat(new File(cacheDir, "old.zip")).doesNotExist();
+        assertThat(zipArtifactCache.cachedFile(artifactFolder)).exists();
+    }
+
+    private ZipArtifactCache cacheOfSize(long maxSizeInBytes, boolean writeToCache) {
+        return new ZipArtifactCache(artifactsDirHolder, new ZipUtil(), systemEnvironment(maxSizeInBytes, writeToCache));
+    }
+
+    private SystemEnvironment systemEnvironment(long maxSizeInBytes, boolean writeToCache) {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.getArtifactZipCacheWorkers()).thenReturn(2);
+        when(systemEnvironment.getArtifactZipCacheMaxSizeInBytes()).thenReturn(maxSizeInBytes);
+        when(systemEnvironment.isArtifactZipCacheEnabled()).thenReturn(writeToCache);
+        return systemEnvironment;
+    }
+
+    private ArtifactFolder folderWithFileOfSize(String name, int size) throws IOException {
+        File dir = new File(folder, JOB_FOLDERS + "/" + name);
+        dir.mkdirs();
+        byte[] content = new byte[size];
+        new Random(size + name.hashCode()).nextBytes(content);
+        Files.write(new File(dir, "file").toPath(), content);
+        return new ArtifactFolder(JOB_IDENTIFIER, dir, name);
+    }
+
+    private List<String> entriesIn(byte[] zip) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.add(entry.getName());
+            }
         }
+        return entries;
     }
 
-    private class FileCheckerThread extends Thread {
-        String artifact;
+    private class DownloadThread extends Thread {
+        private final ByteArrayOutputStream download = new ByteArrayOutputStream();
+        private final CountDownLatch started;
 
-        public boolean isDone() {
-            return artifact != null;
+        DownloadThread(CountDownLatch started) {
+            this.started = started;
         }
 
         @Override
         public void run() {
             try {
-                while (!zipArtifactCache.cacheCreated(artifactFolder)) {
-                    Thread.sleep(10);
-                }
-                artifact = zipArtifactCache.cachedFile(artifactFolder).getAbsolutePath();
-            } catch (InterruptedException | IOException e) {
+                started.countDown();
+                zipArtifactCache.zipTo(artifactFolder, download);
+            } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
@@ -27,18 +27,25 @@ import com.thoughtworks.go.server.web.ResponseCodeView;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockMultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.zip.GZIPOutputStream;
 
 import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_CONFIRM_MODIFICATION;
+import static com.thoughtworks.go.remote.StandardHeaders.REQUEST_CONSOLE_SEQUENCE_NUMBER;
 import static com.thoughtworks.go.util.GoConstants.*;
 import static java.net.HttpURLConnection.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -82,6 +89,41 @@ public class ArtifactsControllerTest {
         verify(consoleActivityMonitor).consoleUpdatedFor(jobIdentifier);
     }
 
+    @Test
+    public void shouldAppendCompressedChunkOfConsoleOutputOnlyOnce() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write("Testing:".getBytes(UTF_8));
+        }
+        request.setContent(compressed.toByteArray());
+        request.addHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        request.addHeader(REQUEST_CONSOLE_SEQUENCE_NUMBER, "7");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build", 103L)).thenReturn(jobIdentifier);
+        File artifactFile = new File("junk");
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
+        ArgumentCaptor<InputStream> appended = ArgumentCaptor.forClass(InputStream.class);
+        when(consoleService.appendToConsoleLogIoSafe(eq(jobIdentifier), eq(artifactFile), eq(7L), appended.capture())).thenReturn(true);
+
+        ModelAndView modelAndView = artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103L, "cruise-output/console.log", "agent-id", request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_OK);
+        assertThat(new String(appended.getValue().readAllBytes(), UTF_8)).isEqualTo("Testing:");
+    }
+
+    @Test
+    public void shouldRejectChunkOfConsoleOutputWithInvalidSequenceNumber() throws Exception {
+        request.setContent("Testing:".getBytes(UTF_8));
+        request.addHeader(REQUEST_CONSOLE_SEQUENCE_NUMBER, "not-a-number");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build", 103L)).thenReturn(jobIdentifier);
+
+        ModelAndView modelAndView = artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103L, "cruise-output/console.log", "agent-id", request);
+
+        assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(HTTP_BAD_REQUEST);
+        verifyNoInteractions(consoleActivityMonitor);
+    }
+
     @Test
     public void testConsoleOutShouldReturnErrorWhenJobHasBeenCompletedAndLogsNotFound() {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
@@ -103,7 +145,7 @@ public class ArtifactsControllerTest {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
         when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
         when(artifactService.findArtifact(any(), eq("some-path"))).thenReturn(artifactFile);
-        when(artifactService.saveFile(any(), any(), eq(false), eq(1))).thenReturn(true);
+        when(artifactService.saveFile(any(), any(), any(), eq(false), eq(1))).thenReturn(true);
         when(artifactService.saveOrAppendFile(any(), any())).thenReturn(false);
 
         MockMultipartHttpServletRequest request = newMultiPartRequest();
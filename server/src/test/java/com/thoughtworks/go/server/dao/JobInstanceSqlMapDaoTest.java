@@ -72,33 +72,21 @@ class JobInstanceSqlMapDaoTest {
     }
 
     @Nested
-    class CacheKeyForJobInstanceWithTransitions {
+    class OriginalJobIdentifier {
         @Test
-        void shouldGenerateCacheKey() {
-            assertThat(jobInstanceSqlMapDao.cacheKeyForJobInstanceWithTransitions(1L))
-                .isEqualTo("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao.$jobInstanceWithTransitionIds.$1");
-        }
-    }
-
-    @Nested
-    class CacheKeyForOriginalJobIdentifier {
-        @Test
-        void shouldGenerateCacheKey() {
-            final StageIdentifier stageIdentifier = new StageIdentifier("Foo", 1, "Bar", "Baz", "1");
-            assertThat(jobInstanceSqlMapDao.cacheKeyForOriginalJobIdentifier(stageIdentifier, "job"))
-                .isEqualTo("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao.$originalJobIdentifier.$Foo.$bar.$1.$baz.$1.$job");
+        void shouldIgnoreCaseOfEverythingButThePipelineNameInTheKey() {
+            assertThat(JobInstanceSqlMapDao.OriginalJobKey.of(new StageIdentifier("Foo", 1, "Bar", "Baz", "1"), "job"))
+                .isEqualTo(JobInstanceSqlMapDao.OriginalJobKey.of(new StageIdentifier("Foo", 1, "bar", "baz", "1"), "JOB"))
+                .isNotEqualTo(JobInstanceSqlMapDao.OriginalJobKey.of(new StageIdentifier("foo", 1, "Bar", "Baz", "1"), "job"));
         }
 
         @Test
-        void shouldGenerateADifferentMutexWhenPartOfPipelineIsInterchangedWithStageName() {
+        void shouldGenerateADifferentKeyWhenPartOfPipelineIsInterchangedWithStageName() {
             final StageIdentifier stageIdentifierOne = new StageIdentifier("Foo_", 1, "Bar", "stage", "1");
             final StageIdentifier stageIdentifierTwo = new StageIdentifier("Foo", 1, "_Bar", "stage", "1");
 
-            System.out.println(jobInstanceSqlMapDao.cacheKeyForOriginalJobIdentifier(stageIdentifierOne, "job"));
-            System.out.println(jobInstanceSqlMapDao.cacheKeyForOriginalJobIdentifier(stageIdentifierTwo, "job"));
-
-            assertThat(jobInstanceSqlMapDao.cacheKeyForOriginalJobIdentifier(stageIdentifierOne, "job"))
-                .isNotEqualTo(jobInstanceSqlMapDao.cacheKeyForOriginalJobIdentifier(stageIdentifierTwo, "job"));
+            assertThat(JobInstanceSqlMapDao.OriginalJobKey.of(stageIdentifierOne, "job"))
+                .isNotEqualTo(JobInstanceSqlMapDao.OriginalJobKey.of(stageIdentifierTwo, "job"));
         }
 
         @Test
@@ -153,15 +141,6 @@ class JobInstanceSqlMapDaoTest {
         }
     }
 
-    @Nested
-    class CacheKeyForJobPlan {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(jobInstanceSqlMapDao.cacheKeyForJobPlan(1L))
-                .isEqualTo("com.thoughtworks.go.server.dao.JobInstanceSqlMapDao.$jobPlan.$1");
-        }
-    }
-
     @Nested
     class CacheKeyForActiveJob {
         @Test
@@ -249,7 +249,7 @@ class PipelineSqlMapDaoCachingTest {
         StageIdentifier actual = pipelineDao.latestPassedStageIdentifier(pipelineId, stage);
         assertThat(actual).isEqualTo(StageIdentifier.NULL);
 
-        assertThat((StageIdentifier) goCache.get(pipelineDao.cacheKeyForLatestPassedStage(pipelineId, stage))).isEqualTo(StageIdentifier.NULL);
+        assertThat(pipelineDao.cachedLatestPassedStageIdentifier(pipelineId, stage)).isEqualTo(StageIdentifier.NULL);
 
         actual = pipelineDao.latestPassedStageIdentifier(pipelineId, stage);
         assertThat(actual).isEqualTo(StageIdentifier.NULL);
@@ -263,9 +263,12 @@ class PipelineSqlMapDaoCachingTest {
         Stage passedStage = StageMother.passedStageInstance(stage.toUpperCase(), "job", "pipeline-name");
         passedStage.setPipelineId(10L);
 
-        goCache.put(pipelineDao.cacheKeyForLatestPassedStage(passedStage.getPipelineId(), stage), new StageIdentifier());
+        when(mockTemplate.queryForObject(eq("latestPassedStageForPipelineId"), any())).thenReturn(new StageIdentifier());
+        pipelineDao.latestPassedStageIdentifier(passedStage.getPipelineId(), stage);
+        assertThat(pipelineDao.cachedLatestPassedStageIdentifier(passedStage.getPipelineId(), stage)).isNotNull();
+
         pipelineDao.stageStatusChanged(passedStage);
-        assertThat(goCache.<Object>get(pipelineDao.cacheKeyForLatestPassedStage(passedStage.getPipelineId(), stage))).isNull();
+        assertThat(pipelineDao.cachedLatestPassedStageIdentifier(passedStage.getPipelineId(), stage)).isNull();
     }
 
     @Test
@@ -19,9 +19,10 @@ import com.thoughtworks.go.config.GoConfigDao;
 import com.thoughtworks.go.domain.Pipeline;
 import com.thoughtworks.go.domain.buildcause.BuildCause;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel;
-import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
+import com.thoughtworks.go.server.service.StubGoCache;
 import com.thoughtworks.go.server.transaction.SqlMapClientTemplate;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import com.thoughtworks.go.util.TimeProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -35,13 +36,12 @@ import static org.mockito.Mockito.*;
 
 class PipelineSqlMapDaoTest {
     private PipelineSqlMapDao pipelineSqlMapDao;
-    private GoCache goCache;
     private SqlMapClientTemplate sqlMapClientTemplate;
     private MaterialRepository materialRepository;
 
     @BeforeEach
     void setUp() {
-        goCache = mock(GoCache.class);
+        StubGoCache goCache = new StubGoCache(new TestTransactionSynchronizationManager());
         sqlMapClientTemplate = mock(SqlMapClientTemplate.class);
         materialRepository = mock(MaterialRepository.class);
         GoConfigDao configFileDao = mock(GoConfigDao.class);
@@ -54,15 +54,17 @@ class PipelineSqlMapDaoTest {
     void shouldLoadPipelineHistoryFromCacheWhenQueriedViaNameAndCounter() {
         String pipelineName = "wholetthedogsout";
         int pipelineCounter = 42;
+        Map<String, Object> map = Map.of("pipelineName", pipelineName, "pipelineCounter", pipelineCounter);
         PipelineInstanceModel expected = mock(PipelineInstanceModel.class);
-        when(goCache.get(anyString())).thenReturn(expected);
+        when(sqlMapClientTemplate.queryForObject("getPipelineHistoryByNameAndCounter", map)).thenReturn(expected);
         when(expected.getBuildCause()).thenReturn(mock(BuildCause.class));
         when(expected.getApprovedBy()).thenReturn("some-user");
+        pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter);
 
-        PipelineInstanceModel reFetch = pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter); //returned from cache
+        PipelineInstanceModel reFetch = pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName.toUpperCase(), pipelineCounter); //returned from cache
 
         assertThat(reFetch).isEqualTo(expected);
-        verify(goCache).get(anyString());
+        verify(sqlMapClientTemplate, times(1)).queryForObject("getPipelineHistoryByNameAndCounter", map);
     }
 
     @Test
@@ -82,8 +84,17 @@ class PipelineSqlMapDaoTest {
         assertThat(primed).isEqualTo(expected);
 
         verify(sqlMapClientTemplate, times(1)).queryForObject("getPipelineHistoryByNameAndCounter", map);
-        verify(goCache, times(1)).put(anyString(), eq(expected));
-        verify(goCache, times(2)).get(anyString());
+    }
+
+    @Test
+    void shouldNotCachePipelineHistoryThatWasNotFound() {
+        Map<String, Object> args = Map.of("id", 7L);
+        when(sqlMapClientTemplate.queryForObject("getPipelineHistoryById", args)).thenReturn(null);
+
+        assertThat(pipelineSqlMapDao.loadHistory(7L)).isNull();
+        assertThat(pipelineSqlMapDao.loadHistory(7L)).isNull();
+
+        verify(sqlMapClientTemplate, times(2)).queryForObject("getPipelineHistoryById", args);
     }
 
     @Test
@@ -96,11 +107,15 @@ class PipelineSqlMapDaoTest {
         Pipeline expected = mock(Pipeline.class);
         when(sqlMapClientTemplate.queryForObject("findPipelineByNameAndCounter", Map.of("name", pipelineName, "counter", pipelineCounter))).thenReturn(expected);
         when(expected.getId()).thenReturn(102413L);
+        Map<String, Object> historyArgs = Map.of("id", 102413L);
+        when(sqlMapClientTemplate.queryForObject("getPipelineHistoryById", historyArgs)).thenReturn(PipelineInstanceModel.createEmptyModel());
+        pipelineSqlMapDao.loadHistory(102413L);
 
         pipelineSqlMapDao.updateComment(pipelineName, pipelineCounter, comment);
 
         verify(sqlMapClientTemplate, times(1)).update("updatePipelineComment", args);
-        verify(goCache, times(1)).remove("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipelineHistory.$102413");
+        pipelineSqlMapDao.loadHistory(102413L);
+        verify(sqlMapClientTemplate, times(2)).queryForObject("getPipelineHistoryById", historyArgs);
     }
 
     @Test
@@ -113,24 +128,6 @@ class PipelineSqlMapDaoTest {
         verify(mockTemplate, times(1)).queryForList(eq("getPipelineRange"), any());
     }
 
-    @Nested
-    class CacheKeyForBuildCauseByNameAndCounter {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(pipelineSqlMapDao.cacheKeyForBuildCauseByNameAndCounter("foo", 1))
-                    .isEqualTo("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$buildCauseByNameAndCounter.$foo.$1");
-        }
-    }
-
-    @Nested
-    class CacheKeyForPipelineHistoryByNameAndCounter {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(pipelineSqlMapDao.cacheKeyForPipelineHistoryByNameAndCounter("foo", 1))
-                    .isEqualTo("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$cacheKeyForPipelineHistoryByName.$foo.$AndCounter.$1");
-        }
-    }
-
     @Nested
     class CacheKeyForLatestPipelineIdByPipelineName {
         @Test
@@ -149,15 +146,6 @@ class PipelineSqlMapDaoTest {
         }
     }
 
-    @Nested
-    class cacheKeyForLatestPassedStage {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(pipelineSqlMapDao.cacheKeyForLatestPassedStage(1, "stage_1"))
-                    .isEqualTo("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$cacheKeyForlatestPassedStage.$1.$stage_1");
-        }
-    }
-
     @Nested
     class CacheKeyForPipelineInstancesTriggeredWithDependencyMaterial {
         @Test
@@ -202,13 +190,4 @@ class PipelineSqlMapDaoTest {
                     .isNotEqualTo(pipelineSqlMapDao.latestSuccessfulStageCacheKey("foo_bar", "baz"));
         }
     }
-
-    @Nested
-    class PipelineHistoryCacheKey {
-        @Test
-        void shouldGenerateCacheKey() {
-            assertThat(pipelineSqlMapDao.pipelineHistoryCacheKey(1L))
-                    .isEqualTo("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipelineHistory.$1");
-        }
-    }
 }
@@ -24,7 +24,7 @@ import java.util.List;
 import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 
 public class GoDashboardCacheTest {
     private GoDashboardCache cache;
@@ -84,6 +84,28 @@ public class GoDashboardCacheTest {
         assertThat(cache.allEntries().find(cis("pipeline5"))).isSameAs(pipeline5);
     }
 
+    @Test
+    public void shouldTellListenersAboutChangesOnceTheyHaveBeenMade() {
+        GoDashboardCacheListener listener = mock(GoDashboardCacheListener.class);
+        cache.addListener(listener);
+        GoDashboardPipeline pipeline1 = pipeline("pipeline1");
+
+        doAnswer(invocation -> {
+            assertThat(cache.allEntries().find(cis("pipeline1"))).isSameAs(pipeline1);
+            return null;
+        }).when(listener).pipelineChanged(pipeline1);
+
+        cache.put(pipeline1);
+        cache.remove(cis("pipeline1"));
+        cache.remove(cis("pipeline1"));
+        cache.replaceAllEntriesInCacheWith(List.of(pipeline("pipeline2")));
+
+        verify(listener).pipelineChanged(pipeline1);
+        verify(listener, times(1)).pipelineRemoved(cis("pipeline1"));
+        verify(listener).allPipelinesChanged();
+        assertThat(cache.allEntries().find(cis("pipeline1"))).isNull();
+    }
+
     private CaseInsensitiveString cis(String value) {
         return new CaseInsensitiveString(value);
     }
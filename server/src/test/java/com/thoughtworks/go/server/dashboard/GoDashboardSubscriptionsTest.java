@@ -0,0 +1,163 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.security.Permissions;
+import com.thoughtworks.go.config.security.permissions.NoOnePermission;
+import com.thoughtworks.go.config.security.users.Everyone;
+import com.thoughtworks.go.config.security.users.NoOne;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.domain.user.DashboardFilter;
+import com.thoughtworks.go.server.domain.user.ExcludesFilter;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor.Action;
+import com.thoughtworks.go.server.service.GoDashboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GoDashboardSubscriptionsTest {
+    private GoDashboardCache cache;
+    private GoDashboardService goDashboardService;
+    private GoDashboardSubscriptions subscriptions;
+    private GoDashboardSubscriber subscriber;
+    private DashboardFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        cache = new GoDashboardCache(mock(TimeStampBasedCounter.class));
+        goDashboardService = mock(GoDashboardService.class);
+        when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(true);
+
+        MultiplexingQueueProcessor processor = mock(MultiplexingQueueProcessor.class);
+        doAnswer(invocation -> {
+            invocation.<Action>getArgument(0).call();
+            return null;
+        }).when(processor).add(any());
+
+        subscriptions = new GoDashboardSubscriptions(cache, goDashboardService, processor);
+        subscriptions.initialize();
+
+        filter = new ExcludesFilter("Default", List.of(new CaseInsensitiveString("excluded")), Set.of());
+        subscriber = mock(GoDashboardSubscriber.class);
+        when(subscriber.user()).thenReturn(new Username("bob"));
+        when(subscriber.filter()).thenReturn(filter);
+    }
+
+    @Test
+    void shouldSendANewSubscriberItsDashboard() {
+        GoDashboardPipelineGroup group = dashboardShowing(pipeline("p1"));
+
+        subscriptions.subscribe(subscriber);
+
+        verify(subscriber).snapshot(List.of(group), List.of());
+        verify(goDashboardService).allPipelineGroupsForDashboard(filter, new Username("bob"));
+    }
+
+    @Test
+    void shouldNotSendASnapshotUntilTheDashboardHasBeenLoaded() {
+        when(goDashboardService.hasEverLoadedCurrentState()).thenReturn(false);
+
+        subscriptions.subscribe(subscriber);
+
+        verify(subscriber, never()).snapshot(any(), any());
+    }
+
+    @Test
+    void shouldOnlySendPipelinesWhichHaveChangedAfterTheSnapshot() {
+        dashboardShowing(pipeline("p1"), pipeline("p2"));
+        subscriptions.subscribe(subscriber);
+
+        GoDashboardPipeline changed = pipeline("p1");
+        cache.put(changed);
+
+        verify(subscriber).pipelineChanged(changed);
+        verify(subscriber, times(1)).snapshot(any(), any());
+    }
+
+    @Test
+    void shouldNotSendPipelinesTheUserHasFilteredOut() {
+        dashboardShowing(pipeline("p1"));
+        cache.put(pipeline("excluded"));
+        subscriptions.subscribe(subscriber);
+
+        cache.put(pipeline("excluded"));
+
+        verify(subscriber, never()).pipelineChanged(any());
+        verify(subscriber, times(1)).snapshot(any(), any());
+    }
+
+    @Test
+    void shouldNotSendPipelinesTheUserCannotView() {
+        Permissions noOne = new Permissions(NoOne.INSTANCE, NoOne.INSTANCE, NoOne.INSTANCE, NoOnePermission.INSTANCE);
+        dashboardShowing(pipeline("p1"));
+        cache.put(pipeline("secret", "group1", noOne));
+        subscriptions.subscribe(subscriber);
+
+        cache.put(pipeline("secret", "group1", noOne));
+
+        verify(subscriber, never()).pipelineChanged(any());
+        verify(subscriber, times(1)).snapshot(any(), any());
+    }
+
+    @Test
+    void shouldSendAFreshSnapshotWhenTheShapeOfTheDashboardChanges() {
+        dashboardShowing(pipeline("p1"));
+        subscriptions.subscribe(subscriber);
+
+        cache.put(pipeline("new-pipeline"));
+        cache.put(pipeline("p1", "another-group"));
+        cache.put(pipeline("p1", "another-group", new Permissions(NoOne.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE, NoOnePermission.INSTANCE)));
+        cache.remove(new CaseInsensitiveString("p1"));
+        cache.replaceAllEntriesInCacheWith(List.of(pipeline("p1")));
+
+        verify(subscriber, times(6)).snapshot(any(), any());
+        verify(subscriber, never()).pipelineChanged(any());
+    }
+
+    @Test
+    void shouldStopSendingToSubscribersWhichHaveGone() {
+        dashboardShowing(pipeline("p1"));
+        subscriptions.subscribe(subscriber);
+        subscriptions.unsubscribe(subscriber);
+
+        cache.put(pipeline("p1"));
+        cache.replaceAllEntriesInCacheWith(List.of(pipeline("p1")));
+
+        verify(subscriber, times(1)).snapshot(any(), any());
+        verify(subscriber, never()).pipelineChanged(any());
+        assertThat(subscriptions.numberOfSubscribers()).isZero();
+    }
+
+    private GoDashboardPipelineGroup dashboardShowing(GoDashboardPipeline... pipelines) {
+        GoDashboardPipelineGroup group = new GoDashboardPipelineGroup("group1", pipelines[0].permissions(), true);
+        for (GoDashboardPipeline pipeline : pipelines) {
+            cache.put(pipeline);
+            group.addPipeline(pipeline);
+        }
+        when(goDashboardService.allPipelineGroupsForDashboard(filter, new Username("bob"))).thenReturn(List.of(group));
+        when(goDashboardService.allEnvironmentsForDashboard(filter, new Username("bob"))).thenReturn(List.of());
+        return group;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineInstanceIndexTest {
+    private final PipelineInstanceIndex instances = new PipelineInstanceIndex();
+
+    @Test
+    void shouldKeepInstancesInTheOrderTheyWereAdded() {
+        PipelineTimelineEntry first = entry(10, 1);
+        PipelineTimelineEntry second = entry(5, 2);
+        PipelineTimelineEntry third = entry(20, 3);
+        instances.add(first);
+        instances.add(second);
+        instances.add(third);
+
+        assertThat(instances.size()).isEqualTo(3);
+        assertThat(List.of(instances.get(0), instances.get(1), instances.get(2))).containsExactly(first, second, third);
+        assertThatThrownBy(() -> instances.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void shouldFindInstancesByIdEvenWhenTheyWereNotAddedInIdOrder() {
+        PipelineTimelineEntry first = entry(10, 1);
+        PipelineTimelineEntry second = entry(5, 2);
+        PipelineTimelineEntry third = entry(20, 3);
+        instances.add(first);
+        instances.add(second);
+        instances.add(third);
+
+        assertThat(instances.withId(5)).isSameAs(second);
+        assertThat(instances.withId(10)).isSameAs(first);
+        assertThat(instances.withId(20)).isSameAs(third);
+        assertThat(instances.withId(15)).isNull();
+    }
+
+    @Test
+    void shouldFindTheLastInstanceAddedWithACounter() {
+        instances.add(entry(1, 1));
+        instances.add(entry(2, 2));
+        PipelineTimelineEntry rerunOfTwo = entry(3, 2);
+        instances.add(rerunOfTwo);
+        instances.add(entry(4, 4));
+
+        assertThat(instances.lastWithCounter(2)).isSameAs(rerunOfTwo);
+        assertThat(instances.lastWithCounter(3)).isNull();
+        assertThat(instances.lastWithCounter(5)).isNull();
+    }
+
+    @Test
+    void shouldFindTheLastInstanceAddedWithACounterWhenCountersGoBackwards() {
+        PipelineTimelineEntry five = entry(1, 5);
+        instances.add(five);
+        instances.add(entry(2, 1));
+        PipelineTimelineEntry resetToFive = entry(3, 5);
+        instances.add(resetToFive);
+
+        assertThat(instances.lastWithCounter(5)).isSameAs(resetToFive);
+        assertThat(instances.lastWithCounter(1).getId()).isEqualTo(2);
+        assertThat(instances.lastWithCounter(2)).isNull();
+    }
+
+    @Test
+    void shouldRemoveAnInstanceAndStillFindTheRest() {
+        PipelineTimelineEntry first = entry(10, 1);
+        PipelineTimelineEntry second = entry(5, 2);
+        PipelineTimelineEntry third = entry(20, 3);
+        instances.add(first);
+        instances.add(second);
+        instances.add(third);
+
+        assertThat(instances.remove(first)).isTrue();
+        assertThat(instances.remove(entry(99, 9))).isFalse();
+
+        assertThat(instances.size()).isEqualTo(2);
+        assertThat(instances.get(0)).isSameAs(second);
+        assertThat(instances.get(1)).isSameAs(third);
+        assertThat(instances.withId(10)).isNull();
+        assertThat(instances.withId(5)).isSameAs(second);
+        assertThat(instances.withId(20)).isSameAs(third);
+        assertThat(instances.lastWithCounter(3)).isSameAs(third);
+    }
+
+    @Test
+    void shouldGrowToHoldAnyNumberOfInstances() {
+        List<PipelineTimelineEntry> added = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            PipelineTimelineEntry entry = entry(i, i);
+            instances.add(entry);
+            added.add(entry);
+        }
+
+        List<PipelineTimelineEntry> all = new ArrayList<>();
+        instances.forEach(all::add);
+        assertThat(all).containsExactlyElementsOf(added);
+        assertThat(instances.withId(777)).isSameAs(added.get(776));
+        assertThat(instances.lastWithCounter(1000)).isSameAs(added.getLast());
+    }
+
+    private static PipelineTimelineEntry entry(long id, int counter) {
+        return new PipelineTimelineEntry("pipeline", id, counter, new HashMap<>());
+    }
+}
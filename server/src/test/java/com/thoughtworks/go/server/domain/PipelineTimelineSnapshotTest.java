@@ -0,0 +1,89 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.domain;
+
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
+import com.thoughtworks.go.helper.PipelineTimelineEntryMother;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineTimelineSnapshotTest {
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    @Test
+    void shouldReadBackWhatWasWritten(@TempDir Path tempDir) throws IOException {
+        PipelineTimelineEntry.Revision shared = PipelineTimelineEntryMother.entryRev(now, "abc");
+        PipelineTimelineEntry first = new PipelineTimelineEntry("up", 1, 1, revisions("git-1", shared, "hg-1", PipelineTimelineEntryMother.entryRev(now.plusMinutes(1), "r1")), 1.0);
+        PipelineTimelineEntry second = new PipelineTimelineEntry("down", 2, -1, revisions("git-1", shared), 1.5);
+        File file = tempDir.resolve("snapshot").toFile();
+
+        PipelineTimelineSnapshot.write(List.of(first, second), file);
+        List<PipelineTimelineEntry> entries = PipelineTimelineSnapshot.read(file);
+
+        assertThat(entries).containsExactly(first, second);
+        assertThat(entries.get(0).getPipelineName()).isEqualTo("up");
+        assertThat(entries.get(0).getCounter()).isEqualTo(1);
+        assertThat(entries.get(0).naturalOrder()).isEqualTo(1.0);
+        assertThat(entries.get(0).revisions()).isEqualTo(first.revisions());
+        assertThat(entries.get(1).getCounter()).isEqualTo(-1);
+        assertThat(entries.get(1).naturalOrder()).isEqualTo(1.5);
+        assertThat(entries.get(1).revisions().get("git-1").getFirst())
+            .isEqualTo(shared)
+            .isSameAs(entries.get(0).revisions().get("git-1").getFirst());
+        assertThat(entries.get(1).revisions().get("git-1").getFirst().id()).isEqualTo(shared.id());
+    }
+
+    @Test
+    void shouldReplaceAnExistingSnapshotWithoutLeavingTemporaryFilesBehind(@TempDir Path tempDir) throws IOException {
+        File file = tempDir.resolve("snapshot").toFile();
+        PipelineTimelineSnapshot.write(List.of(new PipelineTimelineEntry("up", 1, 1, revisions("git-1", PipelineTimelineEntryMother.entryRev(now)), 1.0)), file);
+
+        PipelineTimelineSnapshot.write(List.of(), file);
+
+        assertThat(PipelineTimelineSnapshot.read(file)).isEmpty();
+        assertThat(tempDir.toFile().list()).containsExactly("snapshot");
+    }
+
+    @Test
+    void shouldRefuseToReadAFileThatIsNotASnapshot(@TempDir Path tempDir) throws IOException {
+        File file = tempDir.resolve("snapshot").toFile();
+        Files.writeString(file.toPath(), "not a snapshot");
+
+        assertThatThrownBy(() -> PipelineTimelineSnapshot.read(file))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("is not a pipeline timeline snapshot");
+    }
+
+    private static Map<String, List<PipelineTimelineEntry.Revision>> revisions(Object... fingerprintsAndRevisions) {
+        Map<String, List<PipelineTimelineEntry.Revision>> revisions = new HashMap<>();
+        for (int i = 0; i < fingerprintsAndRevisions.length; i += 2) {
+            revisions.put((String) fingerprintsAndRevisions[i], List.of((PipelineTimelineEntry.Revision) fingerprintsAndRevisions[i + 1]));
+        }
+        return revisions;
+    }
+}
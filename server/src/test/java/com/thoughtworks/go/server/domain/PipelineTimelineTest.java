@@ -21,15 +21,19 @@ import com.thoughtworks.go.helper.PipelineTimelineEntryMother;
 import com.thoughtworks.go.server.persistence.PipelineRepository;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.stubbing.Answer;
 import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionSynchronization;
 
+import java.nio.file.Path;
 import java.time.ZonedDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -167,6 +171,65 @@ public class PipelineTimelineTest {
         assertThat(timeline.maximumId()).isEqualTo(2L);
     }
 
+    @Test
+    public void updateOnInitShouldLoadTheSnapshotAndOnlyThePipelinesAfterItFromTheDatabase(@TempDir Path tempDir) throws Exception {
+        SystemEnvironment systemEnvironment = snapshotEnabledIn(tempDir);
+        PipelineTimelineSnapshot.write(List.of(copyOf(first), copyOf(second)), systemEnvironment.getPipelineTimelineSnapshotFile());
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, systemEnvironment);
+        when(pipelineRepository.countPipelinesUpTo(2)).thenReturn(2L);
+        stubPipelineRepository(timeline, true, third);
+
+        timeline.updateTimelineOnInit();
+
+        verify(pipelineRepository).updatePipelineTimeline(timeline, List.of(third));
+        assertThat(timeline.maximumId()).isEqualTo(3L);
+        assertThat(timeline.getEntriesFor("pipeline")).extracting(PipelineTimelineEntry::getId).containsExactly(1L, 2L, 3L);
+        assertThat(timeline.runBefore(3, new CaseInsensitiveString("pipeline")).getId()).isEqualTo(2L);
+        assertThat(timeline.instanceFor(new CaseInsensitiveString("pipeline"), 0).getId()).isEqualTo(1L);
+        @SuppressWarnings("unchecked") Map<String, Object> startup = (Map<String, Object>) timeline.asJsonCompatibleMap().get("Startup");
+        assertThat(startup).containsEntry("Entries loaded from snapshot", 2).containsEntry("Entries loaded from database", 1);
+    }
+
+    @Test
+    public void updateOnInitShouldIgnoreASnapshotThatDoesNotMatchTheDatabase(@TempDir Path tempDir) throws Exception {
+        SystemEnvironment systemEnvironment = snapshotEnabledIn(tempDir);
+        PipelineTimelineSnapshot.write(List.of(copyOf(first), copyOf(second)), systemEnvironment.getPipelineTimelineSnapshotFile());
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, systemEnvironment);
+        when(pipelineRepository.countPipelinesUpTo(2)).thenReturn(1L);
+        stubPipelineRepository(timeline, true, first, second, third);
+
+        timeline.updateTimelineOnInit();
+
+        verify(pipelineRepository).updatePipelineTimeline(timeline, List.of(first, second, third));
+        assertThat(timeline.getEntriesFor("pipeline")).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void checkpointShouldWriteTheTimelineInTheOrderItWasAdded(@TempDir Path tempDir) throws Exception {
+        SystemEnvironment systemEnvironment = snapshotEnabledIn(tempDir);
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager, systemEnvironment);
+        timeline.add(first);
+        timeline.add(second);
+        timeline.add(third);
+
+        timeline.checkpoint();
+
+        List<PipelineTimelineEntry> entries = PipelineTimelineSnapshot.read(systemEnvironment.getPipelineTimelineSnapshotFile());
+        assertThat(entries).containsExactly(first, second, third);
+        assertThat(entries).extracting(PipelineTimelineEntry::naturalOrder).containsExactly(first.naturalOrder(), second.naturalOrder(), third.naturalOrder());
+    }
+
+    private SystemEnvironment snapshotEnabledIn(Path tempDir) {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isPipelineTimelineSnapshotEnabled()).thenReturn(true);
+        when(systemEnvironment.getPipelineTimelineSnapshotFile()).thenReturn(tempDir.resolve("pipeline-timeline.snapshot").toFile());
+        return systemEnvironment;
+    }
+
+    private PipelineTimelineEntry copyOf(PipelineTimelineEntry entry) {
+        return new PipelineTimelineEntry(entry.getPipelineName(), entry.getId(), entry.getCounter(), entry.revisions());
+    }
+
     @Test
     public void updateShouldLoadNewInstancesFromTheDatabase() {
         stubTransactionSynchronization();
@@ -25,6 +25,7 @@ import com.thoughtworks.go.plugin.infra.monitor.DefaultPluginJarLocationMonitor;
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
 import com.thoughtworks.go.server.dao.PipelineSqlMapDao;
 import com.thoughtworks.go.server.dashboard.GoDashboardActivityListener;
+import com.thoughtworks.go.server.dashboard.GoDashboardSubscriptions;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.materials.DependencyMaterialUpdateNotifier;
 import com.thoughtworks.go.server.materials.MaterialUpdateService;
@@ -76,6 +77,8 @@ public class ApplicationInitializerTest {
     @Mock
     private EnvironmentConfigService environmentConfigService;
     @Mock
+    private ConfigDependencyGraphService configDependencyGraphService;
+    @Mock
     private DefaultPluginJarLocationMonitor defaultPluginJarLocationMonitor;
     @Mock
     private CachedGoConfig cachedGoConfig;
@@ -112,6 +115,8 @@ public class ApplicationInitializerTest {
     @Mock
     private GoDashboardActivityListener dashboardActivityListener;
     @Mock
+    private GoDashboardSubscriptions dashboardSubscriptions;
+    @Mock
     private ConsoleService consoleService;
     @Mock
     private ContextRefreshedEvent contextRefreshedEvent;
@@ -16,10 +16,13 @@
 package com.thoughtworks.go.server.materials;
 
 import com.thoughtworks.go.config.GoConfigRepoConfigDataSource;
+import com.thoughtworks.go.config.PartialConfigParseResult;
 import com.thoughtworks.go.config.materials.svn.SvnMaterial;
+import com.thoughtworks.go.config.remote.PartialConfig;
 import com.thoughtworks.go.domain.MaterialRevision;
 import com.thoughtworks.go.domain.MaterialRevisions;
 import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.domain.materials.ModifiedAction;
 import com.thoughtworks.go.domain.materials.Modification;
 import com.thoughtworks.go.domain.materials.TestSubprocessExecutionContext;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
@@ -29,6 +32,8 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 
 import static com.thoughtworks.go.domain.materials.Modification.modifications;
 import static org.mockito.Mockito.*;
@@ -89,7 +94,7 @@ public class ConfigMaterialUpdateListenerTest {
         MaterialUpdateSuccessfulMessage message = new MaterialUpdateSuccessfulMessage(material, 123);
         this.configUpdater.onMessage(message);
 
-        verify(repoConfigDataSource, times(1)).onCheckoutComplete(material.config(), folder, svnModification);
+        verify(repoConfigDataSource, times(1)).onCheckoutComplete(material.config(), folder, svnModification, null);
         verify(topic, times(1)).post(message);
     }
 
@@ -98,7 +103,7 @@ public class ConfigMaterialUpdateListenerTest {
         MaterialUpdateFailedMessage message = new MaterialUpdateFailedMessage(material, 123, new RuntimeException("bla"));
         this.configUpdater.onMessage(message);
 
-        verify(repoConfigDataSource, times(0)).onCheckoutComplete(material.config(), folder, getModificationFor("1"));
+        verify(repoConfigDataSource, times(0)).onCheckoutComplete(any(), any(), any(), any());
         verify(topic, times(1)).post(message);
     }
 
@@ -113,7 +118,7 @@ public class ConfigMaterialUpdateListenerTest {
         MaterialUpdateSuccessfulMessage message = new MaterialUpdateSuccessfulMessage(material, 123);
         this.configUpdater.onMessage(message);
 
-        verify(repoConfigDataSource, times(1)).onCheckoutComplete(material.config(), folder, svnModification);
+        verify(repoConfigDataSource, times(1)).onCheckoutComplete(material.config(), folder, svnModification, null);
         verify(topic, times(1)).post(message);
     }
 
@@ -129,13 +134,34 @@ public class ConfigMaterialUpdateListenerTest {
         MaterialUpdateSuccessfulMessage message = new MaterialUpdateSuccessfulMessage(material, 123);
         this.configUpdater.onMessage(message);
 
-        verify(repoConfigDataSource).onCheckoutComplete(material.config(), folder, modification);
+        verify(repoConfigDataSource).onCheckoutComplete(material.config(), folder, modification, null);
         verify(topic, times(1)).post(message);
     }
 
-    private Modification getModificationFor(String revision) {
-        Modification modification = new Modification();
-        modification.setRevision(revision);
-        return modification;
+    @Test
+    public void shouldTellGoRepoConfigDataSourceWhichFilesChangedSinceTheLastGoodParse() {
+        Modification goodModification = new Modification("user", "commend", "em@il", new Date(), "1");
+        when(repoConfigDataSource.getLastParseResult(material.config())).thenReturn(PartialConfigParseResult.parseSuccess(goodModification, new PartialConfig()));
+
+        Modification latest = new Modification("user", "commend", "em@il", new Date(), "3");
+        latest.createModifiedFile("pipelines/a.gocd.xml", null, ModifiedAction.modified);
+        Modification between = new Modification("user", "commend", "em@il", new Date(), "2");
+        between.createModifiedFile("pipelines/b.gocd.xml", null, ModifiedAction.deleted);
+        when(materialRepository.findLatestModification(material)).thenReturn(revisions(material, latest));
+        when(materialRepository.findModificationsSince(eq(material), any(MaterialRevision.class))).thenReturn(List.of(latest, between));
+
+        this.configUpdater.onMessage(new MaterialUpdateSuccessfulMessage(material, 123));
+
+        verify(repoConfigDataSource).onCheckoutComplete(material.config(), folder, latest, Set.of("pipelines/a.gocd.xml", "pipelines/b.gocd.xml"));
+    }
+
+    @Test
+    public void shouldTellGoRepoConfigDataSourceThatNothingChangedWhenTheLastGoodParseWasOfTheSameRevision() {
+        when(repoConfigDataSource.getLastParseResult(material.config())).thenReturn(PartialConfigParseResult.parseSuccess(svnModification, new PartialConfig()));
+
+        this.configUpdater.onMessage(new MaterialUpdateSuccessfulMessage(material, 123));
+
+        verify(repoConfigDataSource).onCheckoutComplete(material.config(), folder, svnModification, Set.of());
+        verify(materialRepository, never()).findModificationsSince(any(), any());
     }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.materials;
+
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.config.materials.perforce.P4Material;
+import com.thoughtworks.go.domain.materials.Material;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MaterialUpdateSchedulerTest {
+    private final List<Material> posted = new ArrayList<>();
+    private final List<Material> failedToPost = new ArrayList<>();
+    private GoMessageQueue<MaterialUpdateMessage> queue;
+    private MDUPerformanceLogger mduPerformanceLogger;
+    private MaterialUpdateScheduler scheduler;
+    private long trackingId;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        queue = mock(GoMessageQueue.class);
+        doAnswer(invocation -> posted.add(invocation.<MaterialUpdateMessage>getArgument(0).getMaterial())).when(queue).post(any());
+        mduPerformanceLogger = mock(MDUPerformanceLogger.class);
+        scheduler = new MaterialUpdateScheduler(queue, mduPerformanceLogger, 2, failedToPost::add);
+    }
+
+    @Test
+    void shouldOnlyHandAsManyUpdatesToTheQueueAsThereAreThreadsToRunThem() {
+        MaterialUpdateMessage first = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://github.com/gocd/two"), false);
+        GitMaterial third = git("https://github.com/gocd/three");
+        schedule(third, false);
+
+        assertThat(posted).hasSize(2).doesNotContain(third);
+        assertThat(scheduler.asJsonCompatibleMap()).containsEntry("Running", 2).containsEntry("Waiting", 1);
+
+        scheduler.completed(first.trackingId());
+
+        assertThat(posted).hasSize(3).endsWith(third);
+        assertThat(scheduler.asJsonCompatibleMap()).containsEntry("Running", 2).containsEntry("Waiting", 0);
+    }
+
+    @Test
+    void shouldRunTriggeredUpdatesBeforeTheOnesTheTimerAskedFor() {
+        MaterialUpdateMessage running = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://github.com/gocd/two"), false);
+        GitMaterial fromTimer = git("https://github.com/gocd/three");
+        GitMaterial fromPush = git("https://github.com/gocd/four");
+        schedule(fromTimer, false);
+        schedule(fromPush, true);
+
+        scheduler.completed(running.trackingId());
+
+        assertThat(posted).endsWith(fromPush);
+    }
+
+    @Test
+    void shouldMoveAWaitingUpdateAheadWhenSomebodyAsksForItAgain() {
+        MaterialUpdateMessage running = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://github.com/gocd/two"), false);
+        GitMaterial first = git("https://github.com/gocd/three");
+        GitMaterial second = git("https://github.com/gocd/four");
+        schedule(first, false);
+        schedule(second, false);
+
+        scheduler.prioritise(second);
+        scheduler.completed(running.trackingId());
+
+        assertThat(posted).endsWith(second);
+    }
+
+    @Test
+    void shouldShareTheThreadsBetweenRepositoryHosts() {
+        MaterialUpdateMessage running = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://gitlab.com/gocd/two"), false);
+        GitMaterial onGitHub = git("https://github.com/gocd/three");
+        GitMaterial onGitLab = git("https://gitlab.com/gocd/four");
+        schedule(onGitHub, false);
+        schedule(onGitLab, false);
+
+        scheduler.completed(running.trackingId());
+
+        assertThat(posted).endsWith(onGitHub);
+    }
+
+    @Test
+    void shouldRunTheCheapestMaterialOfAHostFirst() {
+        GitMaterial expensive = git("https://github.com/gocd/monorepo");
+        GitMaterial cheap = git("https://github.com/gocd/tiny");
+        when(mduPerformanceLogger.estimatedCostInMillis(expensive)).thenReturn(60_000L);
+        when(mduPerformanceLogger.estimatedCostInMillis(cheap)).thenReturn(500L);
+
+        MaterialUpdateMessage running = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://github.com/gocd/two"), false);
+        schedule(expensive, false);
+        schedule(cheap, false);
+
+        scheduler.completed(running.trackingId());
+
+        assertThat(posted).endsWith(cheap);
+    }
+
+    @Test
+    void shouldIgnoreCompletionOfUpdatesItDidNotHandToTheQueue() {
+        schedule(git("https://github.com/gocd/one"), false);
+
+        scheduler.completed(999);
+
+        assertThat(scheduler.asJsonCompatibleMap()).containsEntry("Running", 1);
+    }
+
+    @Test
+    void shouldRethrowWhenTheUpdateBeingScheduledCannotBeQueuedAndFreeItsThread() {
+        doThrow(new RuntimeException("failed")).when(queue).post(any());
+
+        assertThatThrownBy(() -> schedule(git("https://github.com/gocd/one"), true)).hasMessage("failed");
+
+        assertThat(scheduler.asJsonCompatibleMap()).containsEntry("Running", 0);
+        assertThat(failedToPost).isEmpty();
+    }
+
+    @Test
+    void shouldLetTheServiceKnowWhenAnUpdateThatWaitedCannotBeQueued() {
+        MaterialUpdateMessage running = schedule(git("https://github.com/gocd/one"), false);
+        schedule(git("https://github.com/gocd/two"), false);
+        GitMaterial waiting = git("https://github.com/gocd/three");
+        schedule(waiting, false);
+        doThrow(new RuntimeException("failed")).when(queue).post(any());
+
+        scheduler.completed(running.trackingId());
+
+        assertThat(failedToPost).containsExactly(waiting);
+        Map<String, Object> statistics = scheduler.asJsonCompatibleMap();
+        assertThat(statistics).containsEntry("Running", 1).containsEntry("Waiting", 0);
+    }
+
+    @Test
+    void shouldWorkOutTheHostOfAMaterial() {
+        assertThat(MaterialUpdateScheduler.hostOf(git("https://GitHub.com/gocd/gocd"))).isEqualTo("github.com");
+        assertThat(MaterialUpdateScheduler.hostOf(git("git@github.com:gocd/gocd.git"))).isEqualTo("github.com");
+        assertThat(MaterialUpdateScheduler.hostOf(new P4Material("perforce.example.com:1666", "//depot/..."))).isEqualTo("perforce.example.com");
+    }
+
+    private MaterialUpdateMessage schedule(Material material, boolean triggered) {
+        MaterialUpdateMessage message = new MaterialUpdateMessage(material, trackingId++);
+        scheduler.schedule(message, triggered);
+        return message;
+    }
+
+    private static GitMaterial git(String url) {
+        return new GitMaterial(url);
+    }
+}
@@ -69,6 +69,7 @@ import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
+import static org.assertj.core.api.InstanceOfAssertFactories.MAP;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -530,9 +531,64 @@ public class MaterialUpdateServiceTest {
 
             assertThat(materialUpdated).isTrue();
             verify(mduPerformanceLogger).materialSentToUpdateQueue(pluggableSCMMaterial);
+            verify(mduPerformanceLogger).estimatedCostInMillis(pluggableSCMMaterial);
             verify(queue).post(matchMaterialUpdateMessage(pluggableSCMMaterial));
             verifyNoMoreInteractions(mduPerformanceLogger);
             verifyNoMoreInteractions(queue);
         }
+
+        @Test
+        void shouldUpdateGitMaterialsMatchingTheUrlAndBranchOfThePush() {
+            GitMaterial onMaster = new GitMaterial("https://github.com/gocd/gocd", "master");
+            GitMaterial onRelease = new GitMaterial("https://github.com/gocd/gocd", "release");
+            GitMaterial elsewhere = new GitMaterial("https://github.com/gocd/other", "master");
+            Set<Material> allUniquePostCommitSchedulableMaterials = Stream.of(onMaster, onRelease, elsewhere, svnMaterial).collect(toSet());
+
+            when(goConfigService.currentCruiseConfig()).thenReturn(mock(CruiseConfig.class));
+            when(materialConfigConverter.toMaterials(anySet())).thenReturn(allUniquePostCommitSchedulableMaterials);
+
+            boolean materialUpdated = service.updateGitMaterial("master", List.of("https://github.com/gocd/gocd", "https://github.com/gocd/gocd.git"), emptyList());
+
+            assertThat(materialUpdated).isTrue();
+            verify(queue).post(matchMaterialUpdateMessage(onMaster));
+            verifyNoMoreInteractions(queue);
+        }
+
+        @Test
+        void shouldOnlyConvertTheMaterialsInTheConfigOnceForEveryPushUntilTheConfigChanges() {
+            CruiseConfig config = mock(CruiseConfig.class);
+            CruiseConfig changedConfig = mock(CruiseConfig.class);
+            GitMaterial material = new GitMaterial("https://github.com/gocd/gocd", "master");
+
+            when(goConfigService.currentCruiseConfig()).thenReturn(config);
+            when(materialConfigConverter.toMaterials(anySet())).thenReturn(Set.of(material));
+
+            assertThat(service.updateGitMaterial("master", List.of("https://github.com/gocd/gocd"), emptyList())).isTrue();
+            assertThat(service.updateGitMaterial("feature", List.of("https://github.com/gocd/gocd"), emptyList())).isFalse();
+            verify(materialConfigConverter, times(1)).toMaterials(anySet());
+
+            service.onConfigChange(changedConfig);
+            when(goConfigService.currentCruiseConfig()).thenReturn(changedConfig);
+            service.updateGitMaterial("master", List.of("https://github.com/gocd/gocd"), emptyList());
+
+            verify(materialConfigConverter, times(2)).toMaterials(anySet());
+        }
+
+        @Test
+        void shouldRecordHowLongItTookFromAPushUntilTheMaterialWasUpdated() {
+            GitMaterial material = new GitMaterial("https://github.com/gocd/gocd", "master");
+            when(goConfigService.currentCruiseConfig()).thenReturn(mock(CruiseConfig.class));
+            when(materialConfigConverter.toMaterials(anySet())).thenReturn(Set.of(material));
+
+            service.updateGitMaterial("master", List.of("https://github.com/gocd/gocd"), emptyList());
+            assertThat(service.pushNotificationStatistics()).containsEntry("Material updates pending after a push", 1);
+
+            service.onMessage(new MaterialUpdateSuccessfulMessage(material, 0));
+
+            Map<String, Object> statistics = service.pushNotificationStatistics();
+            assertThat(statistics).containsEntry("Post-commit materials indexed", 1);
+            assertThat(statistics).containsEntry("Material updates pending after a push", 0);
+            assertThat(statistics.get("Push to material update completion")).asInstanceOf(MAP).containsEntry("Count", 1L);
+        }
     }
 }
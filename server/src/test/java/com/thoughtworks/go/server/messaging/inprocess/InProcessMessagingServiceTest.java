@@ -0,0 +1,173 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inprocess;
+
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.messaging.GoMessageTopic;
+import com.thoughtworks.go.server.messaging.GoTextMessage;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.thoughtworks.go.util.TestUtils.doInterruptiblyQuietly;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class InProcessMessagingServiceTest {
+    private TestingClock clock;
+    private InProcessMessagingService messaging;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestingClock();
+        messaging = new InProcessMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), new ServerHealthService(), clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    void shouldDeliverEveryTopicMessageToEveryListenerByReference() {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        topic.addListener(first);
+        topic.addListener(second);
+
+        GoTextMessage message = new GoTextMessage("Hello World!");
+        topic.post(message);
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(first.received).singleElement().isSameAs(message);
+            assertThat(second.received).singleElement().isSameAs(message);
+        });
+    }
+
+    @Test
+    void shouldLetQueueListenersCompeteForMessages() {
+        HangingListener hanging = new HangingListener();
+        RecordingListener fast = new RecordingListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(hanging);
+        queue.addListener(fast);
+
+        for (int i = 1; i <= 5; i++) {
+            queue.post(new GoTextMessage("Hello World" + i));
+        }
+
+        try {
+            await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(fast.received).hasSize(4));
+        } finally {
+            hanging.finish();
+        }
+    }
+
+    @Test
+    void shouldKeepDeliveringAfterAListenerThrows() {
+        RecordingListener throwing = new RecordingListener() {
+            @Override
+            public void onMessage(GoTextMessage message) {
+                super.onMessage(message);
+                throw new RuntimeException(message.getText());
+            }
+        };
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.addListener(throwing);
+
+        queue.post(new GoTextMessage("first"));
+        queue.post(new GoTextMessage("second"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(throwing.received).hasSize(2));
+    }
+
+    @Test
+    void shouldDropMessagesWhoseTimeToLiveHasPassed() {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        queue.post(new GoTextMessage("expired"), 1000);
+        queue.post(new GoTextMessage("still alive"), 5000);
+        queue.post(new GoTextMessage("never expires"));
+        clock.addMillis(2000);
+
+        RecordingListener listener = new RecordingListener();
+        queue.addListener(listener);
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() ->
+            assertThat(listener.received).extracting(GoTextMessage::getText).containsExactly("still alive", "never expires"));
+    }
+
+    @Test
+    void shouldStopListenersOfARemovedQueue() {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue");
+        RecordingListener removed = new RecordingListener();
+        queue.addListener(removed);
+
+        queue.stop();
+        queue.post(new GoTextMessage("after removal"));
+        RecordingListener added = new RecordingListener();
+        queue.addListener(added);
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(added.received).hasSize(1));
+        assertThat(removed.received).isEmpty();
+    }
+
+    @Test
+    void shouldStopDeliveringToATopicListenerOnceItIsStopped() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic");
+        RecordingListener stopped = new RecordingListener();
+        RecordingListener running = new RecordingListener();
+        topic.addListener(stopped).stop();
+        topic.addListener(running);
+
+        topic.post(new GoTextMessage("Hello World!"));
+
+        await().atMost(2, TimeUnit.SECONDS).untilAsserted(() -> assertThat(running.received).hasSize(1));
+        assertThat(stopped.received).isEmpty();
+    }
+
+    private static class RecordingListener implements GoMessageListener<GoTextMessage> {
+        final Queue<GoTextMessage> received = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            received.add(message);
+        }
+    }
+
+    private static class HangingListener implements GoMessageListener<GoTextMessage> {
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            doInterruptiblyQuietly(finish::await);
+        }
+
+        void finish() {
+            finish.countDown();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.notifications;
+
+import com.thoughtworks.go.plugin.access.notification.NotificationRequest;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PendingNotificationsTest {
+    private TestingClock clock;
+    private PendingNotifications pending;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestingClock();
+        pending = new PendingNotifications(clock);
+    }
+
+    @Test
+    void shouldHandOutNotificationsInTheOrderTheyCameIn() {
+        PluginNotificationMessage<?> first = message("stage-status", "first", null);
+        PluginNotificationMessage<?> second = message("stage-status", "second", null);
+        PluginNotificationMessage<?> third = message("stage-status", "third", null);
+        pending.add(first, 0);
+        pending.add(second, 0);
+        pending.add(third, 0);
+
+        assertThat(pending.take(2)).containsExactly(first, second);
+        assertThat(pending.take(2)).containsExactly(third);
+        assertThat(pending.take(2)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepEveryNotificationWithoutACoalescingKeyEvenIfTheyAreEqual() {
+        pending.add(message("stage-status", "same", null), 0);
+        pending.add(message("stage-status", "same", null), 0);
+
+        assertThat(pending.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReplaceANotificationWaitingWithTheSameCoalescingKeyInItsPlace() {
+        PluginNotificationMessage<?> building = message("agent-status", "agent-1 building", "agent-1");
+        PluginNotificationMessage<?> stage = message("stage-status", "stage", null);
+        PluginNotificationMessage<?> idle = message("agent-status", "agent-1 idle", "agent-1");
+        PluginNotificationMessage<?> otherAgent = message("agent-status", "agent-2 idle", "agent-2");
+        pending.add(building, 0);
+        pending.add(stage, 0);
+        pending.add(idle, 0);
+        pending.add(otherAgent, 0);
+
+        assertThat(pending.take(10)).containsExactly(idle, stage, otherAgent);
+    }
+
+    @Test
+    void shouldDropNotificationsWhoseTimeToLiveHasPassed() {
+        PluginNotificationMessage<?> expired = message("stage-status", "expired", null);
+        PluginNotificationMessage<?> alive = message("stage-status", "alive", null);
+        PluginNotificationMessage<?> forever = message("stage-status", "forever", null);
+        pending.add(expired, 1000);
+        pending.add(alive, 5000);
+        pending.add(forever, 0);
+        clock.addMillis(2000);
+
+        assertThat(pending.take(10)).containsExactly(alive, forever);
+        assertThat(pending.size()).isZero();
+    }
+
+    private static PluginNotificationMessage<?> message(String requestName, String data, String coalescingKey) {
+        return new PluginNotificationMessage<>("pid", new NotificationRequest(requestName, data), coalescingKey);
+    }
+}
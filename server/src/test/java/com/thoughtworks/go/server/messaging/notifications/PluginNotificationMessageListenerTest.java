@@ -16,43 +16,56 @@
 package com.thoughtworks.go.server.messaging.notifications;
 
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
+import com.thoughtworks.go.plugin.access.notification.NotificationPluginRegistry;
+import com.thoughtworks.go.plugin.access.notification.NotificationRequest;
 import com.thoughtworks.go.plugin.api.response.Result;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
 import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.TestingClock;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.util.List;
+import java.util.Set;
 
+import static com.thoughtworks.go.plugin.access.notification.NotificationExtension.BATCH_NOTIFICATION;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 public class PluginNotificationMessageListenerTest {
+    private NotificationExtension notificationExtension;
+    private NotificationPluginRegistry notificationPluginRegistry;
+    private ServerHealthService serverHealthService;
+    private PendingNotifications pendingNotifications;
+    private PluginNotificationMessageListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        notificationExtension = mock(NotificationExtension.class);
+        notificationPluginRegistry = mock(NotificationPluginRegistry.class);
+        serverHealthService = mock(ServerHealthService.class);
+        pendingNotifications = new PendingNotifications(new TestingClock());
+        listener = new PluginNotificationMessageListener(notificationExtension, notificationPluginRegistry, serverHealthService, pendingNotifications, 10);
+    }
+
     @Test
     public void shouldNotifyPluginOnMessage() {
-        NotificationExtension notificationExtension = mock(NotificationExtension.class);
-        ServerHealthService serverHealthService = mock(ServerHealthService.class);
-        PluginNotificationMessageListener listener = new PluginNotificationMessageListener(notificationExtension, serverHealthService);
-
-        PluginNotificationMessage<?> message = new PluginNotificationMessage<>("pid", "request-name", "data");
-        when(notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData())).thenReturn(new Result());
+        PluginNotificationMessage<?> message = post(new PluginNotificationMessage<>("pid", "request-name", "data"));
+        when(notificationExtension.notify(message.pluginId(), message.getRequest())).thenReturn(new Result());
         listener.onMessage(message);
 
         verify(serverHealthService).removeByScope(HealthStateScope.aboutPlugin(message.pluginId()));
-        verify(notificationExtension).notify("pid", "request-name", message.getData());
+        verify(notificationExtension).notify("pid", message.getRequest());
     }
 
     @Test
     public void shouldAddErrorReturnedByPluginToHealthMessage() {
-        NotificationExtension notificationExtension = mock(NotificationExtension.class);
-        ServerHealthService serverHealthService = mock(ServerHealthService.class);
-        PluginNotificationMessageListener listener = new PluginNotificationMessageListener(notificationExtension, serverHealthService);
-
-        PluginNotificationMessage<?> message = new PluginNotificationMessage<>("pid", "request-name", "data");
+        PluginNotificationMessage<?> message = post(new PluginNotificationMessage<>("pid", "request-name", "data"));
         Result result = new Result();
         result.withErrorMessages(List.of(new String[]{"error message 1", "error message 2"}));
-        when(notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData())).thenReturn(result);
+        when(notificationExtension.notify(message.pluginId(), message.getRequest())).thenReturn(result);
         ArgumentCaptor<ServerHealthState> argumentCaptor = ArgumentCaptor.forClass(ServerHealthState.class);
         listener.onMessage(message);
 
@@ -61,17 +74,13 @@ public class PluginNotificationMessageListenerTest {
         assertThat(serverHealthState.isSuccess()).isFalse();
         assertThat(serverHealthState.getMessage()).isEqualTo("Notification update failed for plugin: pid");
         assertThat(serverHealthState.getDescription()).isEqualTo("error message 1, error message 2");
-        verify(notificationExtension).notify("pid", "request-name", message.getData());
+        verify(notificationExtension).notify("pid", message.getRequest());
     }
 
     @Test
     public void shouldHandleExceptionDuringPluginNotificationCorrectly() {
-        NotificationExtension notificationExtension = mock(NotificationExtension.class);
-        ServerHealthService serverHealthService = mock(ServerHealthService.class);
-        PluginNotificationMessageListener listener = new PluginNotificationMessageListener(notificationExtension, serverHealthService);
-
-        PluginNotificationMessage<?> message = new PluginNotificationMessage<>("pid", "request-name", "data");
-        when(notificationExtension.notify(message.pluginId(), message.getRequestName(), message.getData())).thenThrow(new RuntimeException("error!"));
+        PluginNotificationMessage<?> message = post(new PluginNotificationMessage<>("pid", "request-name", "data"));
+        when(notificationExtension.notify(message.pluginId(), message.getRequest())).thenThrow(new RuntimeException("error!"));
         ArgumentCaptor<ServerHealthState> argumentCaptor = ArgumentCaptor.forClass(ServerHealthState.class);
         listener.onMessage(message);
 
@@ -80,7 +89,39 @@ public class PluginNotificationMessageListenerTest {
         assertThat(serverHealthState.isSuccess()).isFalse();
         assertThat(serverHealthState.getMessage()).isEqualTo("Notification update failed for plugin: pid");
         assertThat(serverHealthState.getDescription()).isEqualTo("error!");
-        verify(notificationExtension).notify("pid", "request-name", message.getData());
+        verify(notificationExtension).notify("pid", message.getRequest());
     }
 
+    @Test
+    public void shouldSendNotificationsOneAtATimeToPluginsWhichDoNotTakeBatches() {
+        PluginNotificationMessage<?> first = post(new PluginNotificationMessage<>("pid", "request-name", "first"));
+        PluginNotificationMessage<?> second = post(new PluginNotificationMessage<>("pid", "request-name", "second"));
+        when(notificationExtension.notify(eq("pid"), any(NotificationRequest.class))).thenReturn(new Result());
+
+        listener.onMessage(first);
+        listener.onMessage(second);
+
+        verify(notificationExtension).notify("pid", first.getRequest());
+        verify(notificationExtension).notify("pid", second.getRequest());
+        verify(notificationExtension, never()).notifyBatch(any(), any());
+    }
+
+    @Test
+    public void shouldSendEverythingWaitingInOneBatchToPluginsWhichTakeBatches() {
+        when(notificationPluginRegistry.getPluginsInterestedIn(BATCH_NOTIFICATION)).thenReturn(Set.of("pid"));
+        PluginNotificationMessage<?> first = post(new PluginNotificationMessage<>("pid", "request-name", "first"));
+        PluginNotificationMessage<?> second = post(new PluginNotificationMessage<>("pid", "request-name", "second"));
+        when(notificationExtension.notifyBatch(eq("pid"), anyList())).thenReturn(new Result());
+
+        listener.onMessage(first);
+        listener.onMessage(second);
+
+        verify(notificationExtension).notifyBatch("pid", List.of(first.getRequest(), second.getRequest()));
+        verify(notificationExtension, never()).notify(any(), any(NotificationRequest.class));
+    }
+
+    private PluginNotificationMessage<?> post(PluginNotificationMessage<?> message) {
+        pendingNotifications.add(message, 0);
+        return message;
+    }
 }
@@ -260,6 +260,35 @@ public class PluginNotificationServiceTest {
         assertThat(messages.size()).isEqualTo(2);
         assertMessage(messages.getFirst(), PLUGIN_ID_1, NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, agentInstance);
         assertMessage(messages.getLast(), PLUGIN_ID_2, NotificationExtension.AGENT_STATUS_CHANGE_NOTIFICATION, agentInstance);
+        assertThat(messages.getFirst().getRequest()).isSameAs(messages.getLast().getRequest());
+        assertThat(messages).allSatisfy(message -> assertThat(message.coalescingKey()).isEqualTo(agentInstance.getUuid()));
+    }
+
+    @Test
+    public void shouldBuildTheStageNotificationOnceForAllInterestedPlugins() {
+        Stage stage = StageMother.custom("Stage");
+        when(notificationPluginRegistry.getPluginsInterestedIn(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION)).thenReturn(new LinkedHashSet<>(List.of(PLUGIN_ID_1, PLUGIN_ID_2)));
+        when(goConfigService.isFirstStage(stage.getIdentifier().getPipelineName(), stage.getName())).thenReturn(true);
+        when(systemEnvironment.get(NOTIFICATION_PLUGIN_MESSAGES_TTL_IN_MILLIS)).thenReturn(1000L);
+        @SuppressWarnings("unchecked") ArgumentCaptor<PluginNotificationMessage<?>> captor = ArgumentCaptor.forClass(PluginNotificationMessage.class);
+
+        pluginNotificationService.notifyStageStatus(stage);
+
+        verify(pluginNotificationsQueueHandler, times(2)).post(captor.capture(), eq(1000L));
+        verify(pipelineDao, times(1)).findBuildCauseOfPipelineByNameAndCounter(stage.getIdentifier().getPipelineName(), stage.getIdentifier().getPipelineCounter());
+        List<PluginNotificationMessage<?>> messages = captor.getAllValues();
+        assertThat(messages).extracting(PluginNotificationMessage::pluginId).containsExactly(PLUGIN_ID_1, PLUGIN_ID_2);
+        assertThat(messages.getFirst().getRequest()).isSameAs(messages.getLast().getRequest());
+        assertThat(messages).allSatisfy(message -> assertThat(message.coalescingKey()).isNull());
+    }
+
+    @Test
+    public void shouldNotBuildANotificationThatNoPluginIsInterestedIn() {
+        when(notificationPluginRegistry.getPluginsInterestedIn(NotificationExtension.STAGE_STATUS_CHANGE_NOTIFICATION)).thenReturn(new LinkedHashSet<>());
+
+        pluginNotificationService.notifyStageStatus(StageMother.custom("Stage"));
+
+        verifyNoInteractions(pipelineDao, stageDao, goConfigService, pluginNotificationsQueueHandler);
     }
 
     private void assertMessage(PluginNotificationMessage<?> notificationMessage, String pluginId, String requestName, AgentInstance agentInstance) {
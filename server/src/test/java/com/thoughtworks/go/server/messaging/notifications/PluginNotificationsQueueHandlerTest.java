@@ -16,9 +16,11 @@
 package com.thoughtworks.go.server.messaging.notifications;
 
 import com.thoughtworks.go.plugin.access.notification.NotificationExtension;
+import com.thoughtworks.go.plugin.access.notification.NotificationPluginRegistry;
 import com.thoughtworks.go.plugin.infra.PluginManager;
 import com.thoughtworks.go.plugin.infra.plugininfo.GoPluginDescriptor;
 import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.MessageSender;
 import com.thoughtworks.go.server.messaging.MessagingService;
 import com.thoughtworks.go.server.messaging.PluginAwareMessageQueue;
 import com.thoughtworks.go.serverhealth.ServerHealthService;
@@ -31,7 +33,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class PluginNotificationsQueueHandlerTest {
@@ -40,6 +42,8 @@ public class PluginNotificationsQueueHandlerTest {
     @Mock
     private NotificationExtension notificationExtension;
     @Mock
+    private NotificationPluginRegistry notificationPluginRegistry;
+    @Mock
     private PluginManager pluginManager;
     @Mock
     private SystemEnvironment systemEnvironment;
@@ -49,7 +53,7 @@ public class PluginNotificationsQueueHandlerTest {
 
     @BeforeEach
     public void setUp() {
-        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, pluginManager, systemEnvironment, serverHealthService);
+        handler = new PluginNotificationsQueueHandler(messagingService, notificationExtension, notificationPluginRegistry, pluginManager, systemEnvironment, serverHealthService);
     }
 
     @Test
@@ -73,6 +77,23 @@ public class PluginNotificationsQueueHandlerTest {
         assertThat(queueForPlugin3.numberListeners()).isEqualTo(2);
     }
 
+    @Test
+    public void shouldKeepNotificationsWaitingForEachPluginAndWakeItsQueueUp() {
+        String pluginId = "plugin-1";
+        MessageSender sender = mock(MessageSender.class);
+        when(notificationExtension.canHandlePlugin(pluginId)).thenReturn(true);
+        when(systemEnvironment.getNotificationListenerCountForPlugin(pluginId)).thenReturn(1);
+        when(messagingService.createQueueSender("PluginNotificationsQueueHandler." + pluginId)).thenReturn(sender);
+        handler.pluginLoaded(getPluginDescriptor(pluginId));
+
+        PluginNotificationMessage<?> message = new PluginNotificationMessage<>(pluginId, "stage-status", "data");
+        handler.post(message, 1000);
+
+        assertThat(handler.getPendingNotifications(pluginId).size()).isEqualTo(1);
+        assertThat(handler.getPendingNotifications("plugin-2")).isNull();
+        verify(sender).sendMessage(message, 1000);
+    }
+
     private GoPluginDescriptor getPluginDescriptor(String pluginId) {
         return GoPluginDescriptor.builder().id(pluginId).build();
     }
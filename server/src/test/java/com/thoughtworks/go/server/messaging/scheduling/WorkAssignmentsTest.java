@@ -20,10 +20,17 @@ import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.NoWork;
 import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.work.FakeWork;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,12 +46,20 @@ public class WorkAssignmentsTest {
     private IdleAgentTopic idleAgentsTopic;
     private AgentIdentifier agentIdentifier;
     private WorkAssignedTopic assignedWorkTopic;
+    private BuildAssignmentService buildAssignmentService;
+    private WorkDispatchStatistics statistics;
+    private SystemEnvironment systemEnvironment;
 
     @BeforeEach
     public void setup() {
         idleAgentsTopic = mock(IdleAgentTopic.class, "idle_topic");
         assignedWorkTopic = mock(WorkAssignedTopic.class, "assigned_work_topic");
-        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic);
+        buildAssignmentService = mock(BuildAssignmentService.class);
+        statistics = mock(WorkDispatchStatistics.class);
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.getAgentWorkMaxWaitingAgents()).thenReturn(1);
+        when(systemEnvironment.getAgentWorkMaxWait()).thenReturn(30_000L);
+        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic, buildAssignmentService, statistics, systemEnvironment);
         agentIdentifier = new AgentIdentifier("localhost", "127.0.0.1", "uuid");
         agent = new AgentRuntimeInfo(agentIdentifier, AgentRuntimeStatus.Idle, currentWorkingDirectory(), "cookie");
     }
@@ -100,4 +115,84 @@ public class WorkAssignmentsTest {
         assertThat(assignments.getWork(agent)).isEqualTo(NO_WORK);
         verify(idleAgentsTopic, times(2)).post(new IdleAgentMessage(agent));
     }
+
+    @Test
+    public void shouldHandWaitingAgentWorkAsSoonAsItIsAssigned() throws Exception {
+        CompletableFuture<Optional<Work>> waiting = waitForWorkInBackground(30_000);
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).contains(REAL_WORK);
+        assertThat(assignments.numberOfWaitingAgents()).isEqualTo(0);
+        verify(statistics).agentNotified(REAL_WORK);
+    }
+
+    @Test
+    public void shouldAnswerWaitingAgentWithNoWorkOnceTheWaitIsOver() throws Exception {
+        assertThat(assignments.waitForWork(agent, 10)).contains(NO_WORK);
+        assertThat(assignments.numberOfWaitingAgents()).isEqualTo(0);
+        verify(idleAgentsTopic).post(new IdleAgentMessage(agent));
+    }
+
+    @Test
+    public void shouldNotHoldOnToMoreAgentsThanAllowed() throws Exception {
+        CompletableFuture<Optional<Work>> waiting = waitForWorkInBackground(30_000);
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+
+        AgentRuntimeInfo anotherAgent = new AgentRuntimeInfo(new AgentIdentifier("otherhost", "127.0.0.2", "other-uuid"), AgentRuntimeStatus.Idle, currentWorkingDirectory(), "cookie");
+        assertThat(assignments.waitForWork(anotherAgent, 30_000)).isEmpty();
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).contains(REAL_WORK);
+    }
+
+    @Test
+    public void shouldOfferNewlyQueuedJobsToWaitingAgents() throws Exception {
+        ArgumentCaptor<Runnable> jobsQueued = ArgumentCaptor.forClass(Runnable.class);
+        verify(buildAssignmentService).registerJobsQueuedListener(jobsQueued.capture());
+
+        CompletableFuture<Optional<Work>> waiting = waitForWorkInBackground(30_000);
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, NO_WORK));
+
+        jobsQueued.getValue().run();
+        verify(idleAgentsTopic, times(2)).post(new IdleAgentMessage(agent));
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).contains(REAL_WORK);
+    }
+
+    @Test
+    public void shouldLetAnEarlierRequestOfTheSameAgentGoWithoutWork() throws Exception {
+        when(systemEnvironment.getAgentWorkMaxWaitingAgents()).thenReturn(2);
+        assignments = new WorkAssignments(idleAgentsTopic, mock(WorkAssignedTopic.class), buildAssignmentService, statistics, systemEnvironment);
+
+        CompletableFuture<Optional<Work>> earlier = waitForWorkInBackground(30_000);
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+        CompletableFuture<Optional<Work>> later = waitForWorkInBackground(30_000);
+
+        assertThat(earlier.get(5, TimeUnit.SECONDS)).contains(NO_WORK);
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+        assertThat(later.get(5, TimeUnit.SECONDS)).contains(REAL_WORK);
+    }
+
+    @Test
+    public void shouldNotHoldOnToAnyAgentUnlessWaitingIsTurnedOn() throws Exception {
+        when(systemEnvironment.getAgentWorkMaxWaitingAgents()).thenReturn(0);
+        assignments = new WorkAssignments(idleAgentsTopic, mock(WorkAssignedTopic.class), buildAssignmentService, statistics, systemEnvironment);
+
+        assertThat(assignments.waitForWork(agent, 30_000)).isEmpty();
+        verifyNoInteractions(idleAgentsTopic);
+    }
+
+    private CompletableFuture<Optional<Work>> waitForWorkInBackground(long maxWaitMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return assignments.waitForWork(agent, maxWaitMillis);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
 }
@@ -21,6 +21,8 @@ import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.database.Database;
 import com.thoughtworks.go.server.service.MaterialConfigConverter;
 import com.thoughtworks.go.server.service.MaterialExpansionService;
+import com.thoughtworks.go.server.service.StubGoCache;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
 import org.hibernate.Query;
 import org.hibernate.Session;
@@ -77,6 +79,7 @@ public class MaterialRepositoryTest {
 
     @Test
     public void shouldCacheFindModificationWithRevision() {
+        materialRepository = new MaterialRepository(sessionFactory, new StubGoCache(new TestTransactionSynchronizationManager()), 4242, transactionSynchronizationManager, materialConfigConverter, materialExpansionService, databaseStrategy);
         Modification modification = mock(Modification.class);
         Session session = mock(Session.class);
         Query query = mock(Query.class);
@@ -84,19 +87,16 @@ public class MaterialRepositoryTest {
         int materialId = 111;
         String revision = "Rev -1";
 
-        String key = materialRepository.cacheKeyForModificationWithRevision(materialId, revision);
         when(session.createQuery(anyString())).thenReturn(query);
         when(query.uniqueResult()).thenReturn(modification);
 
-        Modification actualModification = materialRepository.findModificationWithRevision(session, materialId, revision);//Prime cache, Cache get returns null twice
+        Modification actualModification = materialRepository.findModificationWithRevision(session, materialId, revision);//Prime cache
         assertThat(actualModification).isEqualTo(modification);
 
-        modification = materialRepository.findModificationWithRevision(session, materialId, revision); //Fetch from cache, Cache get returns modification
+        modification = materialRepository.findModificationWithRevision(session, materialId, revision); //Fetch from cache
         assertThat(actualModification).isEqualTo(modification);
 
         verify(query, times(1)).uniqueResult();
-        verify(goCache, times(3)).get(key);
-        verify(goCache, times(1)).put(key, modification);
     }
 
     @Test
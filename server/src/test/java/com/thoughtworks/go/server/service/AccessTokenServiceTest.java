@@ -18,10 +18,14 @@ package com.thoughtworks.go.server.service;
 import com.thoughtworks.go.config.exceptions.EntityType;
 import com.thoughtworks.go.config.exceptions.RecordNotFoundException;
 import com.thoughtworks.go.domain.AccessToken;
+import com.thoughtworks.go.server.cache.VerifiedAccessTokenCache;
 import com.thoughtworks.go.server.dao.AccessTokenDao;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.exceptions.InvalidAccessTokenException;
+import com.thoughtworks.go.server.exceptions.RevokedAccessTokenException;
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestingClock;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +38,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.sql.Timestamp;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thoughtworks.go.helper.AccessTokenMother.randomAccessTokenForUser;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -51,10 +57,11 @@ class AccessTokenServiceTest {
     private String username;
     private String authConfigId;
     private Clock clock = new TestingClock();
+    private final AtomicLong ticker = new AtomicLong();
 
     @BeforeEach
     void setUp() {
-        accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService);
+        accessTokenService = new AccessTokenService(accessTokenDao, clock, securityService, new VerifiedAccessTokenCache(new SystemEnvironment(), ticker::get));
         result = new HttpLocalizedOperationResult();
 
         username = "Bob";
@@ -123,6 +130,57 @@ class AccessTokenServiceTest {
         verifyNoMoreInteractions(accessTokenDao);
     }
 
+    @Nested
+    class FindByAccessToken {
+        private AccessToken.AccessTokenWithDisplayValue token;
+
+        @BeforeEach
+        void setUp() {
+            token = AccessToken.create("description", username, authConfigId, clock);
+            token.setId(42);
+            lenient().when(accessTokenDao.findAccessTokenBySaltId(token.getSaltId())).thenReturn(token);
+        }
+
+        @Test
+        void shouldNotLookUpAndVerifyATokenAgainWhileItIsCached() {
+            assertThat(accessTokenService.findByAccessToken(token.getDisplayValue())).isSameAs(token);
+            assertThat(accessTokenService.findByAccessToken(token.getDisplayValue())).isSameAs(token);
+
+            verify(accessTokenDao, times(1)).findAccessTokenBySaltId(token.getSaltId());
+        }
+
+        @Test
+        void shouldNotCacheATokenThatDoesNotMatch() {
+            String wrongToken = token.getSaltId() + "0".repeat(32);
+
+            assertThatCode(() -> accessTokenService.findByAccessToken(wrongToken)).isInstanceOf(InvalidAccessTokenException.class);
+            assertThatCode(() -> accessTokenService.findByAccessToken(wrongToken)).isInstanceOf(InvalidAccessTokenException.class);
+
+            verify(accessTokenDao, times(2)).findAccessTokenBySaltId(token.getSaltId());
+        }
+
+        @Test
+        void shouldRejectATokenAsSoonAsItIsRevoked() {
+            when(accessTokenDao.loadForAdminUser(42)).thenReturn(token);
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+
+            accessTokenService.revokeAccessTokenByGoCD(42, "revoked");
+
+            assertThatCode(() -> accessTokenService.findByAccessToken(token.getDisplayValue())).isInstanceOf(RevokedAccessTokenException.class);
+        }
+
+        @Test
+        void shouldVerifyTheTokenAgainOnceItHasExpiredFromTheCacheOrTheAuthConfigsChange() {
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+            ticker.addAndGet(TimeUnit.SECONDS.toNanos(61));
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+            accessTokenService.invalidateVerifiedTokens();
+            accessTokenService.findByAccessToken(token.getDisplayValue());
+
+            verify(accessTokenDao, times(3)).findAccessTokenBySaltId(token.getSaltId());
+        }
+    }
+
     @Nested
     class OnTimer {
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.IllegalPathException;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@EnabledOnOs({OS.LINUX, OS.MAC})
+class ArtifactBlobStoreTest {
+    @TempDir
+    File artifactsDir;
+    private ArtifactBlobStore store;
+    private File job1;
+    private File job2;
+
+    @BeforeEach
+    void setUp() {
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir);
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isArtifactDeduplicationEnabled()).thenReturn(true);
+        store = new ArtifactBlobStore(artifactsDirHolder, systemEnvironment);
+        store.initialize();
+        job1 = new File(artifactsDir, "pipelines/pipeline/1/stage/1/job");
+        job2 = new File(artifactsDir, "pipelines/pipeline/2/stage/1/job");
+    }
+
+    @Test
+    void shouldKeepASingleCopyOfFilesThatSeveralJobsPublish() throws IOException {
+        assertThat(store.isEnabled()).isTrue();
+
+        store.unzip(zipOf("dist/", "", "dist/app.jar", "same bytes", "dist/version.txt", "1"), new File(job1, "target"), job1);
+        store.unzip(zipOf("dist/app.jar", "same bytes", "dist/version.txt", "2"), new File(job2, "target"), job2);
+
+        assertThat(new File(job1, "target/dist/app.jar")).hasContent("same bytes");
+        assertThat(new File(job2, "target/dist/app.jar")).hasContent("same bytes");
+        assertThat(new File(job2, "target/dist/version.txt")).hasContent("2");
+        assertThat(Files.isSameFile(new File(job1, "target/dist/app.jar").toPath(), new File(job2, "target/dist/app.jar").toPath())).isTrue();
+        assertThat(blobs()).hasSize(3);
+        assertThat(new File(job1, "cruise-output/blobs.manifest")).content(UTF_8).contains("target/dist/app.jar", "target/dist/version.txt");
+        assertThat(store.asJsonCompatibleMap()).containsEntry("Files stored", 3L).containsEntry("Files deduplicated", 1L).containsEntry("Bytes deduplicated", 10L);
+    }
+
+    @Test
+    void shouldOnlyDeleteBlobsThatNoJobUsesAnyMoreWhenAJobIsPurged() throws IOException {
+        store.unzip(zipOf("app.jar", "same bytes", "version.txt", "1"), job1, job1);
+        store.unzip(zipOf("app.jar", "same bytes", "version.txt", "2"), job2, job2);
+
+        FileUtils.deleteQuietly(new File(job1, "app.jar"));
+        FileUtils.deleteQuietly(new File(job1, "version.txt"));
+        store.release(job1);
+
+        assertThat(blobs()).hasSize(2);
+        assertThat(new File(job2, "app.jar")).hasContent("same bytes");
+        assertThat(new File(job1, "cruise-output/blobs.manifest")).doesNotExist();
+
+        FileUtils.deleteQuietly(new File(job2, "app.jar"));
+        FileUtils.deleteQuietly(new File(job2, "version.txt"));
+        store.release(job2);
+
+        assertThat(blobs()).isEmpty();
+    }
+
+    @Test
+    void shouldReplaceAFileThatIsUploadedAgain() throws IOException {
+        store.unzip(zipOf("version.txt", "1"), job1, job1);
+        store.unzip(zipOf("version.txt", "2"), job1, job1);
+
+        assertThat(new File(job1, "version.txt")).hasContent("2");
+        store.release(job1);
+        assertThat(blobs()).hasSize(1);
+    }
+
+    @Test
+    void shouldNotUnzipEntriesOutsideTheDestination() {
+        assertThatThrownBy(() -> store.unzip(zipOf("../../escape.txt", "boo"), job1, job1))
+            .isInstanceOf(IllegalPathException.class);
+
+        assertThat(new File(job1, "../escape.txt")).doesNotExist();
+    }
+
+    @Test
+    void shouldStayOffUnlessItIsTurnedOn() {
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir);
+        ArtifactBlobStore turnedOff = new ArtifactBlobStore(artifactsDirHolder, mock(SystemEnvironment.class));
+
+        turnedOff.initialize();
+
+        assertThat(turnedOff.isEnabled()).isFalse();
+    }
+
+    private List<Path> blobs() throws IOException {
+        try (Stream<Path> files = Files.walk(artifactsDir.toPath().resolve(ArtifactBlobStore.BLOBS_DIR))) {
+            return files
+                .filter(Files::isRegularFile)
+                .filter(path -> !path.getParent().getFileName().toString().equals("tmp"))
+                .toList();
+        }
+    }
+
+    private static ZipInputStream zipOf(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(UTF_8));
+            }
+        }
+        return new ZipInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
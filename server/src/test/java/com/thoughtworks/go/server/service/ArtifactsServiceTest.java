@@ -374,6 +374,30 @@ public class ArtifactsServiceTest {
         verify(stageService).markArtifactsDeletedFor(stage);
     }
 
+    @Test
+    void shouldUnzipThroughTheBlobStoreWhenDeduplicationIsTurnedOn() throws IOException {
+        File artifactsRoot = TempDirUtils.createRandomDirectoryIn(tempDir).toFile();
+        assumeArtifactsRoot(artifactsRoot);
+        ArtifactBlobStore artifactBlobStore = mock(ArtifactBlobStore.class);
+        when(artifactBlobStore.isEnabled()).thenReturn(true);
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil, new ArtifactDirectoryChooser(), artifactBlobStore);
+        artifactsService.initialize();
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, null, "stage", "20", "job");
+        File jobRoot = new File(artifactsRoot, "pipelines/pipeline/10/stage/20/job");
+        File dest = new File(jobRoot, "dist");
+
+        boolean saved = artifactsService.saveFile(jobIdentifier, dest, new ByteArrayInputStream(new byte[0]), true, 1);
+
+        assertThat(saved).isTrue();
+        verify(artifactBlobStore).unzip(any(ZipInputStream.class), eq(dest), eq(jobRoot));
+        verifyNoInteractions(zipUtil);
+
+        jobRoot.mkdirs();
+        artifactsService.purgeArtifactsForStage(StageMother.createPassedStage("pipeline", 10, "stage", 20, "job", Instant.now()));
+
+        verify(artifactBlobStore).release(jobRoot);
+    }
+
     private void assumeArtifactsRoot(final File artifactsRoot) {
         when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsRoot);
     }
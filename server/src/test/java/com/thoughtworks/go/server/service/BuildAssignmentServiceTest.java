@@ -43,7 +43,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -120,7 +119,7 @@ class BuildAssignmentServiceTest {
         profiles.put(elasticProfile2.getId(), elasticProfile2);
         schedulingContext = new DefaultSchedulingContext("me", new Agents(elasticAgent), profiles);
         lenient().when(jobInstanceService.orderedScheduledBuilds()).thenReturn(jobPlans);
-        lenient().when(environmentConfigService.filterJobsByAgent(ArgumentMatchers.eq(jobPlans), any(String.class))).thenReturn(jobPlans);
+        lenient().when(environmentConfigService.filterJobsByAgent(anyList(), any(String.class))).thenAnswer(invocation -> invocation.getArgument(0));
         lenient().when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("");
         lenient().when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
     }
@@ -218,24 +217,20 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.getLast().name(), pipeline.getLast().getJobs().getFirst());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.getFirst().name(), irrelevantPipeline.getFirst().getJobs().getFirst());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         //delete a stage
         pipeline.remove(1);
 
-        assertThat(jobPlans.size()).isEqualTo(3);
+        assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(3);
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(true);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(2);
-        assertThat(jobPlans.getFirst()).isEqualTo(jobPlan1);
-        assertThat(jobPlans.getLast()).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan1, jobPlan3);
     }
 
     @Test
@@ -254,18 +249,77 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.getLast().name(), pipeline.getLast().getJobs().getFirst());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.getFirst().name(), irrelevantPipeline.getFirst().getJobs().getFirst());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(false);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(1);
-        assertThat(jobPlans.getFirst()).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan3);
+    }
+
+    @Test
+    void shouldKeepTheQueueCurrentWithJobStatusChangesBetweenConsistencyChecks() {
+        when(systemEnvironment.getBuildAssignmentConsistencyCheckInterval()).thenReturn(3_600_000L);
+        DefaultJobPlan jobPlan = (DefaultJobPlan) getJobPlan(new CaseInsensitiveString("up42"), new CaseInsensitiveString("stage"), JobConfigMother.jobWithNoResourceRequirement());
+        jobPlan.setJobId(42);
+        JobInstance scheduled = JobInstanceMother.scheduled("job");
+        scheduled.setId(42);
+        when(jobInstanceService.scheduledPlan(42)).thenReturn(jobPlan);
+
+        buildAssignmentService.onTimer();
+        buildAssignmentService.jobStatusChanged(scheduled);
+
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan);
+
+        JobInstance cancelled = JobInstanceMother.cancelled("job");
+        cancelled.setId(42);
+        buildAssignmentService.jobStatusChanged(cancelled);
+        buildAssignmentService.onTimer();
+
+        assertThat(buildAssignmentService.jobPlans()).isEmpty();
+        verify(jobInstanceService, times(1)).orderedScheduledBuilds();
+        verify(elasticAgentPluginService).createAgentsForQueueChanges(List.of(), Set.of());
+        verify(elasticAgentPluginService).createAgentsForQueueChanges(List.of(jobPlan), Set.of(42L));
+    }
+
+    @Test
+    void shouldNotReloadTheQueueOnTicksWithoutJobStatusChangesUntilAConsistencyCheckIsDue() {
+        when(systemEnvironment.getBuildAssignmentConsistencyCheckInterval()).thenReturn(3_600_000L);
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
+        pipeline.getFirst().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
+        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipeline.getFirst().getJobs().getFirst(), schedulingContext);
+
+        buildAssignmentService.onTimer();
+        jobPlans.add(jobPlan);
+        buildAssignmentService.onTimer();
+        buildAssignmentService.onTimer();
+
+        assertThat(buildAssignmentService.jobPlans()).isEmpty();
+        verify(jobInstanceService, times(1)).orderedScheduledBuilds();
+
+        buildAssignmentService.requestConsistencyCheck();
+        buildAssignmentService.onTimer();
+
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan);
+        verify(jobInstanceService, times(2)).orderedScheduledBuilds();
+    }
+
+    @Test
+    void shouldRegroupQueuedJobsWhenAnEnvironmentChanges() {
+        PipelineConfig pipeline = PipelineConfigMother.pipelineConfig(UUID.randomUUID().toString());
+        pipeline.getFirst().getJobs().add(JobConfigMother.jobWithNoResourceRequirement());
+        JobPlan jobPlan = new InstanceFactory().createJobPlan(pipeline.getFirst().getJobs().getFirst(), schedulingContext);
+        jobPlans.add(jobPlan);
+        buildAssignmentService.onTimer();
+
+        when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("prod");
+        when(environmentConfigService.getAgentEnvironmentNames(regularAgentInstance.getUuid())).thenReturn(Set.of("prod"));
+        buildAssignmentService.environmentConfigChangedListener().onEntityConfigChange(new BasicEnvironmentConfig(new CaseInsensitiveString("prod")));
+
+        assertThat(buildAssignmentService.findMatchingJob(regularAgentInstance)).isEqualTo(jobPlan);
     }
 
     @Nested
@@ -285,6 +339,8 @@ class BuildAssignmentServiceTest {
             final AgentInstance agentInstance = mock(AgentInstance.class);
             final Pipeline pipeline = mock(Pipeline.class);
             final JobPlan jobPlan1 = getJobPlan(pipelineConfig.getName(), pipelineConfig.getFirst().name(), pipelineConfig.getFirst().getJobs().getLast());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
 
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.getAgent()).thenReturn(agent);
@@ -325,6 +381,8 @@ class BuildAssignmentServiceTest {
 
             final Pipeline pipeline = mock(Pipeline.class);
             final JobPlan jobPlan1 = getJobPlan(pipelineConfig.getName(), pipelineConfig.getFirst().name(), pipelineConfig.getFirst().getJobs().getLast());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
 
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.getAgent()).thenReturn(mock(Agent.class));
@@ -359,6 +417,8 @@ class BuildAssignmentServiceTest {
             final AgentInstance agentInstance = mock(AgentInstance.class);
             final Pipeline pipeline = mock(Pipeline.class);
             final JobPlan jobPlan1 = getJobPlan(pipelineConfig.getName(), pipelineConfig.getFirst().name(), pipelineConfig.getFirst().getJobs().getLast());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
             JobInstance jobInstance = mock(JobInstance.class);
 
             when(agentInstance.isRegistered()).thenReturn(true);
@@ -389,6 +449,8 @@ class BuildAssignmentServiceTest {
             final AgentInstance agentInstance = mock(AgentInstance.class);
             final Pipeline pipeline = mock(Pipeline.class);
             final JobPlan jobPlan1 = getJobPlan(pipelineConfig.getName(), pipelineConfig.getFirst().name(), pipelineConfig.getFirst().getJobs().getLast());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
             JobInstance jobInstance = mock(JobInstance.class);
 
             when(jobInstance.getState()).thenReturn(JobState.Completed);
@@ -433,6 +495,8 @@ class BuildAssignmentServiceTest {
 
             final Pipeline pipeline = mock(Pipeline.class);
             final JobPlan jobPlan1 = getJobPlan(pipelineConfig.getName(), pipelineConfig.getFirst().name(), pipelineConfig.getFirst().getJobs().getLast());
+            jobPlans.add(jobPlan1);
+            buildAssignmentService.onTimer();
 
             when(agentInstance.isRegistered()).thenReturn(true);
             when(agentInstance.getAgent()).thenReturn(mock(Agent.class));
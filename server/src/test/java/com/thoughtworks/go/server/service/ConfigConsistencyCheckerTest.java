@@ -0,0 +1,83 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.serverhealth.HealthStateLevel;
+import com.thoughtworks.go.serverhealth.HealthStateType;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.serverhealth.ServerHealthState;
+import com.thoughtworks.go.util.TimeProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConfigConsistencyCheckerTest {
+    private GoConfigService goConfigService;
+    private ServerHealthService serverHealthService;
+    private ConfigConsistencyChecker checker;
+    private BasicCruiseConfig config;
+
+    @BeforeEach
+    void setUp() {
+        goConfigService = mock(GoConfigService.class);
+        serverHealthService = new ServerHealthService();
+        checker = new ConfigConsistencyChecker(goConfigService, serverHealthService, new TimeProvider());
+        config = GoConfigMother.configWithPipelines("p1", "p2");
+        when(goConfigService.getConfigForEditing()).thenReturn(config);
+    }
+
+    @Test
+    void shouldWarnAboutErrorsFoundByValidatingTheWholeConfig() {
+        config.getPipelineConfigByName(new CaseInsensitiveString("p2"))
+            .addMaterialConfig(new DependencyMaterialConfig(new CaseInsensitiveString("missing"), new CaseInsensitiveString("stage")));
+
+        checker.checkConsistency();
+
+        List<ServerHealthState> states = serverHealthService.logsSortedForScope(ConfigConsistencyChecker.SCOPE);
+        assertThat(states).hasSize(1);
+        assertThat(states.getFirst().getLogLevel()).isEqualTo(HealthStateLevel.WARNING);
+        assertThat(states.getFirst().getDescription()).contains("missing");
+        assertThat(checker.errorsFound()).isPositive();
+        assertThat(checker.fullValidation().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldClearTheWarningOnceTheConfigIsConsistentAgain() {
+        serverHealthService.update(ServerHealthState.warning("message", "description", HealthStateType.general(ConfigConsistencyChecker.SCOPE)));
+
+        checker.checkConsistency();
+
+        assertThat(serverHealthService.logsSortedForScope(ConfigConsistencyChecker.SCOPE)).isEmpty();
+        assertThat(checker.errorsFound()).isZero();
+    }
+
+    @Test
+    void shouldLeaveTheConfigBeingServedAsItIs() {
+        checker.checkConsistency();
+
+        assertThat(config.getPartials()).isEmpty();
+        assertThat(config.getAllErrors()).isEmpty();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ConfigDependencyGraphServiceTest {
+    private GoConfigService goConfigService;
+    private ConfigDependencyGraphService service;
+    private EntityConfigChangedListener<Object> listener;
+    private BasicCruiseConfig config;
+
+    @BeforeEach
+    void setUp() {
+        goConfigService = mock(GoConfigService.class);
+        config = GoConfigMother.configWithPipelines("p1", "p2", "p3");
+        dependsOn(config, "p2", "p1");
+        when(goConfigService.getCurrentConfig()).thenReturn(config);
+
+        @SuppressWarnings("unchecked") ArgumentCaptor<EntityConfigChangedListener<Object>> captor = ArgumentCaptor.forClass(EntityConfigChangedListener.class);
+        doNothing().when(goConfigService).register(captor.capture());
+        service = new ConfigDependencyGraphService(goConfigService);
+        service.initialize();
+        listener = captor.getValue();
+    }
+
+    @Test
+    void shouldBuildTheGraphOnceForTheCurrentConfig() {
+        ConfigDependencyGraph graph = service.currentGraph();
+
+        assertThat(service.currentGraph()).isSameAs(graph);
+        assertThat(service.graphFor(config)).isSameAs(graph);
+        assertThat(graph.directDownstreamsOf(name("p1"))).containsExactly(name("p2"));
+        assertThat(count("Rebuilds")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldNotKeepTheGraphOfAConfigWhichIsNotTheCurrentOne() {
+        ConfigDependencyGraph current = service.currentGraph();
+        BasicCruiseConfig older = GoConfigMother.configWithPipelines("p1");
+
+        ConfigDependencyGraph graph = service.graphFor(older);
+
+        assertThat(graph.pipelines()).containsExactly(name("p1"));
+        assertThat(service.currentGraph()).isSameAs(current);
+    }
+
+    @Test
+    void shouldOnlyReplaceThePipelineWhichWasSaved() {
+        ConfigDependencyGraph before = service.currentGraph();
+        BasicCruiseConfig saved = GoConfigMother.configWithPipelines("p1", "p2", "p3");
+        dependsOn(saved, "p2", "p1");
+        dependsOn(saved, "p3", "p2");
+        when(goConfigService.getCurrentConfig()).thenReturn(saved);
+
+        listener.onEntityConfigChange(saved.getPipelineConfigByName(name("p3")));
+
+        ConfigDependencyGraph after = service.currentGraph();
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.downstreamsOf(name("p1"))).containsExactly(name("p2"), name("p3"));
+        assertThat(before.downstreamsOf(name("p1"))).containsExactly(name("p2"));
+        assertThat(count("Rebuilds")).isEqualTo(1L);
+        assertThat(count("Pipeline updates")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldRemoveAPipelineWhichIsNoLongerInTheConfig() {
+        service.currentGraph();
+        BasicCruiseConfig saved = GoConfigMother.configWithPipelines("p1", "p3");
+        when(goConfigService.getCurrentConfig()).thenReturn(saved);
+
+        listener.onEntityConfigChange(config.getPipelineConfigByName(name("p2")));
+
+        assertThat(service.currentGraph().pipelines()).containsExactly(name("p1"), name("p3"));
+        assertThat(service.currentGraph().directDownstreamsOf(name("p1"))).isEmpty();
+    }
+
+    @Test
+    void shouldBuildTheGraphAgainWhenAnythingOtherThanAPipelineChanges() {
+        service.currentGraph();
+        BasicCruiseConfig saved = GoConfigMother.configWithPipelines("p1", "p2", "p3");
+        when(goConfigService.getCurrentConfig()).thenReturn(saved);
+        EnvironmentConfig environment = new BasicEnvironmentConfig(name("env"));
+
+        listener.onEntityConfigChange(environment);
+
+        assertThat(service.currentGraph().directDownstreamsOf(name("p1"))).isEmpty();
+        assertThat(count("Rebuilds")).isEqualTo(2L);
+        assertThat(count("Pipeline updates")).isEqualTo(0L);
+    }
+
+    @Test
+    void shouldBuildTheGraphAgainWhenTheWholeConfigChanges() {
+        ConfigDependencyGraph before = service.currentGraph();
+
+        listener.onConfigChange(config);
+
+        assertThat(service.currentGraph()).isNotSameAs(before);
+        assertThat(count("Rebuilds")).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldKeepTheGraphOfTheMergedConfigForEditingApartFromTheCurrentConfig() {
+        BasicCruiseConfig forEditing = GoConfigMother.configWithPipelines("p1", "p2");
+        when(goConfigService.getMergedConfigForEditing()).thenReturn(forEditing);
+
+        ConfigDependencyGraph graph = service.graphForEditing(forEditing);
+
+        assertThat(service.graphForEditing(forEditing)).isSameAs(graph);
+        assertThat(graph.pipelines()).containsExactly(name("p1"), name("p2"));
+        assertThat(service.currentGraph()).isNotSameAs(graph);
+
+        listener.onConfigChange(config);
+
+        assertThat(service.graphForEditing(forEditing)).isNotSameAs(graph);
+    }
+
+    @Test
+    void shouldRecordHowMuchOfTheConfigASaveRevalidatedFromTheGraphItAlreadyKeeps() {
+        service.currentGraph();
+        BasicCruiseConfig saved = GoConfigMother.configWithPipelines("p1", "p2", "p3");
+        dependsOn(saved, "p2", "p1");
+        when(goConfigService.getCurrentConfig()).thenReturn(saved);
+
+        listener.onEntityConfigChange(saved.getPipelineConfigByName(name("p1")));
+
+        assertThat(service.validationScopeStatistics().saves()).isEqualTo(1L);
+        assertThat(service.validationScopeStatistics().lastNodesRevalidated()).isEqualTo(2L);
+        assertThat(count("Rebuilds")).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldReportHowLongEachConsumerTook() {
+        service.recordUse(ConfigDependencyGraphService.VALUE_STREAM_MAP, 10);
+        service.recordUse(ConfigDependencyGraphService.VALUE_STREAM_MAP, 30);
+        service.recordUse(ConfigDependencyGraphService.FAN_IN_RESOLUTION, 5);
+
+        assertThat(service.statistics()).containsKeys("Pipelines in graph", ConfigDependencyGraphService.VALUE_STREAM_MAP, ConfigDependencyGraphService.FAN_IN_RESOLUTION);
+        assertThat(count(ConfigDependencyGraphService.VALUE_STREAM_MAP)).isEqualTo(2L);
+        assertThat(statistics(ConfigDependencyGraphService.VALUE_STREAM_MAP).get("Average (ms)")).isEqualTo(20L);
+    }
+
+    private Object count(String key) {
+        return statistics(key).get("Count");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> statistics(String key) {
+        return (Map<String, Object>) service.statistics().get(key);
+    }
+
+    private static void dependsOn(BasicCruiseConfig config, String downstream, String upstream) {
+        PipelineConfig upstreamPipeline = config.getPipelineConfigByName(name(upstream));
+        config.getPipelineConfigByName(name(downstream)).addMaterialConfig(new DependencyMaterialConfig(name(upstream), upstreamPipeline.getFirst().name()));
+    }
+
+    private static CaseInsensitiveString name(String name) {
+        return new CaseInsensitiveString(name);
+    }
+}
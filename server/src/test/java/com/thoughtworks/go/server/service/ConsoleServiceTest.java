@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ConsoleLogIndex;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.helper.JobIdentifierMother;
 import com.thoughtworks.go.server.view.artifacts.ArtifactDirectoryChooser;
@@ -23,11 +24,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static com.thoughtworks.go.util.ArtifactUtil.CONSOLE_LOG_FILE_RELATIVE_PATH;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
@@ -116,6 +122,99 @@ public class ConsoleServiceTest {
         assertThat(finalConsoleLog.exists()).isTrue();
     }
 
+    @Test
+    public void shouldMoveLineIndexWithConsoleArtifacts(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+
+        File temporaryConsoleLog = testFolder.resolve("temporary_console.log").toFile();
+        File finalConsoleLog = testFolder.resolve("final_console.log").toFile();
+        service.appendToConsoleLogIoSafe(temporaryConsoleLog, new ByteArrayInputStream("line\n".repeat(ConsoleLogIndex.LINES_PER_ENTRY).getBytes(UTF_8)));
+
+        when(chooser.temporaryConsoleFile(jobIdentifier)).thenReturn(temporaryConsoleLog);
+        when(chooser.findArtifact(jobIdentifier, CONSOLE_LOG_FILE_RELATIVE_PATH)).thenReturn(finalConsoleLog);
+
+        service.moveConsoleArtifacts(jobIdentifier);
+
+        assertThat(ConsoleLogIndex.indexFor(temporaryConsoleLog.toPath())).doesNotExist();
+        assertThat(ConsoleLogIndex.indexFor(finalConsoleLog.toPath())).exists();
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(finalConsoleLog.toPath(), ConsoleLogIndex.LINES_PER_ENTRY).offset()).isEqualTo(finalConsoleLog.length());
+    }
+
+    @Test
+    public void shouldIndexLinesAsTheyAreAppendedToConsoleLog(@TempDir Path testFolder) {
+        File consoleLog = testFolder.resolve("console.log").toFile();
+
+        service.appendToConsoleLogIoSafe(consoleLog, new ByteArrayInputStream("line\n".repeat(ConsoleLogIndex.LINES_PER_ENTRY - 1).getBytes(UTF_8)));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(consoleLog.toPath(), ConsoleLogIndex.LINES_PER_ENTRY)).isEqualTo(ConsoleLogIndex.Position.START);
+
+        service.appendToConsoleLogIoSafe(consoleLog, new ByteArrayInputStream("line\nmore".getBytes(UTF_8)));
+        assertThat(ConsoleLogIndex.beforeLineFeedLine(consoleLog.toPath(), ConsoleLogIndex.LINES_PER_ENTRY).offset()).isEqualTo(5L * ConsoleLogIndex.LINES_PER_ENTRY);
+    }
+
+    @Test
+    public void shouldNotAppendChunkOfConsoleOutputThatHasAlreadyBeenAppended(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = testFolder.resolve("console.log").toFile();
+
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("first\n".getBytes(UTF_8)))).isTrue();
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("first\n".getBytes(UTF_8)))).isTrue();
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 2, new ByteArrayInputStream("second\n".getBytes(UTF_8)))).isTrue();
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("first\n".getBytes(UTF_8)))).isTrue();
+
+        assertThat(Files.readString(consoleLog.toPath())).isEqualTo("first\nsecond\n");
+    }
+
+    @Test
+    public void shouldAppendChunksNumberedFromTheStartAgainOnceTheyAreForgotten(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = testFolder.resolve("console.log").toFile();
+        service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("first agent\n".getBytes(UTF_8)));
+
+        service.forgetAppendedChunks(jobIdentifier);
+
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("second agent\n".getBytes(UTF_8)))).isTrue();
+        assertThat(Files.readString(consoleLog.toPath())).isEqualTo("first agent\nsecond agent\n");
+    }
+
+    @Test
+    public void shouldNotLoseOutputWhenTheServerAndAnAgentAppendToTheSameLogAtOnce(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = testFolder.resolve("console.log").toFile();
+        int appends = 200;
+
+        Thread server = new Thread(() -> {
+            for (int i = 0; i < appends; i++) {
+                service.appendToConsoleLogIoSafe(consoleLog, new ByteArrayInputStream("server\n".getBytes(UTF_8)));
+            }
+        });
+        server.start();
+        for (int i = 1; i <= appends; i++) {
+            service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, i, new ByteArrayInputStream("agent\n".getBytes(UTF_8)));
+        }
+        server.join();
+
+        assertThat(Files.readAllLines(consoleLog.toPath())).hasSize(2 * appends).containsOnly("server", "agent");
+    }
+
+    @Test
+    public void shouldLeaveOutPartOfChunkThatFailedToBeAppendedSoThatItCanBeAppendedAgain(@TempDir Path testFolder) throws Exception {
+        JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
+        File consoleLog = testFolder.resolve("console.log").toFile();
+        service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 1, new ByteArrayInputStream("first\n".getBytes(UTF_8)));
+
+        InputStream brokenOffPart = new SequenceInputStream(new ByteArrayInputStream("sec".getBytes(UTF_8)), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("agent went away");
+            }
+        });
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 2, brokenOffPart)).isFalse();
+        assertThat(Files.readString(consoleLog.toPath())).isEqualTo("first\n");
+
+        assertThat(service.appendToConsoleLogIoSafe(jobIdentifier, consoleLog, 2, new ByteArrayInputStream("second\n".getBytes(UTF_8)))).isTrue();
+        assertThat(Files.readString(consoleLog.toPath())).isEqualTo("first\nsecond\n");
+    }
+
     @Test
     public void shouldCreateTemporaryConsoleFileAndMoveIfItDoesNotExist(@TempDir Path testFolder) throws Exception {
         JobIdentifier jobIdentifier = JobIdentifierMother.anyBuildIdentifier();
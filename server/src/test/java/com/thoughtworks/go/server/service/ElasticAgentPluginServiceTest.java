@@ -64,6 +64,7 @@ import org.springframework.util.LinkedMultiValueMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
@@ -191,7 +192,7 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<CreateAgentMessage> createAgentMessageArgumentCaptor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
         when(environmentConfigService.envForPipeline("pipeline-2")).thenReturn("env-2");
-        service.createAgentsFor(List.of(plan1), List.of(plan1, plan2));
+        service.createAgentsForQueueChanges(List.of(plan2), Set.of());
 
         verify(createAgentQueue).post(createAgentMessageArgumentCaptor.capture(), ttl.capture());
         CreateAgentMessage createAgentMessage = createAgentMessageArgumentCaptor.getValue();
@@ -210,7 +211,7 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<CreateAgentMessage> createAgentMessageArgumentCaptor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
         when(environmentConfigService.envForPipeline("pipeline-2")).thenReturn("env-2");
-        service.createAgentsFor(List.of(plan1), List.of(plan1, plan2));
+        service.createAgentsForQueueChanges(List.of(plan2), Set.of());
 
         verify(createAgentQueue).post(createAgentMessageArgumentCaptor.capture(), ttl.capture());
         assertThat(ttl.getValue()).isEqualTo(10000L);
@@ -225,8 +226,8 @@ class ElasticAgentPluginServiceTest {
         when(goConfigService.elasticJobStarvationThreshold()).thenReturn(0L);
         ArgumentCaptor<CreateAgentMessage> captor = ArgumentCaptor.forClass(CreateAgentMessage.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
-        service.createAgentsFor(new ArrayList<>(), List.of(plan1));
-        service.createAgentsFor(List.of(plan1), List.of(plan1));//invoke create again
+        service.createAgentsForQueueChanges(List.of(plan1), Set.of());
+        service.createAgentsForQueueChanges(List.of(), Set.of());//invoke create again
 
         verify(createAgentQueue, times(2)).post(captor.capture(), ttl.capture());
         verifyNoMoreInteractions(createAgentQueue);
@@ -237,11 +238,40 @@ class ElasticAgentPluginServiceTest {
         assertThat(createAgentMessage.configuration()).isEqualTo(plan1.getElasticProfile().getConfigurationAsMap(true));
     }
 
+    @Test
+    void shouldCreateAgentForJobsScheduledSinceLastQueueChangeOnly() {
+        JobPlan plan1 = plan(1, "docker");
+        JobPlan plan2 = plan(2, "docker");
+        when(goConfigService.elasticJobStarvationThreshold()).thenReturn(10000L);
+        ArgumentCaptor<CreateAgentMessage> captor = ArgumentCaptor.forClass(CreateAgentMessage.class);
+
+        service.createAgentsForQueueChanges(List.of(plan1, plan2), Set.of(2L));
+        service.createAgentsForQueueChanges(List.of(), Set.of());
+
+        verify(createAgentQueue).post(captor.capture(), anyLong());
+        verifyNoMoreInteractions(createAgentQueue);
+        assertThat(captor.getValue().jobIdentifier()).isEqualTo(plan1.getIdentifier());
+    }
+
+    @Test
+    void shouldRetryCreateAgentForStarvingJobUntilItIsNoLongerScheduled() {
+        JobPlan plan1 = plan(1, "docker");
+        when(goConfigService.elasticJobStarvationThreshold()).thenReturn(0L);
+
+        service.createAgentsForQueueChanges(List.of(plan1), Set.of());
+        service.createAgentsForQueueChanges(List.of(), Set.of());
+        service.createAgentsForQueueChanges(List.of(), Set.of(1L));
+        service.createAgentsForQueueChanges(List.of(), Set.of());
+
+        verify(createAgentQueue, times(2)).post(any(CreateAgentMessage.class), anyLong());
+        verifyNoMoreInteractions(createAgentQueue);
+    }
+
     @Test
     void shouldReportMissingElasticPlugin() {
         JobPlan plan1 = plan(1, "missing");
         ArgumentCaptor<ServerHealthState> captorForHealthState = ArgumentCaptor.forClass(ServerHealthState.class);
-        service.createAgentsFor(new ArrayList<>(), List.of(plan1));
+        service.createAgentsForQueueChanges(List.of(plan1), Set.of());
 
         verify(serverHealthService).update(captorForHealthState.capture());
         verifyNoInteractions(createAgentQueue);
@@ -259,7 +289,7 @@ class ElasticAgentPluginServiceTest {
         ArgumentCaptor<HealthStateScope> captor = ArgumentCaptor.forClass(HealthStateScope.class);
         ArgumentCaptor<Long> ttl = ArgumentCaptor.forClass(Long.class);
 
-        service.createAgentsFor(new ArrayList<>(), List.of(plan1));
+        service.createAgentsForQueueChanges(List.of(plan1), Set.of());
 
         verify(createAgentQueue, times(1)).post(any(), ttl.capture());
         verify(serverHealthService).removeByScope(captor.capture());
@@ -271,8 +301,8 @@ class ElasticAgentPluginServiceTest {
     void shouldRetryCreateAgentForJobForWhichAssociatedPluginIsMissing() {
         when(goConfigService.elasticJobStarvationThreshold()).thenReturn(0L);
         JobPlan plan1 = plan(1, "missing");
-        service.createAgentsFor(new ArrayList<>(), List.of(plan1));
-        service.createAgentsFor(List.of(plan1), List.of(plan1));//invoke create again
+        service.createAgentsForQueueChanges(List.of(plan1), Set.of());
+        service.createAgentsForQueueChanges(List.of(), Set.of());//invoke create again
 
         verifyNoInteractions(createAgentQueue);
         ArgumentCaptor<ServerHealthState> captorForHealthState = ArgumentCaptor.forClass(ServerHealthState.class);
@@ -531,7 +561,7 @@ class ElasticAgentPluginServiceTest {
 
             when(goConfigService.elasticJobStarvationThreshold()).thenReturn(10000L);
 
-            service.createAgentsFor(emptyList(), List.of(jobPlan));
+            service.createAgentsForQueueChanges(List.of(jobPlan), Set.of());
 
             verifyNoInteractions(createAgentQueue);
             verify(scheduleService).cancelJob(jobPlan.getIdentifier());
@@ -621,7 +651,7 @@ class ElasticAgentPluginServiceTest {
                 return null;
             }).when(secretParamResolver).resolve(any(ElasticProfile.class));
 
-            service.createAgentsFor(List.of(plan1), List.of(plan1, plan2));
+            service.createAgentsForQueueChanges(List.of(plan2), Set.of());
 
             verify(secretParamResolver).resolve(plan2.getClusterProfile());
             verify(secretParamResolver).resolve(plan2.getElasticProfile());
@@ -648,7 +678,7 @@ class ElasticAgentPluginServiceTest {
             when(environmentConfigService.envForPipeline("pipeline-2")).thenReturn("env-2");
             doThrow(new RulesViolationException("some-rules-violation-message")).when(secretParamResolver).resolve(any(ElasticProfile.class));
 
-            service.createAgentsFor(List.of(plan1), List.of(plan1, plan2));
+            service.createAgentsForQueueChanges(List.of(plan2), Set.of());
 
             InOrder inOrder = inOrder(secretParamResolver, secretParamResolver, jobInstanceSqlMapDao, consoleService, scheduleService);
             inOrder.verify(secretParamResolver).resolve(plan2.getClusterProfile());
@@ -0,0 +1,160 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobAssignmentIndexTest {
+    private long jobId = 0;
+
+    @Test
+    void shouldOfferOnlyTheHeadOfEachResourceBucketInQueueOrder() {
+        JobPlan linux1 = jobPlan("up42", "linux", null);
+        JobPlan windows = jobPlan("up42", "windows", null);
+        JobPlan linux2 = jobPlan("up42", "LINUX", null);
+        JobPlan anywhere = jobPlan("up42", "", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(linux1, windows, linux2, anywhere), pipeline -> null);
+
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(linux1, windows, anywhere);
+    }
+
+    @Test
+    void shouldMoveToTheNextJobOfABucketOnceTheHeadIsClaimed() {
+        JobPlan first = jobPlan("up42", "linux", null);
+        JobPlan second = jobPlan("up42", "linux", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(first, second), pipeline -> null);
+
+        assertThat(index.claim(first)).isTrue();
+        assertThat(index.claim(first)).isFalse();
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(second);
+        assertThat(index.pending()).containsExactly(second);
+    }
+
+    @Test
+    void shouldOfferJobsPinnedToAnAgentOnlyToThatAgent() {
+        JobPlan pinned = jobPlan("up42", "", "agent-1");
+        JobPlan shared = jobPlan("up42", "", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(pinned, shared), pipeline -> null);
+
+        assertThat(index.candidatesFor(Set.of(), "agent-1")).containsExactly(pinned, shared);
+        assertThat(index.candidatesFor(Set.of(), "agent-2")).containsExactly(shared);
+    }
+
+    @Test
+    void shouldOfferJobsOnlyToAgentsInTheEnvironmentOfThePipeline() {
+        JobPlan inUat = jobPlan("in-uat", "", null);
+        JobPlan inProd = jobPlan("in-prod", "", null);
+        JobPlan nowhere = jobPlan("nowhere", "", null);
+        Map<String, String> environments = Map.of("in-uat", "uat", "in-prod", "prod");
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(inUat, inProd, nowhere), environments::get);
+
+        assertThat(index.candidatesFor(Set.of("uat"), "agent")).containsExactly(inUat);
+        assertThat(index.candidatesFor(Set.of("uat", "prod"), "agent")).containsExactly(inUat, inProd);
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(nowhere);
+    }
+
+    @Test
+    void shouldKeepElasticJobsAwayFromRegularAgents() {
+        JobPlan elastic1 = elasticJobPlan("up42");
+        JobPlan regular = jobPlan("up42", "", null);
+        JobPlan elastic2 = elasticJobPlan("up42");
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(elastic1, regular, elastic2), pipeline -> null);
+
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(regular);
+        assertThat(index.elasticCandidatesFor(Set.of())).containsExactly(elastic1, elastic2);
+
+        index.claim(elastic1);
+        assertThat(index.elasticCandidatesFor(Set.of())).containsExactly(elastic2);
+    }
+
+    @Test
+    void shouldAppendNewlyScheduledJobsToTheEndOfTheQueue() {
+        JobPlan first = jobPlan("up42", "linux", null);
+        JobPlan second = jobPlan("up42", "linux", null);
+        JobPlan windows = jobPlan("up42", "windows", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(first), pipeline -> null);
+
+        assertThat(index.add(second)).isTrue();
+        assertThat(index.add(windows)).isTrue();
+        assertThat(index.add(first)).isFalse();
+
+        assertThat(index.pending()).containsExactly(first, second, windows);
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(first, windows);
+    }
+
+    @Test
+    void shouldRemoveJobsThatAreNoLongerScheduled() {
+        JobPlan first = jobPlan("up42", "linux", null);
+        JobPlan second = jobPlan("up42", "linux", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(first, second), pipeline -> null);
+
+        assertThat(index.remove(first.getJobId())).isSameAs(first);
+        assertThat(index.remove(first.getJobId())).isNull();
+        assertThat(index.remove(42L)).isNull();
+        assertThat(index.claim(first)).isFalse();
+        assertThat(index.candidatesFor(Set.of(), "agent")).containsExactly(second);
+        assertThat(index.pending()).containsExactly(second);
+    }
+
+    @Test
+    void shouldNotAddBackAJobThatHasAlreadyBeenClaimed() {
+        JobPlan jobPlan = jobPlan("up42", "", null);
+
+        JobAssignmentIndex index = new JobAssignmentIndex(List.of(jobPlan), pipeline -> null);
+        index.claim(jobPlan);
+
+        assertThat(index.add(jobPlan)).isFalse();
+        assertThat(index.pending()).isEmpty();
+    }
+
+    @Test
+    void shouldNotClaimJobsItDoesNotKnowAbout() {
+        JobAssignmentIndex index = JobAssignmentIndex.empty();
+
+        assertThat(index.claim(jobPlan("up42", "", null))).isFalse();
+        assertThat(index.pending()).isEmpty();
+    }
+
+    private JobPlan jobPlan(String pipelineName, String resources, String agentUuid) {
+        return jobPlan(pipelineName, resources, agentUuid, null);
+    }
+
+    private JobPlan elasticJobPlan(String pipelineName) {
+        return jobPlan(pipelineName, "", null, new ElasticProfile("docker", "cluster"));
+    }
+
+    private JobPlan jobPlan(String pipelineName, String resources, String agentUuid, ElasticProfile elasticProfile) {
+        long id = ++jobId;
+        JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job-" + id, id);
+        return new DefaultJobPlan(new Resources(resources), new ArrayList<>(), id, identifier, agentUuid, new EnvironmentVariables(), new EnvironmentVariables(), elasticProfile, null);
+    }
+}
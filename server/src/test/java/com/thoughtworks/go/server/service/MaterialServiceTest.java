@@ -33,6 +33,7 @@ import com.thoughtworks.go.domain.MaterialRevision;
 import com.thoughtworks.go.domain.MaterialRevisions;
 import com.thoughtworks.go.domain.PipelineRunIdInfo;
 import com.thoughtworks.go.domain.config.Configuration;
+import com.thoughtworks.go.domain.config.ConfigurationValue;
 import com.thoughtworks.go.domain.materials.*;
 import com.thoughtworks.go.domain.materials.git.GitMaterialInstance;
 import com.thoughtworks.go.domain.materials.packagematerial.PackageMaterialRevision;
@@ -69,6 +70,7 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.ArgumentsProvider;
 import org.junit.jupiter.params.provider.ArgumentsSource;
 import org.junit.jupiter.params.support.ParameterDeclarations;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -299,7 +301,7 @@ public class MaterialServiceTest {
 
     @Test
     public void latestModification_shouldResolveSecretsForMaterialConfiguredWithSecretParams() {
-        GitMaterial gitMaterial = spy(new GitMaterial("https://example.com"));
+        GitMaterial gitMaterial = gitMaterialWithSecretParams();
         MaterialService spy = spy(materialService);
         GitPoller gitPoller = mock(GitPoller.class);
 
@@ -308,12 +310,13 @@ public class MaterialServiceTest {
 
         spy.latestModification(gitMaterial, null, null);
 
-        verify(secretParamResolver).resolve(gitMaterial);
+        Material resolved = verifySecretsResolvedOnACopyOf(gitMaterial);
+        verify(gitPoller).latestModification(same(resolved), any(), any());
     }
 
     @Test
     public void modificationsSince_shouldResolveSecretsForMaterialConfiguredWithSecretParams() {
-        GitMaterial gitMaterial = spy(new GitMaterial("https://example.com"));
+        GitMaterial gitMaterial = gitMaterialWithSecretParams();
         MaterialService spy = spy(materialService);
         GitPoller gitPoller = mock(GitPoller.class);
 
@@ -322,7 +325,23 @@ public class MaterialServiceTest {
 
         spy.modificationsSince(gitMaterial, null, null, null);
 
-        verify(secretParamResolver).resolve(gitMaterial);
+        Material resolved = verifySecretsResolvedOnACopyOf(gitMaterial);
+        verify(gitPoller).modificationsSince(same(resolved), any(), any(), any());
+    }
+
+    @Test
+    public void shouldNotResolveSecretsForMaterialWithoutSecretParams() {
+        GitMaterial gitMaterial = new GitMaterial("https://example.com");
+        MaterialService spy = spy(materialService);
+        GitPoller gitPoller = mock(GitPoller.class);
+
+        doReturn(gitPoller).when(spy).getPollerImplementation(gitMaterial);
+        when(gitPoller.latestModification(any(), any(), any())).thenReturn(new ArrayList<>());
+
+        spy.latestModification(gitMaterial, null, null);
+
+        verifyNoInteractions(secretParamResolver);
+        verify(gitPoller).latestModification(same(gitMaterial), any(), any());
     }
 
     @Test
@@ -619,7 +638,7 @@ public class MaterialServiceTest {
 
     @Test
     public void latestModification_shouldResolveSecretsForPluggableScmMaterial() {
-        PluggableSCMMaterial pluggableSCMMaterial = spy(new PluggableSCMMaterial());
+        PluggableSCMMaterial pluggableSCMMaterial = pluggableSCMMaterialWithSecretParams();
         MaterialService serviceSpy = spy(materialService);
         PluggableSCMMaterialPoller poller = mock(PluggableSCMMaterialPoller.class);
 
@@ -628,12 +647,12 @@ public class MaterialServiceTest {
 
         serviceSpy.latestModification(pluggableSCMMaterial, null, null);
 
-        verify(secretParamResolver).resolve(pluggableSCMMaterial);
+        verifySecretsResolvedOnACopyOf(pluggableSCMMaterial);
     }
 
     @Test
     public void modificationsSince_shouldResolveSecretsForPluggableScmMaterial() {
-        PluggableSCMMaterial pluggableSCMMaterial = spy(new PluggableSCMMaterial());
+        PluggableSCMMaterial pluggableSCMMaterial = pluggableSCMMaterialWithSecretParams();
         MaterialService serviceSpy = spy(materialService);
         PluggableSCMMaterialPoller poller = mock(PluggableSCMMaterialPoller.class);
 
@@ -642,12 +661,12 @@ public class MaterialServiceTest {
 
         serviceSpy.modificationsSince(pluggableSCMMaterial, null, null, null);
 
-        verify(secretParamResolver).resolve(pluggableSCMMaterial);
+        verifySecretsResolvedOnACopyOf(pluggableSCMMaterial);
     }
 
     @Test
     public void checkout_shouldResolveSecretsForPluggableScmMaterial() {
-        PluggableSCMMaterial pluggableSCMMaterial = spy(new PluggableSCMMaterial());
+        PluggableSCMMaterial pluggableSCMMaterial = pluggableSCMMaterialWithSecretParams();
         MaterialService serviceSpy = spy(materialService);
         PluggableSCMMaterialPoller poller = mock(PluggableSCMMaterialPoller.class);
 
@@ -656,7 +675,26 @@ public class MaterialServiceTest {
 
         serviceSpy.checkout(pluggableSCMMaterial, null, null, null);
 
-        verify(secretParamResolver).resolve(pluggableSCMMaterial);
+        verifySecretsResolvedOnACopyOf(pluggableSCMMaterial);
+    }
+
+    private GitMaterial gitMaterialWithSecretParams() {
+        GitMaterial gitMaterial = new GitMaterial("https://example.com");
+        gitMaterial.setUserName("bob");
+        gitMaterial.setPassword("{{SECRET:[secret_config_id][GIT_PASSWORD]}}");
+        return gitMaterial;
     }
 
+    private PluggableSCMMaterial pluggableSCMMaterialWithSecretParams() {
+        PluggableSCMMaterial pluggableSCMMaterial = MaterialsMother.pluggableSCMMaterial();
+        pluggableSCMMaterial.getScmConfig().getConfiguration().getFirst().setConfigurationValue(new ConfigurationValue("{{SECRET:[secret_config_id][SCM_PASSWORD]}}"));
+        return pluggableSCMMaterial;
+    }
+
+    private Material verifySecretsResolvedOnACopyOf(Material material) {
+        ArgumentCaptor<Material> resolved = ArgumentCaptor.forClass(Material.class);
+        verify(secretParamResolver).resolve(resolved.capture());
+        assertThat(resolved.getValue()).isNotSameAs(material).isEqualTo(material);
+        return resolved.getValue();
+    }
 }
@@ -131,6 +131,7 @@ class RevokeStaleAccessTokenServiceTest {
         service.onConfigChange(config);
 
         verify(accessTokenService, never()).revokeAccessTokenByGoCD(anyInt(), anyString());
+        verify(accessTokenService, never()).invalidateVerifiedTokens();
     }
 
 
@@ -192,5 +193,6 @@ class RevokeStaleAccessTokenServiceTest {
         service.onEntityConfigChange(new SecurityAuthConfig());
 
         verify(accessTokenService).revokeAccessTokenByGoCD(2, "Revoked by GoCD: The authorization configuration 'authConfig2' referenced from the current access token is deleted from GoCD.");
+        verify(accessTokenService).invalidateVerifiedTokens();
     }
 }
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import net.sf.ehcache.Ehcache;
@@ -56,6 +57,7 @@ public class StubGoCache extends GoCache {
     @Override
     public void clear() {
         map.clear();
+        regions().forEach(CacheRegion::clear);
     }
 
     @Override
@@ -17,12 +17,16 @@ package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.BasicCruiseConfig;
 import com.thoughtworks.go.config.BasicPipelineConfigs;
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.materials.MaterialConfigs;
 import com.thoughtworks.go.config.materials.ScmMaterialConfig;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.MaterialRevisions;
+import com.thoughtworks.go.domain.PipelineTimelineEntry;
 import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -30,6 +34,8 @@ import java.util.List;
 import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
 import static com.thoughtworks.go.helper.MaterialConfigsMother.hg;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class FanInGraphTest {
     @Test
@@ -50,4 +56,33 @@ public class FanInGraphTest {
             c -> assertThat(c.getUrl()).isEqualTo("giturl")
         );
     }
+
+    @Test
+    public void shouldKeyTheResolutionOnTheUpstreamConfigAndTheTimelineOfTheDirectUpstreams() {
+        PipelineConfig p1 = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(git("giturl", "dest")));
+        DependencyMaterialConfig p1Dep = new DependencyMaterialConfig(p1.name(), p1.getFirst().name());
+        PipelineConfig p2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(p1Dep, git("giturl", "dest")));
+        CruiseConfig cruiseConfig = new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2));
+        FanInGraph faninGraph = new FanInGraph(cruiseConfig, p2.name(), null, null, null, () -> 1);
+        PipelineTimeline pipelineTimeline = mock(PipelineTimeline.class);
+        PipelineTimelineEntry latest = mock(PipelineTimelineEntry.class);
+        when(pipelineTimeline.instanceCount(new CaseInsensitiveString("p1"))).thenReturn(1);
+        when(pipelineTimeline.instanceFor(new CaseInsensitiveString("p1"), 0)).thenReturn(latest);
+        when(latest.getId()).thenReturn(10L);
+
+        FanInResolutionCache.Key key = faninGraph.resolutionKey(new MaterialRevisions(), pipelineTimeline);
+
+        assertThat(faninGraph.requiresResolution()).isTrue();
+        assertThat(new FanInGraph(cruiseConfig, p1.name(), null, null, null, () -> 1).requiresResolution()).isFalse();
+        assertThat(key.upstreamMaterials()).containsOnlyKeys(p1Dep.getFingerprint(), new DependencyMaterialConfig(p2.name(), p2.getFirst().name()).getFingerprint());
+        assertThat(key.timelinePositions())
+            .containsEntry(new CaseInsensitiveString("p1"), new FanInResolutionCache.TimelinePosition(1, 10))
+            .containsEntry(new CaseInsensitiveString("p2"), new FanInResolutionCache.TimelinePosition(0, -1));
+        assertThat(faninGraph.resolutionKey(new MaterialRevisions(), pipelineTimeline)).isEqualTo(key);
+
+        when(pipelineTimeline.instanceCount(new CaseInsensitiveString("p1"))).thenReturn(2);
+        when(pipelineTimeline.instanceFor(new CaseInsensitiveString("p1"), 1)).thenReturn(latest);
+
+        assertThat(faninGraph.resolutionKey(new MaterialRevisions(), pipelineTimeline)).isNotEqualTo(key);
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterial;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.MaterialRevisions;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class FanInResolutionCacheTest {
+    private static final CaseInsensitiveString PIPELINE = new CaseInsensitiveString("downstream");
+
+    private FanInResolutionCache cache;
+    private FanInGraph fanInGraph;
+    private PipelineTimeline pipelineTimeline;
+    private MaterialRevisions actualRevisions;
+    private MaterialRevisions resolvedRevisions;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FanInResolutionCache();
+        fanInGraph = mock(FanInGraph.class);
+        pipelineTimeline = mock(PipelineTimeline.class);
+        actualRevisions = revisions("upstream/2/stage/1");
+        resolvedRevisions = revisions("upstream/1/stage/1");
+        when(fanInGraph.requiresResolution()).thenReturn(true);
+        when(fanInGraph.resolutionKey(actualRevisions, pipelineTimeline)).thenReturn(key(2));
+        when(fanInGraph.computeRevisions(actualRevisions, pipelineTimeline)).thenReturn(resolvedRevisions);
+        when(fanInGraph.backtrackDepth()).thenReturn(3);
+    }
+
+    @Test
+    void shouldResolveOnceForTheSameKey() {
+        MaterialRevisions first = cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+        MaterialRevisions second = cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+
+        assertThat(first).isEqualTo(resolvedRevisions);
+        assertThat(second).isEqualTo(resolvedRevisions).isNotSameAs(first);
+        verify(fanInGraph, times(1)).computeRevisions(actualRevisions, pipelineTimeline);
+        assertThat(cache.statistics()).containsEntry("Cache hits", 1L).containsEntry("Cache misses", 1L);
+    }
+
+    @Test
+    void shouldResolveAgainOnceTheTimelineHasMoved() {
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+        when(fanInGraph.resolutionKey(actualRevisions, pipelineTimeline)).thenReturn(key(3));
+
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+
+        verify(fanInGraph, times(2)).computeRevisions(actualRevisions, pipelineTimeline);
+    }
+
+    @Test
+    void shouldNotLetCallersChangeTheRememberedRevisions() {
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline).addRevision(revisions("other/1/stage/1").getMaterialRevision(0));
+
+        assertThat(cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline).numberOfRevisions()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRememberFailedResolutions() {
+        when(fanInGraph.computeRevisions(actualRevisions, pipelineTimeline)).thenThrow(new MaxBackTrackLimitReachedException(
+            new DependencyMaterialConfig(new CaseInsensitiveString("upstream"), new CaseInsensitiveString("stage")), 3));
+
+        assertThatThrownBy(() -> cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline)).isInstanceOf(MaxBackTrackLimitReachedException.class);
+        assertThatThrownBy(() -> cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline)).isInstanceOf(MaxBackTrackLimitReachedException.class);
+
+        assertThat(cache.statistics()).containsEntry("Cache hits", 0L).containsEntry("Cached pipelines", 0);
+    }
+
+    @Test
+    void shouldNotCacheWhenThereIsNothingToResolve() {
+        when(fanInGraph.requiresResolution()).thenReturn(false);
+
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+
+        verify(fanInGraph, times(2)).computeRevisions(actualRevisions, pipelineTimeline);
+        verify(fanInGraph, never()).resolutionKey(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReportBacktrackDepthAndTimePerPipeline() {
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+        cache.computeRevisions(PIPELINE, fanInGraph, actualRevisions, pipelineTimeline);
+
+        Map<String, Object> pipelines = (Map<String, Object>) cache.statistics().get("Pipelines");
+        Map<String, Object> statistics = (Map<String, Object>) pipelines.get("downstream");
+        assertThat(statistics)
+            .containsEntry("Cache hits", 1L)
+            .containsEntry("Last backtrack depth", 3)
+            .containsEntry("Max backtrack depth", 3);
+        assertThat((Map<String, Object>) statistics.get("Resolutions")).containsEntry("Count", 1L);
+    }
+
+    private static FanInResolutionCache.Key key(int upstreamInstances) {
+        return new FanInResolutionCache.Key(
+            Map.of("downstream", Set.of("upstream")),
+            Map.of("upstream", "upstream/2/stage/1"),
+            Map.of(new CaseInsensitiveString("upstream"), new FanInResolutionCache.TimelinePosition(upstreamInstances, upstreamInstances)));
+    }
+
+    private static MaterialRevisions revisions(String revision) {
+        DependencyMaterial material = new DependencyMaterial(new CaseInsensitiveString(revision.split("/")[0]), new CaseInsensitiveString("stage"));
+        return new MaterialRevisions(new MaterialRevision(material, new Modification(new Date(), revision, "1", 1L)));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.support;
+
+import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.server.materials.MaterialUpdateService;
+import com.thoughtworks.go.server.messaging.scheduling.WorkAssignments;
+import com.thoughtworks.go.server.messaging.scheduling.WorkDispatchStatistics;
+import com.thoughtworks.go.server.service.ArtifactBlobStore;
+import com.thoughtworks.go.server.service.ConfigConsistencyChecker;
+import com.thoughtworks.go.server.service.ConfigDependencyGraphService;
+import com.thoughtworks.go.server.service.dd.FanInResolutionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PerformanceStatisticsProviderTest {
+    private FanInResolutionCache fanInResolutionCache;
+    private MaterialUpdateService materialUpdateService;
+    private PerformanceStatisticsProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        fanInResolutionCache = mock(FanInResolutionCache.class);
+        materialUpdateService = mock(MaterialUpdateService.class);
+        provider = new PerformanceStatisticsProvider(mock(ConfigConsistencyChecker.class), mock(ConfigDependencyGraphService.class),
+            fanInResolutionCache, mock(WorkAssignments.class), mock(WorkDispatchStatistics.class), mock(PipelineTimeline.class),
+            mock(ArtifactBlobStore.class), materialUpdateService);
+    }
+
+    @Test
+    void shouldReportEachSectionUnderItsOwnName() {
+        when(fanInResolutionCache.statistics()).thenReturn(Map.of("Hits", 3L));
+
+        Map<String, Object> json = provider.asJsonCompatibleMap();
+
+        assertThat(json).containsOnlyKeys("Config Validation", "Pipeline Dependency Graph", "Fan-in Resolution", "Work Assignments",
+            "Pipeline Timeline", "Artifact Deduplication", "Push Notifications", "Material Update Scheduling");
+        assertThat(json.get("Fan-in Resolution")).isEqualTo(Map.of("Hits", 3L));
+    }
+
+    @Test
+    void shouldStillReportTheOtherSectionsWhenOneOfThemFails() {
+        when(materialUpdateService.pushNotificationStatistics()).thenThrow(new RuntimeException("boom"));
+        when(fanInResolutionCache.statistics()).thenReturn(Map.of("Hits", 3L));
+
+        Map<String, Object> json = provider.asJsonCompatibleMap();
+
+        assertThat(json.get("Push Notifications")).isEqualTo("Could not collect statistics: boom");
+        assertThat(json.get("Fan-in Resolution")).isEqualTo(Map.of("Hits", 3L));
+    }
+}
@@ -17,7 +17,7 @@ package com.thoughtworks.go.server.web;
 
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
-import com.thoughtworks.go.server.view.artifacts.PreparingArtifactFile;
+import com.thoughtworks.go.server.view.artifacts.ZippingArtifactFolder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -28,6 +28,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ZipArtifactFolderViewFactoryTest {
     private static final JobIdentifier JOB_IDENTIFIER = new JobIdentifier("pipeline-name", 1, "label-111", "stage-name", "1", "job-name", 666L);
@@ -43,11 +46,13 @@ public class ZipArtifactFolderViewFactoryTest {
     }
 
     @Test
-    public void shouldCreateArtifactCacheIfDoesNotExist() throws Exception {
+    public void shouldZipTheFolderWhileDownloadingItIfTheCacheDoesNotExist() throws Exception {
         folderViewFactory = new ZipArtifactFolderViewFactory(cacheNotCreated());
+        ArtifactFolder artifactFolder = new ArtifactFolder(JOB_IDENTIFIER, folder.toFile(), "dir");
 
-        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, new ArtifactFolder(JOB_IDENTIFIER, folder.toFile(), "dir"));
-        assertThat(modelAndView.getView()).isInstanceOf(PreparingArtifactFile.class);
+        ModelAndView modelAndView = folderViewFactory.createView(JOB_IDENTIFIER, artifactFolder);
+        assertThat(modelAndView.getView()).isInstanceOf(ZippingArtifactFolder.class);
+        assertThat(((ZippingArtifactFolder) modelAndView.getView()).getArtifactFolder()).isEqualTo(artifactFolder);
     }
 
     @Test
@@ -61,30 +66,14 @@ public class ZipArtifactFolderViewFactoryTest {
     }
 
     private ZipArtifactCache cacheAlreadyCreated() {
-        return new ZipArtifactCache(null, null) {
-            @Override
-            public boolean cacheCreated(ArtifactFolder artifactFolder) {
-                return true;
-            }
-
-            @Override
-            public File cachedFile(ArtifactFolder artifactFolder) {
-                return cacheZipFile;
-            }
-        };
+        ZipArtifactCache cache = mock(ZipArtifactCache.class);
+        when(cache.cachedZip(any())).thenReturn(cacheZipFile);
+        return cache;
     }
 
     private ZipArtifactCache cacheNotCreated() {
-        return new ZipArtifactCache(null, null) {
-            @Override
-            public boolean cacheCreated(ArtifactFolder artifactFolder) {
-                return false;
-            }
-
-            @Override
-            public File cachedFile(ArtifactFolder artifactFolder) {
-                throw new RuntimeException("Cache file " + artifactFolder + " not created yet");
-            }
-        };
+        ZipArtifactCache cache = mock(ZipArtifactCache.class);
+        when(cache.cachedZip(any())).thenReturn(null);
+        return cache;
     }
 }
@@ -15,28 +15,32 @@
  */
 package com.thoughtworks.go.server.websocket;
 
-import com.thoughtworks.go.domain.ConsoleConsumer;
-import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
-import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
 import com.thoughtworks.go.server.service.ConsoleService;
-import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.util.function.Consumer;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
 import java.util.zip.GZIPInputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class ConsoleLogSenderTest {
@@ -45,41 +49,57 @@ public class ConsoleLogSenderTest {
     private SocketEndpoint socket;
     private JobIdentifier jobIdentifier;
     private JobInstanceDao jobInstanceDao;
-    private SystemEnvironment systemEnvironment;
-
+    private JobStatusTopic jobStatusTopic;
+    private File console;
 
     @BeforeEach
-    public void setUp() {
+    public void setUp(@TempDir Path tempDir) throws Exception {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
-        socket = mock(SocketEndpoint.class);
-        when(socket.isOpen()).thenReturn(true);
-        systemEnvironment = mock(SystemEnvironment.class);
-        when(systemEnvironment.consoleLogCharset()).thenReturn(UTF_8);
-        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, systemEnvironment);
+        jobStatusTopic = mock(JobStatusTopic.class);
+        socket = openSocket();
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, jobStatusTopic);
         jobIdentifier = mock(JobIdentifier.class);
+        when(jobIdentifier.getBuildId()).thenReturn(42L);
+
+        console = tempDir.resolve("console.log").toFile();
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(console);
+    }
+
+    @Test
+    public void shouldListenForJobStatusChanges() {
+        consoleLogSender.initialize();
+
+        verify(jobStatusTopic).addListener(consoleLogSender);
     }
 
     @Test
     public void shouldSendConsoleLog() throws Exception {
         String expected = "Expected output for this test";
-        File console = makeConsoleFile(expected);
+        writeConsole(expected);
 
         when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
-        when(consoleService.getStreamer(0L, jobIdentifier)).thenReturn(new ConsoleStreamer(console.toPath(), 0L));
-        when(consoleService.getStreamer(1L, jobIdentifier)).thenReturn(new ConsoleStreamer(console.toPath(), 1L));
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
 
-        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough((expected + '\n').getBytes(UTF_8))));
+        verify(socket).send(frame(expected + '\n'));
     }
 
     @Test
-    public void shouldSendfooConsoleLog() throws Exception {
-        File fakeFile = mock(File.class);
-        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
+    public void shouldSendConsoleLogFromTheRequestedLine() throws Exception {
+        writeConsole("First Output\nSecond Output\nThird Output\n");
 
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+
+        consoleLogSender.process(socket, jobIdentifier, 1L);
+
+        verify(socket).send(frame("Second Output\nThird Output\n"));
+    }
+
+    @Test
+    public void shouldSendfooConsoleLog() throws Exception {
         when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(false);
 
@@ -94,75 +114,147 @@ public class ConsoleLogSenderTest {
     }
 
     @Test
-    public void shouldSendConsoleLogInMultipleMessagesIfBuildInProgress() throws Exception {
-        File fakeFile = mock(File.class);
-        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
+    public void shouldCloseSocketAfterProcessingMessage() throws Exception {
+        writeConsole("foo");
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
         when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
 
-        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
-            .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
-
         consoleLogSender.process(socket, jobIdentifier, 0L);
 
-        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
-        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
+        verify(socket).close();
     }
 
     @Test
-    public void shouldSendConsoleLogEvenAfterBuildCompletion() throws Exception {
-        File fakeFile = mock(File.class);
-        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(fakeFile);
+    public void shouldShareOneTailerBetweenViewersOfARunningBuild() throws Exception {
+        writeConsole("First Output\n");
+        SocketEndpoint anotherSocket = openSocket();
+        runningBuild();
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
-        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.process(anotherSocket, jobIdentifier, 0L);
+
+        verify(socket).send(frame("First Output\n"));
+        verify(anotherSocket).send(frame("First Output\n"));
+        assertThat(consoleLogSender.numberOfTailers()).isEqualTo(1);
 
-        when(consoleService.getStreamer(0L, jobIdentifier))
-            .thenReturn(new FakeConsoleStreamer("First Output", "Second Output"));
-        when(consoleService.getStreamer(1L, jobIdentifier))
-            .thenReturn(new FakeConsoleStreamer("More Output"));
+        appendConsole("Second Output\n");
+        consoleLogSender.tailRunningBuilds();
+
+        verify(socket).sendAsync(frame("Second Output\n"));
+        verify(anotherSocket).sendAsync(frame("Second Output\n"));
+        verify(socket, never()).close();
+    }
+
+    @Test
+    public void shouldHoldBackALineUntilItHasBeenWritten() throws Exception {
+        writeConsole("First Output\nSecond");
+        runningBuild();
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.tailRunningBuilds();
 
-        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("First Output\n".getBytes(UTF_8))));
-        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("Second Output\n".getBytes(UTF_8))));
-        verify(socket, times(1)).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough("More Output\n".getBytes(UTF_8))));
+        verify(socket).send(frame("First Output\n"));
+        verify(socket, never()).sendAsync(any());
+
+        appendConsole(" Output\n");
+        consoleLogSender.tailRunningBuilds();
+
+        verify(socket).sendAsync(frame("Second Output\n"));
     }
 
     @Test
     public void shouldNotSendMessagesWhenOutputHasNotAdvanced() throws Exception {
-        File console = makeConsoleFile("First Output");
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false).thenReturn(true);
-        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
-
-        when(consoleService.getStreamer(anyLong(), eq(jobIdentifier)))
-            .thenReturn(new ConsoleStreamer(console.toPath(), 0L));
+        writeConsole("First Output\n");
+        runningBuild();
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.tailRunningBuilds();
+        consoleLogSender.tailRunningBuilds();
 
-        verify(jobInstanceDao, times(3)).isJobCompleted(jobIdentifier);
         verify(socket, times(1)).send(any());
+        verify(socket, never()).sendAsync(any());
     }
 
     @Test
-    public void shouldCloseSocketAfterProcessingMessage() throws Exception {
-        File console = makeConsoleFile("foo");
+    public void shouldNotPollTheDatabaseForCompletionWhileTailing() throws Exception {
+        writeConsole("First Output\n");
+        runningBuild();
 
-        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
-        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
-        when(consoleService.getStreamer(0L, jobIdentifier)).thenReturn(new ConsoleStreamer(console.toPath(), 0L));
-        when(consoleService.getStreamer(1L, jobIdentifier)).thenReturn(new ConsoleStreamer(console.toPath(), 1L));
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        for (int i = 0; i < 10; i++) {
+            appendConsole("More Output\n");
+            consoleLogSender.tailRunningBuilds();
+        }
+
+        // once when the viewer connected, and once when the tailer was started
+        verify(jobInstanceDao, times(2)).isJobCompleted(jobIdentifier);
+    }
+
+    @Test
+    public void shouldSendTheRestOfTheLogAndCloseViewersOnceTheJobCompletes() throws Exception {
+        writeConsole("First Output\n");
+        runningBuild();
 
         consoleLogSender.process(socket, jobIdentifier, 0L);
+        appendConsole("Last Output");
+        consoleLogSender.onMessage(new JobStatusMessage(jobIdentifier, JobState.Completed, "agent-uuid"));
+        consoleLogSender.tailRunningBuilds();
 
+        verify(socket).sendAsync(frame("Last Output\n"));
         verify(socket).close();
+        assertThat(consoleLogSender.numberOfTailers()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldIgnoreStatusChangesOtherThanCompletion() throws Exception {
+        writeConsole("First Output\n");
+        runningBuild();
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.onMessage(new JobStatusMessage(jobIdentifier, JobState.Building, "agent-uuid"));
+        consoleLogSender.tailRunningBuilds();
+
+        verify(socket, never()).close();
+        assertThat(consoleLogSender.numberOfTailers()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldStopTailingOnceNobodyIsWatching() throws Exception {
+        writeConsole("First Output\n");
+        runningBuild();
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        when(socket.isOpen()).thenReturn(false);
+        consoleLogSender.tailRunningBuilds();
+
+        assertThat(consoleLogSender.numberOfTailers()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDisconnectViewersThatCannotKeepUp() throws Exception {
+        writeConsole("First Output\n");
+        runningBuild();
+        SocketEndpoint slowSocket = mock(SocketEndpoint.class);
+        when(slowSocket.isOpen()).thenReturn(true);
+        when(slowSocket.sendAsync(any())).thenReturn(new CompletableFuture<>());
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+        consoleLogSender.process(slowSocket, jobIdentifier, 0L);
+        for (int i = 0; i <= ConsoleLogTailer.MAX_FRAMES_IN_FLIGHT; i++) {
+            appendConsole("More Output\n");
+            consoleLogSender.tailRunningBuilds();
+        }
+
+        verify(slowSocket).close(eq(ConsoleLogTailer.VIEWER_TOO_SLOW), anyString());
+        verify(socket, never()).close(anyInt(), anyString());
+        verify(socket, times(ConsoleLogTailer.MAX_FRAMES_IN_FLIGHT + 1)).sendAsync(frame("More Output\n"));
     }
 
     @Test
     public void shouldNotGzipContentsLessThan512Bytes() {
         byte[] bytes = RandomStringUtils.insecure().nextAlphanumeric(511).getBytes(UTF_8);
-        byte[] gzipped = consoleLogSender.maybeGzipIfLargeEnough(bytes);
+        byte[] gzipped = ConsoleLogFrames.maybeGzipIfLargeEnough(bytes);
         assertThat(bytes).isEqualTo(gzipped);
     }
 
@@ -170,7 +262,7 @@ public class ConsoleLogSenderTest {
     public void shouldGzipContentsGreaterThan512Bytes() throws Exception {
         byte[] bytes = RandomStringUtils.insecure().nextAlphanumeric(512).getBytes(UTF_8);
 
-        byte[] gzipped = consoleLogSender.maybeGzipIfLargeEnough(bytes);
+        byte[] gzipped = ConsoleLogFrames.maybeGzipIfLargeEnough(bytes);
         assertThat(gzipped.length).isLessThanOrEqualTo(bytes.length);
 
         GZIPInputStream gzipInputStream = new GZIPInputStream(new ByteArrayInputStream(gzipped));
@@ -180,44 +272,27 @@ public class ConsoleLogSenderTest {
         assertThat(bytes).isEqualTo(byteArrayOutputStream.toByteArray());
     }
 
-    private File makeConsoleFile(String message) throws IOException, IllegalArtifactLocationException {
-        File console = File.createTempFile("console", ".log");
-        console.deleteOnExit();
-        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(console);
-
-        Files.write(console.toPath(), message.getBytes());
-        return console;
+    private void runningBuild() {
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
     }
 
-    /**
-     * allows us to simulate log appending by doing reads with multiple invocations to stream()
-     */
-    private static class FakeConsoleStreamer implements ConsoleConsumer {
-
-        private final String[] mockedLines;
-        private int count = 0;
-
-        FakeConsoleStreamer(String... mockedLines) {
-            this.mockedLines = mockedLines;
-        }
+    private static SocketEndpoint openSocket() {
+        SocketEndpoint socket = mock(SocketEndpoint.class);
+        when(socket.isOpen()).thenReturn(true);
+        when(socket.sendAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        return socket;
+    }
 
-        @Override
-        public long stream(Consumer<String> action) {
-            // this is necessary for showing no logs has been missed out even after job completion
-            if (mockedLines.length <= count) {
-                return mockedLines.length;
-            }
-            action.accept(mockedLines[count]);
-            return ++count;
-        }
+    private static ByteBuffer frame(String content) {
+        return ByteBuffer.wrap(ConsoleLogFrames.maybeGzipIfLargeEnough(content.getBytes(UTF_8)));
+    }
 
-        @Override
-        public long totalLinesConsumed() {
-            return count;
-        }
+    private void writeConsole(String content) throws Exception {
+        Files.writeString(console.toPath(), content, UTF_8);
+    }
 
-        @Override
-        public void close() {
-        }
+    private void appendConsole(String content) throws Exception {
+        Files.writeString(console.toPath(), content, UTF_8, StandardOpenOption.APPEND);
     }
 }